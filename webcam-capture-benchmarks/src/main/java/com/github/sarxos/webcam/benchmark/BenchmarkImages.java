@@ -0,0 +1,97 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import com.github.sarxos.webcam.WebcamResolution;
+
+
+/**
+ * Synthetic images used by benchmarks. Images are smooth gradients with few solid blobs, so they
+ * compress similarly to real camera frames, and consecutive frames differ by blobs position, so
+ * motion is detected between them.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class BenchmarkImages {
+
+	private BenchmarkImages() {
+		// utility class
+	}
+
+	/**
+	 * Get size of the resolution with a given name.
+	 *
+	 * @param resolution the {@link WebcamResolution} name, e.g. VGA, HD, FHD
+	 * @return Resolution size
+	 */
+	public static Dimension size(String resolution) {
+		return WebcamResolution.valueOf(resolution).getSize();
+	}
+
+	/**
+	 * Create synthetic frame.
+	 *
+	 * @param size the image size
+	 * @param frame the frame number, blobs are moved on every frame
+	 * @return New RGB image
+	 */
+	public static BufferedImage create(Dimension size, int frame) {
+
+		int w = size.width;
+		int h = size.height;
+
+		BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g2 = bi.createGraphics();
+		try {
+
+			g2.setPaint(new GradientPaint(0, 0, new Color(30, 60, 90), w, h, new Color(200, 180, 120)));
+			g2.fillRect(0, 0, w, h);
+
+			int r = Math.max(4, Math.min(w, h) / 8);
+			int shift = frame * r / 2;
+
+			g2.setColor(Color.WHITE);
+			g2.fillOval((w / 4 + shift) % w, h / 3, r, r);
+			g2.setColor(Color.BLACK);
+			g2.fillOval(w / 2, (h / 2 + shift) % h, r, r);
+			g2.setColor(Color.RED);
+			g2.fillRect((3 * w / 4 - shift + w) % w, 2 * h / 3, r, r / 2);
+
+		} finally {
+			g2.dispose();
+		}
+
+		return bi;
+	}
+
+	/**
+	 * Get RGB bytes of the image, 3 bytes per pixel, the same layout as returned by
+	 * {@link com.github.sarxos.webcam.Webcam#getImageBytes()}.
+	 *
+	 * @param image the image
+	 * @return RGB bytes
+	 */
+	public static byte[] rgb(BufferedImage image) {
+
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int[] row = new int[w];
+		byte[] bytes = new byte[w * h * 3];
+
+		for (int y = 0, i = 0; y < h; y++) {
+			image.getRGB(0, y, w, 1, row, 0, w);
+			for (int x = 0; x < w; x++) {
+				int p = row[x];
+				bytes[i++] = (byte) (p >> 16);
+				bytes[i++] = (byte) (p >> 8);
+				bytes[i++] = (byte) p;
+			}
+		}
+
+		return bytes;
+	}
+}
@@ -0,0 +1,71 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sarxos.webcam.util.jh.JHBlurFilter;
+import com.github.sarxos.webcam.util.jh.JHGrayBlurFilter;
+import com.github.sarxos.webcam.util.jh.JHGrayFilter;
+
+
+/**
+ * Image filters used by motion detector - {@link JHBlurFilter} and {@link JHGrayFilter} applied
+ * one after another, compared with fused {@link JHGrayBlurFilter}.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+	@Param({ "QVGA", "VGA", "HD", "FHD" })
+	public String resolution;
+
+	private final JHBlurFilter blur = new JHBlurFilter(6, 6, 1);
+	private final JHGrayFilter gray = new JHGrayFilter();
+	private final JHGrayBlurFilter grayBlur = new JHGrayBlurFilter(6, 6);
+	private BufferedImage image;
+	private byte[] plane;
+
+	@Setup
+	public void setup() {
+		image = BenchmarkImages.create(BenchmarkImages.size(resolution), 0);
+		plane = new byte[image.getWidth() * image.getHeight()];
+	}
+
+	@Benchmark
+	public BufferedImage blur() {
+		return blur.filter(image, null);
+	}
+
+	@Benchmark
+	public BufferedImage gray() {
+		return gray.filter(image, null);
+	}
+
+	@Benchmark
+	public BufferedImage blurGray() {
+		return gray.filter(blur.filter(image, null), null);
+	}
+
+	@Benchmark
+	public byte[] grayBlur() {
+		return grayBlur.filterLuma(image, plane);
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sarxos.webcam.util.AdaptiveSizeWriter;
+import com.github.sarxos.webcam.util.ImageUtils;
+
+
+/**
+ * Image encoding - {@link ImageUtils#toByteArray(BufferedImage, String)} and
+ * {@link AdaptiveSizeWriter#write(BufferedImage)}.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageEncodeBenchmark {
+
+	@Param({ "QVGA", "VGA", "HD", "FHD" })
+	public String resolution;
+
+	/**
+	 * Maximum size of adaptive writer output in bytes.
+	 */
+	@Param({ "20000" })
+	public int size;
+
+	private BufferedImage image;
+	private AdaptiveSizeWriter writer;
+
+	@Setup
+	public void setup() {
+		image = BenchmarkImages.create(BenchmarkImages.size(resolution), 0);
+		writer = new AdaptiveSizeWriter(size);
+	}
+
+	@Benchmark
+	public byte[] toByteArrayJpg() {
+		return ImageUtils.toByteArray(image, ImageUtils.FORMAT_JPG);
+	}
+
+	@Benchmark
+	public byte[] toByteArrayPng() {
+		return ImageUtils.toByteArray(image, ImageUtils.FORMAT_PNG);
+	}
+
+	@Benchmark
+	public byte[] adaptiveSizeWrite() {
+		return writer.write(image);
+	}
+}
@@ -0,0 +1,99 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.sarxos.webcam.util.ImageUtils;
+import com.github.sarxos.webcam.util.MjpegInputStream;
+
+
+/**
+ * MJPEG decoding - {@link MjpegInputStream#readFrame()} over in-memory multipart stream, and
+ * frames extraction alone - {@link MjpegInputStream#readFrameBuffer()}.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MjpegInputStreamBenchmark {
+
+	/**
+	 * Number of frames in stream.
+	 */
+	private static final int FRAMES = 10;
+
+	@Param({ "QVGA", "VGA", "HD", "FHD" })
+	public String resolution;
+
+	private byte[] stream;
+
+	@Setup
+	public void setup() throws IOException {
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+		for (int i = 0; i < FRAMES; i++) {
+			byte[] jpeg = ImageUtils.toByteArray(BenchmarkImages.create(BenchmarkImages.size(resolution), i), ImageUtils.FORMAT_JPG);
+			StringBuilder sb = new StringBuilder()
+				.append("--mjpegframe\r\n")
+				.append("Content-Type: image/jpeg\r\n")
+				.append("Content-Length: ").append(jpeg.length).append("\r\n")
+				.append("\r\n");
+			baos.write(sb.toString().getBytes());
+			baos.write(jpeg);
+			baos.write("\r\n".getBytes());
+		}
+
+		stream = baos.toByteArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES)
+	public void readFrame(Blackhole bh) throws IOException {
+		try (MjpegInputStream mis = new MjpegInputStream(new ByteArrayInputStream(stream))) {
+			for (int i = 0; i < FRAMES; i++) {
+				BufferedImage frame = mis.readFrame();
+				if (frame == null) {
+					throw new IllegalStateException("Frame " + i + " cannot be read");
+				}
+				bh.consume(frame);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES)
+	public void readFrameBuffer(Blackhole bh) throws IOException {
+		try (MjpegInputStream mis = new MjpegInputStream(new ByteArrayInputStream(stream))) {
+			for (int i = 0; i < FRAMES; i++) {
+				ByteBuffer frame = mis.readFrameBuffer();
+				if (frame == null) {
+					throw new IllegalStateException("Frame " + i + " cannot be read");
+				}
+				bh.consume(frame);
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sarxos.webcam.WebcamMotionDetectorBackgroundAlgorithm;
+import com.github.sarxos.webcam.WebcamMotionDetectorDefaultAlgorithm;
+import com.github.sarxos.webcam.WebcamMotionDetectorPyramidAlgorithm;
+
+
+/**
+ * Motion detection - {@link WebcamMotionDetectorDefaultAlgorithm#filter(BufferedImage)} and
+ * {@link WebcamMotionDetectorDefaultAlgorithm#detect(BufferedImage, BufferedImage)}, compared with
+ * background model of {@link WebcamMotionDetectorBackgroundAlgorithm} and decimated detection of
+ * {@link WebcamMotionDetectorPyramidAlgorithm} (filter and detect together).
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MotionDetectorBenchmark {
+
+	@Param({ "QVGA", "VGA", "HD", "FHD" })
+	public String resolution;
+
+	private WebcamMotionDetectorDefaultAlgorithm algorithm;
+	private BufferedImage original;
+	private BufferedImage previous;
+	private BufferedImage current;
+
+	private WebcamMotionDetectorBackgroundAlgorithm background;
+	private BufferedImage[] frames;
+	private int frame = 0;
+
+	private WebcamMotionDetectorPyramidAlgorithm pyramid;
+	private BufferedImage pyramidPrevious;
+
+	@Setup
+	public void setup() {
+		algorithm = new WebcamMotionDetectorDefaultAlgorithm();
+		original = BenchmarkImages.create(BenchmarkImages.size(resolution), 1);
+		previous = algorithm.filter(BenchmarkImages.create(BenchmarkImages.size(resolution), 0));
+		current = algorithm.filter(original);
+		background = new WebcamMotionDetectorBackgroundAlgorithm();
+		frames = new BufferedImage[] { BenchmarkImages.create(BenchmarkImages.size(resolution), 0), original };
+		background.detect(null, frames[0]);
+		pyramid = new WebcamMotionDetectorPyramidAlgorithm();
+		pyramidPrevious = pyramid.filter(frames[0]);
+	}
+
+	@Benchmark
+	public BufferedImage filter() {
+		return algorithm.filter(original);
+	}
+
+	@Benchmark
+	public boolean detect() {
+		return algorithm.detect(previous, current);
+	}
+
+	@Benchmark
+	public boolean background() {
+		return background.detect(null, frames[frame++ & 1]);
+	}
+
+	@Benchmark
+	public boolean pyramid() {
+		return pyramid.detect(pyramidPrevious, pyramid.filter(original));
+	}
+
+	@Benchmark
+	public boolean pyramidIdle() {
+		return pyramid.detect(pyramidPrevious, pyramid.filter(frames[0]));
+	}
+}
@@ -0,0 +1,99 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sarxos.webcam.util.PixelKernels;
+
+
+/**
+ * Scalar and vectorized {@link PixelKernels} applied to whole frame. Benchmark is forked with
+ * {@code jdk.incubator.vector} module added, so both kernels implementations are available.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PixelKernelsBenchmark {
+
+	@Param({ "VGA", "FHD" })
+	public String resolution;
+
+	@Param({ "scalar", "vector" })
+	public String kernels;
+
+	private PixelKernels k;
+	private int[] rgb;
+	private byte[] current;
+	private byte[] previous;
+	private byte[] diff;
+	private int[] sums;
+	private int w;
+	private int h;
+
+	@Setup
+	public void setup() {
+
+		k = "vector".equals(kernels) ? PixelKernels.getVector() : PixelKernels.getScalar();
+		if (k == null) {
+			throw new IllegalStateException("Vector kernels are not available in this JVM");
+		}
+
+		Dimension size = BenchmarkImages.size(resolution);
+		BufferedImage image = BenchmarkImages.create(size, 0);
+		BufferedImage next = BenchmarkImages.create(size, 1);
+
+		w = size.width;
+		h = size.height;
+		rgb = image.getRGB(0, 0, w, h, null, 0, w);
+		current = new byte[w * h];
+		previous = new byte[w * h];
+		diff = new byte[w * h];
+		sums = new int[w];
+
+		k.luma(rgb, 0, current, 0, w * h);
+		k.luma(next.getRGB(0, 0, w, h, null, 0, w), 0, previous, 0, w * h);
+	}
+
+	@Benchmark
+	public byte[] luma() {
+		k.luma(rgb, 0, current, 0, w * h);
+		return current;
+	}
+
+	@Benchmark
+	public byte[] absDiff() {
+		k.absDiff(current, previous, 0, diff, 0, w * h);
+		return diff;
+	}
+
+	@Benchmark
+	public int countAbove() {
+		return k.countAbove(current, 0, w * h, 25);
+	}
+
+	@Benchmark
+	public int[] slideRow() {
+		for (int y = 1; y < h; y++) {
+			k.slideRow(sums, current, y * w, current, (y - 1) * w, w);
+		}
+		return sums;
+	}
+}
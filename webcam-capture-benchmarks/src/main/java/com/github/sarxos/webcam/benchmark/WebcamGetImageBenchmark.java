@@ -0,0 +1,70 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sarxos.webcam.Webcam;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+/**
+ * Capture path overhead - {@link Webcam#getImage()} and {@link Webcam#getImageBytes()} in blocking
+ * and non-blocking mode over the synthetic device.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebcamGetImageBenchmark {
+
+	@Param({ "QVGA", "VGA", "HD", "FHD" })
+	public String resolution;
+
+	@Param({ "false", "true" })
+	public boolean async;
+
+	private Webcam webcam;
+
+	@Setup
+	public void setup() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1, BenchmarkImages.size(resolution), 0, Pattern.GRADIENT, PixelFormat.RGB));
+		webcam = Webcam.getDefault();
+		webcam.open(async);
+	}
+
+	@TearDown
+	public void teardown() {
+		webcam.close();
+		Webcam.resetDriver();
+	}
+
+	@Benchmark
+	public BufferedImage getImage() {
+		return webcam.getImage();
+	}
+
+	@Benchmark
+	public ByteBuffer getImageBytes() {
+		return webcam.getImageBytes();
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.sarxos.webcam.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sarxos.webcam.Webcam;
+import com.github.sarxos.webcam.WebcamStreamer;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+/**
+ * Streamer encode path - JPEG compression and multipart framing done once per frame by
+ * {@link WebcamStreamer#encode(BufferedImage)}.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebcamStreamerBenchmark {
+
+	@Param({ "QVGA", "VGA", "HD", "FHD" })
+	public String resolution;
+
+	private WebcamStreamer streamer;
+	private BufferedImage image;
+
+	@Setup
+	public void setup() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1, BenchmarkImages.size(resolution), 0, Pattern.GRADIENT, PixelFormat.RGB));
+		image = BenchmarkImages.create(BenchmarkImages.size(resolution), 0);
+		streamer = new WebcamStreamer(0, Webcam.getDefault(), 30, false);
+	}
+
+	@TearDown
+	public void teardown() {
+		Webcam.resetDriver();
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return streamer.encode(image);
+	}
+}
@@ -26,13 +26,15 @@ import javax.imageio.ImageIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.sarxos.webcam.WebcamCompressedFrame;
 import com.github.sarxos.webcam.WebcamDevice;
+import com.github.sarxos.webcam.WebcamDevice.CompressedAccess;
 import com.github.sarxos.webcam.WebcamDevice.Configurable;
 import com.github.sarxos.webcam.WebcamExceptionHandler;
 import com.github.sarxos.webcam.WebcamResolution;
 
 
-public class FsWebcamDevice implements WebcamDevice, Configurable {
+public class FsWebcamDevice implements WebcamDevice, Configurable, CompressedAccess {
 
 	public static final String PARAM_KEY_COMPRESSION = "compression";
 	public static final String PARAM_KEY_FORMAT = "format";
@@ -194,13 +196,58 @@ public class FsWebcamDevice implements WebcamDevice, Configurable {
 
 	@Override
 	public BufferedImage getImage() {
+
+		byte[] bytes = captureBytes();
+		if (bytes == null) {
+			return null;
+		}
+
+		ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+		try {
+			return ImageIO.read(bais);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			try {
+				bais.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Return JPEG frame exactly as it has been written by fswebcam, without decoding it. This is
+	 * possible only when format is "jpeg", otherwise null is returned.
+	 */
+	@Override
+	public WebcamCompressedFrame getCompressedFrame() {
+
+		if (!"jpeg".equalsIgnoreCase(format)) {
+			return null;
+		}
+
+		byte[] bytes = captureBytes();
+		if (bytes == null) {
+			return null;
+		}
+
+		return new WebcamCompressedFrame(bytes, WebcamCompressedFrame.CONTENT_TYPE_JPEG, System.nanoTime());
+	}
+
+	/**
+	 * Run fswebcam process and read single frame it writes into the pipe.
+	 *
+	 * @return Frame bytes or null if device is closed or process failed
+	 */
+	private byte[] captureBytes() {
 		counter++;
 
 		if (!open.get()) {
 			return null;
 		}
 
-		BufferedImage image = null;
+		byte[] bytes = null;
 
 		try {
 
@@ -212,19 +259,7 @@ public class FsWebcamDevice implements WebcamDevice, Configurable {
 				throw new RuntimeException(e);
 			}
 
-			ByteArrayInputStream bais = new ByteArrayInputStream(readBytes());
-			try {
-				image = ImageIO.read(bais);
-			} catch (IOException e) {
-				process.destroy();
-				throw new RuntimeException(e);
-			} finally {
-				try {
-					bais.close();
-				} catch (IOException e) {
-					throw new RuntimeException(e);
-				}
-			}
+			bytes = readBytes();
 
 			process.waitFor();
 
@@ -252,7 +287,7 @@ public class FsWebcamDevice implements WebcamDevice, Configurable {
 			}
 		}
 
-		return image;
+		return bytes;
 	}
 
 	private void executeFsWebcamProcess() throws IOException {
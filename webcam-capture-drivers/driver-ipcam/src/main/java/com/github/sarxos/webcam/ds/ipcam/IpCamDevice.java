@@ -10,8 +10,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
-
-import javax.imageio.ImageIO;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -23,19 +26,24 @@ import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.sarxos.webcam.WebcamCompressedFrame;
 import com.github.sarxos.webcam.WebcamDevice;
 import com.github.sarxos.webcam.WebcamDevice.BufferAccess;
+import com.github.sarxos.webcam.WebcamDevice.CompressedAccess;
 import com.github.sarxos.webcam.WebcamDevice.FPSSource;
 import com.github.sarxos.webcam.WebcamException;
 import com.github.sarxos.webcam.util.ImageUtils;
@@ -43,11 +51,14 @@ import com.github.sarxos.webcam.util.MjpegInputStream;
 
 
 /**
- * IP camera device.
+ * IP camera device. JPEG frames received from camera are also available as they are, without being
+ * decoded, by {@link #getCompressedFrame()}. All devices share HTTP clients and connection pools
+ * from {@link IpCamHttpClient}, and snapshots in PULL mode are downloaded asynchronously, so they
+ * can also be requested without blocking by {@link #requestCompressedFrame()}.
  *
  * @author Bartosz Firyn (sarxos)
  */
-public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
+public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess, CompressedAccess {
 
 	/**
 	 * Logger.
@@ -58,19 +69,61 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 
 		BufferedImage readImage() throws InterruptedException;
 
+		WebcamCompressedFrame readFrame() throws InterruptedException;
+
+		CompletableFuture<WebcamCompressedFrame> requestFrame();
+
 		void halt();
 
 		void start();
 	}
 
-	private final class PushImageReader extends Thread implements ImageReader {
+	/**
+	 * Reader which keeps only the newest JPEG frame received from MJPEG stream. Frames are decoded
+	 * lazily, when image is requested, and decoded image is cached until newer frame arrives, so
+	 * decoding follows the consumer frame rate rather than the camera one. Nothing is returned
+	 * until the first frame has been successfully decoded, but later frames are passed to
+	 * {@link #readFrame()} exactly as they have been received, without being checked.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	final class PushImageReader extends Thread implements ImageReader {
 
 		private final URI uri;
 		private volatile boolean running = true;
-		private volatile BufferedImage image = null;
-		private BufferedImage tmp;
+		private volatile WebcamCompressedFrame frame = null;
 		private volatile double fps = 0;
 
+		/**
+		 * Request of the MJPEG stream being read.
+		 */
+		private volatile HttpGet request = null;
+
+		/**
+		 * Lock guarding decoded image cache.
+		 */
+		private final Object lock = new Object();
+
+		/**
+		 * The most recent decoded image, guarded by lock.
+		 */
+		private BufferedImage image = null;
+
+		/**
+		 * The frame from which the most recent image has been decoded, guarded by lock.
+		 */
+		private WebcamCompressedFrame decoded = null;
+
+		/**
+		 * Is set when any frame has been successfully decoded.
+		 */
+		private volatile boolean valid = false;
+
+		/**
+		 * Is set when stream cannot be requested, reader is stopped then.
+		 */
+		private volatile WebcamException failure = null;
+
 		public PushImageReader(final URI uri) {
 			this.uri = uri;
 			this.setDaemon(true);
@@ -78,12 +131,25 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 
 		private MjpegInputStream request(final URI uri) {
 			try {
-				return new MjpegInputStream(get(uri, true));
+				return new MjpegInputStream(get(request = new HttpGet(uri), true));
+			} catch (WebcamException e) {
+				throw e;
 			} catch (Exception e) {
 				throw new WebcamException("Cannot download image. " + e.getMessage(), e);
 			}
 		}
 
+		/**
+		 * Abort the stream request, so its connection is closed rather than drained when stream is
+		 * closed, and reader blocked on stream read is released.
+		 */
+		private void abort() {
+			final HttpGet r = request;
+			if (r != null) {
+				r.abort();
+			}
+		}
+
 		@Override
 		public void run() {
 
@@ -92,34 +158,107 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 
 			while (running) {
 				try (final MjpegInputStream stream = request(uri)) {
-					do {
-						t1 = System.currentTimeMillis();
-						if ((tmp = stream.readFrame()) != null) {
-							image = tmp;
-						}
-						t2 = System.currentTimeMillis();
-						fps = (double) 1000 / (t2 - t1 + 1);
-					} while (running && !stream.isClosed());
+					try {
+						do {
+							t1 = System.currentTimeMillis();
+							final ByteBuffer buffer = stream.readFrameBuffer();
+							if (buffer != null) {
+								store(buffer);
+							}
+							t2 = System.currentTimeMillis();
+							fps = (double) 1000 / (t2 - t1 + 1);
+						} while (running && !stream.isClosed());
+					} finally {
+						abort();
+					}
 				} catch (IOException e) {
+					if (!running) {
+						break;
+					}
 					if (e instanceof EOFException) { // EOF, ignore error and recreate stream
 						continue;
 					}
 					LOG.error("Cannot read MJPEG frame", e);
+				} catch (WebcamException e) {
+					LOG.error("Cannot request MJPEG stream from {}", uri, e);
+					failure = e;
+					running = false;
 				}
 			}
 		}
 
+		/**
+		 * Store frame bytes from stream buffer, which is valid only until the next read. Frame is
+		 * not decoded here, it replaces the previous one, which is dropped if nobody requested it.
+		 *
+		 * @param buffer the buffer with JPEG bytes
+		 */
+		void store(final ByteBuffer buffer) {
+
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+
+			frame = new WebcamCompressedFrame(bytes, WebcamCompressedFrame.CONTENT_TYPE_JPEG, System.nanoTime());
+		}
+
+		/**
+		 * Decode the newest frame if it has not been decoded yet.
+		 *
+		 * @return Image decoded from the newest frame, the last successfully decoded image if this
+		 *         frame cannot be decoded, or null if no frame has been decoded yet
+		 */
+		private BufferedImage decode() {
+			synchronized (lock) {
+				final WebcamCompressedFrame current = frame;
+				if (current != null && current != decoded) {
+					final BufferedImage tmp = current.decode();
+					if (tmp != null) {
+						image = tmp;
+						valid = true;
+					} else {
+						LOG.debug("Cannot decode JPEG frame {}", current);
+					}
+					decoded = current;
+				}
+				return image;
+			}
+		}
+
+		/**
+		 * Return image decoded from the newest frame. Frame is decoded only if it has not been
+		 * decoded yet, otherwise cached image is returned. When frame cannot be decoded, the last
+		 * successfully decoded image is returned, and if there is none yet, this method waits for
+		 * the frame which can be decoded.
+		 */
 		@Override
 		public BufferedImage readImage() throws InterruptedException {
-			while (running && image == null) {
+			BufferedImage tmp;
+			while ((tmp = decode()) == null && running) {
 				Thread.sleep(10);
 			}
-			return image;
+			if (tmp == null && failure != null) {
+				throw failure;
+			}
+			return tmp;
+		}
+
+		@Override
+		public WebcamCompressedFrame readFrame() throws InterruptedException {
+			if (!valid && readImage() == null) {
+				return null;
+			}
+			return frame;
+		}
+
+		@Override
+		public CompletableFuture<WebcamCompressedFrame> requestFrame() {
+			return CompletableFuture.completedFuture(valid || decode() != null ? frame : null);
 		}
 
 		@Override
 		public void halt() {
 			running = false;
+			abort();
 		}
 
 		@Override
@@ -128,10 +267,16 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 		}
 	}
 
+	/**
+	 * Reader which downloads new snapshot for every frame. Snapshots are downloaded by shared
+	 * asynchronous client, and blocking reads only wait for the download to complete.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
 	private final class PullImageReader implements ImageReader {
 
 		private final URI uri;
-		private double fps = 0;
+		private volatile double fps = 0;
 
 		public PullImageReader(final URI uri) {
 			this.uri = uri;
@@ -139,27 +284,116 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 
 		@Override
 		public BufferedImage readImage() throws InterruptedException {
+			final WebcamCompressedFrame frame = readFrame();
+			if (frame == null) {
+				return null;
+			}
+			return frame.decode();
+		}
 
-			long t1;
-			long t2;
+		@Override
+		public WebcamCompressedFrame readFrame() throws InterruptedException {
 
-			t1 = System.currentTimeMillis();
-			try (final InputStream is = request(uri)) {
-				return ImageIO.read(is);
-			} catch (IOException e) {
-				throw new WebcamException(e);
-			} finally {
-				t2 = System.currentTimeMillis();
-				fps = (double) 1000 / (t2 - t1 + 1);
+			final CompletableFuture<WebcamCompressedFrame> future = requestFrame();
+
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				future.cancel(true);
+				throw e;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof WebcamException) {
+					throw (WebcamException) e.getCause();
+				}
+				throw new WebcamException("Cannot download image", e.getCause());
 			}
 		}
 
-		private InputStream request(final URI uri) {
-			try {
-				return get(uri, false);
-			} catch (Exception e) {
-				throw new WebcamException("Cannot download image", e);
+		@Override
+		public CompletableFuture<WebcamCompressedFrame> requestFrame() {
+
+			final long t1 = System.currentTimeMillis();
+			final CompletableFuture<WebcamCompressedFrame> future = new CompletableFuture<>();
+			final HttpGet get = new HttpGet(uri);
+			get.setConfig(http.getRequestConfig());
+
+			final Future<HttpResponse> response = http.getAsyncClient().execute(get, createContext(), new FutureCallback<HttpResponse>() {
+
+				@Override
+				public void completed(HttpResponse response) {
+					final long t2 = System.currentTimeMillis();
+					fps = (double) 1000 / (t2 - t1 + 1);
+					try {
+						future.complete(toFrame(response));
+					} catch (IOException e) {
+						future.completeExceptionally(e);
+					}
+				}
+
+				@Override
+				public void failed(Exception e) {
+					if (e instanceof TimeoutException) {
+						future.completeExceptionally(http.poolExhausted(url, e));
+					} else {
+						future.completeExceptionally(e);
+					}
+				}
+
+				@Override
+				public void cancelled() {
+					future.cancel(false);
+				}
+			});
+
+			// cancelling frame request cancels download
+
+			future.whenComplete((frame, e) -> {
+				if (e instanceof CancellationException) {
+					response.cancel(true);
+				}
+			});
+
+			return future;
+		}
+
+		/**
+		 * Convert snapshot response into frame.
+		 *
+		 * @param response the HTTP response
+		 * @return Frame or null if camera has not returned snapshot
+		 * @throws IOException when response body cannot be read
+		 */
+		private WebcamCompressedFrame toFrame(final HttpResponse response) throws IOException {
+
+			final HttpEntity entity = response.getEntity();
+			final int status = response.getStatusLine().getStatusCode();
+
+			if (status < 200 || status >= 300 || entity == null) {
+				LOG.debug("No snapshot from {}, status {}", uri, response.getStatusLine());
+				EntityUtils.consume(entity);
+				return null;
+			}
+
+			final byte[] bytes = EntityUtils.toByteArray(entity);
+
+			return new WebcamCompressedFrame(bytes, getContentType(entity), System.nanoTime());
+		}
+
+		/**
+		 * Get image content type without parameters, snapshots without content type are assumed
+		 * to be JPEG images.
+		 *
+		 * @param entity the HTTP entity
+		 * @return Content type
+		 */
+		private String getContentType(final HttpEntity entity) {
+			final Header header = entity.getContentType();
+			if (header == null) {
+				return WebcamCompressedFrame.CONTENT_TYPE_JPEG;
 			}
+			final String value = header.getValue();
+			final int semicolon = value.indexOf(';');
+			return (semicolon < 0 ? value : value.substring(0, semicolon)).trim();
 		}
 
 		@Override
@@ -183,11 +417,12 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 	private final IpCamMode mode;
 	private final IpCamAuth auth;
 
-	private final HttpClient client;
-	private final HttpContext context;
-	private ImageReader reader;
+	private final IpCamHttpClient http;
+	private final CredentialsProvider credentials;
+	private final AuthCache authCache;
+	private volatile ImageReader reader;
 
-	private boolean open = false;
+	private volatile boolean open = false;
 
 	private Dimension[] sizes = null;
 	private Dimension size = null;
@@ -214,9 +449,9 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 		this.url = url;
 		this.mode = mode;
 		this.auth = auth;
-		this.client = createClient();
-		this.context = createContext();
-
+		this.http = IpCamHttpClient.getDefault();
+		this.credentials = createCredentials();
+		this.authCache = createAuthCache();
 	}
 
 	protected static final URL toURL(String url) {
@@ -238,12 +473,11 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 		}
 	}
 
+	/**
+	 * @return Blocking HTTP client shared by all IP camera devices
+	 */
 	public HttpClient getClient() {
-		return client;
-	}
-
-	private HttpClient createClient() {
-		return HttpClientBuilder.create().build();
+		return http.getClient();
 	}
 
 	private ImageReader createReader() {
@@ -257,7 +491,7 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 		}
 	}
 
-	private HttpContext createContext() {
+	private CredentialsProvider createCredentials() {
 
 		final IpCamAuth auth = getAuth();
 
@@ -265,26 +499,56 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 			return null;
 		}
 
-		final URI uri = toURI(url);
-		final HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
 		final Credentials credentials = new UsernamePasswordCredentials(auth.getUserName(), auth.getPassword());
 		final CredentialsProvider provider = new BasicCredentialsProvider();
 		provider.setCredentials(AuthScope.ANY, credentials);
 
+		return provider;
+	}
+
+	private AuthCache createAuthCache() {
+
+		if (getAuth() == null) {
+			return null;
+		}
+
+		final URI uri = toURI(url);
+		final HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
 		final AuthCache cache = new BasicAuthCache();
 		cache.put(host, new BasicScheme());
 
+		return cache;
+	}
+
+	/**
+	 * Create new context for a single request. Contexts are not shared between requests, since
+	 * these can be executed concurrently, but credentials and authentication cache are.
+	 *
+	 * @return New context or null if camera does not require authentication
+	 */
+	private HttpContext createContext() {
+
+		if (credentials == null) {
+			return null;
+		}
+
 		final HttpClientContext context = HttpClientContext.create();
-		context.setCredentialsProvider(provider);
-		context.setAuthCache(cache);
+		context.setCredentialsProvider(credentials);
+		context.setAuthCache(authCache);
 
 		return context;
 	}
 
-	private InputStream get(final URI uri, boolean withoutImageMime) throws UnsupportedOperationException, IOException {
+	private InputStream get(final HttpGet get, boolean withoutImageMime) throws UnsupportedOperationException, IOException {
+
+		get.setConfig(http.getRequestConfig());
 
-		final HttpGet get = new HttpGet(uri);
-		final HttpResponse respone = client.execute(get, context);
+		final HttpResponse respone;
+		try {
+			respone = http.getClient().execute(get, createContext());
+		} catch (ConnectionPoolTimeoutException e) {
+			throw http.poolExhausted(url, e);
+		}
 		final HttpEntity entity = respone.getEntity();
 
 		// normal jpeg return image/jpeg as opposite to mjpeg
@@ -292,9 +556,11 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 		if (withoutImageMime) {
 			final Header contentType = entity.getContentType();
 			if (contentType == null) {
+				get.abort();
 				throw new WebcamException("Content Type header is missing");
 			}
 			if (contentType.getValue().startsWith("image/")) {
+				get.abort();
 				throw new WebcamException("Cannot read images in PUSH mode, change mode to PULL " + contentType);
 			}
 		}
@@ -365,6 +631,49 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 		}
 	}
 
+	/**
+	 * Return JPEG frame exactly as it has been received from camera. In PUSH mode this is the most
+	 * recent frame from MJPEG stream, returned once any frame from the stream has been successfully
+	 * decoded, while in PULL mode new snapshot is downloaded.
+	 */
+	@Override
+	public synchronized WebcamCompressedFrame getCompressedFrame() {
+		if (!open) {
+			return null;
+		}
+		try {
+			return reader.readFrame();
+		} catch (InterruptedException e) {
+			throw new WebcamException(e);
+		}
+	}
+
+	/**
+	 * Frames are never consumed, in PUSH mode the most recent frame is kept and returned until
+	 * newer one arrives, and in PULL mode new snapshot is downloaded for every request.
+	 */
+	@Override
+	public boolean isFrameConsumed() {
+		return false;
+	}
+
+	/**
+	 * Request frame without blocking. In PUSH mode returned future is already completed with the
+	 * most recent frame from MJPEG stream, or with null if no frame has been decoded yet, while in
+	 * PULL mode it completes when new snapshot is
+	 * downloaded, so many cameras can be polled by a few threads.
+	 *
+	 * @return Future completed with frame, or with null if camera has not returned snapshot
+	 * @throws IllegalStateException if device is not open
+	 */
+	public CompletableFuture<WebcamCompressedFrame> requestCompressedFrame() {
+		final ImageReader r = reader;
+		if (!open || r == null) {
+			throw new IllegalStateException("IP camera device " + name + " is not open");
+		}
+		return r.requestFrame();
+	}
+
 	/**
 	 * This method will send HTTP HEAD request to the camera URL to check whether it's online or
 	 * offline. It's online when this request succeed and it's offline if any exception occurs or
@@ -374,9 +683,10 @@ public class IpCamDevice implements WebcamDevice, FPSSource, BufferAccess {
 	 */
 	public boolean isOnline() {
 		LOG.debug("Checking online status for {} at {}", getName(), getURL());
-		try {
-			return client
-				.execute(new HttpHead(toURI(getURL())))
+		final HttpHead head = new HttpHead(toURI(getURL()));
+		head.setConfig(http.getRequestConfig());
+		try (final CloseableHttpResponse response = http.getClient().execute(head, createContext())) {
+			return response
 				.getStatusLine()
 				.getStatusCode() != 404;
 		} catch (Exception e) {
@@ -1,5 +1,6 @@
 package com.github.sarxos.webcam.ds.ipcam;
 
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -24,7 +25,8 @@ import com.github.sarxos.webcam.WebcamExceptionHandler;
 
 
 /**
- * IP camera driver.
+ * IP camera driver. All IP camera devices share HTTP clients and connection pools, which can be
+ * tuned with this driver (max connections, per-host limits, keep-alive and timeouts).
  *
  * @author Bartosz Firyn (sarxos)
  */
@@ -260,4 +262,120 @@ public class IpCamDriver implements WebcamDriver, WebcamDiscoverySupport {
 		}
 		this.scanTimeout = scanTimeout;
 	}
+
+	/**
+	 * @return HTTP clients shared by all IP camera devices
+	 */
+	public IpCamHttpClient getHttpClient() {
+		return IpCamHttpClient.getDefault();
+	}
+
+	/**
+	 * @return Max number of HTTP connections to all IP cameras
+	 */
+	public int getMaxConnections() {
+		return getHttpClient().getMaxConnections();
+	}
+
+	/**
+	 * Set max number of HTTP connections to all IP cameras. Please note that every camera in PUSH
+	 * mode holds one connection for as long as it's open.
+	 *
+	 * @param max the max number of connections
+	 */
+	public void setMaxConnections(int max) {
+		getHttpClient().setMaxConnections(max);
+	}
+
+	/**
+	 * @return Max number of HTTP connections to a single host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return getHttpClient().getMaxConnectionsPerHost();
+	}
+
+	/**
+	 * Set max number of HTTP connections to a single host.
+	 *
+	 * @param max the max number of connections to a single host
+	 */
+	public void setMaxConnectionsPerHost(int max) {
+		getHttpClient().setMaxConnectionsPerHost(max);
+	}
+
+	/**
+	 * Set max number of HTTP connections to the host of a given URL, e.g. to a video recorder
+	 * serving many cameras.
+	 *
+	 * @param url the URL of the host
+	 * @param max the max number of connections to this host
+	 */
+	public void setMaxConnectionsPerHost(URL url, int max) {
+		getHttpClient().setMaxConnectionsPerHost(url, max);
+	}
+
+	/**
+	 * @return Keep-alive time of idle HTTP connections in milliseconds
+	 */
+	public long getKeepAlive() {
+		return getHttpClient().getKeepAlive();
+	}
+
+	/**
+	 * Set keep-alive time of idle HTTP connections.
+	 *
+	 * @param keepAlive the keep-alive time in milliseconds
+	 */
+	public void setKeepAlive(long keepAlive) {
+		getHttpClient().setKeepAlive(keepAlive);
+	}
+
+	/**
+	 * @return HTTP connect timeout in milliseconds
+	 */
+	public int getConnectTimeout() {
+		return getHttpClient().getConnectTimeout();
+	}
+
+	/**
+	 * Set HTTP connect timeout.
+	 *
+	 * @param timeout the connect timeout in milliseconds, 0 means no timeout
+	 */
+	public void setConnectTimeout(int timeout) {
+		getHttpClient().setConnectTimeout(timeout);
+	}
+
+	/**
+	 * @return HTTP socket timeout in milliseconds
+	 */
+	public int getSocketTimeout() {
+		return getHttpClient().getSocketTimeout();
+	}
+
+	/**
+	 * Set HTTP socket timeout, the max time of inactivity between two data packets.
+	 *
+	 * @param timeout the socket timeout in milliseconds, 0 means no timeout
+	 */
+	public void setSocketTimeout(int timeout) {
+		getHttpClient().setSocketTimeout(timeout);
+	}
+
+	/**
+	 * @return HTTP lease timeout in milliseconds
+	 */
+	public int getLeaseTimeout() {
+		return getHttpClient().getLeaseTimeout();
+	}
+
+	/**
+	 * Set HTTP lease timeout, the max time to wait for a free connection when connection pool is
+	 * exhausted. Camera which cannot get connection within this time fails to open.
+	 *
+	 * @param timeout the lease timeout in milliseconds
+	 */
+	public void setLeaseTimeout(int timeout) {
+		getHttpClient().setLeaseTimeout(timeout);
+	}
 }
@@ -0,0 +1,514 @@
+package com.github.sarxos.webcam.ds.ipcam;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.sarxos.webcam.WebcamException;
+import com.github.sarxos.webcam.WebcamExceptionHandler;
+
+
+/**
+ * HTTP clients shared by all IP camera devices. There is one blocking client, used for MJPEG
+ * streams in PUSH mode and for online checks, and one asynchronous (NIO) client, used to download
+ * snapshots in PULL mode, so hundreds of cameras can be polled by a handful of I/O threads. Both
+ * clients use connection pools with the same limits, keep-alive and timeouts, which can be changed
+ * at any time, also from {@link IpCamDriver}. Asynchronous client is started when it's used for the
+ * first time.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class IpCamHttpClient {
+
+	/**
+	 * Thread factory for asynchronous client I/O threads.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static class ReactorThreadFactory implements ThreadFactory {
+
+		/**
+		 * Next number for created thread.
+		 */
+		private final AtomicInteger number = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "ipcam-http-io-" + number.incrementAndGet());
+			t.setUncaughtExceptionHandler(WebcamExceptionHandler.getInstance());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Lazily created default instance.
+	 */
+	private static final class DefaultHolder {
+
+		private static final IpCamHttpClient INSTANCE = new IpCamHttpClient();
+	}
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(IpCamHttpClient.class);
+
+	/**
+	 * Default max number of connections.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 1000;
+
+	/**
+	 * Default max number of connections to a single host.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 100;
+
+	/**
+	 * Default keep-alive time in milliseconds.
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 30000;
+
+	/**
+	 * Default connect timeout in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * Default socket timeout in milliseconds, 0 means no timeout.
+	 */
+	public static final int DEFAULT_SOCKET_TIMEOUT = 0;
+
+	/**
+	 * Default lease timeout in milliseconds, the max time to wait for a free connection from pool.
+	 */
+	public static final int DEFAULT_LEASE_TIMEOUT = 10000;
+
+	/**
+	 * How often expired connections are evicted from asynchronous client pool, in seconds. This is
+	 * the same period as used by blocking client evictor.
+	 */
+	private static final long EVICT_PERIOD = 10;
+
+	/**
+	 * Max number of connections.
+	 */
+	private volatile int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+	/**
+	 * Max number of connections to a single host.
+	 */
+	private volatile int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+	/**
+	 * Max number of connections to specific hosts.
+	 */
+	private final Map<HttpRoute, Integer> hostLimits = new ConcurrentHashMap<>();
+
+	/**
+	 * Max time in milliseconds for which idle connection is kept open.
+	 */
+	private volatile long keepAlive = DEFAULT_KEEP_ALIVE;
+
+	/**
+	 * Request configuration with current timeouts.
+	 */
+	private volatile RequestConfig config;
+
+	/**
+	 * Number of asynchronous client I/O threads.
+	 */
+	private volatile int ioThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Blocking client connection manager.
+	 */
+	private final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+
+	/**
+	 * Blocking client.
+	 */
+	private final CloseableHttpClient client;
+
+	/**
+	 * Asynchronous client connection manager, guarded by this.
+	 */
+	private PoolingNHttpClientConnectionManager asyncManager = null;
+
+	/**
+	 * Asynchronous client, guarded by this.
+	 */
+	private CloseableHttpAsyncClient asyncClient = null;
+
+	/**
+	 * Evicts expired connections from asynchronous client pool, guarded by this.
+	 */
+	private ScheduledExecutorService asyncEvictor = null;
+
+	/**
+	 * Keep-alive strategy which honors Keep-Alive header but never exceeds configured keep-alive.
+	 * Pooled connections therefore always expire, and evictors close them once they are idle for
+	 * longer than keep-alive time.
+	 */
+	private final ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+		}
+	};
+
+	/**
+	 * Create new clients. Use {@link #getDefault()} to obtain clients shared by all devices.
+	 */
+	public IpCamHttpClient() {
+
+		this.config = RequestConfig.custom()
+			.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT)
+			.setSocketTimeout(DEFAULT_SOCKET_TIMEOUT)
+			.setConnectionRequestTimeout(DEFAULT_LEASE_TIMEOUT)
+			.build();
+
+		manager.setMaxTotal(maxConnections);
+		manager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+		client = HttpClientBuilder.create()
+			.setConnectionManager(manager)
+			.setKeepAliveStrategy(keepAliveStrategy)
+			.setDefaultRequestConfig(config)
+			.evictExpiredConnections()
+			.build();
+	}
+
+	/**
+	 * @return Clients shared by all IP camera devices
+	 */
+	public static IpCamHttpClient getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * @return Blocking HTTP client
+	 */
+	public CloseableHttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Return asynchronous HTTP client, start it if it's not started yet.
+	 *
+	 * @return Asynchronous HTTP client
+	 */
+	public synchronized CloseableHttpAsyncClient getAsyncClient() {
+
+		if (asyncClient != null) {
+			return asyncClient;
+		}
+
+		final ThreadFactory factory = new ReactorThreadFactory();
+		final IOReactorConfig reactorConfig = IOReactorConfig.custom()
+			.setIoThreadCount(ioThreads)
+			.setConnectTimeout(config.getConnectTimeout())
+			.build();
+
+		try {
+			asyncManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig, factory));
+		} catch (IOReactorException e) {
+			throw new WebcamException("Cannot create I/O reactor for IP cameras", e);
+		}
+
+		asyncManager.setMaxTotal(maxConnections);
+		asyncManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+		for (Entry<HttpRoute, Integer> limit : hostLimits.entrySet()) {
+			asyncManager.setMaxPerRoute(limit.getKey(), limit.getValue());
+		}
+
+		asyncClient = HttpAsyncClientBuilder.create()
+			.setConnectionManager(asyncManager)
+			.setKeepAliveStrategy(keepAliveStrategy)
+			.setDefaultRequestConfig(config)
+			.setThreadFactory(factory)
+			.build();
+		asyncClient.start();
+
+		// asynchronous client builder has no evictor, so expired connections are evicted here
+
+		final PoolingNHttpClientConnectionManager evicted = asyncManager;
+
+		asyncEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ipcam-http-evictor");
+				t.setUncaughtExceptionHandler(WebcamExceptionHandler.getInstance());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		asyncEvictor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				evicted.closeExpiredConnections();
+			}
+		}, EVICT_PERIOD, EVICT_PERIOD, TimeUnit.SECONDS);
+
+		LOG.debug("Asynchronous HTTP client started with {} I/O threads", ioThreads);
+
+		return asyncClient;
+	}
+
+	/**
+	 * @return Request configuration with current timeouts
+	 */
+	public RequestConfig getRequestConfig() {
+		return config;
+	}
+
+	/**
+	 * @return Max number of connections
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set max number of connections. Each MJPEG stream in PUSH mode holds one connection for as
+	 * long as the camera is open.
+	 *
+	 * @param max the max number of connections
+	 */
+	public synchronized void setMaxConnections(int max) {
+		if (max <= 0) {
+			throw new IllegalArgumentException("Max connections must be positive");
+		}
+		maxConnections = max;
+		manager.setMaxTotal(max);
+		if (asyncManager != null) {
+			asyncManager.setMaxTotal(max);
+		}
+	}
+
+	/**
+	 * @return Max number of connections to a single host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Set max number of connections to a single host, unless different limit has been set for this
+	 * host with {@link #setMaxConnectionsPerHost(URL, int)}.
+	 *
+	 * @param max the max number of connections to a single host
+	 */
+	public synchronized void setMaxConnectionsPerHost(int max) {
+		if (max <= 0) {
+			throw new IllegalArgumentException("Max connections per host must be positive");
+		}
+		maxConnectionsPerHost = max;
+		manager.setDefaultMaxPerRoute(max);
+		if (asyncManager != null) {
+			asyncManager.setDefaultMaxPerRoute(max);
+		}
+	}
+
+	/**
+	 * Set max number of connections to the host of a given URL (its protocol, host name and port).
+	 *
+	 * @param url the URL of the host
+	 * @param max the max number of connections to this host
+	 */
+	public synchronized void setMaxConnectionsPerHost(URL url, int max) {
+		if (url == null) {
+			throw new IllegalArgumentException("URL cannot be null");
+		}
+		if (max <= 0) {
+			throw new IllegalArgumentException("Max connections per host must be positive");
+		}
+		final HttpRoute route = toRoute(url);
+		hostLimits.put(route, max);
+		manager.setMaxPerRoute(route, max);
+		if (asyncManager != null) {
+			asyncManager.setMaxPerRoute(route, max);
+		}
+	}
+
+	/**
+	 * Create route the same way as HTTP clients plan it for a direct request to the given URL, so
+	 * limits set for this route apply to requests sent to this URL. Route to https host is secure.
+	 *
+	 * @param url the URL
+	 * @return Route to the host of a given URL
+	 */
+	static HttpRoute toRoute(URL url) {
+		final HttpHost host = new HttpHost(url.getHost(), url.getPort() == -1 ? url.getDefaultPort() : url.getPort(), url.getProtocol());
+		return new HttpRoute(host, null, "https".equalsIgnoreCase(url.getProtocol()));
+	}
+
+	/**
+	 * @return Blocking client connection manager
+	 */
+	PoolingHttpClientConnectionManager getConnectionManager() {
+		return manager;
+	}
+
+	/**
+	 * @return Asynchronous client connection manager, null if client has not been started yet
+	 */
+	synchronized PoolingNHttpClientConnectionManager getAsyncConnectionManager() {
+		return asyncManager;
+	}
+
+	/**
+	 * @return Keep-alive time in milliseconds
+	 */
+	public long getKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * Set max time for which idle connection is kept open to be reused. Shorter time is used when
+	 * camera sends Keep-Alive header with lower timeout. Connections which are already idle for
+	 * longer than the new time are closed immediately. Connections released afterwards expire after
+	 * the new time and are closed by evictors of both clients.
+	 *
+	 * @param keepAlive the keep-alive time in milliseconds
+	 */
+	public synchronized void setKeepAlive(long keepAlive) {
+		if (keepAlive <= 0) {
+			throw new IllegalArgumentException("Keep-alive time must be positive");
+		}
+		this.keepAlive = keepAlive;
+		manager.closeIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+		if (asyncManager != null) {
+			asyncManager.closeIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @return Connect timeout in milliseconds
+	 */
+	public int getConnectTimeout() {
+		return config.getConnectTimeout();
+	}
+
+	/**
+	 * Set connect timeout. It applies to requests started after this call.
+	 *
+	 * @param timeout the connect timeout in milliseconds, 0 means no timeout
+	 */
+	public synchronized void setConnectTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Connect timeout cannot be negative");
+		}
+		config = RequestConfig.copy(config).setConnectTimeout(timeout).build();
+	}
+
+	/**
+	 * @return Socket timeout in milliseconds
+	 */
+	public int getSocketTimeout() {
+		return config.getSocketTimeout();
+	}
+
+	/**
+	 * Set socket timeout, which is the max time of inactivity between two consecutive data
+	 * packets. It applies to requests started after this call.
+	 *
+	 * @param timeout the socket timeout in milliseconds, 0 means no timeout
+	 */
+	public synchronized void setSocketTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Socket timeout cannot be negative");
+		}
+		config = RequestConfig.copy(config).setSocketTimeout(timeout).build();
+	}
+
+	/**
+	 * @return Lease timeout in milliseconds
+	 */
+	public int getLeaseTimeout() {
+		return config.getConnectionRequestTimeout();
+	}
+
+	/**
+	 * Set lease timeout, which is the max time to wait for a free connection when all connections
+	 * allowed by pool limits are in use, for example by MJPEG streams of cameras open in PUSH mode.
+	 * Request fails with {@link WebcamException} when it expires. It applies to requests started
+	 * after this call.
+	 *
+	 * @param timeout the lease timeout in milliseconds
+	 */
+	public synchronized void setLeaseTimeout(int timeout) {
+		if (timeout <= 0) {
+			throw new IllegalArgumentException("Lease timeout must be positive");
+		}
+		config = RequestConfig.copy(config).setConnectionRequestTimeout(timeout).build();
+	}
+
+	/**
+	 * Create exception thrown when no free connection to the host of a given URL has been leased
+	 * from pool within lease timeout.
+	 *
+	 * @param url the URL of the request
+	 * @param cause the pool timeout exception
+	 * @return Exception describing exhausted pool
+	 */
+	WebcamException poolExhausted(URL url, Exception cause) {
+		final String message = String.format(
+			"No free HTTP connection to %s within %d ms, all connections allowed by pool limits (%d in total, %d per host) are in use, "
+				+ "note that every IP camera open in PUSH mode holds one connection, limits can be raised in IpCamDriver",
+			url.getHost(), getLeaseTimeout(), maxConnections, maxConnectionsPerHost);
+		return new WebcamException(message, cause);
+	}
+
+	/**
+	 * @return Number of asynchronous client I/O threads
+	 */
+	public int getIoThreads() {
+		return ioThreads;
+	}
+
+	/**
+	 * Set number of asynchronous client I/O threads. This is possible only before the client is
+	 * started, that is, before any camera is polled in PULL mode.
+	 *
+	 * @param threads the number of I/O threads
+	 */
+	public synchronized void setIoThreads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of I/O threads must be positive");
+		}
+		if (asyncClient != null) {
+			throw new IllegalStateException("Asynchronous HTTP client has already been started");
+		}
+		ioThreads = threads;
+	}
+}
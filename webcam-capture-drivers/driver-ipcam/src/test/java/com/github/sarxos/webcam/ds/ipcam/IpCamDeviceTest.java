@@ -0,0 +1,208 @@
+package com.github.sarxos.webcam.ds.ipcam;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.WebcamException;
+import com.github.sarxos.webcam.ds.ipcam.IpCamDevice.PushImageReader;
+
+
+public class IpCamDeviceTest {
+
+	private static ByteBuffer jpeg(int rgb) throws IOException {
+		BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 16; x++) {
+			for (int y = 0; y < 16; y++) {
+				image.setRGB(x, y, rgb);
+			}
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", baos);
+		return ByteBuffer.wrap(baos.toByteArray());
+	}
+
+	/**
+	 * Create PUSH reader which is not started, so frames are stored manually.
+	 */
+	private static PushImageReader reader() throws Exception {
+		IpCamDevice device = new IpCamDevice("test", "http://127.0.0.1/video.mjpg", IpCamMode.PUSH);
+		return device.new PushImageReader(new URI("http://127.0.0.1/video.mjpg"));
+	}
+
+	@Test
+	public void test_pushDecodeOnce() throws Exception {
+
+		PushImageReader reader = reader();
+		reader.store(jpeg(0xFF0000));
+
+		// the same frame is decoded only once
+
+		BufferedImage image1 = reader.readImage();
+		BufferedImage image2 = reader.readImage();
+
+		Assert.assertNotNull(image1);
+		Assert.assertSame(image1, image2);
+
+		// new frame is decoded again
+
+		reader.store(jpeg(0x0000FF));
+
+		BufferedImage image3 = reader.readImage();
+
+		Assert.assertNotNull(image3);
+		Assert.assertNotSame(image1, image3);
+		Assert.assertTrue((image3.getRGB(8, 8) & 0xFF) > 0xA0);
+		Assert.assertSame(image3, reader.readImage());
+
+		// frame which cannot be decoded keeps the last image
+
+		reader.store(ByteBuffer.wrap("not a jpeg".getBytes(StandardCharsets.US_ASCII)));
+
+		Assert.assertSame(image3, reader.readImage());
+	}
+
+	@Test
+	public void test_pushWaitForFirstDecodedFrame() throws Exception {
+
+		final PushImageReader reader = reader();
+		final AtomicReference<BufferedImage> image = new AtomicReference<BufferedImage>();
+
+		reader.store(ByteBuffer.wrap("not a jpeg".getBytes(StandardCharsets.US_ASCII)));
+
+		Assert.assertNull(reader.requestFrame().get());
+
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					image.set(reader.readImage());
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		thread.start();
+		thread.join(200);
+
+		// nothing is returned until frame can be decoded
+
+		Assert.assertTrue(thread.isAlive());
+
+		reader.store(jpeg(0x00FF00));
+		thread.join(5000);
+
+		Assert.assertFalse(thread.isAlive());
+		Assert.assertNotNull(image.get());
+		Assert.assertNotNull(reader.readFrame());
+		Assert.assertNotNull(reader.requestFrame().get());
+	}
+
+	/**
+	 * Start server which streams the same JPEG frame as MJPEG to every client until it's closed.
+	 */
+	private static ServerSocket stream() throws IOException {
+
+		final ServerSocket server = new ServerSocket(0);
+		final byte[] frame = jpeg(0xFF0000).array();
+
+		Thread acceptor = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				while (!server.isClosed()) {
+					final Socket socket;
+					try {
+						socket = server.accept();
+					} catch (IOException e) {
+						return;
+					}
+					Thread writer = new Thread(new Runnable() {
+
+						@Override
+						public void run() {
+							try (Socket s = socket) {
+								InputStream is = s.getInputStream();
+								OutputStream os = s.getOutputStream();
+								int c;
+								int n = 0;
+								while (n < 4 && (c = is.read()) != -1) {
+									n = c == '\r' || c == '\n' ? n + 1 : 0;
+								}
+								os.write("HTTP/1.1 200 OK\r\nContent-Type: multipart/x-mixed-replace; boundary=frame\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+								while (!server.isClosed()) {
+									os.write(("--frame\r\nContent-Type: image/jpeg\r\nContent-Length: " + frame.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+									os.write(frame);
+									os.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+									os.flush();
+									Thread.sleep(50);
+								}
+							} catch (Exception e) {
+								return;
+							}
+						}
+					});
+					writer.setDaemon(true);
+					writer.start();
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		return server;
+	}
+
+	@Test
+	public void test_poolExhausted() throws Exception {
+
+		IpCamHttpClient http = IpCamHttpClient.getDefault();
+
+		try (ServerSocket server = stream()) {
+
+			URL url = new URL("http://127.0.0.1:" + server.getLocalPort() + "/video.mjpg");
+
+			http.setMaxConnectionsPerHost(url, 1);
+			http.setLeaseTimeout(300);
+
+			IpCamDevice first = new IpCamDevice("first", url, IpCamMode.PUSH);
+			IpCamDevice second = new IpCamDevice("second", url, IpCamMode.PUSH);
+
+			first.open();
+
+			try {
+				// the only connection to this host is held by the first camera stream
+
+				long t1 = System.currentTimeMillis();
+				try {
+					second.open();
+					Assert.fail("Camera should not open when connection pool is exhausted");
+				} catch (WebcamException e) {
+					Assert.assertTrue(e.getMessage().contains("No free HTTP connection"));
+				}
+				long t2 = System.currentTimeMillis();
+
+				Assert.assertTrue(t2 - t1 < 5000);
+			} finally {
+				http.setLeaseTimeout(IpCamHttpClient.DEFAULT_LEASE_TIMEOUT);
+				second.close();
+				first.close();
+			}
+		}
+	}
+}
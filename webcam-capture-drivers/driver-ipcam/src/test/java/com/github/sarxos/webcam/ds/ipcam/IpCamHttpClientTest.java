@@ -0,0 +1,87 @@
+package com.github.sarxos.webcam.ds.ipcam;
+
+import java.net.URI;
+import java.net.URL;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class IpCamHttpClientTest {
+
+	@Test
+	public void test_timeouts() {
+
+		IpCamHttpClient http = new IpCamHttpClient();
+		http.setConnectTimeout(1500);
+		http.setSocketTimeout(2500);
+		http.setLeaseTimeout(3500);
+
+		Assert.assertEquals(1500, http.getRequestConfig().getConnectTimeout());
+		Assert.assertEquals(2500, http.getRequestConfig().getSocketTimeout());
+		Assert.assertEquals(3500, http.getRequestConfig().getConnectionRequestTimeout());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_invalidMaxConnections() {
+		new IpCamHttpClient().setMaxConnectionsPerHost(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void test_ioThreadsAfterStart() {
+
+		IpCamHttpClient http = new IpCamHttpClient();
+		http.setIoThreads(2);
+
+		Assert.assertNotNull(http.getAsyncClient());
+
+		http.setIoThreads(3);
+	}
+
+	/**
+	 * Plan route for the request to the given URL the same way as HTTP clients do.
+	 */
+	private static HttpRoute plan(String url) throws Exception {
+		URI uri = new URI(url);
+		return new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE).determineRoute(URIUtils.extractHost(uri), new HttpGet(uri), HttpClientContext.create());
+	}
+
+	private static void assertMaxPerRoute(IpCamHttpClient http, String url, int max) throws Exception {
+		HttpRoute route = plan(url);
+		Assert.assertEquals(max, http.getConnectionManager().getMaxPerRoute(route));
+		Assert.assertEquals(max, http.getAsyncConnectionManager().getMaxPerRoute(route));
+	}
+
+	@Test
+	public void test_maxConnectionsPerHost() throws Exception {
+
+		IpCamHttpClient http = new IpCamHttpClient();
+		http.setMaxConnectionsPerHost(10);
+		http.setMaxConnectionsPerHost(new URL("http://camera1.local/image.jpg"), 3);
+		http.setMaxConnectionsPerHost(new URL("https://camera2.local:8443/image.jpg"), 5);
+
+		// limits set before asynchronous client is started are applied when it starts
+
+		Assert.assertNotNull(http.getAsyncClient());
+
+		http.setMaxConnectionsPerHost(new URL("https://camera3.local/image.jpg"), 7);
+
+		assertMaxPerRoute(http, "http://camera1.local/video.mjpg", 3);
+		assertMaxPerRoute(http, "http://camera1.local:80/image.jpg", 3);
+		assertMaxPerRoute(http, "https://camera2.local:8443/video.mjpg", 5);
+		assertMaxPerRoute(http, "https://camera3.local/image.jpg", 7);
+		assertMaxPerRoute(http, "https://camera3.local:443/image.jpg", 7);
+
+		// different protocol or port is different host
+
+		assertMaxPerRoute(http, "http://camera2.local:8443/image.jpg", 10);
+		assertMaxPerRoute(http, "https://camera1.local/image.jpg", 10);
+		assertMaxPerRoute(http, "http://camera3.local/image.jpg", 10);
+	}
+}
@@ -6,28 +6,73 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 
+import com.github.sarxos.webcam.WebcamCompressedFrame;
 import com.github.sarxos.webcam.WebcamDevice;
 import com.github.sarxos.webcam.WebcamException;
+import com.github.sarxos.webcam.ds.mjpeg.nio.MjpegIngest;
 import com.github.sarxos.webcam.util.MjpegInputStream;
 
 
 /**
- * This class abstract virtual device getting images from MJPEG source.
+ * This class abstract virtual device getting images from MJPEG source. Frames can also be obtained
+ * as JPEG bytes, exactly as they have been received, without being decoded.<br>
+ * <br>
+ * By default every device reads its stream with blocking {@link URLConnection}, and every image is
+ * the next frame from the stream. When device is created with {@link MjpegIngest}, its stream is
+ * read by the ingest selector threads together with many other streams, and every image is the
+ * latest frame received, decoded only when requested.
  *
  * @author Bartosz Firyn (sarxos)
  */
-public class MjpegCaptureDevice implements WebcamDevice {
+public class MjpegCaptureDevice implements WebcamDevice, WebcamDevice.CompressedAccess {
+
+	/**
+	 * Default time to wait for the first frame from ingest stream, in milliseconds.
+	 */
+	private static final long FIRST_FRAME_TIMEOUT = 10000;
 
 	private final URL url;
 
+	/**
+	 * The ingest engine, null when device reads its stream by itself.
+	 */
+	private final MjpegIngest ingest;
+
+	/**
+	 * The ingest stream, when device is open with ingest.
+	 */
+	private volatile MjpegIngest.Stream ingestStream;
+
+	/**
+	 * The most recent decoded image from ingest stream, guarded by this.
+	 */
+	private BufferedImage image;
+
+	/**
+	 * The frame from which the most recent image has been decoded, guarded by this.
+	 */
+	private WebcamCompressedFrame decoded;
+
 	private URLConnection connection;
 	private MjpegInputStream stream;
 	private Dimension size;
 	private boolean open = false;
 
 	public MjpegCaptureDevice(final URL url) {
+		this(url, null);
+	}
+
+	/**
+	 * Create device which stream is read by the given ingest engine.
+	 *
+	 * @param url the stream URL
+	 * @param ingest the ingest engine, null if device should read stream by itself
+	 */
+	public MjpegCaptureDevice(final URL url, final MjpegIngest ingest) {
 		this.url = url;
+		this.ingest = ingest;
 	}
 
 	@Override
@@ -72,6 +117,11 @@ public class MjpegCaptureDevice implements WebcamDevice {
 
 	@Override
 	public BufferedImage getImage() {
+
+		if (ingest != null) {
+			return getIngestImage();
+		}
+
 		try {
 			return stream.readFrame();
 		} catch (IOException e) {
@@ -79,6 +129,84 @@ public class MjpegCaptureDevice implements WebcamDevice {
 		}
 	}
 
+	/**
+	 * Decode the latest frame from ingest stream, or return cached image if this frame has already
+	 * been decoded.
+	 *
+	 * @return Image or null if no frame has been received
+	 */
+	private synchronized BufferedImage getIngestImage() {
+
+		final WebcamCompressedFrame frame = getIngestFrame();
+		if (frame == null) {
+			return null;
+		}
+
+		if (frame != decoded) {
+			final BufferedImage tmp = frame.decode();
+			if (tmp != null) {
+				image = tmp;
+			}
+			decoded = frame;
+		}
+
+		return image;
+	}
+
+	/**
+	 * Return the latest frame from ingest stream, wait for the first one if needed.
+	 *
+	 * @return Frame or null if device is closed or no frame has been received
+	 */
+	private WebcamCompressedFrame getIngestFrame() {
+
+		final MjpegIngest.Stream s = ingestStream;
+		if (s == null) {
+			return null;
+		}
+
+		try {
+			return s.awaitFrame(FIRST_FRAME_TIMEOUT);
+		} catch (InterruptedException e) {
+			throw new WebcamException("Interrupted when waiting for frame from " + url, e);
+		}
+	}
+
+	/**
+	 * Frames are consumed only when device reads stream by itself, ingest stream keeps the latest
+	 * frame for both images and compressed frames.
+	 */
+	@Override
+	public boolean isFrameConsumed() {
+		return ingest == null;
+	}
+
+	@Override
+	public WebcamCompressedFrame getCompressedFrame() {
+
+		if (ingest != null) {
+			return getIngestFrame();
+		}
+
+		final ByteBuffer buffer;
+		try {
+			buffer = stream.readFrameBuffer();
+		} catch (IOException e) {
+			throw new WebcamException("Cannot get compressed frame from " + url, e);
+		}
+
+		if (buffer == null) {
+			return null;
+		}
+
+		// buffer is valid only until the next read, so bytes have to be copied
+
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		return new WebcamCompressedFrame(bytes, WebcamCompressedFrame.CONTENT_TYPE_JPEG, System.nanoTime());
+	}
+
 	@Override
 	public void open() {
 
@@ -86,6 +214,12 @@ public class MjpegCaptureDevice implements WebcamDevice {
 			return;
 		}
 
+		if (ingest != null) {
+			ingestStream = ingest.open(url);
+			open = true;
+			return;
+		}
+
 		try {
 			connection = url.openConnection();
 		} catch (IOException e) {
@@ -107,6 +241,13 @@ public class MjpegCaptureDevice implements WebcamDevice {
 			return;
 		}
 
+		if (ingestStream != null) {
+			ingestStream.close();
+			ingestStream = null;
+			open = false;
+			return;
+		}
+
 		if (connection != null && connection instanceof Closeable) {
 			try {
 				((Closeable) connection).close();
@@ -12,13 +12,16 @@ import java.util.Set;
 import com.github.sarxos.webcam.Webcam;
 import com.github.sarxos.webcam.WebcamDevice;
 import com.github.sarxos.webcam.WebcamDriver;
+import com.github.sarxos.webcam.ds.mjpeg.nio.MjpegIngest;
 import com.github.sarxos.webcam.ds.mjpeg.tcp.TcpConnectionRegistrar;
 
 
 /**
  * This is capture driver which returns a list of {@link MjpegCaptureDevice} instances which can be
  * used by {@link Webcam} to stream images feed from. To have {@link MjpegCaptureDevice} instances
- * returned one have to register MJPEG {@link URI}s first.
+ * returned one have to register MJPEG {@link URI}s first. When many streams are registered, the
+ * {@link MjpegIngest} can be set with {@link #withIngest(MjpegIngest)}, so all the streams are read
+ * by a few selector threads instead of a thread per stream.
  *
  * @author Bartosz Firyn (sarxos)
  */
@@ -30,6 +33,8 @@ public class MjpegCaptureDriver implements WebcamDriver {
 
 	private final Set<URL> urls = new LinkedHashSet<>();
 
+	private MjpegIngest ingest = null;
+
 	public MjpegCaptureDriver() {
 	}
 
@@ -48,11 +53,22 @@ public class MjpegCaptureDriver implements WebcamDriver {
 		return this;
 	}
 
+	/**
+	 * Read streams of all devices created by this driver with the given ingest engine.
+	 *
+	 * @param ingest the ingest engine, null to read every stream by its device
+	 * @return This driver
+	 */
+	public MjpegCaptureDriver withIngest(final MjpegIngest ingest) {
+		this.ingest = ingest;
+		return this;
+	}
+
 	@Override
 	public List<WebcamDevice> getDevices() {
 		final List<WebcamDevice> devices = new ArrayList<>();
 		for (final URL url : urls) {
-			devices.add(new MjpegCaptureDevice(url));
+			devices.add(new MjpegCaptureDevice(url, ingest));
 		}
 		return devices;
 	}
@@ -0,0 +1,329 @@
+package com.github.sarxos.webcam.ds.mjpeg.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.github.sarxos.webcam.util.MjpegInputStream;
+
+
+/**
+ * Incremental MJPEG parser. Bytes are read into internal buffer as they arrive from non-blocking
+ * channel and frames are extracted as soon as they are complete, so single thread can parse many
+ * streams at once. It understands the same streams as {@link MjpegInputStream}, that is, frame
+ * starts with SOI marker and its length is taken from Content-Length header of the part or, when
+ * there is no such header, frame ends with EOI marker. When stream is HTTP response, status line
+ * and response headers are checked and skipped first.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+class MjpegFrameParser {
+
+	/**
+	 * Parser state.
+	 */
+	private enum State {
+
+		/**
+		 * Reading HTTP response headers.
+		 */
+		RESPONSE,
+
+		/**
+		 * Looking for SOI marker, with part headers in front of it.
+		 */
+		HEADER,
+
+		/**
+		 * Reading frame of known length.
+		 */
+		BODY,
+
+		/**
+		 * Looking for EOI marker, frame length is unknown.
+		 */
+		EOI,
+
+		/**
+		 * Skipping frame which is too long.
+		 */
+		SKIP,
+	}
+
+	/**
+	 * Max length of part headers or HTTP response headers.
+	 */
+	static final int HEADER_MAX_LENGTH = 64 * 1024;
+
+	/**
+	 * Initial buffer size, at least this many bytes are free for every read.
+	 */
+	static final int CHUNK_LENGTH = 16 * 1024;
+
+	/**
+	 * Max frame length.
+	 */
+	private final int maxFrameLength;
+
+	/**
+	 * Buffer bytes.
+	 */
+	private byte[] bytes = new byte[CHUNK_LENGTH];
+
+	/**
+	 * Index of the first byte not consumed yet.
+	 */
+	private int pos = 0;
+
+	/**
+	 * Index after the last byte read.
+	 */
+	private int limit = 0;
+
+	/**
+	 * Index from which marker scanning continues, so no byte is scanned twice.
+	 */
+	private int scan = 0;
+
+	/**
+	 * Current state.
+	 */
+	private State state;
+
+	/**
+	 * Length of frame being read, or number of bytes left to be skipped.
+	 */
+	private int length = 0;
+
+	/**
+	 * Number of frames skipped because of their length.
+	 */
+	private long skipped = 0;
+
+	/**
+	 * Create new parser.
+	 *
+	 * @param maxFrameLength the max length of single JPEG frame, in bytes
+	 * @param http true if stream starts with HTTP response status line and headers
+	 */
+	MjpegFrameParser(final int maxFrameLength, final boolean http) {
+		if (maxFrameLength <= 0) {
+			throw new IllegalArgumentException("Max frame length must be positive");
+		}
+		this.maxFrameLength = maxFrameLength;
+		this.state = http ? State.RESPONSE : State.HEADER;
+	}
+
+	/**
+	 * Read available bytes from channel into buffer. Consumed bytes are discarded and buffer grows
+	 * when there is not enough space.
+	 *
+	 * @param channel the channel to read from
+	 * @return Number of bytes read, or -1 on end of stream
+	 * @throws IOException when channel cannot be read
+	 */
+	int read(final ReadableByteChannel channel) throws IOException {
+
+		if (bytes.length - limit < CHUNK_LENGTH) {
+
+			if (pos > 0) {
+				System.arraycopy(bytes, pos, bytes, 0, limit - pos);
+				limit -= pos;
+				scan -= pos;
+				pos = 0;
+			}
+
+			if (bytes.length - limit < CHUNK_LENGTH) {
+				bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, limit + CHUNK_LENGTH));
+			}
+		}
+
+		final int n = channel.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit));
+		if (n > 0) {
+			limit += n;
+		}
+
+		return n;
+	}
+
+	/**
+	 * Extract next complete frame from buffered bytes.
+	 *
+	 * @return New array with JPEG bytes, or null if more bytes are needed
+	 * @throws IOException when stream is invalid
+	 */
+	byte[] next() throws IOException {
+
+		while (true) {
+			switch (state) {
+
+				case RESPONSE:
+					if (!response()) {
+						return null;
+					}
+					break;
+
+				case HEADER:
+					if (!header()) {
+						return null;
+					}
+					break;
+
+				case BODY:
+					if (limit - pos < length) {
+						return null;
+					}
+					return frame(length);
+
+				case EOI:
+					final int eoi = find(0xD9, maxFrameLength);
+					if (eoi < 0) {
+						if (limit - pos >= maxFrameLength) {
+							throw new IOException("Invalid MJPEG stream, EOI (0xFF,0xD9) not found in " + maxFrameLength + " bytes");
+						}
+						return null;
+					}
+					return frame(eoi + 2 - pos);
+
+				case SKIP:
+					final int n = Math.min(length, limit - pos);
+					pos += n;
+					scan = pos;
+					length -= n;
+					if (length > 0) {
+						return null;
+					}
+					state = State.HEADER;
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Check and skip HTTP response status line and headers.
+	 *
+	 * @return True if headers have been skipped, false if more bytes are needed
+	 * @throws IOException when response status is not 200 or headers are too long
+	 */
+	private boolean response() throws IOException {
+
+		int end = -1;
+		for (int i = Math.max(pos, scan - 3), n = Math.min(limit, pos + HEADER_MAX_LENGTH) - 3; i < n; i++) {
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') {
+				end = i + 4;
+				break;
+			}
+		}
+
+		if (end < 0) {
+			if (limit - pos >= HEADER_MAX_LENGTH) {
+				throw new IOException("Invalid HTTP response, headers longer than " + HEADER_MAX_LENGTH + " bytes");
+			}
+			scan = limit;
+			return false;
+		}
+
+		int eol = pos;
+		while (bytes[eol] != '\r') {
+			eol++;
+		}
+
+		final String status = new String(bytes, pos, eol - pos, StandardCharsets.ISO_8859_1);
+		final String[] parts = status.split(" ", 3);
+		if (parts.length < 2 || !parts[0].startsWith("HTTP/") || !"200".equals(parts[1])) {
+			throw new IOException("Unexpected HTTP response status: " + status);
+		}
+
+		pos = scan = end;
+		state = State.HEADER;
+
+		return true;
+	}
+
+	/**
+	 * Find SOI marker and parse part headers in front of it.
+	 *
+	 * @return True if SOI has been found, false if more bytes are needed
+	 * @throws IOException when SOI cannot be found in part headers
+	 */
+	private boolean header() throws IOException {
+
+		final int soi = find(0xD8, HEADER_MAX_LENGTH);
+		if (soi < 0) {
+			if (limit - pos >= HEADER_MAX_LENGTH) {
+				throw new IOException("Invalid MJPEG stream, SOI (0xFF,0xD8) not found in " + HEADER_MAX_LENGTH + " bytes");
+			}
+			return false;
+		}
+
+		final int contentLength = MjpegInputStream.parseContentLength(bytes, pos, soi);
+
+		// frame starts at SOI, header bytes are consumed
+
+		pos = soi;
+		scan = soi + 2;
+
+		if (contentLength > maxFrameLength) {
+			skipped++;
+			length = contentLength;
+			state = State.SKIP;
+		} else if (contentLength > 0) {
+			length = contentLength;
+			state = State.BODY;
+		} else {
+			state = State.EOI;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Find FFh followed by given marker byte in unconsumed bytes, continuing from where the
+	 * previous scan stopped.
+	 *
+	 * @param marker the marker byte following FFh
+	 * @param capacity the max number of unconsumed bytes to scan
+	 * @return Buffer index of FFh or -1 if not found yet
+	 */
+	private int find(final int marker, final int capacity) {
+
+		final byte[] b = bytes;
+		final byte m = (byte) marker;
+		final int n = (int) Math.min(limit, (long) pos + capacity) - 1;
+
+		int i = Math.max(pos, scan);
+		for (; i < n; i++) {
+			if (b[i] == (byte) 0xFF && b[i + 1] == m) {
+				return i;
+			}
+		}
+
+		scan = i;
+
+		return -1;
+	}
+
+	/**
+	 * Copy frame of given length starting at current position, consume it and wait for next part
+	 * headers.
+	 *
+	 * @param len the frame length
+	 * @return Frame bytes
+	 */
+	private byte[] frame(final int len) {
+		final byte[] frame = Arrays.copyOfRange(bytes, pos, pos + len);
+		pos += len;
+		scan = pos;
+		state = State.HEADER;
+		return frame;
+	}
+
+	/**
+	 * @return Number of frames skipped because they were longer than max frame length
+	 */
+	long getSkipped() {
+		return skipped;
+	}
+}
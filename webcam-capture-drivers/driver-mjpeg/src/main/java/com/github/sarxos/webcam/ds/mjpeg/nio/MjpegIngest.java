@@ -0,0 +1,805 @@
+package com.github.sarxos.webcam.ds.mjpeg.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.sarxos.webcam.WebcamCompressedFrame;
+import com.github.sarxos.webcam.WebcamException;
+import com.github.sarxos.webcam.WebcamExceptionHandler;
+import com.github.sarxos.webcam.util.MjpegInputStream;
+
+
+/**
+ * Engine reading many MJPEG streams over non-blocking {@link SocketChannel}s on one or a few
+ * selector threads, so hundreds of streams can be received without a thread per stream. Frames are
+ * parsed incrementally as bytes arrive and only the latest frame of each stream is published, still
+ * compressed, to be decoded by the consumer when needed. Both "http" and raw "tcp" URLs are
+ * supported. Streams which end, fail or stall are reconnected after a delay. When selector thread
+ * fails, its streams are moved to the remaining threads.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class MjpegIngest {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MjpegIngest.class);
+
+	/**
+	 * Thread number.
+	 */
+	private static final AtomicInteger NT = new AtomicInteger(0);
+
+	/**
+	 * Default delay before stream is reconnected, in milliseconds.
+	 */
+	public static final long DEFAULT_RECONNECT_DELAY = 1000;
+
+	/**
+	 * Default max time without any bytes received after which stream is reconnected, in
+	 * milliseconds. It also limits connect time.
+	 */
+	public static final long DEFAULT_TIMEOUT = 10000;
+
+	/**
+	 * How often reconnects and timeouts are checked, in milliseconds.
+	 */
+	private static final long CHECK_INTERVAL = 100;
+
+	/**
+	 * Thread factory.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class IngestThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread t = new Thread(runnable, String.format("mjpeg-ingest-%d", NT.incrementAndGet()));
+			t.setUncaughtExceptionHandler(WebcamExceptionHandler.getInstance());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Single MJPEG stream received by the engine. It holds the latest frame received.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static final class Stream {
+
+		private final URL url;
+		private final String host;
+		private final int port;
+
+		/**
+		 * HTTP request to be sent after connection is established, null for raw TCP streams.
+		 */
+		private final byte[] request;
+
+		/**
+		 * The selector loop this stream is read by, it changes when loop fails.
+		 */
+		private volatile Loop loop = null;
+
+		/**
+		 * The latest frame.
+		 */
+		private volatile WebcamCompressedFrame frame = null;
+
+		private final AtomicLong frames = new AtomicLong(0);
+		private volatile boolean connected = false;
+		private volatile boolean closed = false;
+
+		// fields below are accessed only from selector loop thread
+
+		private SocketChannel channel = null;
+		private SelectionKey key = null;
+		private MjpegFrameParser parser = null;
+		private ByteBuffer pending = null;
+		private long activity = 0;
+		private long reconnect = 0;
+
+		private Stream(URL url) {
+			this.url = url;
+			this.request = toRequest(url);
+			this.host = url.getHost();
+			this.port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+			if (port < 0) {
+				throw new IllegalArgumentException("Port is missing in MJPEG stream URL " + url);
+			}
+		}
+
+		/**
+		 * @return Stream URL
+		 */
+		public URL getURL() {
+			return url;
+		}
+
+		/**
+		 * @return The latest frame or null if no frame has been received yet
+		 */
+		public WebcamCompressedFrame getFrame() {
+			return frame;
+		}
+
+		/**
+		 * Return the latest frame, wait for the first one if no frame has been received yet.
+		 *
+		 * @param timeout the max time to wait in milliseconds
+		 * @return The latest frame or null if no frame has been received in given time
+		 * @throws InterruptedException when thread has been interrupted while waiting
+		 */
+		public WebcamCompressedFrame awaitFrame(long timeout) throws InterruptedException {
+			WebcamCompressedFrame f = frame;
+			if (f != null) {
+				return f;
+			}
+			final long deadline = System.currentTimeMillis() + timeout;
+			synchronized (this) {
+				while ((f = frame) == null && !closed) {
+					final long left = deadline - System.currentTimeMillis();
+					if (left <= 0) {
+						break;
+					}
+					wait(left);
+				}
+			}
+			return f;
+		}
+
+		/**
+		 * @return Number of frames received
+		 */
+		public long getFramesCount() {
+			return frames.get();
+		}
+
+		/**
+		 * @return True if stream is connected now
+		 */
+		public boolean isConnected() {
+			return connected;
+		}
+
+		/**
+		 * @return True if stream has been closed
+		 */
+		public boolean isClosed() {
+			return closed;
+		}
+
+		/**
+		 * Close stream, it will not be reconnected any more.
+		 */
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			synchronized (this) {
+				notifyAll();
+			}
+
+			// when loop has failed, stream is either already moved to other loop, or it will not be
+			// moved because it's closed
+
+			for (Loop l = loop; l != null;) {
+				final Loop target = l;
+				if (target.submit(() -> target.remove(this))) {
+					break;
+				}
+				l = loop == target ? null : loop;
+			}
+		}
+
+		private void terminate() {
+			closed = true;
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+
+		private void publish(byte[] bytes) {
+			frames.incrementAndGet();
+			frame = new WebcamCompressedFrame(bytes, WebcamCompressedFrame.CONTENT_TYPE_JPEG, System.nanoTime());
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s]", getClass().getSimpleName(), url);
+		}
+	}
+
+	/**
+	 * Selector loop serving some of the streams.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private final class Loop implements Runnable {
+
+		private final Selector selector;
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		private final List<Stream> streams = new ArrayList<>();
+
+		/**
+		 * Number of streams, can be read from any thread.
+		 */
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		/**
+		 * Has this loop failed? Dead loop does not accept any tasks, guarded by this.
+		 */
+		private volatile boolean dead = false;
+
+		Loop() throws IOException {
+			selector = Selector.open();
+		}
+
+		/**
+		 * Submit task to be run by loop thread.
+		 *
+		 * @param task the task
+		 * @return False if loop has failed and task will never be run
+		 */
+		synchronized boolean submit(Runnable task) {
+			if (dead) {
+				return false;
+			}
+			tasks.add(task);
+			selector.wakeup();
+			return true;
+		}
+
+		void add(Stream stream) {
+			if (stream.closed) {
+				count.decrementAndGet();
+				return;
+			}
+			streams.add(stream);
+			if (!dead) {
+				connect(stream);
+			}
+		}
+
+		void remove(Stream stream) {
+			if (streams.remove(stream)) {
+				disconnect(stream);
+				count.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void run() {
+
+			long check = 0;
+
+			while (running) {
+
+				try {
+
+					selector.select(CHECK_INTERVAL);
+
+					runTasks();
+
+					final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						final SelectionKey key = keys.next();
+						keys.remove();
+						if (key.isValid()) {
+							handle(key);
+						}
+					}
+
+					final long now = System.currentTimeMillis();
+					if (now - check >= CHECK_INTERVAL) {
+						check = now;
+						check(now);
+					}
+
+				} catch (IOException | ClosedSelectorException e) {
+					LOG.error("Selector failure, moving streams to other threads", e);
+					abandon();
+					break;
+				}
+			}
+
+			for (Stream stream : streams) {
+				disconnect(stream);
+				stream.terminate();
+			}
+
+			try {
+				selector.close();
+			} catch (IOException e) {
+				LOG.debug("Cannot close selector", e);
+			}
+		}
+
+		private void runTasks() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					LOG.error("Selector task failed", e);
+				}
+			}
+		}
+
+		/**
+		 * Mark this loop dead and move all its streams to other loops. Streams are closed when there
+		 * is no other loop left.
+		 */
+		private void abandon() {
+
+			synchronized (this) {
+				dead = true;
+			}
+
+			// no more tasks can be submitted, streams assigned to this loop in the meantime are
+			// added to the list without being connected
+
+			runTasks();
+
+			final List<Stream> orphans = new ArrayList<>(streams);
+			for (Stream stream : orphans) {
+				disconnect(stream);
+			}
+			streams.clear();
+			count.set(0);
+
+			for (Stream stream : orphans) {
+				if (!running || assign(stream) == null) {
+					stream.terminate();
+				}
+			}
+		}
+
+		private void connect(Stream stream) {
+
+			stream.activity = System.currentTimeMillis();
+			stream.reconnect = 0;
+			stream.parser = new MjpegFrameParser(maxFrameLength, stream.request != null);
+			stream.pending = stream.request == null ? null : ByteBuffer.wrap(stream.request);
+
+			try {
+				// address is resolved on every connect, so stream recovers when DNS was not
+				// available before
+
+				final InetSocketAddress address = new InetSocketAddress(stream.host, stream.port);
+
+				stream.channel = SocketChannel.open();
+				stream.channel.configureBlocking(false);
+				if (stream.channel.connect(address)) {
+					stream.key = stream.channel.register(selector, interest(stream), stream);
+					connected(stream);
+				} else {
+					stream.key = stream.channel.register(selector, SelectionKey.OP_CONNECT, stream);
+				}
+			} catch (IOException | UnresolvedAddressException e) {
+				fail(stream, e);
+			}
+		}
+
+		private int interest(Stream stream) {
+			return stream.pending != null ? SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+		}
+
+		private void connected(Stream stream) {
+			stream.connected = true;
+			LOG.debug("Connected {}", stream);
+		}
+
+		private void handle(SelectionKey key) {
+
+			final Stream stream = (Stream) key.attachment();
+			final long now = System.currentTimeMillis();
+
+			try {
+
+				if (key.isConnectable()) {
+					if (!stream.channel.finishConnect()) {
+						return;
+					}
+					stream.activity = now;
+					key.interestOps(interest(stream));
+					connected(stream);
+					return;
+				}
+
+				if (key.isWritable()) {
+					stream.channel.write(stream.pending);
+					if (!stream.pending.hasRemaining()) {
+						stream.pending = null;
+						key.interestOps(SelectionKey.OP_READ);
+					}
+					return;
+				}
+
+				if (key.isReadable()) {
+
+					final int n = stream.parser.read(stream.channel);
+					if (n < 0) {
+						LOG.debug("End of stream {}", stream);
+						disconnect(stream);
+						stream.reconnect = now + reconnectDelay;
+						return;
+					}
+
+					stream.activity = now;
+
+					// only the latest of frames completed by this read is published
+
+					byte[] latest = null;
+					for (byte[] bytes; (bytes = stream.parser.next()) != null;) {
+						latest = bytes;
+					}
+					if (latest != null) {
+						stream.publish(latest);
+					}
+				}
+
+			} catch (IOException e) {
+				fail(stream, e);
+			} catch (RuntimeException e) {
+				LOG.error("Unexpected failure of " + stream, e);
+				fail(stream, null);
+			}
+		}
+
+		private void check(long now) {
+			for (Stream stream : streams) {
+				if (stream.channel == null) {
+					if (stream.reconnect <= now) {
+						connect(stream);
+					}
+				} else if (now - stream.activity > timeout) {
+					LOG.warn("No data from {} in {} ms, reconnecting", stream, timeout);
+					disconnect(stream);
+					stream.reconnect = now + reconnectDelay;
+				}
+			}
+		}
+
+		private void fail(Stream stream, Exception e) {
+			if (e != null) {
+				LOG.warn("Stream {} failed, reconnecting in {} ms: {}", stream, reconnectDelay, e.getMessage());
+			}
+			disconnect(stream);
+			stream.reconnect = System.currentTimeMillis() + reconnectDelay;
+		}
+
+		private void disconnect(Stream stream) {
+
+			stream.connected = false;
+			stream.parser = null;
+			stream.pending = null;
+
+			if (stream.key != null) {
+				stream.key.cancel();
+				stream.key = null;
+			}
+
+			if (stream.channel != null) {
+				try {
+					stream.channel.close();
+				} catch (IOException e) {
+					LOG.debug("Cannot close channel of " + stream, e);
+				}
+				stream.channel = null;
+			}
+		}
+	}
+
+	/**
+	 * Is engine running?
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Selector loops.
+	 */
+	private final Loop[] loops;
+
+	/**
+	 * Selector loop threads.
+	 */
+	private final Thread[] threads;
+
+	/**
+	 * Max length of single frame.
+	 */
+	private final int maxFrameLength;
+
+	/**
+	 * Reconnect delay in milliseconds.
+	 */
+	private volatile long reconnectDelay = DEFAULT_RECONNECT_DELAY;
+
+	/**
+	 * Max time without data in milliseconds.
+	 */
+	private volatile long timeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * Create engine with single selector thread.
+	 */
+	public MjpegIngest() {
+		this(1);
+	}
+
+	/**
+	 * Create engine with given number of selector threads and default max frame length.
+	 *
+	 * @param threads the number of selector threads
+	 */
+	public MjpegIngest(int threads) {
+		this(threads, MjpegInputStream.DEFAULT_MAX_FRAME_LENGTH);
+	}
+
+	/**
+	 * Create engine.
+	 *
+	 * @param threads the number of selector threads
+	 * @param maxFrameLength the max length of single JPEG frame, in bytes
+	 */
+	public MjpegIngest(int threads, int maxFrameLength) {
+
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of threads must be positive");
+		}
+		if (maxFrameLength <= 0) {
+			throw new IllegalArgumentException("Max frame length must be positive");
+		}
+
+		this.maxFrameLength = maxFrameLength;
+		this.loops = new Loop[threads];
+		this.threads = new Thread[threads];
+
+		final ThreadFactory factory = new IngestThreadFactory();
+
+		for (int i = 0; i < threads; i++) {
+			try {
+				loops[i] = new Loop();
+			} catch (IOException e) {
+				throw new WebcamException("Cannot open selector", e);
+			}
+			this.threads[i] = factory.newThread(loops[i]);
+			this.threads[i].start();
+		}
+	}
+
+	/**
+	 * Start receiving MJPEG stream from given URL. Stream is assigned to selector thread serving
+	 * the lowest number of streams. Host name is resolved by the selector thread every time stream
+	 * is connected.
+	 *
+	 * @param url the stream URL, "http" or "tcp"
+	 * @return New stream
+	 */
+	public Stream open(URL url) {
+
+		if (url == null) {
+			throw new IllegalArgumentException("Stream URL cannot be null");
+		}
+		if (!running) {
+			throw new IllegalStateException("MJPEG ingest has been shut down");
+		}
+
+		final Stream stream = new Stream(url);
+		if (assign(stream) == null) {
+			throw new IllegalStateException("All MJPEG ingest threads have failed");
+		}
+
+		return stream;
+	}
+
+	/**
+	 * Assign stream to the live selector loop serving the lowest number of streams.
+	 *
+	 * @param stream the stream
+	 * @return The loop or null if all loops have failed
+	 */
+	private Loop assign(Stream stream) {
+		while (true) {
+
+			Loop loop = null;
+			for (Loop l : loops) {
+				if (!l.dead && (loop == null || l.count.get() < loop.count.get())) {
+					loop = l;
+				}
+			}
+			if (loop == null) {
+				return null;
+			}
+
+			final Loop target = loop;
+
+			stream.loop = target;
+			target.count.incrementAndGet();
+			if (target.submit(() -> target.add(stream))) {
+				return target;
+			}
+			target.count.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Build request to be sent after connection is established.
+	 *
+	 * @param url the stream URL
+	 * @return HTTP request bytes, or null for raw TCP stream
+	 */
+	private static byte[] toRequest(URL url) {
+
+		final String protocol = url.getProtocol();
+
+		if ("tcp".equals(protocol)) {
+			return null;
+		}
+		if (!"http".equals(protocol)) {
+			throw new IllegalArgumentException("Unsupported MJPEG stream protocol " + protocol + ", only http and tcp are supported");
+		}
+
+		final String file = url.getFile().isEmpty() ? "/" : url.getFile();
+		final String host = url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+
+		final StringBuilder sb = new StringBuilder()
+			.append("GET ").append(file).append(" HTTP/1.0\r\n")
+			.append("Host: ").append(host).append("\r\n");
+
+		if (url.getUserInfo() != null) {
+			final byte[] credentials = decode(url.getUserInfo());
+			sb.append("Authorization: Basic ").append(Base64.getEncoder().encodeToString(credentials)).append("\r\n");
+		}
+
+		sb.append("\r\n");
+
+		return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Decode percent-encoded user info, e.g. "%40" in user name or password, into UTF-8 bytes.
+	 * Unlike {@link java.net.URLDecoder}, plus sign is kept as it is.
+	 *
+	 * @param userInfo the user info from URL
+	 * @return Decoded user info bytes
+	 */
+	private static byte[] decode(String userInfo) {
+
+		final byte[] bytes = userInfo.getBytes(StandardCharsets.UTF_8);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length);
+
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] == '%' && i + 2 < bytes.length) {
+				final int hi = Character.digit(bytes[i + 1], 16);
+				final int lo = Character.digit(bytes[i + 2], 16);
+				if (hi >= 0 && lo >= 0) {
+					baos.write(hi << 4 | lo);
+					i += 2;
+					continue;
+				}
+			}
+			baos.write(bytes[i]);
+		}
+
+		return baos.toByteArray();
+	}
+
+	/**
+	 * @return Number of streams being received
+	 */
+	public int getStreamsCount() {
+		int count = 0;
+		for (Loop loop : loops) {
+			count += loop.count.get();
+		}
+		return count;
+	}
+
+	/**
+	 * @return Number of selector threads
+	 */
+	public int getThreadsCount() {
+		return threads.length;
+	}
+
+	/**
+	 * @return Delay before stream is reconnected, in milliseconds
+	 */
+	public long getReconnectDelay() {
+		return reconnectDelay;
+	}
+
+	/**
+	 * Set delay before stream which has ended or failed is reconnected.
+	 *
+	 * @param reconnectDelay the delay in milliseconds
+	 */
+	public void setReconnectDelay(long reconnectDelay) {
+		if (reconnectDelay < 0) {
+			throw new IllegalArgumentException("Reconnect delay cannot be negative");
+		}
+		this.reconnectDelay = reconnectDelay;
+	}
+
+	/**
+	 * @return Max time without any data, in milliseconds
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Set max time without any bytes received, after which stream is reconnected. It also limits
+	 * the time of establishing connection.
+	 *
+	 * @param timeout the timeout in milliseconds
+	 */
+	public void setTimeout(long timeout) {
+		if (timeout <= 0) {
+			throw new IllegalArgumentException("Timeout must be positive");
+		}
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Stop all selector threads and close all streams.
+	 */
+	public void shutdown() {
+
+		if (!running) {
+			return;
+		}
+
+		running = false;
+
+		for (Loop loop : loops) {
+			loop.selector.wakeup();
+		}
+
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return True if engine has been shut down
+	 */
+	public boolean isShutdown() {
+		return !running;
+	}
+}
@@ -0,0 +1,136 @@
+package com.github.sarxos.webcam.ds.mjpeg.nio;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.util.ImageUtils;
+
+
+public class MjpegFrameParserTest {
+
+	/**
+	 * Channel which returns at most 7 bytes per read, and sometimes nothing, like non-blocking
+	 * channel does when there is no data available yet.
+	 */
+	private static final class ChoppyChannel implements ReadableByteChannel {
+
+		private final byte[] bytes;
+		private int pos = 0;
+		private int reads = 0;
+
+		ChoppyChannel(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			if (pos == bytes.length) {
+				return -1;
+			}
+			if (reads++ % 3 == 0) {
+				return 0;
+			}
+			int n = Math.min(Math.min(7, dst.remaining()), bytes.length - pos);
+			dst.put(bytes, pos, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+			// nothing to close
+		}
+	}
+
+	private static byte[] jpeg(int w, int h, long seed) {
+		Random r = new Random(seed);
+		BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				image.setRGB(x, y, r.nextInt(0x1000000));
+			}
+		}
+		return ImageUtils.toByteArray(image, ImageUtils.FORMAT_JPG);
+	}
+
+	private static void part(ByteArrayOutputStream baos, byte[] jpeg, boolean length) throws IOException {
+		StringBuilder sb = new StringBuilder()
+			.append("--mjpegframe\r\n")
+			.append("Content-Type: image/jpeg\r\n");
+		if (length) {
+			sb.append("Content-Length: ").append(jpeg.length).append("\r\n");
+		}
+		sb.append("\r\n");
+		baos.write(sb.toString().getBytes());
+		baos.write(jpeg);
+		baos.write("\r\n".getBytes());
+	}
+
+	private static List<byte[]> parse(MjpegFrameParser parser, byte[] stream) throws IOException {
+		List<byte[]> frames = new ArrayList<>();
+		ReadableByteChannel channel = new ChoppyChannel(stream);
+		while (parser.read(channel) >= 0) {
+			for (byte[] frame; (frame = parser.next()) != null;) {
+				frames.add(frame);
+			}
+		}
+		return frames;
+	}
+
+	@Test
+	public void test_parseHttp() throws IOException {
+
+		byte[][] jpegs = { jpeg(32, 24, 1), jpeg(320, 240, 2), jpeg(48, 32, 3) };
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		baos.write("HTTP/1.0 200 OK\r\nContent-Type: multipart/x-mixed-replace; boundary=mjpegframe\r\nContent-Length: 5\r\n\r\n".getBytes());
+		part(baos, jpegs[0], true);
+		part(baos, jpegs[1], false);
+		part(baos, jpegs[2], true);
+
+		List<byte[]> frames = parse(new MjpegFrameParser(1024 * 1024, true), baos.toByteArray());
+
+		Assert.assertEquals(3, frames.size());
+		for (int i = 0; i < jpegs.length; i++) {
+			Assert.assertArrayEquals(jpegs[i], frames.get(i));
+		}
+	}
+
+	@Test
+	public void test_skipFrameAboveMaxLength() throws IOException {
+
+		byte[] small = jpeg(32, 24, 1);
+		byte[] large = jpeg(320, 240, 2);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		part(baos, small, true);
+		part(baos, large, true);
+		part(baos, small, true);
+
+		MjpegFrameParser parser = new MjpegFrameParser(large.length - 1, false);
+		List<byte[]> frames = parse(parser, baos.toByteArray());
+
+		Assert.assertEquals(2, frames.size());
+		Assert.assertArrayEquals(small, frames.get(1));
+		Assert.assertEquals(1, parser.getSkipped());
+	}
+
+	@Test(expected = IOException.class)
+	public void test_httpError() throws IOException {
+		parse(new MjpegFrameParser(1024, true), "HTTP/1.0 401 Unauthorized\r\n\r\n".getBytes());
+	}
+}
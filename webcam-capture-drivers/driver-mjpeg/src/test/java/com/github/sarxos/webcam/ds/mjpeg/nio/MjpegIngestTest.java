@@ -0,0 +1,293 @@
+package com.github.sarxos.webcam.ds.mjpeg.nio;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.WebcamCompressedFrame;
+import com.github.sarxos.webcam.ds.mjpeg.nio.MjpegIngest.Stream;
+import com.github.sarxos.webcam.util.ImageUtils;
+
+
+public class MjpegIngestTest {
+
+	private static final long TIMEOUT = 5000;
+
+	/**
+	 * What server does with accepted connection after request has been read.
+	 */
+	private interface Session {
+
+		void serve(OutputStream os) throws Exception;
+	}
+
+	/**
+	 * Local HTTP server serving every connection with the same session.
+	 */
+	private static final class Server implements Runnable {
+
+		private final ServerSocket socket;
+		private final Session session;
+		private final List<String> requests = new CopyOnWriteArrayList<>();
+
+		Server(Session session) throws IOException {
+			this.socket = new ServerSocket(0);
+			this.session = session;
+			Thread thread = new Thread(this, "mjpeg-test-server");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			while (!socket.isClosed()) {
+				final Socket client;
+				try {
+					client = socket.accept();
+				} catch (IOException e) {
+					return;
+				}
+				Thread thread = new Thread(() -> {
+					try (Socket s = client) {
+						requests.add(readRequest(s.getInputStream()));
+						session.serve(s.getOutputStream());
+					} catch (Exception e) {
+						return;
+					}
+				});
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+
+		URL url(String userInfo) throws IOException {
+			return new URL("http://" + (userInfo == null ? "" : userInfo + "@") + "127.0.0.1:" + socket.getLocalPort() + "/video.mjpg");
+		}
+
+		void awaitConnections(int n) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + TIMEOUT;
+			while (requests.size() < n && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue("Expected " + n + " connections, got " + requests.size(), requests.size() >= n);
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	private static String readRequest(InputStream is) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		int c;
+		int n = 0;
+		while (n < 4 && (c = is.read()) != -1) {
+			baos.write(c);
+			n = c == '\r' || c == '\n' ? n + 1 : 0;
+		}
+		return new String(baos.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+
+	private static final byte[] JPEG = ImageUtils.toByteArray(new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB), ImageUtils.FORMAT_JPG);
+
+	private static void header(OutputStream os) throws IOException {
+		os.write("HTTP/1.0 200 OK\r\nContent-Type: multipart/x-mixed-replace; boundary=mjpegframe\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static void part(OutputStream os) throws IOException {
+		os.write(("--mjpegframe\r\nContent-Type: image/jpeg\r\nContent-Length: " + JPEG.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		os.write(JPEG);
+		os.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+		os.flush();
+	}
+
+	/**
+	 * Session which never sends anything and holds connection until server is closed.
+	 */
+	private static final Session SILENT = os -> Thread.sleep(60000);
+
+	private MjpegIngest ingest;
+
+	private Server server;
+
+	@Before
+	public void before() {
+		ingest = new MjpegIngest();
+		ingest.setReconnectDelay(50);
+	}
+
+	@After
+	public void after() throws IOException {
+		ingest.shutdown();
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	/**
+	 * Wait for the given number of frames to be received.
+	 */
+	private static void awaitFrames(Stream stream, long n) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (stream.getFramesCount() < n && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(stream.getFramesCount() >= n);
+	}
+
+	@Test
+	public void test_publish() throws Exception {
+
+		// frames completed by the same read are not all published, so the second one comes later
+
+		server = new Server(os -> {
+			header(os);
+			part(os);
+			Thread.sleep(200);
+			part(os);
+			Thread.sleep(60000);
+		});
+
+		// user name and password are percent-decoded before being encoded in Authorization header
+
+		Stream stream = ingest.open(server.url("us%40er:p%3As+s"));
+
+		WebcamCompressedFrame frame = stream.awaitFrame(TIMEOUT);
+
+		Assert.assertNotNull(frame);
+		Assert.assertArrayEquals(JPEG, frame.getBytes());
+		Assert.assertEquals(WebcamCompressedFrame.CONTENT_TYPE_JPEG, frame.getContentType());
+
+		awaitFrames(stream, 2);
+
+		Assert.assertTrue(stream.isConnected());
+		Assert.assertEquals(1, ingest.getStreamsCount());
+
+		String request = server.requests.get(0);
+		String credentials = Base64.getEncoder().encodeToString("us@er:p:s+s".getBytes(StandardCharsets.UTF_8));
+
+		Assert.assertTrue(request, request.startsWith("GET /video.mjpg HTTP/1.0\r\n"));
+		Assert.assertTrue(request, request.contains("Authorization: Basic " + credentials + "\r\n"));
+
+		stream.close();
+	}
+
+	@Test
+	public void test_reconnectAfterServerClose() throws Exception {
+
+		// every connection gets single frame and is closed
+
+		server = new Server(os -> {
+			header(os);
+			part(os);
+		});
+
+		Stream stream = ingest.open(server.url(null));
+
+		server.awaitConnections(3);
+		awaitFrames(stream, 2);
+
+		stream.close();
+	}
+
+	@Test
+	public void test_reconnectAfterStall() throws Exception {
+
+		// every connection gets single frame and then nothing more
+
+		server = new Server(os -> {
+			header(os);
+			part(os);
+			Thread.sleep(60000);
+		});
+
+		ingest.setTimeout(300);
+
+		Stream stream = ingest.open(server.url(null));
+
+		Assert.assertNotNull(stream.awaitFrame(TIMEOUT));
+
+		server.awaitConnections(2);
+		awaitFrames(stream, 2);
+
+		stream.close();
+	}
+
+	/**
+	 * Start thread waiting for the first frame, which never comes.
+	 */
+	private static Thread await(final Stream stream, final AtomicReference<WebcamCompressedFrame> result, final CountDownLatch started) {
+		Thread thread = new Thread(() -> {
+			try {
+				started.countDown();
+				result.set(stream.awaitFrame(60000));
+			} catch (InterruptedException e) {
+				return;
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	@Test
+	public void test_closeWakesUpAwaitFrame() throws Exception {
+
+		server = new Server(SILENT);
+
+		Stream stream = ingest.open(server.url(null));
+
+		AtomicReference<WebcamCompressedFrame> result = new AtomicReference<>();
+		CountDownLatch started = new CountDownLatch(1);
+		Thread thread = await(stream, result, started);
+
+		Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		Thread.sleep(100);
+
+		stream.close();
+		thread.join(TIMEOUT);
+
+		Assert.assertFalse(thread.isAlive());
+		Assert.assertNull(result.get());
+		Assert.assertTrue(stream.isClosed());
+	}
+
+	@Test
+	public void test_shutdownWakesUpAwaitFrame() throws Exception {
+
+		server = new Server(SILENT);
+
+		Stream stream = ingest.open(server.url(null));
+
+		AtomicReference<WebcamCompressedFrame> result = new AtomicReference<>();
+		CountDownLatch started = new CountDownLatch(1);
+		Thread thread = await(stream, result, started);
+
+		Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		server.awaitConnections(1);
+
+		ingest.shutdown();
+		thread.join(TIMEOUT);
+
+		Assert.assertFalse(thread.isAlive());
+		Assert.assertNull(result.get());
+		Assert.assertTrue(stream.isClosed());
+		Assert.assertTrue(ingest.isShutdown());
+	}
+}
@@ -9,10 +9,8 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -29,6 +27,7 @@ import com.github.sarxos.webcam.ds.buildin.WebcamDefaultDriver;
 import com.github.sarxos.webcam.ds.cgt.WebcamCloseTask;
 import com.github.sarxos.webcam.ds.cgt.WebcamDisposeTask;
 import com.github.sarxos.webcam.ds.cgt.WebcamGetBufferTask;
+import com.github.sarxos.webcam.ds.cgt.WebcamGetCompressedFrameTask;
 import com.github.sarxos.webcam.ds.cgt.WebcamGetImageTask;
 import com.github.sarxos.webcam.ds.cgt.WebcamOpenTask;
 import com.github.sarxos.webcam.ds.cgt.WebcamReadBufferTask;
@@ -41,65 +40,16 @@ import com.github.sarxos.webcam.ds.cgt.WebcamReadBufferTask;
  */
 public class Webcam {
 
-	/**
-	 * Class used to asynchronously notify all webcam listeners about new image available.
-	 *
-	 * @author Bartosz Firyn (sarxos)
-	 */
-	private static final class ImageNotification implements Runnable {
-
-		/**
-		 * Camera.
-		 */
-		private final Webcam webcam;
-
-		/**
-		 * Acquired image.
-		 */
-		private final BufferedImage image;
-
-		/**
-		 * Create new notification.
-		 *
-		 * @param webcam the webcam from which image has been acquired
-		 * @param image the acquired image
-		 */
-		public ImageNotification(Webcam webcam, BufferedImage image) {
-			this.webcam = webcam;
-			this.image = image;
-		}
-
-		@Override
-		public void run() {
-			if (image != null) {
-				WebcamEvent we = new WebcamEvent(WebcamEventType.NEW_IMAGE, webcam, image);
-				for (WebcamListener l : webcam.getWebcamListeners()) {
-					try {
-						l.webcamImageObtained(we);
-					} catch (Exception e) {
-						LOG.error(String.format("Notify image acquired, exception when calling listener %s", l.getClass()), e);
-					}
-				}
-			}
-		}
-	}
-
-	private final class NotificationThreadFactory implements ThreadFactory {
-
-		@Override
-		public Thread newThread(Runnable r) {
-			Thread t = new Thread(r, String.format("notificator-[%s]", getName()));
-			t.setUncaughtExceptionHandler(WebcamExceptionHandler.getInstance());
-			t.setDaemon(true);
-			return t;
-		}
-	}
-
 	/**
 	 * Logger instance.
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(Webcam.class);
 
+	/**
+	 * Default maximum number of pending image notifications.
+	 */
+	public static final int DEFAULT_DISPATCH_CAPACITY = 16;
+
 	/**
 	 * List of driver classes names to search for.
 	 */
@@ -192,9 +142,29 @@ public class Webcam {
 	private WebcamLock lock = null;
 
 	/**
-	 * Executor service for image notifications.
+	 * Dispatcher delivering image notifications to listeners.
+	 */
+	private volatile WebcamImageDispatcher dispatcher = null;
+
+	/**
+	 * Policy used when listeners are slower than images are obtained.
+	 */
+	private volatile WebcamDispatchPolicy dispatchPolicy = WebcamDispatchPolicy.DROP_OLDEST;
+
+	/**
+	 * Maximum number of pending image notifications.
+	 */
+	private volatile int dispatchCapacity = DEFAULT_DISPATCH_CAPACITY;
+
+	/**
+	 * Should every listener have its own notifications lane?
 	 */
-	private ExecutorService notificator = null;
+	private volatile boolean dispatchPerListener = false;
+
+	/**
+	 * Number of last frames kept by the updater in non-blocking mode.
+	 */
+	private volatile int frameRingCapacity = WebcamUpdater.DEFAULT_RING_CAPACITY;
 
 	/**
 	 * Webcam class.
@@ -211,17 +181,20 @@ public class Webcam {
 	}
 
 	/**
-	 * Asynchronously start new thread which will notify all webcam listeners about the new image
-	 * available.
+	 * Asynchronously notify all webcam listeners about the new image available. What happens when
+	 * listeners are slower than images are obtained depends on the dispatch policy.
+	 *
+	 * @see #setDispatchPolicy(WebcamDispatchPolicy)
 	 */
 	protected void notifyWebcamImageAcquired(BufferedImage image) {
 
 		// notify webcam listeners of new image available, do that only if there
-		// are any webcam listeners available because there is no sense to start
-		// additional threads for no purpose
+		// are any webcam listeners available because there is no sense to queue
+		// notifications for no purpose
 
-		if (getWebcamListenersCount() > 0) {
-			notificator.execute(new ImageNotification(this, image));
+		WebcamImageDispatcher dispatcher = this.dispatcher;
+		if (dispatcher != null && getWebcamListenersCount() > 0) {
+			dispatcher.dispatch(image);
 		}
 	}
 
@@ -282,7 +255,7 @@ public class Webcam {
 
 			assert lock != null;
 
-			notificator = Executors.newSingleThreadExecutor(new NotificationThreadFactory());
+			dispatcher = new WebcamImageDispatcher(this, dispatchPolicy, dispatchCapacity, dispatchPerListener);
 
 			// lock webcam for other Java (only) processes
 
@@ -324,8 +297,8 @@ public class Webcam {
 			// setup non-blocking configuration
 
 			if (asynchronous = async) {
-				if (updater == null) {
-					updater = new WebcamUpdater(this, delayCalculator);
+				if (updater == null || updater.getRingCapacity() != frameRingCapacity) {
+					updater = new WebcamUpdater(this, delayCalculator, frameRingCapacity);
 				}
 				updater.start();
 			}
@@ -405,13 +378,10 @@ public class Webcam {
 				}
 			}
 
-			notificator.shutdown();
-			while (!notificator.isTerminated()) {
-				try {
-					notificator.awaitTermination(100, TimeUnit.MILLISECONDS);
-				} catch (InterruptedException e) {
-					return false;
-				}
+			try {
+				dispatcher.shutdown();
+			} catch (InterruptedException e) {
+				return false;
 			}
 
 			LOG.debug("Webcam {} has been closed", getName());
@@ -649,38 +619,139 @@ public class Webcam {
 			return null;
 		}
 
-		long t1 = 0;
-		long t2 = 0;
-
 		if (asynchronous) {
 			return updater.getImage();
 		} else {
+			return capture(null);
+		}
+	}
 
-			// get image
+	/**
+	 * Capture image from webcam and write it into the image passed as the argument, so no new
+	 * image has to be allocated per frame. This works only when webcam is open in blocking mode,
+	 * no image transformer is set and the device implements {@link WebcamDevice.ImageReuse}.
+	 * Otherwise, or when the image is not compatible with device images, it behaves exactly like
+	 * {@link #getImage()} and returns new image. Please note that the image is also passed to
+	 * webcam listeners, so these should copy it if they keep it after notification.
+	 *
+	 * @param reuse the image to be reused, can be null
+	 * @return Captured image (the argument if it was reused) or null if webcam is closed
+	 * @see #getImage()
+	 */
+	public BufferedImage getImage(BufferedImage reuse) {
 
-			t1 = System.currentTimeMillis();
-			BufferedImage image = transform(new WebcamGetImageTask(driver, device).getImage());
-			t2 = System.currentTimeMillis();
+		if (reuse == null || asynchronous || transformer != null || !(device instanceof WebcamDevice.ImageReuse)) {
+			return getImage();
+		}
 
-			if (image == null) {
-				return null;
-			}
+		if (!isReady()) {
+			return null;
+		}
 
-			// get FPS
+		return capture(reuse);
+	}
 
-			if (device instanceof WebcamDevice.FPSSource) {
-				fps = ((WebcamDevice.FPSSource) device).getFPS();
-			} else {
-				// +1 to avoid division by zero
-				fps = (4 * fps + 1000 / (t2 - t1 + 1)) / 5;
-			}
+	/**
+	 * Capture image from device in blocking mode, transform it, update FPS and notify webcam
+	 * listeners about new image available.
+	 *
+	 * @param reuse the image to be reused by device, null to get new image
+	 * @return Captured image or null if device has not returned any
+	 */
+	private BufferedImage capture(BufferedImage reuse) {
+
+		// get image
+
+		long t1 = System.currentTimeMillis();
+		BufferedImage image = transform(new WebcamGetImageTask(driver, device, reuse).getImage());
+		long t2 = System.currentTimeMillis();
+
+		if (image == null) {
+			return null;
+		}
+
+		// get FPS
+
+		if (device instanceof WebcamDevice.FPSSource) {
+			fps = ((WebcamDevice.FPSSource) device).getFPS();
+		} else {
+			// +1 to avoid division by zero
+			fps = (4 * fps + 1000 / (t2 - t1 + 1)) / 5;
+		}
+
+		// notify webcam listeners about new image available
+
+		notifyWebcamImageAcquired(image);
+
+		return image;
+	}
+
+	/**
+	 * Get the frame exactly as it has been received from the device, still compressed (e.g. JPEG
+	 * frame from MJPEG stream), so it can be served or stored without decoding and encoding it
+	 * again. This is possible only when the device implements {@link WebcamDevice.CompressedAccess}
+	 * and no image transformer is set, because transformer can be applied only to decoded images.
+	 * Devices which read frames from a stream return the next frame, so when webcam is open in
+	 * non-blocking mode, and updater reads frames from the same stream, no compressed frame is
+	 * returned and images have to be used instead. Webcam listeners are not notified about frames
+	 * obtained this way.
+	 *
+	 * @return Compressed frame or null if webcam is closed or cannot provide compressed frames
+	 * @see #isCompressedFrameSupported()
+	 * @see WebcamDevice.CompressedAccess#isFrameConsumed()
+	 */
+	public WebcamCompressedFrame getCompressedFrame() {
+
+		if (!isCompressedFrameSupported() || !isReady()) {
+			return null;
+		}
 
-			// notify webcam listeners about new image available
+		long t1 = System.currentTimeMillis();
+		WebcamCompressedFrame frame = new WebcamGetCompressedFrameTask(driver, device).getFrame();
+		long t2 = System.currentTimeMillis();
 
-			notifyWebcamImageAcquired(image);
+		if (frame == null) {
+			return null;
+		}
+
+		// in non-blocking mode FPS is measured by updater
+
+		if (asynchronous) {
+			return frame;
+		}
+
+		if (device instanceof WebcamDevice.FPSSource) {
+			fps = ((WebcamDevice.FPSSource) device).getFPS();
+		} else {
+			fps = (4 * fps + 1000 / (t2 - t1 + 1)) / 5;
+		}
+
+		return frame;
+	}
+
+	/**
+	 * Can this webcam provide compressed frames? Please note that even when it returns true, the
+	 * {@link #getCompressedFrame()} may still return null, e.g. when device is configured to
+	 * produce uncompressed images.
+	 *
+	 * @return True if device supports compressed frames, no image transformer is set and, in
+	 *         non-blocking mode, compressed frames are not read from the stream updater reads
+	 *         images from
+	 * @see #getCompressedFrame()
+	 */
+	public boolean isCompressedFrameSupported() {
+
+		if (!(device instanceof WebcamDevice.CompressedAccess) || transformer != null) {
+			return false;
+		}
 
-			return image;
+		// frames read by updater and here would be split between both
+
+		if (asynchronous && ((WebcamDevice.CompressedAccess) device).isFrameConsumed()) {
+			return false;
 		}
+
+		return true;
 	}
 
 	public boolean isImageNew() {
@@ -698,6 +769,207 @@ public class Webcam {
 		}
 	}
 
+	/**
+	 * Return the newest frame, that is the image together with its sequence number and capture
+	 * timestamp. This method is available only in non-blocking mode. It never blocks and does not
+	 * affect the {@link #isImageNew()} flag.
+	 *
+	 * @return The newest frame, or null if webcam is not ready or no image has been obtained yet
+	 * @throws IllegalStateException when webcam is open in blocking mode
+	 * @see #open(boolean)
+	 */
+	public WebcamFrame getFrame() {
+
+		if (!isReady()) {
+			return null;
+		}
+
+		if (asynchronous) {
+			return updater.getFrame();
+		} else {
+			throw new IllegalStateException("Frames are available only in non-blocking mode");
+		}
+	}
+
+	/**
+	 * Return frames newer than the one with given sequence number, ordered from the oldest to the
+	 * newest. Only the last frames are kept (see {@link #setFrameRingCapacity(int)}), so the older
+	 * ones are lost if not consumed on time. Each consumer should keep the sequence number of the
+	 * last frame it has processed and pass it here, so many consumers can process the same frames
+	 * independently. This method is available only in non-blocking mode and it never blocks.
+	 *
+	 * @param sequence the sequence number of the last frame seen (0 to get all frames available)
+	 * @return List of frames, empty if there is no newer frame, or null if webcam is not ready
+	 * @throws IllegalStateException when webcam is open in blocking mode
+	 * @see #open(boolean)
+	 */
+	public List<WebcamFrame> getFramesAfter(long sequence) {
+
+		if (!isReady()) {
+			return null;
+		}
+
+		if (asynchronous) {
+			return updater.getFramesAfter(sequence);
+		} else {
+			throw new IllegalStateException("Frames are available only in non-blocking mode");
+		}
+	}
+
+	/**
+	 * Wait for the next frame, that is the one newer than the frame with given sequence number. If
+	 * such frame is already available this method returns immediately, otherwise it blocks until
+	 * new image is obtained or timeout elapses. Waiting thread is woken up directly by the updater
+	 * as soon as new image arrives, no polling is involved. This method is available only in
+	 * non-blocking mode.
+	 *
+	 * @param sequence the sequence number of the last frame seen (0 to wait for the first one)
+	 * @param timeout the maximum time to wait
+	 * @param unit the time unit of the timeout argument
+	 * @return The newest frame, or null if timeout elapsed or webcam is not ready or closed
+	 * @throws InterruptedException when thread has been interrupted
+	 * @throws IllegalStateException when webcam is open in blocking mode
+	 * @see #open(boolean)
+	 */
+	public WebcamFrame awaitNextFrame(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+
+		if (!isReady()) {
+			return null;
+		}
+
+		if (asynchronous) {
+			return updater.awaitFrameAfter(sequence, timeout, unit);
+		} else {
+			throw new IllegalStateException("Frames are available only in non-blocking mode");
+		}
+	}
+
+	/**
+	 * Asynchronous variant of {@link #awaitNextFrame(long, long, TimeUnit)}. Returned future is
+	 * completed with the first frame newer than the one with given sequence number. It's completed
+	 * by the updater thread, so any heavy processing should be done in asynchronous dependent
+	 * stages. When webcam is closed before new frame arrives, the future completes exceptionally
+	 * with {@link WebcamException}. This method is available only in non-blocking mode.
+	 *
+	 * @param sequence the sequence number of the last frame seen (0 to wait for the first one)
+	 * @return Future frame, completed with null if webcam is not ready
+	 * @throws IllegalStateException when webcam is open in blocking mode
+	 * @see #open(boolean)
+	 */
+	public CompletableFuture<WebcamFrame> awaitNextFrameAsync(long sequence) {
+
+		if (!isReady()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		if (asynchronous) {
+			return updater.awaitFrameAfterAsync(sequence);
+		} else {
+			throw new IllegalStateException("Frames are available only in non-blocking mode");
+		}
+	}
+
+	/**
+	 * Set policy used to deliver new image notifications to listeners which are slower than images
+	 * are obtained. Default is {@link WebcamDispatchPolicy#DROP_OLDEST}. New policy is used after
+	 * webcam is open again.
+	 *
+	 * @param policy the dispatch policy
+	 */
+	public void setDispatchPolicy(WebcamDispatchPolicy policy) {
+		if (policy == null) {
+			throw new IllegalArgumentException("Dispatch policy cannot be null");
+		}
+		this.dispatchPolicy = policy;
+	}
+
+	/**
+	 * @return Policy used to deliver new image notifications
+	 */
+	public WebcamDispatchPolicy getDispatchPolicy() {
+		return dispatchPolicy;
+	}
+
+	/**
+	 * Set maximum number of pending image notifications (per lane). It's ignored by the
+	 * {@link WebcamDispatchPolicy#LATEST} policy which always keeps single notification. New value
+	 * is used after webcam is open again.
+	 *
+	 * @param capacity the maximum number of pending notifications
+	 */
+	public void setDispatchCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Dispatch capacity must be positive");
+		}
+		this.dispatchCapacity = capacity;
+	}
+
+	/**
+	 * @return Maximum number of pending image notifications
+	 */
+	public int getDispatchCapacity() {
+		return dispatchCapacity;
+	}
+
+	/**
+	 * Should every listener get its own notifications lane (and thread), so slow listener does not
+	 * delay notifications of other listeners? By default all listeners share single lane. New value
+	 * is used after webcam is open again.
+	 *
+	 * @param perListener true to use separate lane for every listener
+	 */
+	public void setDispatchPerListener(boolean perListener) {
+		this.dispatchPerListener = perListener;
+	}
+
+	/**
+	 * @return True if every listener has its own notifications lane
+	 */
+	public boolean isDispatchPerListener() {
+		return dispatchPerListener;
+	}
+
+	/**
+	 * @return Number of new image notifications dropped since webcam has been open
+	 */
+	public long getDroppedNotificationsCount() {
+		WebcamImageDispatcher dispatcher = this.dispatcher;
+		return dispatcher == null ? 0 : dispatcher.getDroppedCount();
+	}
+
+	/**
+	 * Get number of new image notifications dropped for a given listener since webcam has been
+	 * open.
+	 *
+	 * @param listener the listener
+	 * @return Number of dropped notifications
+	 */
+	public long getDroppedNotificationsCount(WebcamListener listener) {
+		WebcamImageDispatcher dispatcher = this.dispatcher;
+		return dispatcher == null ? 0 : dispatcher.getDroppedCount(listener);
+	}
+
+	/**
+	 * @return Number of last frames kept in non-blocking mode
+	 */
+	public int getFrameRingCapacity() {
+		return frameRingCapacity;
+	}
+
+	/**
+	 * Set number of last frames kept in non-blocking mode. New value is used next time webcam is
+	 * open.
+	 *
+	 * @param capacity the number of frames to keep
+	 * @throws IllegalArgumentException when capacity is less than 1
+	 */
+	public void setFrameRingCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Frame ring capacity must be positive");
+		}
+		this.frameRingCapacity = capacity;
+	}
+
 	/**
 	 * Get RAW image ByteBuffer. It will always return buffer with 3 x 1 bytes per each pixel, where
 	 * RGB components are on (0, 1, 2) and color space is sRGB.<br>
@@ -0,0 +1,24 @@
+package com.github.sarxos.webcam;
+
+/**
+ * This interface can be implemented by webcam drivers which are not thread-safe as a whole, but
+ * which can safely access some devices in parallel. It's used by {@link WebcamProcessor} working in
+ * {@link WebcamProcessor.Mode#STRIPED} mode to decide which tasks can be processed concurrently.
+ * All tasks with equal affinity key are processed sequentially on the same thread, while tasks
+ * with different keys can be processed in parallel.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public interface WebcamAffinitySupport {
+
+	/**
+	 * Get affinity key for the given device. Devices sharing native resources (e.g. the same bus,
+	 * grabber or library context) should return equal keys. The key has to properly implement
+	 * {@link Object#equals(Object)} and {@link Object#hashCode()}.
+	 *
+	 * @param device the device to get affinity for, null for driver-level tasks
+	 * @return Affinity key, null means driver-level task which is processed exclusively, never in
+	 *         parallel with any other task of this driver
+	 */
+	Object getAffinity(WebcamDevice device);
+}
@@ -0,0 +1,128 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+
+/**
+ * Single frame exactly as it has been received from the device, still compressed, together with
+ * its content type and capture timestamp. Devices which receive compressed frames (e.g. JPEG
+ * frames from MJPEG stream) can hand them out with {@link WebcamDevice.CompressedAccess}, so frames
+ * which are only re-served or stored in the same format do not have to be decoded and encoded
+ * again.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public final class WebcamCompressedFrame {
+
+	/**
+	 * Content type of JPEG frames.
+	 */
+	public static final String CONTENT_TYPE_JPEG = "image/jpeg";
+
+	/**
+	 * Compressed bytes.
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * Content type, e.g. image/jpeg.
+	 */
+	private final String contentType;
+
+	/**
+	 * Capture timestamp as returned by {@link System#nanoTime()}.
+	 */
+	private final long timestamp;
+
+	/**
+	 * Create new compressed frame. Bytes array is not copied and must not be modified afterwards.
+	 *
+	 * @param bytes the compressed bytes
+	 * @param contentType the content type, e.g. {@link #CONTENT_TYPE_JPEG}
+	 * @param timestamp the capture timestamp in nanoseconds (from {@link System#nanoTime()})
+	 */
+	public WebcamCompressedFrame(byte[] bytes, String contentType, long timestamp) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Frame bytes cannot be null");
+		}
+		if (contentType == null) {
+			throw new IllegalArgumentException("Frame content type cannot be null");
+		}
+		this.bytes = bytes;
+		this.contentType = contentType;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Return compressed bytes. The array is shared, do not modify it!
+	 *
+	 * @return Compressed bytes
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return Number of compressed bytes
+	 */
+	public int getLength() {
+		return bytes.length;
+	}
+
+	/**
+	 * @return Content type, e.g. image/jpeg
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return True if this is JPEG frame
+	 */
+	public boolean isJpeg() {
+		return CONTENT_TYPE_JPEG.equalsIgnoreCase(contentType);
+	}
+
+	/**
+	 * Return capture timestamp. This is value of {@link System#nanoTime()} taken right after frame
+	 * has been received from the device, so it can be used only to measure elapsed time.
+	 *
+	 * @return Capture timestamp in nanoseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Decode frame into image.
+	 *
+	 * @return Decoded image or null if frame cannot be decoded
+	 */
+	public BufferedImage decode() {
+		try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes)) {
+			return ImageIO.read(bais);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write compressed bytes to the output stream.
+	 *
+	 * @param os the output stream
+	 * @throws IOException when bytes cannot be written
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		os.write(bytes);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s, length=%d, timestamp=%d]", getClass().getSimpleName(), contentType, bytes.length, timestamp);
+	}
+}
@@ -46,6 +46,66 @@ public interface WebcamDevice {
 
 	}
 
+	/**
+	 * This interface should be implemented by webcam devices which are able to
+	 * write image data into already existing image, so steady-state capture
+	 * does not have to allocate new image for every frame.
+	 * 
+	 * @author Bartosz Firyn (SarXos)
+	 */
+	public static interface ImageReuse {
+
+		/**
+		 * Fetch image from underlying camera and write it into the image
+		 * passed as the argument. If the given image is null or is not
+		 * compatible with the images produced by this device (e.g. has
+		 * different size or pixel layout), a new image is created and
+		 * returned instead. Caller is the owner of the image and is
+		 * responsible to not modify it while it's being reused.
+		 * 
+		 * @param reuse the image to be reused, can be null
+		 * @return Image, the same instance as argument if it was reused
+		 */
+		BufferedImage getImage(BufferedImage reuse);
+
+	}
+
+	/**
+	 * This interface should be implemented by webcam devices which receive
+	 * frames already compressed (e.g. JPEG frames from MJPEG stream) and are
+	 * able to hand them out as they are, without decoding them into image.
+	 * 
+	 * @author Bartosz Firyn (SarXos)
+	 */
+	public static interface CompressedAccess {
+
+		/**
+		 * Fetch frame from underlying camera without decoding it. Devices
+		 * which read frames from a stream return the next frame from that
+		 * stream, so frame returned from this method is not returned from
+		 * {@link WebcamDevice#getImage()} any more, and vice versa.
+		 * 
+		 * @return Compressed frame, or null if device cannot provide
+		 *         compressed frame at the moment (e.g. when it's configured
+		 *         to produce uncompressed images)
+		 */
+		WebcamCompressedFrame getCompressedFrame();
+
+		/**
+		 * Does {@link #getCompressedFrame()} consume frames from the same
+		 * source {@link WebcamDevice#getImage()} reads them from? If so,
+		 * compressed frames are not available when webcam is open in
+		 * non-blocking mode, because updater would not receive frames read
+		 * this way. Devices which keep the newest frame and return it from
+		 * both methods should return false.
+		 * 
+		 * @return True if compressed frame is not returned as image any more
+		 */
+		default boolean isFrameConsumed() {
+			return true;
+		}
+	}
+
 	public static interface FPSSource {
 
 		/**
@@ -0,0 +1,35 @@
+package com.github.sarxos.webcam;
+
+/**
+ * Policy used to deliver new image notifications to webcam listeners when they are slower than
+ * the rate at which images are obtained from the webcam. Every policy keeps the number of pending
+ * notifications (and therefore retained images) bounded.
+ *
+ * @author Bartosz Firyn (sarxos)
+ * @see Webcam#setDispatchPolicy(WebcamDispatchPolicy)
+ */
+public enum WebcamDispatchPolicy {
+
+	/**
+	 * Only the most recent image is kept, all older pending notifications are dropped. Listeners
+	 * always get the freshest image, but can miss some of them.
+	 */
+	LATEST,
+
+	/**
+	 * Pending notifications are kept in bounded queue, the oldest one is dropped when the queue is
+	 * full. This is the default policy.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Pending notifications are kept in bounded queue and thread which obtained new image is
+	 * blocked until there is space in the queue, so slow listener slows down the capture. Delivery
+	 * is not lossless, though. Notification is dropped when the queue is full and new image is
+	 * obtained from the listener notification thread itself (e.g. listener calling
+	 * {@link Webcam#getImage()}), because waiting there would never end, and also when the
+	 * blocked thread is interrupted. Both cases are counted in
+	 * {@link Webcam#getDroppedNotificationsCount()}.
+	 */
+	BLOCKING,
+}
@@ -0,0 +1,71 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+
+
+/**
+ * Single image captured by webcam together with its sequence number and capture timestamp. The
+ * sequence numbers are assigned by {@link WebcamUpdater}, they start from 1 and are incremented by
+ * one for every new image, so consumer can easily tell how many frames it has missed.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public final class WebcamFrame {
+
+	/**
+	 * Captured image.
+	 */
+	private final BufferedImage image;
+
+	/**
+	 * Frame sequence number.
+	 */
+	private final long sequence;
+
+	/**
+	 * Capture timestamp as returned by {@link System#nanoTime()}.
+	 */
+	private final long timestamp;
+
+	/**
+	 * Create new frame.
+	 *
+	 * @param image the captured image
+	 * @param sequence the frame sequence number
+	 * @param timestamp the capture timestamp in nanoseconds (from {@link System#nanoTime()})
+	 */
+	public WebcamFrame(BufferedImage image, long sequence, long timestamp) {
+		this.image = image;
+		this.sequence = sequence;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return Captured image
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * @return Frame sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Return capture timestamp. This is value of {@link System#nanoTime()} taken right after image
+	 * has been obtained from the device, so it can be used only to measure elapsed time.
+	 *
+	 * @return Capture timestamp in nanoseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[sequence=%d, timestamp=%d]", getClass().getSimpleName(), sequence, timestamp);
+	}
+}
@@ -0,0 +1,112 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Bounded lock-free ring of the last N frames. There is single producer (webcam updater thread)
+ * and many consumers. Every consumer keeps its own cursor (sequence number of the last frame it has
+ * seen) and asks for frames after it, so consumers do not steal new frames from each other. Frames
+ * are not copied, the ring stores references only.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class WebcamFrameRing {
+
+	/**
+	 * Ring slots.
+	 */
+	private final AtomicReferenceArray<WebcamFrame> slots;
+
+	/**
+	 * Sequence number of the last published frame, 0 if nothing has been published yet.
+	 */
+	private volatile long head = 0;
+
+	/**
+	 * Create new ring.
+	 *
+	 * @param capacity the number of frames to keep
+	 * @throws IllegalArgumentException when capacity is less than 1
+	 */
+	public WebcamFrameRing(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Frame ring capacity must be positive");
+		}
+		this.slots = new AtomicReferenceArray<WebcamFrame>(capacity);
+	}
+
+	/**
+	 * Publish new frame. This method shall be invoked by a single producer thread only.
+	 *
+	 * @param image the image to publish
+	 * @param timestamp the capture timestamp in nanoseconds
+	 * @return Published frame
+	 */
+	public WebcamFrame publish(BufferedImage image, long timestamp) {
+		long sequence = head + 1;
+		WebcamFrame frame = new WebcamFrame(image, sequence, timestamp);
+		slots.set(index(sequence), frame);
+		head = sequence;
+		return frame;
+	}
+
+	/**
+	 * @return The newest frame or null if nothing has been published yet
+	 */
+	public WebcamFrame getLatest() {
+		long h = head;
+		if (h == 0) {
+			return null;
+		}
+		WebcamFrame frame = slots.get(index(h));
+		return frame != null && frame.getSequence() >= h ? frame : null;
+	}
+
+	/**
+	 * Return all frames still available in the ring which are newer than the one with given
+	 * sequence number, ordered from the oldest to the newest. Frames which have been already
+	 * overwritten are not returned, so consumer can calculate how many frames it has missed by
+	 * comparing its cursor with the sequence number of the first frame returned.
+	 *
+	 * @param sequence the sequence number of the last frame consumer has seen (0 for all)
+	 * @return List of frames newer than given sequence, may be empty
+	 */
+	public List<WebcamFrame> getFramesAfter(long sequence) {
+
+		long h = head;
+		long from = Math.max(sequence + 1, h - slots.length() + 1);
+
+		List<WebcamFrame> frames = new ArrayList<WebcamFrame>((int) Math.max(0, h - from + 1));
+
+		for (long s = from; s <= h; s++) {
+			WebcamFrame frame = slots.get(index(s));
+			if (frame != null && frame.getSequence() == s) {
+				frames.add(frame);
+			}
+		}
+
+		return frames;
+	}
+
+	/**
+	 * @return Sequence number of the last published frame, 0 if nothing has been published yet
+	 */
+	public long getSequence() {
+		return head;
+	}
+
+	/**
+	 * @return The number of frames kept in the ring
+	 */
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	private int index(long sequence) {
+		return (int) (sequence % slots.length());
+	}
+}
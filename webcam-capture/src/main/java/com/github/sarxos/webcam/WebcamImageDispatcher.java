@@ -0,0 +1,314 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Delivers new image notifications to webcam listeners. Notifications are put into bounded lanes,
+ * each served by its own thread, and the given {@link WebcamDispatchPolicy} decides what happens
+ * when lane is full. There can be either a single lane shared by all listeners, or a separate lane
+ * for every listener, so slow listener delays only itself.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+class WebcamImageDispatcher {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(WebcamImageDispatcher.class);
+
+	/**
+	 * How long to wait for lane thread to deliver pending notifications on shutdown (in
+	 * milliseconds).
+	 */
+	private static final long SHUTDOWN_TIMEOUT = 5000;
+
+	/**
+	 * Queue of pending notifications served by a single thread.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private final class Lane implements Runnable {
+
+		/**
+		 * Listener served by this lane, null if lane serves all webcam listeners.
+		 */
+		private final WebcamListener listener;
+
+		/**
+		 * Pending images.
+		 */
+		private final ArrayDeque<BufferedImage> queue = new ArrayDeque<BufferedImage>();
+
+		/**
+		 * Number of dropped notifications.
+		 */
+		private final AtomicLong dropped = new AtomicLong(0);
+
+		/**
+		 * Thread delivering notifications.
+		 */
+		private final Thread thread;
+
+		private boolean closed = false;
+
+		public Lane(WebcamListener listener) {
+
+			String name = listener == null
+				? String.format("notificator-[%s]", webcam.getName())
+				: String.format("notificator-[%s]-[%s]", webcam.getName(), listener.getClass().getSimpleName());
+
+			this.listener = listener;
+			this.thread = new Thread(this, name);
+			this.thread.setUncaughtExceptionHandler(WebcamExceptionHandler.getInstance());
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		public synchronized void offer(BufferedImage image) {
+
+			if (closed) {
+				return;
+			}
+
+			switch (policy) {
+				case LATEST:
+					dropped.addAndGet(queue.size());
+					queue.clear();
+					break;
+				case DROP_OLDEST:
+					while (queue.size() >= capacity) {
+						queue.poll();
+						dropped.incrementAndGet();
+					}
+					break;
+				case BLOCKING:
+					while (queue.size() >= capacity && !closed) {
+
+						// listener obtaining images from within its own notification would wait
+						// forever, so drop instead
+
+						if (Thread.currentThread() == thread) {
+							dropped.incrementAndGet();
+							return;
+						}
+
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							dropped.incrementAndGet();
+							return;
+						}
+					}
+					if (closed) {
+						return;
+					}
+					break;
+			}
+
+			queue.add(image);
+			notifyAll();
+		}
+
+		private synchronized BufferedImage take() throws InterruptedException {
+			while (queue.isEmpty()) {
+				if (closed) {
+					return null;
+				}
+				wait();
+			}
+			BufferedImage image = queue.poll();
+			notifyAll();
+			return image;
+		}
+
+		@Override
+		public void run() {
+
+			BufferedImage image = null;
+
+			try {
+				while ((image = take()) != null) {
+					WebcamEvent we = new WebcamEvent(WebcamEventType.NEW_IMAGE, webcam, image);
+					if (listener == null) {
+						for (WebcamListener l : webcam.getWebcamListeners()) {
+							deliver(l, we);
+						}
+					} else {
+						deliver(listener, we);
+					}
+				}
+			} catch (InterruptedException e) {
+				LOG.trace("Notificator has been interrupted", e);
+			}
+		}
+
+		private void deliver(WebcamListener l, WebcamEvent we) {
+			try {
+				l.webcamImageObtained(we);
+			} catch (Exception e) {
+				LOG.error(String.format("Notify image acquired, exception when calling listener %s", l.getClass()), e);
+			}
+		}
+
+		public synchronized void close() {
+			closed = true;
+			notifyAll();
+		}
+
+		public void join() throws InterruptedException {
+			if (Thread.currentThread() != thread) {
+				thread.join(SHUTDOWN_TIMEOUT);
+			}
+		}
+	}
+
+	private final Webcam webcam;
+	private final WebcamDispatchPolicy policy;
+	private final int capacity;
+	private final boolean perListener;
+
+	/**
+	 * Lane shared by all listeners, null in per-listener mode.
+	 */
+	private final Lane shared;
+
+	/**
+	 * Lanes in per-listener mode.
+	 */
+	private final Map<WebcamListener, Lane> lanes = new ConcurrentHashMap<WebcamListener, Lane>();
+
+	/**
+	 * Number of notifications dropped by lanes which has been already closed.
+	 */
+	private final AtomicLong dropped = new AtomicLong(0);
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Create new dispatcher.
+	 *
+	 * @param webcam the webcam which listeners shall be notified
+	 * @param policy the policy used when lane is full
+	 * @param capacity the maximum number of pending notifications in a single lane
+	 * @param perListener true if every listener should have separate lane
+	 */
+	public WebcamImageDispatcher(Webcam webcam, WebcamDispatchPolicy policy, int capacity, boolean perListener) {
+		this.webcam = webcam;
+		this.policy = policy;
+		this.capacity = policy == WebcamDispatchPolicy.LATEST ? 1 : capacity;
+		this.perListener = perListener;
+		this.shared = perListener ? null : new Lane(null);
+	}
+
+	/**
+	 * Dispatch new image to listeners.
+	 *
+	 * @param image the image to dispatch
+	 */
+	public void dispatch(BufferedImage image) {
+
+		if (closed || image == null) {
+			return;
+		}
+
+		if (!perListener) {
+			shared.offer(image);
+			return;
+		}
+
+		WebcamListener[] listeners = webcam.getWebcamListeners();
+
+		for (WebcamListener l : listeners) {
+			Lane lane = lanes.get(l);
+			if (lane == null) {
+				synchronized (lanes) {
+					if (closed) {
+						return;
+					}
+					if ((lane = lanes.get(l)) == null) {
+						lanes.put(l, lane = new Lane(l));
+					}
+				}
+			}
+			lane.offer(image);
+		}
+
+		// close lanes of listeners which has been removed
+
+		if (lanes.size() > listeners.length) {
+			for (WebcamListener l : lanes.keySet()) {
+				if (!Arrays.asList(listeners).contains(l)) {
+					Lane lane = lanes.remove(l);
+					if (lane != null) {
+						lane.close();
+						dropped.addAndGet(lane.dropped.get());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Total number of dropped notifications
+	 */
+	public long getDroppedCount() {
+		long count = dropped.get();
+		if (shared != null) {
+			count += shared.dropped.get();
+		}
+		for (Lane lane : lanes.values()) {
+			count += lane.dropped.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Get number of notifications dropped for a given listener. In shared lane mode all listeners
+	 * miss the same notifications.
+	 *
+	 * @param listener the listener
+	 * @return Number of dropped notifications
+	 */
+	public long getDroppedCount(WebcamListener listener) {
+		if (shared != null) {
+			return shared.dropped.get();
+		}
+		Lane lane = lanes.get(listener);
+		return lane == null ? 0 : lane.dropped.get();
+	}
+
+	/**
+	 * Stop accepting new notifications and wait until pending ones are delivered.
+	 *
+	 * @throws InterruptedException when thread has been interrupted
+	 */
+	public void shutdown() throws InterruptedException {
+
+		synchronized (lanes) {
+			closed = true;
+		}
+
+		if (shared != null) {
+			shared.close();
+			shared.join();
+		}
+
+		for (Lane lane : lanes.values()) {
+			lane.close();
+		}
+		for (Lane lane : lanes.values()) {
+			lane.join();
+		}
+	}
+}
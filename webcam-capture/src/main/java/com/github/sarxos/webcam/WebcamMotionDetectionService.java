@@ -0,0 +1,530 @@
+package com.github.sarxos.webcam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Service which runs many motion detectors on one bounded pool of threads. Detectors added to the
+ * service do not start their own threads. Instead, every detector has one pending check in the
+ * queue shared by all detectors, ordered by the time when the check is due, and the first free
+ * worker runs the check which is due first. This way every detector is checked once per its own
+ * interval, detectors are served in fair order, and the number of threads does not depend on the
+ * number of cameras.<br>
+ * <br>
+ * When workers cannot keep up with the checks, i.e. checks are run late by a significant fraction
+ * of their intervals, the service sheds load by stretching intervals of all detectors by a common
+ * factor, up to {@link #MAX_STRETCH} times, and shrinks them back when the load drops. This is
+ * reported in logs and by {@link #getStretch()}. Detect latency and queue lag of every detector
+ * are available from {@link #getMetrics(WebcamMotionDetector)}.
+ *
+ * <pre>
+ * WebcamMotionDetectionService service = new WebcamMotionDetectionService();
+ * for (Webcam webcam : Webcam.getWebcams()) {
+ * 	WebcamMotionDetector detector = new WebcamMotionDetector(webcam);
+ * 	detector.addMotionListener(listener);
+ * 	service.add(detector);
+ * }
+ * </pre>
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class WebcamMotionDetectionService {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(WebcamMotionDetectionService.class);
+
+	/**
+	 * Thread number.
+	 */
+	private static final AtomicInteger NT = new AtomicInteger(0);
+
+	/**
+	 * Maximum factor by which intervals can be stretched under overload.
+	 */
+	public static final double MAX_STRETCH = 8;
+
+	/**
+	 * Intervals are stretched when average queue lag exceeds this fraction of interval.
+	 */
+	private static final double OVERLOAD_LAG = 0.5;
+
+	/**
+	 * Intervals are shrunk back when average queue lag is below this fraction of interval.
+	 */
+	private static final double UNDERLOAD_LAG = 0.1;
+
+	/**
+	 * Factor by which stretch is changed in one step.
+	 */
+	private static final double STRETCH_STEP = 1.25;
+
+	/**
+	 * Minimum time between two stretch changes, in nanoseconds.
+	 */
+	private static final long STRETCH_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Weight of the newest sample in moving averages.
+	 */
+	private static final double ALPHA = 0.1;
+
+	/**
+	 * Create service worker threads.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class ServiceThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread t = new Thread(runnable, String.format("motion-detection-service-%d", NT.incrementAndGet()));
+			t.setUncaughtExceptionHandler(WebcamExceptionHandler.getInstance());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Snapshot of detector metrics. Times are in milliseconds, averages are exponential moving
+	 * averages.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static final class Metrics {
+
+		private final long checks;
+		private final double latency;
+		private final double averageLatency;
+		private final double maxLatency;
+		private final double lag;
+		private final double averageLag;
+		private final double maxLag;
+		private final long interval;
+
+		private Metrics(Check check) {
+			this.checks = check.checks;
+			this.latency = millis(check.latency);
+			this.averageLatency = millis(check.averageLatency);
+			this.maxLatency = millis(check.maxLatency);
+			this.lag = millis(check.lag);
+			this.averageLag = millis(check.averageLag);
+			this.maxLag = millis(check.maxLag);
+			this.interval = TimeUnit.NANOSECONDS.toMillis(check.interval);
+		}
+
+		private static double millis(double nanos) {
+			return nanos / 1000000;
+		}
+
+		/**
+		 * @return Number of checks done
+		 */
+		public long getChecks() {
+			return checks;
+		}
+
+		/**
+		 * @return Time of the last detection, in milliseconds
+		 */
+		public double getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return Average time of detection, in milliseconds
+		 */
+		public double getAverageLatency() {
+			return averageLatency;
+		}
+
+		/**
+		 * @return Maximum time of detection, in milliseconds
+		 */
+		public double getMaxLatency() {
+			return maxLatency;
+		}
+
+		/**
+		 * @return How late the last check was started, in milliseconds
+		 */
+		public double getLag() {
+			return lag;
+		}
+
+		/**
+		 * @return Average time by which checks are started late, in milliseconds
+		 */
+		public double getAverageLag() {
+			return averageLag;
+		}
+
+		/**
+		 * @return Maximum time by which check was started late, in milliseconds
+		 */
+		public double getMaxLag() {
+			return maxLag;
+		}
+
+		/**
+		 * @return Interval actually used for the last check, with stretch applied, in milliseconds
+		 */
+		public long getInterval() {
+			return interval;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[checks=%d, latency=%.1f/%.1f/%.1f ms, lag=%.1f/%.1f/%.1f ms, interval=%d ms]", getClass().getSimpleName(), checks, latency, averageLatency, maxLatency, lag, averageLag, maxLag, interval);
+		}
+	}
+
+	/**
+	 * Pending check of a single detector. There is always at most one check per detector in the
+	 * queue or being run, so detector is never run by two workers at the same time.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class Check implements Delayed {
+
+		private final WebcamMotionDetector detector;
+
+		private volatile boolean cancelled = false;
+
+		/**
+		 * When check is due, {@link System#nanoTime()} based.
+		 */
+		private long due;
+
+		private long checks;
+		private long latency;
+		private double averageLatency;
+		private long maxLatency;
+		private long lag;
+		private double averageLag;
+		private long maxLag;
+		private long interval;
+
+		Check(WebcamMotionDetector detector, long due) {
+			this.detector = detector;
+			this.due = due;
+		}
+
+		synchronized void update(long lag, long latency, long interval) {
+			this.lag = lag;
+			this.latency = latency;
+			this.interval = interval;
+			this.maxLag = Math.max(maxLag, lag);
+			this.maxLatency = Math.max(maxLatency, latency);
+			this.averageLag = checks == 0 ? lag : averageLag + ALPHA * (lag - averageLag);
+			this.averageLatency = checks == 0 ? latency : averageLatency + ALPHA * (latency - averageLatency);
+			this.checks++;
+		}
+
+		synchronized Metrics metrics() {
+			return new Metrics(this);
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o) {
+			return Long.signum(due - ((Check) o).due);
+		}
+	}
+
+	/**
+	 * Worker taking due checks from the queue.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			while (running.get()) {
+				try {
+					check(queue.take());
+				} catch (InterruptedException e) {
+					break;
+				} catch (Exception e) {
+					WebcamExceptionHandler.handle(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks of all detectors ordered by due time.
+	 */
+	private final DelayQueue<Check> queue = new DelayQueue<Check>();
+
+	/**
+	 * Detectors added to this service.
+	 */
+	private final Set<WebcamMotionDetector> detectors = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Checks of started detectors.
+	 */
+	private final ConcurrentHashMap<WebcamMotionDetector, Check> checks = new ConcurrentHashMap<WebcamMotionDetector, Check>();
+
+	/**
+	 * Worker threads.
+	 */
+	private final Thread[] workers;
+
+	/**
+	 * Is service running?
+	 */
+	private final AtomicBoolean running = new AtomicBoolean(true);
+
+	/**
+	 * Factor by which detectors intervals are stretched.
+	 */
+	private volatile double stretch = 1;
+
+	/**
+	 * Moving average of queue lag of all detectors, as a fraction of their intervals.
+	 */
+	private double load = 0;
+
+	/**
+	 * When stretch has been changed last time.
+	 */
+	private long stretched = System.nanoTime();
+
+	/**
+	 * Create service with as many worker threads as there are available processors.
+	 */
+	public WebcamMotionDetectionService() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create service.
+	 *
+	 * @param threads the number of worker threads
+	 */
+	public WebcamMotionDetectionService(int threads) {
+
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive");
+		}
+
+		ThreadFactory factory = new ServiceThreadFactory();
+
+		workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = factory.newThread(new Worker());
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Add detector to this service and start it. Detector has to be stopped and cannot be added
+	 * to other service. Detector is checked every {@link WebcamMotionDetector#getInterval()}
+	 * milliseconds by service workers, and frame step of the detector is ignored. Detector can be
+	 * stopped and started again while in the service.
+	 *
+	 * @param detector the detector to add
+	 */
+	public void add(WebcamMotionDetector detector) {
+
+		if (!running.get()) {
+			throw new IllegalStateException("Motion detection service has been shut down");
+		}
+
+		detector.attach(this);
+		detectors.add(detector);
+		detector.start();
+	}
+
+	/**
+	 * Stop detector and remove it from this service.
+	 *
+	 * @param detector the detector to remove
+	 * @return True if detector has been removed, false if it was not added to this service
+	 */
+	public boolean remove(WebcamMotionDetector detector) {
+		if (!detectors.remove(detector)) {
+			return false;
+		}
+		detector.stop();
+		detector.detach();
+		return true;
+	}
+
+	/**
+	 * @return Detectors added to this service
+	 */
+	public List<WebcamMotionDetector> getDetectors() {
+		return new ArrayList<WebcamMotionDetector>(detectors);
+	}
+
+	/**
+	 * Schedule checks of started detector.
+	 *
+	 * @param detector the detector
+	 */
+	void schedule(WebcamMotionDetector detector) {
+		Check check = new Check(detector, System.nanoTime());
+		if (checks.putIfAbsent(detector, check) == null) {
+			queue.offer(check);
+		}
+	}
+
+	/**
+	 * Cancel checks of stopped detector. Check which is already running will complete.
+	 *
+	 * @param detector the detector
+	 */
+	void unschedule(WebcamMotionDetector detector) {
+		Check check = checks.remove(detector);
+		if (check != null) {
+			check.cancelled = true;
+			queue.remove(check);
+		}
+	}
+
+	private void check(Check check) {
+
+		if (check.cancelled) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		long lag = Math.max(0, start - check.due);
+		long interval = (long) (TimeUnit.MILLISECONDS.toNanos(check.detector.getInterval()) * stretch);
+
+		try {
+			check.detector.detect();
+		} catch (Exception e) {
+			WebcamExceptionHandler.handle(e);
+		}
+
+		long end = System.nanoTime();
+
+		check.update(lag, end - start, interval);
+		adjust((double) lag / interval, end);
+
+		// when check is late, do not try to catch up with checks which were missed, but continue
+		// from now, so late detectors do not flood the queue
+
+		if (!check.cancelled) {
+			check.due = Math.max(check.due + interval, end);
+			queue.offer(check);
+		}
+	}
+
+	/**
+	 * Stretch or shrink intervals depending on average queue lag.
+	 *
+	 * @param lag the queue lag of the last check as a fraction of its interval
+	 * @param now the current time
+	 */
+	private synchronized void adjust(double lag, long now) {
+
+		load += ALPHA * (lag - load);
+
+		if (now - stretched < STRETCH_PERIOD) {
+			return;
+		}
+
+		double previous = stretch;
+
+		if (load > OVERLOAD_LAG && stretch < MAX_STRETCH) {
+			stretch = Math.min(MAX_STRETCH, stretch * STRETCH_STEP);
+		} else if (load < UNDERLOAD_LAG && stretch > 1) {
+			stretch = Math.max(1, stretch / STRETCH_STEP);
+		} else {
+			return;
+		}
+
+		stretched = now;
+
+		if (previous == 1) {
+			LOG.warn("Motion detection service overloaded, {} detectors on {} threads, intervals stretched {} times", detectors.size(), workers.length, String.format("%.2f", stretch));
+		} else if (stretch == 1) {
+			LOG.info("Motion detection service is no longer overloaded, intervals restored");
+		} else {
+			LOG.debug("Motion detection service intervals stretched {} times", String.format("%.2f", stretch));
+		}
+	}
+
+	/**
+	 * @return Factor by which detectors intervals are currently stretched, 1 when service is not
+	 *         overloaded
+	 */
+	public double getStretch() {
+		return stretch;
+	}
+
+	/**
+	 * @return True if service is overloaded and intervals are stretched
+	 */
+	public boolean isOverloaded() {
+		return stretch > 1;
+	}
+
+	/**
+	 * @return Number of worker threads
+	 */
+	public int getThreadsCount() {
+		return workers.length;
+	}
+
+	/**
+	 * Get metrics of detector.
+	 *
+	 * @param detector the detector
+	 * @return Metrics snapshot or null if detector is not running in this service
+	 */
+	public Metrics getMetrics(WebcamMotionDetector detector) {
+		Check check = checks.get(detector);
+		if (check == null) {
+			return null;
+		}
+		return check.metrics();
+	}
+
+	/**
+	 * Remove all detectors and stop worker threads.
+	 */
+	public void shutdown() {
+
+		if (!running.compareAndSet(true, false)) {
+			return;
+		}
+
+		for (WebcamMotionDetector detector : getDetectors()) {
+			remove(detector);
+		}
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+	}
+
+	/**
+	 * @return True if service has been shut down
+	 */
+	public boolean isShutdown() {
+		return !running.get();
+	}
+}
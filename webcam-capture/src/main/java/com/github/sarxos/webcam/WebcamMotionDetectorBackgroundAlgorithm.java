@@ -0,0 +1,569 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Motion detector algorithm which compares every image with a background model instead of the
+ * previous image. Background is modelled per pixel as a running Gaussian distribution of pixel
+ * luminance, with mean and variance kept in preallocated float arrays and updated in place, so
+ * slow lighting changes are absorbed by the model and no image is allocated per frame. Pixel is
+ * classified as moving when its luminance differs from the mean by more than the given number of
+ * standard deviations and by at least the pixel threshold.<br>
+ * <br>
+ * Since model is updated with every image, {@link #filter(BufferedImage)} returns original image
+ * and previous image passed to {@link #detect(BufferedImage, BufferedImage)} is ignored. Model is
+ * initialized from the first image and whenever image size changes, and no motion is reported
+ * for such image. Usage:
+ *
+ * <pre>
+ * WebcamMotionDetector detector = new WebcamMotionDetector(webcam, new WebcamMotionDetectorBackgroundAlgorithm(), 500);
+ * </pre>
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class WebcamMotionDetectorBackgroundAlgorithm implements WebcamMotionDetectorThresholdAlgorithm {
+
+	/**
+	 * Default minimum luminance difference from background mean (set to 15).
+	 */
+	public static final int DEFAULT_PIXEL_THREASHOLD = 15;
+
+	/**
+	 * Default percentage image area fraction threshold (set to 0.2%).
+	 */
+	public static final double DEFAULT_AREA_THREASHOLD = 0.2;
+
+	/**
+	 * Default max percentage image area fraction threshold (set to 100%).
+	 */
+	public static final double DEFAULT_AREA_THREASHOLD_MAX = 100;
+
+	/**
+	 * Default background learning rate (set to 0.02).
+	 */
+	public static final float DEFAULT_LEARNING_RATE = 0.02f;
+
+	/**
+	 * Default number of standard deviations above which pixel is classified as moving (set to
+	 * 2.5).
+	 */
+	public static final float DEFAULT_DEVIATIONS = 2.5f;
+
+	/**
+	 * The default minimum range between each point where motion has been detected
+	 */
+	public static final int DEFAULT_RANGE = 50;
+
+	/**
+	 * The default for the max amount of points that can be detected at one time
+	 */
+	public static final int DEFAULT_MAX_POINTS = 100;
+
+	/**
+	 * Variance of every pixel when model is initialized.
+	 */
+	private static final float INITIAL_VARIANCE = 15 * 15;
+
+	/**
+	 * Minimum variance of a pixel, so sensor noise of perfectly still pixel is not classified as
+	 * motion.
+	 */
+	private static final float MIN_VARIANCE = 2 * 2;
+
+	/**
+	 * Moving pixels are learned by background this many times slower than still ones, so objects
+	 * which stopped moving are eventually absorbed into background.
+	 */
+	private static final float FOREGROUND_LEARNING_RATIO = 0.1f;
+
+	/**
+	 * Minimum luminance difference from background mean (0 - 255).
+	 */
+	private volatile int pixelThreshold = DEFAULT_PIXEL_THREASHOLD;
+
+	/**
+	 * Percentage image area fraction threshold (0 - 100).
+	 */
+	private volatile double areaThreshold = DEFAULT_AREA_THREASHOLD;
+
+	/**
+	 * Maximum pixel change percentage threshold (0 - 100).
+	 */
+	private volatile double areaThresholdMax = DEFAULT_AREA_THREASHOLD_MAX;
+
+	/**
+	 * Background learning rate (0 - 1).
+	 */
+	private volatile float learningRate = DEFAULT_LEARNING_RATE;
+
+	/**
+	 * Number of standard deviations above which pixel is classified as moving.
+	 */
+	private volatile float deviations = DEFAULT_DEVIATIONS;
+
+	/**
+	 * Should model be initialized from the next image.
+	 */
+	private volatile boolean resetRequested = false;
+
+	/**
+	 * The current minimum range between points.
+	 */
+	private volatile int range = DEFAULT_RANGE;
+
+	/**
+	 * The current max amount of points.
+	 */
+	private volatile int maxPoints = DEFAULT_MAX_POINTS;
+
+	/**
+	 * Do-not-engage zones compiled into row spans of engaged pixels.
+	 */
+	private volatile WebcamMotionZones zones = WebcamMotionZones.NONE;
+
+	/**
+	 * Motion strength (0 = no motion, 100 = full image covered by motion).
+	 */
+	private double area = 0;
+
+	/**
+	 * Center of motion gravity.
+	 */
+	private Point cog = null;
+
+	/**
+	 * Points of the last detected motion.
+	 */
+	private final ArrayList<Point> points = new ArrayList<Point>();
+
+	/**
+	 * Grid used to find points of motion.
+	 */
+	private final WebcamMotionPointsGrid grid = new WebcamMotionPointsGrid();
+
+	/**
+	 * Background luminance mean, indexed in row-major order (y * w + x).
+	 */
+	private float[] mean = new float[0];
+
+	/**
+	 * Background luminance variance, indexed in row-major order (y * w + x).
+	 */
+	private float[] variance = new float[0];
+
+	/**
+	 * Moving pixels from the last detection, bit set indexed in column-major order (x * h + y).
+	 */
+	private long[] moving = new long[0];
+
+	/**
+	 * Buffers for pixels of the currently processed row.
+	 */
+	private int[] rowPixels = new int[0];
+	private byte[] rowBytes = new byte[0];
+
+	/**
+	 * Size of the background model.
+	 */
+	private int width = 0;
+	private int height = 0;
+
+	/**
+	 * Creates background motion detector algorithm with default thresholds.
+	 *
+	 * @see #DEFAULT_PIXEL_THREASHOLD
+	 * @see #DEFAULT_AREA_THREASHOLD
+	 */
+	public WebcamMotionDetectorBackgroundAlgorithm() {
+		this(DEFAULT_PIXEL_THREASHOLD, DEFAULT_AREA_THREASHOLD);
+	}
+
+	/**
+	 * Creates background motion detector algorithm.
+	 *
+	 * @param pixelThreshold minimum luminance difference from background (0 - 255)
+	 * @param areaThreshold percentage threshold of image covered by motion
+	 */
+	public WebcamMotionDetectorBackgroundAlgorithm(int pixelThreshold, double areaThreshold) {
+		this.pixelThreshold = checkPixelThreshold(pixelThreshold);
+		this.areaThreshold = checkAreaThreshold(areaThreshold);
+	}
+
+	/**
+	 * Background model does not need filtered images, so this method returns original image.
+	 */
+	@Override
+	public BufferedImage filter(BufferedImage original) {
+		return original;
+	}
+
+	@Override
+	public boolean detect(BufferedImage previous, BufferedImage current) {
+
+		points.clear();
+
+		final int w = current.getWidth();
+		final int h = current.getHeight();
+
+		if (w != width || h != height || resetRequested) {
+			initialize(current, w, h);
+			area = 0;
+			cog = new Point(w / 2, h / 2);
+			return false;
+		}
+
+		final int words = (w * h + 63) >>> 6;
+		final long[] moving = this.moving;
+
+		Arrays.fill(moving, 0, words, 0);
+
+		final WebcamMotionZones.Spans engaged = zones.getSpans(w, h);
+		final int[] rows = engaged.rows;
+		final int[] spans = engaged.spans;
+		final float[] mean = this.mean;
+		final float[] variance = this.variance;
+		final int[] row = rowPixels;
+		final float threshold = pixelThreshold;
+		final float k2 = deviations * deviations;
+		final float bgRate = learningRate;
+		final float fgRate = learningRate * FOREGROUND_LEARNING_RATIO;
+
+		int p = 0;
+		long cogX = 0;
+		long cogY = 0;
+
+		for (int y = 0; y < h; y++) {
+
+			if (rows[y] == rows[y + 1]) {
+				continue;
+			}
+
+			luma(current, y, w, row);
+
+			for (int k = rows[y], n = rows[y + 1]; k < n; k++) {
+				for (int x = spans[2 * k], x2 = spans[2 * k + 1], i = y * w + x; x < x2; x++, i++) {
+
+					float m = mean[i];
+					float v = variance[i];
+					float d = row[x] - m;
+					float d2 = d * d;
+					float rate = bgRate;
+
+					if (d2 > k2 * v && (d >= threshold || -d >= threshold)) {
+						int bit = x * h + y;
+						moving[bit >>> 6] |= 1L << bit;
+						cogX += x;
+						cogY += y;
+						p += 1;
+						rate = fgRate;
+					}
+
+					mean[i] = m + rate * d;
+					variance[i] = Math.max(MIN_VARIANCE, v + rate * (d2 - v));
+				}
+			}
+		}
+
+		findPoints(w, h, words);
+
+		area = p * 100d / (w * h);
+
+		if (p > 0 && area >= areaThreshold && area <= areaThresholdMax) {
+			cog = new Point((int) (cogX / p), (int) (cogY / p));
+			return true;
+		} else {
+			cog = new Point(w / 2, h / 2);
+			return false;
+		}
+	}
+
+	/**
+	 * Initialize background model from the given image.
+	 *
+	 * @param image the image
+	 * @param w the image width
+	 * @param h the image height
+	 */
+	private void initialize(BufferedImage image, int w, int h) {
+
+		if (mean.length != w * h) {
+			mean = new float[w * h];
+			variance = new float[w * h];
+			moving = new long[(w * h + 63) >>> 6];
+		}
+		if (rowPixels.length < w) {
+			rowPixels = new int[w];
+			rowBytes = new byte[w * 3];
+		}
+
+		for (int y = 0, i = 0; y < h; y++) {
+			luma(image, y, w, rowPixels);
+			for (int x = 0; x < w; x++, i++) {
+				mean[i] = rowPixels[x];
+			}
+		}
+
+		Arrays.fill(variance, INITIAL_VARIANCE);
+		Arrays.fill(moving, 0);
+
+		width = w;
+		height = h;
+		resetRequested = false;
+	}
+
+	/**
+	 * Read luminance of pixels in the given row. Pixels are read directly from raster when image
+	 * type allows it, without any allocation.
+	 *
+	 * @param image the image
+	 * @param y the row
+	 * @param w the image width
+	 * @param row the array to store luminance in
+	 */
+	private void luma(BufferedImage image, int y, int w, int[] row) {
+
+		WritableRaster raster = image.getRaster();
+
+		switch (image.getType()) {
+
+			case BufferedImage.TYPE_INT_RGB:
+			case BufferedImage.TYPE_INT_ARGB:
+				raster.getDataElements(0, y, w, 1, row);
+				break;
+
+			case BufferedImage.TYPE_3BYTE_BGR: {
+
+				// data elements are returned in bands order, which is R, G, B
+
+				byte[] bytes = rowBytes;
+				raster.getDataElements(0, y, w, 1, bytes);
+				for (int x = 0, j = 0; x < w; x++, j += 3) {
+					row[x] = (bytes[j] & 0xff) << 16 | (bytes[j + 1] & 0xff) << 8 | bytes[j + 2] & 0xff;
+				}
+				break;
+			}
+
+			default:
+				image.getRGB(0, y, w, 1, row, 0, w);
+				break;
+		}
+
+		// NTSC luma, the same as in gray filter
+
+		for (int x = 0; x < w; x++) {
+			int rgb = row[x];
+			row[x] = (((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 151 + (rgb & 0xff) * 28) >> 8;
+		}
+	}
+
+	/**
+	 * Find points of motion. Moving pixels are visited in column-major order, so it's (x0, y0),
+	 * (x0, y1), ..., (x1, y0), (x1, y1), etc.
+	 *
+	 * @param w the image width
+	 * @param h the image height
+	 * @param words the number of moving pixels bit set words in use
+	 */
+	private void findPoints(int w, int h, int words) {
+
+		if (!grid.reset(points, w, h, range, maxPoints)) {
+			return;
+		}
+
+		for (int k = 0; k < words; k++) {
+			long word = moving[k];
+			while (word != 0) {
+				int bit = (k << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				int x = bit / h;
+				if (!grid.offer(x, bit - x * h)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Initialize background model from the next image.
+	 */
+	public void reset() {
+		resetRequested = true;
+	}
+
+	@Override
+	public Point getCog() {
+		return cog;
+	}
+
+	@Override
+	public double getArea() {
+		return area;
+	}
+
+	/**
+	 * Set minimum luminance difference from background mean above which pixel can be classified
+	 * as "moved". Minimum value is 0 and maximum is 255.
+	 *
+	 * @param threshold the pixel luminance difference threshold
+	 * @see #DEFAULT_PIXEL_THREASHOLD
+	 */
+	@Override
+	public void setPixelThreshold(int threshold) {
+		this.pixelThreshold = checkPixelThreshold(threshold);
+	}
+
+	/**
+	 * Validate pixel threshold. Constructor uses it instead of overridable setter.
+	 *
+	 * @param threshold the pixel luminance difference threshold
+	 * @return The same threshold
+	 */
+	private static int checkPixelThreshold(int threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Pixel intensity threshold cannot be negative!");
+		}
+		if (threshold > 255) {
+			throw new IllegalArgumentException("Pixel intensity threshold cannot be higher than 255!");
+		}
+		return threshold;
+	}
+
+	/**
+	 * Set percentage fraction of detected motion area threshold above which it is classified as
+	 * "moved". Minimum value for this is 0 and maximum is 100, which corresponds to full image
+	 * covered by spontaneous motion.
+	 *
+	 * @param threshold the percentage fraction of image area
+	 * @see #DEFAULT_AREA_THREASHOLD
+	 */
+	@Override
+	public void setAreaThreshold(double threshold) {
+		this.areaThreshold = checkAreaThreshold(threshold);
+	}
+
+	/**
+	 * Validate area threshold. Constructor uses it instead of overridable setter.
+	 *
+	 * @param threshold the percentage fraction of image area
+	 * @return The same threshold
+	 */
+	private static double checkAreaThreshold(double threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be negative!");
+		}
+		if (threshold > 100) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be higher than 100!");
+		}
+		return threshold;
+	}
+
+	/**
+	 * Set max percentage fraction of detected motion area threshold, below which it is classified
+	 * as "moved". Minimum value for this is 0 and maximum is 100.
+	 *
+	 * @param threshold the percentage fraction of image area
+	 * @see #DEFAULT_AREA_THREASHOLD_MAX
+	 */
+	@Override
+	public void setMaxAreaThreshold(double threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be negative!");
+		}
+		if (threshold > 100) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be higher than 100!");
+		}
+		this.areaThresholdMax = threshold;
+	}
+
+	/**
+	 * Set background learning rate, i.e. weight of the current image in the background model.
+	 * Higher values adapt to lighting changes faster, but also absorb slowly moving objects
+	 * faster.
+	 *
+	 * @param rate the learning rate (0 - 1)
+	 * @see #DEFAULT_LEARNING_RATE
+	 */
+	public void setLearningRate(float rate) {
+		if (rate <= 0 || rate > 1) {
+			throw new IllegalArgumentException("Learning rate must be in range (0, 1]!");
+		}
+		this.learningRate = rate;
+	}
+
+	/**
+	 * @return Background learning rate
+	 */
+	public float getLearningRate() {
+		return learningRate;
+	}
+
+	/**
+	 * Set number of standard deviations from background mean above which pixel is classified as
+	 * "moved".
+	 *
+	 * @param deviations the number of standard deviations
+	 * @see #DEFAULT_DEVIATIONS
+	 */
+	public void setDeviations(float deviations) {
+		if (deviations <= 0) {
+			throw new IllegalArgumentException("Number of standard deviations must be positive!");
+		}
+		this.deviations = deviations;
+	}
+
+	/**
+	 * @return Number of standard deviations above which pixel is classified as moving
+	 */
+	public float getDeviations() {
+		return deviations;
+	}
+
+	@Override
+	public void setPointRange(int i) {
+		range = i;
+	}
+
+	@Override
+	public int getPointRange() {
+		return range;
+	}
+
+	@Override
+	public void setMaxPoints(int i) {
+		maxPoints = i;
+	}
+
+	@Override
+	public int getMaxPoints() {
+		return maxPoints;
+	}
+
+	@Override
+	public ArrayList<Point> getPoints() {
+		return points;
+	}
+
+	/**
+	 * Set rectangular zones where motion should not be detected. Background is not updated in
+	 * these zones either.
+	 *
+	 * @param doNotEngageZones the zones where motion is not detected
+	 */
+	@Override
+	public void setDoNotEngageZones(List<Rectangle> doNotEngageZones) {
+		if (doNotEngageZones == null || doNotEngageZones.isEmpty()) {
+			zones = WebcamMotionZones.NONE;
+		} else {
+			zones = new WebcamMotionZones(doNotEngageZones, Collections.<Shape> emptyList());
+		}
+	}
+}
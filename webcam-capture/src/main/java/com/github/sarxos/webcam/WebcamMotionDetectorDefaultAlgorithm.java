@@ -2,13 +2,26 @@ package com.github.sarxos.webcam;
 
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.github.sarxos.webcam.util.jh.JHBlurFilter;
-import com.github.sarxos.webcam.util.jh.JHGrayFilter;
+import com.github.sarxos.webcam.util.PixelKernels;
+import com.github.sarxos.webcam.util.jh.JHGrayBlurFilter;
 
 
 /**
@@ -18,7 +31,7 @@ import com.github.sarxos.webcam.util.jh.JHGrayFilter;
  * @author kevin
  *
  */
-public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetectorAlgorithm {
+public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetectorThresholdAlgorithm {
 
 	/**
 	 * Default pixel difference intensity threshold (set to 25).
@@ -35,6 +48,54 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	 */
 	public static final double DEFAULT_AREA_THREASHOLD_MAX = 100;
 
+	/**
+	 * Default number of image pixels above which filtering and detection are split into bands
+	 * processed in parallel (set to 1920 x 1080).
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1920 * 1080;
+
+	/**
+	 * Minimum height of a band processed in parallel.
+	 */
+	private static final int MIN_BAND_HEIGHT = 32;
+
+	/**
+	 * Kernels used to compare luma planes and find moving pixels.
+	 */
+	private static final PixelKernels KERNELS = PixelKernels.getDefault();
+
+	/**
+	 * Thread factory for workers of the shared fork join pool.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class WorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+
+		/**
+		 * Thread number in pool.
+		 */
+		private static final AtomicInteger NT = new AtomicInteger(0);
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			t.setName(String.format("motion-detector-worker-%d", NT.incrementAndGet()));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Lazy holder of fork join pool shared by all algorithm instances, so the number of threads
+	 * does not grow with the number of motion detectors.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class Pool {
+
+		private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), new WorkerThreadFactory(), WebcamExceptionHandler.getInstance(), false);
+	}
+
 	/**
 	 * Pixel intensity threshold (0 - 255).
 	 */
@@ -61,17 +122,68 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	private Point cog = null;
 
 	/**
-	 * Blur filter instance.
+	 * Number of moving pixels and sums of their coordinates found in the last detection.
+	 */
+	private int moving = 0;
+	private int movingX = 0;
+	private int movingY = 0;
+
+	/**
+	 * Blur radius.
 	 */
-	private final JHBlurFilter blur = new JHBlurFilter(6, 6, 1);
+	private static final int BLUR_RADIUS = 6;
 
 	/**
-	 * Gray filter instance.
+	 * Fused gray and blur filters, one for every band of image filtered in parallel.
 	 */
-	private final JHGrayFilter gray = new JHGrayFilter();
+	private JHGrayBlurFilter[] filters = new JHGrayBlurFilter[] { new JHGrayBlurFilter(BLUR_RADIUS, BLUR_RADIUS) };
 
+	/**
+	 * Image filtered by this algorithm, luma values are stored in its raster as they are.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class LumaImage extends BufferedImage {
+
+		public LumaImage(int width, int height) {
+			super(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		}
+
+		byte[] getPlane() {
+			return ((DataBufferByte) getRaster().getDataBuffer()).getData();
+		}
+	}
+
+	/**
+	 * Rectangular do-not-engage zones.
+	 */
 	private List<Rectangle> doNotEnganeZones = Collections.emptyList();
 
+	/**
+	 * Do-not-engage zones of arbitrary shape.
+	 */
+	private List<Shape> doNotEngageShapes = Collections.emptyList();
+
+	/**
+	 * Engage-only zones, detection is limited to these when not empty.
+	 */
+	private List<Shape> engageOnlyShapes = Collections.emptyList();
+
+	/**
+	 * All zones compiled into row spans of engaged pixels.
+	 */
+	private volatile WebcamMotionZones zones = WebcamMotionZones.NONE;
+
+	/**
+	 * Number of image pixels above which image is processed in parallel.
+	 */
+	private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+	/**
+	 * Number of bands image is split into when processed in parallel.
+	 */
+	private volatile int parallelBands = Runtime.getRuntime().availableProcessors();
+
 	/**
 	 * Creates default motion detector algorithm with default pixel and area thresholds.
 	 * 
@@ -93,18 +205,95 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 		setAreaThreshold(areaThreshold);
 	}
 
+	/**
+	 * Convert image to luma and blur it. Returned image is {@link BufferedImage#TYPE_BYTE_GRAY}
+	 * image with luma values stored in its raster as they are.
+	 */
 	@Override
-	public BufferedImage filter(BufferedImage original) {
-		BufferedImage modified = blur.filter(original, null);
-		modified = gray.filter(modified, null);
+	public BufferedImage filter(final BufferedImage original) {
+
+		final int w = original.getWidth();
+		final int h = original.getHeight();
+		final int n = getBandsCount(w, h);
+		final LumaImage modified = new LumaImage(w, h);
+		final byte[] plane = modified.getPlane();
+
+		if (filters.length < n) {
+			JHGrayBlurFilter[] tmp = Arrays.copyOf(filters, n);
+			for (int i = filters.length; i < n; i++) {
+				tmp[i] = new JHGrayBlurFilter(BLUR_RADIUS, BLUR_RADIUS);
+			}
+			filters = tmp;
+		}
+
+		if (n == 1) {
+			filters[0].filterLuma(original, plane);
+			return modified;
+		}
+
+		// every band is filtered by its own filter, rows are the same as if whole image has been
+		// filtered at once
+
+		final RecursiveAction[] tasks = new RecursiveAction[n];
+
+		for (int i = 0; i < n; i++) {
+
+			final JHGrayBlurFilter filter = filters[i];
+			final int y0 = i * h / n;
+			final int y1 = (i + 1) * h / n;
+
+			tasks[i] = new RecursiveAction() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					filter.filterLuma(original, plane, y0, y1);
+				}
+			};
+		}
+
+		invokeAll(tasks);
+
 		return modified;
 	}
 
+	/**
+	 * Invoke tasks on the shared fork join pool and wait for all of them to complete.
+	 *
+	 * @param tasks the tasks to invoke
+	 */
+	private static void invokeAll(final RecursiveAction[] tasks) {
+		Pool.INSTANCE.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * Get number of bands image of the given size should be split into.
+	 *
+	 * @param w the image width
+	 * @param h the image height
+	 * @return Number of bands, 1 if image should not be processed in parallel
+	 */
+	private int getBandsCount(int w, int h) {
+		if ((long) w * h <= parallelThreshold) {
+			return 1;
+		}
+		return Math.max(1, Math.min(parallelBands, h / MIN_BAND_HEIGHT));
+	}
+
 	@Override
 	public boolean detect(BufferedImage previousModified, BufferedImage currentModified) {
 
 		points.clear();
-		thresholds.clear();
+		thresholdsValid = false;
 
 		int p = 0;
 
@@ -114,55 +303,44 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 		final int w = currentModified.getWidth();
 		final int h = currentModified.getHeight();
 
-		int j = 0;
+		prepare(w, h, getBandsCount(w, h));
 
 		if (previousModified != null) {
-			for (int x = 0; x < w; x++) {
-				for (int y = 0; y < h; y++) {
 
-					// ignore point if it's in one of do-not-engage zones, simply skip motion
-					// detection for corresponding pixel
+			final WebcamMotionZones.Spans engaged = zones.getSpans(w, h);
+			final int layout = getLayout(currentModified, previousModified, w);
+			final Band[] bands = this.bands;
 
-					if (isInDoNotEngageZone(x, y)) {
-						continue;
-					}
+			for (Band band : bands) {
+				band.set(previousModified, currentModified, layout, pixelThreshold, engaged);
+			}
 
-					int cpx = currentModified.getRGB(x, y);
-					int ppx = previousModified.getRGB(x, y);
-					int pid = combinePixels(cpx, ppx) & 0x000000ff;
-
-					if (pid >= pixelThreshold) {
-						Point pp = new Point(x, y);
-						boolean keep = j < maxPoints;
-
-						if (keep) {
-							for (Point g : points) {
-								if (g.x != pp.x || g.y != pp.y) {
-									if (pp.distance(g) <= range) {
-										keep = false;
-										break;
-									}
-								}
-							}
-						}
+			if (bands.length == 1) {
+				bands[0].compute();
+			} else {
+				invokeAll(bands);
+			}
 
-						if (keep) {
-							points.add(new Point(x, y));
-							j += 1;
-						}
+			// merge in bands order, so the result is exactly the same as if whole image has been
+			// processed in one pass; integer sums are merged in the same way they overflow
 
-						cogX += x;
-						cogY += y;
-						p += 1;
-						thresholds.add(pid);
-					}
-				}
+			for (Band band : bands) {
+				p += band.count;
+				cogX += band.cogX;
+				cogY += band.cogY;
+				band.clear();
 			}
+
+			findPoints();
 		}
 
+		moving = p;
+		movingX = cogX;
+		movingY = cogY;
+
 		area = p * 100d / (w * h);
 
-		if (area >= areaThreshold && area <= areaThresholdMax) {
+		if (p > 0 && area >= areaThreshold && area <= areaThresholdMax) {
 			cog = new Point(cogX / p, cogY / p);
 			return true;
 		} else {
@@ -172,20 +350,418 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	}
 
 	/**
-	 * Return true if point identified by x and y coordinates is in one of the do-not-engage zones.
-	 * Return false otherwise.
+	 * Horizontal band of image rows compared in one pass. Moving pixels are marked in the band's
+	 * own column-major bit set, indexed by x * (y1 - y0) + (y - y0), so bands can be processed in
+	 * parallel without sharing any bit set word.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private final class Band extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * First row of the band (inclusive).
+		 */
+		final int y0;
+
+		/**
+		 * Last row of the band (exclusive).
+		 */
+		final int y1;
+
+		/**
+		 * Moving pixels of the band, column-major bit set.
+		 */
+		final long[] moving;
+
+		/**
+		 * Pixels intensity differences in the currently processed row.
+		 */
+		final byte[] rowDiff;
+
+		/**
+		 * Rows buffers used when images pixels cannot be accessed directly.
+		 */
+		final int[] rowCurrent;
+		final int[] rowPrevious;
+
+		/**
+		 * Number of moving pixels found in the band.
+		 */
+		int count;
+
+		/**
+		 * Sums of moving pixels coordinates.
+		 */
+		int cogX;
+		int cogY;
+
+		/**
+		 * Images and zones of the current detection, task is never serialized.
+		 */
+		private transient BufferedImage previous;
+		private transient BufferedImage current;
+		private int layout;
+		private int threshold;
+		private transient WebcamMotionZones.Spans engaged;
+
+		Band(int y0, int y1, int w) {
+			this.y0 = y0;
+			this.y1 = y1;
+			this.moving = new long[(w * (y1 - y0) + 63) >>> 6];
+			this.rowDiff = new byte[w];
+			this.rowCurrent = new int[w];
+			this.rowPrevious = new int[w];
+		}
+
+		void set(BufferedImage previous, BufferedImage current, int layout, int threshold, WebcamMotionZones.Spans engaged) {
+			this.previous = previous;
+			this.current = current;
+			this.layout = layout;
+			this.threshold = threshold;
+			this.engaged = engaged;
+			reinitialize();
+		}
+
+		void reset() {
+			this.count = 0;
+			this.cogX = 0;
+			this.cogY = 0;
+			Arrays.fill(moving, 0);
+		}
+
+		void clear() {
+			this.previous = null;
+			this.current = null;
+			this.engaged = null;
+		}
+
+		@Override
+		protected void compute() {
+
+			final int w = width;
+			final int bh = y1 - y0;
+			final int threshold = this.threshold;
+			final int[] rows = engaged.rows;
+			final int[] spans = engaged.spans;
+			final long[] moving = this.moving;
+			final byte[] diffs = WebcamMotionDetectorDefaultAlgorithm.this.diffs;
+			final byte[] row = this.rowDiff;
+
+			int p = 0;
+			int cogX = 0;
+			int cogY = 0;
+
+			// compare both images row by row, directly from rasters when possible, and mark moving
+			// pixels in column-major bit set, so points can be later found in the same order as
+			// they were found by column-major scan; only engaged spans are compared, so pixels in
+			// do-not-engage zones or outside of engage-only zones are skipped wholesale
+
+			for (int y = y0; y < y1; y++) {
+				for (int k = rows[y], n = rows[y + 1]; k < n; k++) {
+
+					final int x1 = spans[2 * k];
+					final int x2 = spans[2 * k + 1];
+
+					diff(previous, current, layout, y, w, x1, x2, row, rowCurrent, rowPrevious);
+
+					// moving pixels are rare, so skip to them instead of testing them one by one
+
+					for (int x = KERNELS.indexAbove(row, x1, x2, threshold); x < x2; x = KERNELS.indexAbove(row, x + 1, x2, threshold)) {
+						int bit = x * bh + y - y0;
+						moving[bit >>> 6] |= 1L << bit;
+						diffs[y * w + x] = row[x];
+						cogX += x;
+						cogY += y;
+						p += 1;
+					}
+				}
+			}
+
+			this.count = p;
+			this.cogX = cogX;
+			this.cogY = cogY;
+		}
+	}
+
+	/**
+	 * Images pixels are read with {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+	 */
+	private static final int LAYOUT_RGB = 0;
+
+	/**
+	 * Images pixels are read directly from integer data buffers.
+	 */
+	private static final int LAYOUT_INT = 1;
+
+	/**
+	 * Images pixels are read directly from interleaved byte data buffers.
+	 */
+	private static final int LAYOUT_BYTE = 2;
+
+	/**
+	 * Images are luma planes created by {@link #filter(BufferedImage)}.
+	 */
+	private static final int LAYOUT_LUMA = 3;
+
+	/**
+	 * Check how pixels of both images can be read. Direct access is possible only if both images
+	 * have the same layout and data buffer values are the same as would be returned by
+	 * {@link BufferedImage#getRGB(int, int)}.
+	 *
+	 * @param current the current image
+	 * @param previous the previous image
+	 * @param w the image width
+	 * @return Images layout
+	 */
+	private static int getLayout(BufferedImage current, BufferedImage previous, int w) {
+
+		if (previous.getWidth() != w) {
+			return LAYOUT_RGB;
+		}
+
+		if (current instanceof LumaImage && previous instanceof LumaImage) {
+			return LAYOUT_LUMA;
+		}
+
+		WritableRaster cr = current.getRaster();
+		WritableRaster pr = previous.getRaster();
+
+		if (cr.getParent() != null || pr.getParent() != null) {
+			return LAYOUT_RGB;
+		}
+		if (cr.getDataBuffer().getOffset() != 0 || pr.getDataBuffer().getOffset() != 0) {
+			return LAYOUT_RGB;
+		}
+
+		int type = current.getType();
+		if (type != previous.getType()) {
+			return LAYOUT_RGB;
+		}
+
+		if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+			return LAYOUT_INT;
+		}
+
+		// interleaved 8-bit sRGB without alpha, e.g. BGR images or images from default driver
+
+		if (!(cr.getDataBuffer() instanceof DataBufferByte) || !(pr.getDataBuffer() instanceof DataBufferByte)) {
+			return LAYOUT_RGB;
+		}
+		if (!(current.getColorModel() instanceof ComponentColorModel) || !current.getColorModel().equals(previous.getColorModel())) {
+			return LAYOUT_RGB;
+		}
+		if (!current.getColorModel().getColorSpace().isCS_sRGB() || current.getColorModel().hasAlpha() || cr.getNumBands() != 3) {
+			return LAYOUT_RGB;
+		}
+		if (!(cr.getSampleModel() instanceof ComponentSampleModel) || !cr.getSampleModel().equals(pr.getSampleModel())) {
+			return LAYOUT_RGB;
+		}
+		if (cr.getSampleModel().getDataType() != DataBuffer.TYPE_BYTE || cr.getSampleModelTranslateX() != 0 || cr.getSampleModelTranslateY() != 0) {
+			return LAYOUT_RGB;
+		}
+		if (pr.getSampleModelTranslateX() != 0 || pr.getSampleModelTranslateY() != 0) {
+			return LAYOUT_RGB;
+		}
+
+		return LAYOUT_BYTE;
+	}
+
+	/**
+	 * Compute pixels intensity difference in the given row span. Only the blue component is
+	 * compared, since images are gray.
+	 *
+	 * @param previous the previous image
+	 * @param current the current image
+	 * @param layout the images layout
+	 * @param y the row
+	 * @param w the image width
+	 * @param x1 the span start (inclusive)
+	 * @param x2 the span end (exclusive)
+	 * @param row the array to store differences in, indexed by x
+	 * @param rowCurrent the current image row buffer
+	 * @param rowPrevious the previous image row buffer
+	 */
+	private static void diff(BufferedImage previous, BufferedImage current, int layout, int y, int w, int x1, int x2, byte[] row, int[] rowCurrent, int[] rowPrevious) {
+
+		switch (layout) {
+
+			case LAYOUT_LUMA: {
+
+				byte[] cdata = ((LumaImage) current).getPlane();
+				byte[] pdata = ((LumaImage) previous).getPlane();
+
+				KERNELS.absDiff(cdata, pdata, y * w + x1, row, x1, x2 - x1);
+
+				break;
+			}
+
+			case LAYOUT_BYTE: {
+
+				ComponentSampleModel sm = (ComponentSampleModel) current.getSampleModel();
+				byte[] cdata = ((DataBufferByte) current.getRaster().getDataBuffer()).getData();
+				byte[] pdata = ((DataBufferByte) previous.getRaster().getDataBuffer()).getData();
+
+				int stride = sm.getPixelStride();
+				int i = y * sm.getScanlineStride() + x1 * stride + sm.getBandOffsets()[2];
+
+				for (int x = x1; x < x2; x++, i += stride) {
+					row[x] = (byte) Math.abs((cdata[i] & 0xff) - (pdata[i] & 0xff));
+				}
+
+				break;
+			}
+
+			case LAYOUT_INT: {
+
+				int[] cdata = ((DataBufferInt) current.getRaster().getDataBuffer()).getData();
+				int[] pdata = ((DataBufferInt) previous.getRaster().getDataBuffer()).getData();
+
+				if (current.getType() == BufferedImage.TYPE_INT_RGB) {
+
+					// alpha bits are undefined here, while getRGB always returns opaque pixels
+
+					for (int x = x1, i = y * w + x1; x < x2; x++, i++) {
+						row[x] = (byte) Math.abs((cdata[i] & 0xff) - (pdata[i] & 0xff));
+					}
+				} else {
+					diff(cdata, pdata, y * w, x1, x2, row);
+				}
+
+				break;
+			}
+
+			default:
+				current.getRGB(x1, y, x2 - x1, 1, rowCurrent, x1, w);
+				previous.getRGB(x1, y, x2 - x1, 1, rowPrevious, x1, w);
+				diff(rowCurrent, rowPrevious, 0, x1, x2, row);
+				break;
+		}
+	}
+
+	private static void diff(int[] current, int[] previous, int offset, int x1, int x2, byte[] row) {
+		for (int x = x1, i = offset + x1; x < x2; x++, i++) {
+			int cpx = current[i];
+			int ppx = previous[i];
+			if (cpx >>> 24 == 0xff) {
+				row[x] = (byte) Math.abs((cpx & 0xff) - (ppx & 0xff));
+			} else {
+				row[x] = (byte) combinePixels(cpx, ppx);
+			}
+		}
+	}
+
+	/**
+	 * Make sure working buffers are big enough for image of the given size and split into the
+	 * given number of bands.
+	 *
+	 * @param w the image width
+	 * @param h the image height
+	 * @param n the number of bands
+	 */
+	private void prepare(int w, int h, int n) {
+
+		if (diffs.length < w * h) {
+			diffs = new byte[w * h];
+		}
+
+		if (w != width || h != height || n != bands.length) {
+			Band[] bands = new Band[n];
+			for (int i = 0; i < n; i++) {
+				bands[i] = new Band(i * h / n, (i + 1) * h / n, w);
+			}
+			this.bands = bands;
+		} else {
+			for (Band band : bands) {
+				band.reset();
+			}
+		}
+
+		width = w;
+		height = h;
+	}
+
+	/**
+	 * Visit moving pixels from the last detection in column-major order, so it's (x0, y0), (x0,
+	 * y1), ..., (x1, y0), (x1, y1), etc. Columns of all bands are visited one after another.
 	 *
-	 * @param x the x coordinate of a point
-	 * @param y the y coordinate of a point
-	 * @return True if point is in one of do-not-engage zones, false otherwise
-	 */
-	private boolean isInDoNotEngageZone(final int x, final int y) {
-		for (final Rectangle zone : doNotEnganeZones) {
-			if (zone.contains(x, y)) {
-				return true;
+	 * @param visitor the pixels visitor, return false to stop visiting
+	 */
+	private void visit(Visitor visitor) {
+
+		final Band[] bands = this.bands;
+
+		for (int x = 0; x < width; x++) {
+			for (Band band : bands) {
+
+				final long[] moving = band.moving;
+				final int bh = band.y1 - band.y0;
+				final int start = x * bh;
+				final int end = start + bh;
+
+				if (bh == 0) {
+					continue;
+				}
+
+				for (int k = start >>> 6, last = (end - 1) >>> 6; k <= last; k++) {
+
+					long word = moving[k];
+
+					// mask out bits which belong to the neighbor columns
+
+					if (k == start >>> 6) {
+						word &= -1L << start;
+					}
+					if (k == last) {
+						word &= -1L >>> (63 - ((end - 1) & 63));
+					}
+
+					while (word != 0) {
+						int bit = (k << 6) + Long.numberOfTrailingZeros(word);
+						word &= word - 1;
+						if (!visitor.visit(x, band.y0 + bit - start)) {
+							return;
+						}
+					}
+				}
 			}
 		}
-		return false;
+	}
+
+	/**
+	 * Moving pixels visitor.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private interface Visitor {
+
+		/**
+		 * @param x the moving pixel x coordinate
+		 * @param y the moving pixel y coordinate
+		 * @return True to continue visiting, false to stop
+		 */
+		boolean visit(int x, int y);
+	}
+
+	/**
+	 * Find points of motion. Moving pixels are visited in column-major order, and pixel is kept as
+	 * a point if there is no other point within the range and max points count has not been
+	 * reached yet.
+	 */
+	private void findPoints() {
+
+		if (!grid.reset(points, width, height, range, maxPoints)) {
+			return;
+		}
+
+		visit(new Visitor() {
+
+			@Override
+			public boolean visit(int x, int y) {
+				return grid.offer(x, y);
+			}
+		});
 	}
 
 	@Override
@@ -198,6 +774,29 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 		return this.area;
 	}
 
+	/**
+	 * @return Number of moving pixels found in the last detection
+	 */
+	int getMovingCount() {
+		return moving;
+	}
+
+	/**
+	 * @return Sum of x coordinates of moving pixels found in the last detection, overflowed the
+	 *         same way as it is when center of gravity is computed
+	 */
+	int getMovingSumX() {
+		return movingX;
+	}
+
+	/**
+	 * @return Sum of y coordinates of moving pixels found in the last detection, overflowed the
+	 *         same way as it is when center of gravity is computed
+	 */
+	int getMovingSumY() {
+		return movingY;
+	}
+
 	/**
 	 * Set pixel intensity difference threshold above which pixel is classified as "moved". Minimum
 	 * value is 0 and maximum is 255. Default value is 10. This value is equal for all RGB
@@ -206,6 +805,7 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	 * @param threshold the pixel intensity difference threshold
 	 * @see #DEFAULT_PIXEL_THREASHOLD
 	 */
+	@Override
 	public void setPixelThreshold(int threshold) {
 		if (threshold < 0) {
 			throw new IllegalArgumentException("Pixel intensity threshold cannot be negative!");
@@ -224,6 +824,7 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	 * @param threshold the percentage fraction of image area
 	 * @see #DEFAULT_AREA_THREASHOLD
 	 */
+	@Override
 	public void setAreaThreshold(double threshold) {
 		if (threshold < 0) {
 			throw new IllegalArgumentException("Area fraction threshold cannot be negative!");
@@ -243,6 +844,7 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	 * @param threshold the percentage fraction of image area
 	 * @see #DEFAULT_AREA_THREASHOLD_MAX
 	 */
+	@Override
 	public void setMaxAreaThreshold(double threshold) {
 		if (threshold < 0) {
 			throw new IllegalArgumentException("Area fraction threshold cannot be negative!");
@@ -253,6 +855,48 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 		this.areaThresholdMax = threshold;
 	}
 
+	/**
+	 * Set number of image pixels above which filtering and detection are split into horizontal
+	 * bands processed in parallel on the fork join pool shared by all motion detectors. Results
+	 * are exactly the same as when image is processed in one pass.
+	 *
+	 * @param pixels the number of pixels, e.g. 1280 * 720
+	 * @see #DEFAULT_PARALLEL_THRESHOLD
+	 */
+	public void setParallelThreshold(int pixels) {
+		if (pixels < 0) {
+			throw new IllegalArgumentException("Parallel processing threshold cannot be negative!");
+		}
+		this.parallelThreshold = pixels;
+	}
+
+	/**
+	 * @return Number of image pixels above which image is processed in parallel
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Set number of bands image is split into when processed in parallel. By default this is the
+	 * number of available processors. Bands are never lower than 32 rows.
+	 *
+	 * @param bands the number of bands
+	 */
+	public void setParallelBands(int bands) {
+		if (bands < 1) {
+			throw new IllegalArgumentException("Number of parallel bands must be positive!");
+		}
+		this.parallelBands = bands;
+	}
+
+	/**
+	 * @return Number of bands image is split into when processed in parallel
+	 */
+	public int getParallelBands() {
+		return parallelBands;
+	}
+
 	private static int combinePixels(int rgb1, int rgb2) {
 
 		// first ARGB
@@ -310,7 +954,58 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 	 */
 	ArrayList<Integer> thresholds = new ArrayList<Integer>();
 
+	/**
+	 * Are thresholds computed for the last detection?
+	 */
+	private boolean thresholdsValid = true;
+
+	/**
+	 * Bands of rows from the last detection, each with its own moving pixels bit set.
+	 */
+	private Band[] bands = new Band[0];
+
+	/**
+	 * Pixel intensity differences from the last detection, valid only for moving pixels, indexed
+	 * in row-major order (y * w + x).
+	 */
+	private byte[] diffs = new byte[0];
+
+	/**
+	 * Grid used to find points of motion.
+	 */
+	private final WebcamMotionPointsGrid grid = new WebcamMotionPointsGrid();
+
+	/**
+	 * Size of the image used in the last detection.
+	 */
+	private int width = 0;
+	private int height = 0;
+
+	/**
+	 * Get intensity differences of all moving pixels found in the last detection, in column-major
+	 * order. This list is computed lazily, only when requested, and it's intended for debugging
+	 * purpose only.
+	 *
+	 * @return Thresholds
+	 */
 	public ArrayList<Integer> getThresholds() {
+
+		if (!thresholdsValid) {
+
+			thresholds.clear();
+
+			visit(new Visitor() {
+
+				@Override
+				public boolean visit(int x, int y) {
+					thresholds.add(diffs[y * width + x] & 0xff);
+					return true;
+				}
+			});
+
+			thresholdsValid = true;
+		}
+
 		return this.thresholds;
 	}
 
@@ -384,8 +1079,79 @@ public class WebcamMotionDetectorDefaultAlgorithm implements WebcamMotionDetecto
 		return points;
 	}
 
+	/**
+	 * Set rectangular zones where motion should not be detected. Zones are compiled into a mask
+	 * when set, so later changes made to the list are not reflected in detection.
+	 *
+	 * @param doNotEngageZones the zones where motion is not detected
+	 */
 	@Override
-	public void setDoNotEngageZones(List<Rectangle> doNotEngageZones) {
-		this.doNotEnganeZones = doNotEngageZones;
+	public synchronized void setDoNotEngageZones(List<Rectangle> doNotEngageZones) {
+		this.doNotEnganeZones = doNotEngageZones == null ? Collections.<Rectangle> emptyList() : new ArrayList<Rectangle>(doNotEngageZones);
+		compileZones();
+	}
+
+	/**
+	 * Set zones of arbitrary shape, e.g. {@link java.awt.Polygon}, where motion should not be
+	 * detected. These are used together with rectangles set by
+	 * {@link #setDoNotEngageZones(List)}.
+	 *
+	 * @param shapes the zones where motion is not detected
+	 */
+	public synchronized void setDoNotEngageShapes(List<? extends Shape> shapes) {
+		this.doNotEngageShapes = shapes == null ? Collections.<Shape> emptyList() : new ArrayList<Shape>(shapes);
+		compileZones();
+	}
+
+	/**
+	 * Set zones of arbitrary shape where motion should be detected. When not empty, motion is
+	 * detected only within these zones, excluding do-not-engage zones. Empty list or null engages
+	 * whole image.
+	 *
+	 * @param shapes the zones where motion is detected
+	 */
+	public synchronized void setEngageOnlyShapes(List<? extends Shape> shapes) {
+		this.engageOnlyShapes = shapes == null ? Collections.<Shape> emptyList() : new ArrayList<Shape>(shapes);
+		compileZones();
+	}
+
+	/**
+	 * @return Do-not-engage zones of arbitrary shape
+	 */
+	public List<Shape> getDoNotEngageShapes() {
+		return Collections.unmodifiableList(doNotEngageShapes);
+	}
+
+	/**
+	 * @return Engage-only zones
+	 */
+	public List<Shape> getEngageOnlyShapes() {
+		return Collections.unmodifiableList(engageOnlyShapes);
+	}
+
+	/**
+	 * Set zones which have already been compiled, replacing all zones set before. Compiled zones
+	 * can be shared, so their spans are not compiled again when the same zones are used many times.
+	 *
+	 * @param zones the compiled zones
+	 */
+	synchronized void setZones(WebcamMotionZones zones) {
+		this.doNotEnganeZones = Collections.emptyList();
+		this.doNotEngageShapes = zones.getExcluded();
+		this.engageOnlyShapes = zones.getIncluded();
+		this.zones = zones;
+	}
+
+	private void compileZones() {
+
+		List<Shape> excluded = new ArrayList<Shape>(doNotEnganeZones.size() + doNotEngageShapes.size());
+		excluded.addAll(doNotEnganeZones);
+		excluded.addAll(doNotEngageShapes);
+
+		if (excluded.isEmpty() && engageOnlyShapes.isEmpty()) {
+			zones = WebcamMotionZones.NONE;
+		} else {
+			zones = new WebcamMotionZones(excluded, engageOnlyShapes);
+		}
 	}
 }
@@ -0,0 +1,685 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sarxos.webcam.util.jh.JHGrayBlurFilter;
+
+
+/**
+ * Multi-resolution motion detector algorithm. Images are first decimated to a small working size
+ * and coarse detection is done on them. Full resolution analysis, done by
+ * {@link WebcamMotionDetectorDefaultAlgorithm}, runs only inside bounding boxes of coarse hits, so
+ * in scenes with no motion most of the work is done on images which are decimation factor squared
+ * times smaller than the originals. Area, center of gravity and points are reported in original
+ * image coordinates.<br>
+ * <br>
+ * Motion of objects smaller than decimation factor may not be visible in coarse images, so this
+ * algorithm is less sensitive than the default one. Usage:
+ *
+ * <pre>
+ * WebcamMotionDetector detector = new WebcamMotionDetector(webcam, new WebcamMotionDetectorPyramidAlgorithm(), 500);
+ * </pre>
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class WebcamMotionDetectorPyramidAlgorithm implements WebcamMotionDetectorThresholdAlgorithm {
+
+	/**
+	 * Default decimation factor (set to 4).
+	 */
+	public static final int DEFAULT_DECIMATION = 4;
+
+	/**
+	 * When regions of interest cover more than this fraction of the image, the whole image is
+	 * analyzed at once.
+	 */
+	private static final double MAX_ROI_FRACTION = 0.5;
+
+	/**
+	 * Maximum number of regions of interest for which translated do-not-engage zones are cached.
+	 */
+	private static final int MAX_CACHED_ZONES = 32;
+
+	/**
+	 * Coarse luma image with reference to the original image it was decimated from.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class Decimated extends BufferedImage {
+
+		/**
+		 * The original image.
+		 */
+		private final BufferedImage original;
+
+		public Decimated(int width, int height, BufferedImage original) {
+			super(width, height, BufferedImage.TYPE_BYTE_GRAY);
+			this.original = original;
+		}
+
+		byte[] getPlane() {
+			return ((DataBufferByte) getRaster().getDataBuffer()).getData();
+		}
+	}
+
+	/**
+	 * Algorithm used for full resolution analysis of regions of interest.
+	 */
+	private final WebcamMotionDetectorDefaultAlgorithm fine = new WebcamMotionDetectorDefaultAlgorithm();
+
+	/**
+	 * Fused gray and blur filter used for coarse images.
+	 */
+	private final JHGrayBlurFilter grayBlur;
+
+	/**
+	 * Sampled image, reused between frames of the same size, and rows buffers of the original.
+	 */
+	private BufferedImage sampled = null;
+	private int[] row = new int[0];
+	private byte[] rowBytes = new byte[0];
+
+	/**
+	 * Decimation factor.
+	 */
+	private final int decimation;
+
+	/**
+	 * Pixel intensity threshold (0 - 255).
+	 */
+	private volatile int pixelThreshold = WebcamMotionDetectorDefaultAlgorithm.DEFAULT_PIXEL_THREASHOLD;
+
+	/**
+	 * Percentage image area fraction threshold (0 - 100).
+	 */
+	private volatile double areaThreshold = WebcamMotionDetectorDefaultAlgorithm.DEFAULT_AREA_THREASHOLD;
+
+	/**
+	 * Maximum pixel change percentage threshold (0 - 100).
+	 */
+	private volatile double areaThresholdMax = WebcamMotionDetectorDefaultAlgorithm.DEFAULT_AREA_THREASHOLD_MAX;
+
+	/**
+	 * The current minimum range between points.
+	 */
+	private volatile int range = WebcamMotionDetectorDefaultAlgorithm.DEFAULT_RANGE;
+
+	/**
+	 * The current max amount of points.
+	 */
+	private volatile int maxPoints = WebcamMotionDetectorDefaultAlgorithm.DEFAULT_MAX_POINTS;
+
+	/**
+	 * Do-not-engage zones in original image coordinates.
+	 */
+	private volatile List<Rectangle> doNotEngageZones = Collections.emptyList();
+
+	/**
+	 * Do-not-engage zones scaled to coarse image.
+	 */
+	private volatile WebcamMotionZones coarseZones = WebcamMotionZones.NONE;
+
+	/**
+	 * Motion strength (0 = no motion, 100 = full image covered by motion).
+	 */
+	private double area = 0;
+
+	/**
+	 * Center of motion gravity.
+	 */
+	private Point cog = null;
+
+	/**
+	 * Points of the last detected motion.
+	 */
+	private final ArrayList<Point> points = new ArrayList<Point>();
+
+	/**
+	 * Grid used to merge points found in regions of interest.
+	 */
+	private final WebcamMotionPointsGrid grid = new WebcamMotionPointsGrid();
+
+	/**
+	 * Regions of interest found in the last detection, in original image coordinates.
+	 */
+	private final List<Rectangle> regions = new ArrayList<Rectangle>();
+
+	/**
+	 * Do-not-engage zones translated to regions of interest and compiled, the least recently used
+	 * are evicted. Regions often stay the same while object is moving within them, so zones spans
+	 * do not have to be compiled again for every frame.
+	 */
+	private final Map<Rectangle, WebcamMotionZones> regionZones = new LinkedHashMap<Rectangle, WebcamMotionZones>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Rectangle, WebcamMotionZones> eldest) {
+			return size() > MAX_CACHED_ZONES;
+		}
+	};
+
+	/**
+	 * Do-not-engage zones from which cached region zones have been translated.
+	 */
+	private List<Rectangle> regionZonesSource = Collections.emptyList();
+
+	/**
+	 * Regions of the current image filtered in full resolution in the last detection. When the
+	 * same regions are found in the next detection, these are used as filtered previous image
+	 * regions instead of filtering them again.
+	 */
+	private Map<Rectangle, BufferedImage> filtered = new HashMap<Rectangle, BufferedImage>();
+
+	/**
+	 * The original image from which regions have been filtered.
+	 */
+	private BufferedImage filteredSource = null;
+
+	/**
+	 * Coarse hits, row-major, and stack used to find connected hits.
+	 */
+	private byte[] hits = new byte[0];
+	private int[] stack = new int[0];
+
+	/**
+	 * Creates pyramid motion detector algorithm with default decimation and thresholds.
+	 *
+	 * @see #DEFAULT_DECIMATION
+	 */
+	public WebcamMotionDetectorPyramidAlgorithm() {
+		this(DEFAULT_DECIMATION);
+	}
+
+	/**
+	 * Creates pyramid motion detector algorithm.
+	 *
+	 * @param decimation the decimation factor, coarse image is this many times smaller in every
+	 *            dimension
+	 */
+	public WebcamMotionDetectorPyramidAlgorithm(int decimation) {
+
+		if (decimation < 1) {
+			throw new IllegalArgumentException("Decimation factor must be positive!");
+		}
+
+		this.decimation = decimation;
+
+		// keep blur radius the same, relatively to image size, as in the default algorithm
+
+		int radius = Math.max(1, Math.round(6f / decimation));
+		this.grayBlur = new JHGrayBlurFilter(radius, radius);
+
+		// every pixel with motion in region of interest counts
+
+		fine.setAreaThreshold(0);
+		fine.setParallelThreshold(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Decimate original image and apply fused gray and blur filter on the decimated one. Returned
+	 * image keeps reference to the original one, which is used for full resolution analysis. Only
+	 * the returned image is created, sampled image and rows buffers are reused.
+	 */
+	@Override
+	public BufferedImage filter(BufferedImage original) {
+
+		final int f = decimation;
+		final int ow = original.getWidth();
+		final int w = Math.max(1, ow / f);
+		final int h = Math.max(1, original.getHeight() / f);
+		final int ox = Math.min(f / 2, ow - 1);
+		final int oy = Math.min(f / 2, original.getHeight() - 1);
+
+		if (sampled == null || sampled.getWidth() != w || sampled.getHeight() != h) {
+			sampled = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		}
+		if (row.length < ow) {
+			row = new int[ow];
+			rowBytes = new byte[ow * 3];
+		}
+
+		// sample every f-th pixel of every f-th row, blur compensates for aliasing
+
+		final int[] data = ((DataBufferInt) sampled.getRaster().getDataBuffer()).getData();
+		final WritableRaster raster = original.getRaster();
+		final int type = original.getType();
+
+		for (int y = 0, i = 0; y < h; y++) {
+
+			final int sy = y * f + oy;
+
+			if (type == BufferedImage.TYPE_3BYTE_BGR) {
+
+				// data elements are returned in bands order, which is R, G, B
+
+				raster.getDataElements(0, sy, ow, 1, rowBytes);
+				for (int x = 0, j = 3 * ox; x < w; x++, i++, j += 3 * f) {
+					data[i] = (rowBytes[j] & 0xff) << 16 | (rowBytes[j + 1] & 0xff) << 8 | rowBytes[j + 2] & 0xff;
+				}
+				continue;
+			}
+
+			if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+				raster.getDataElements(0, sy, ow, 1, row);
+			} else {
+				original.getRGB(0, sy, ow, 1, row, 0, ow);
+			}
+
+			for (int x = 0, j = ox; x < w; x++, i++, j += f) {
+				data[i] = row[j];
+			}
+		}
+
+		Decimated decimated = new Decimated(w, h, original);
+		grayBlur.filterLuma(sampled, decimated.getPlane());
+
+		return decimated;
+	}
+
+	@Override
+	public boolean detect(BufferedImage previousModified, BufferedImage currentModified) {
+
+		if (!(currentModified instanceof Decimated)) {
+			throw new IllegalArgumentException("Image has to be filtered with the same algorithm");
+		}
+
+		points.clear();
+		regions.clear();
+
+		final BufferedImage current = ((Decimated) currentModified).original;
+
+		// regions filtered in the last detection can be reused only if they come from the image
+		// which is now the previous one
+
+		Map<Rectangle, BufferedImage> reusable = Collections.emptyMap();
+		if (previousModified instanceof Decimated && ((Decimated) previousModified).original == filteredSource) {
+			reusable = filtered;
+		}
+
+		filtered = new HashMap<Rectangle, BufferedImage>();
+		filteredSource = current;
+
+		final int w = current.getWidth();
+		final int h = current.getHeight();
+
+		area = 0;
+		cog = new Point(w / 2, h / 2);
+
+		if (!(previousModified instanceof Decimated)) {
+			return false;
+		}
+
+		final BufferedImage previous = ((Decimated) previousModified).original;
+
+		if (previous.getWidth() != w || previous.getHeight() != h || previousModified.getWidth() != currentModified.getWidth()) {
+			return false;
+		}
+
+		if (!coarse(previousModified, currentModified)) {
+			return false;
+		}
+
+		// analyze regions of interest in full resolution
+
+		// sums are int, like in the single full resolution pass, so they overflow the same way
+		// when regions are summed up
+
+		int p = 0;
+		int cogX = 0;
+		int cogY = 0;
+
+		List<Rectangle> rois = regions;
+		long roiArea = 0;
+		for (Rectangle roi : rois) {
+			roiArea += (long) roi.width * roi.height;
+		}
+		if (roiArea > MAX_ROI_FRACTION * w * h) {
+			rois = Collections.singletonList(new Rectangle(0, 0, w, h));
+		}
+
+		List<Point> candidates = new ArrayList<Point>();
+
+		for (Rectangle roi : rois) {
+
+			fine.setZones(getZones(roi));
+
+			BufferedImage pf = reusable.get(roi);
+			if (pf == null) {
+				pf = fine.filter(previous.getSubimage(roi.x, roi.y, roi.width, roi.height));
+			}
+
+			BufferedImage cf = fine.filter(current.getSubimage(roi.x, roi.y, roi.width, roi.height));
+			filtered.put(new Rectangle(roi), cf);
+
+			if (!fine.detect(pf, cf)) {
+				continue;
+			}
+
+			int n = fine.getMovingCount();
+
+			p += n;
+			cogX += fine.getMovingSumX() + roi.x * n;
+			cogY += fine.getMovingSumY() + roi.y * n;
+
+			for (Point point : fine.getPoints()) {
+				candidates.add(new Point(point.x + roi.x, point.y + roi.y));
+			}
+		}
+
+		// points from all regions ordered column-major, as if they were found in one pass
+
+		Collections.sort(candidates, new Comparator<Point>() {
+
+			@Override
+			public int compare(Point a, Point b) {
+				return a.x != b.x ? a.x - b.x : a.y - b.y;
+			}
+		});
+
+		if (grid.reset(points, w, h, range, maxPoints)) {
+			for (Point point : candidates) {
+				if (!grid.offer(point.x, point.y)) {
+					break;
+				}
+			}
+		}
+
+		area = p * 100d / (w * h);
+
+		if (p > 0 && area >= areaThreshold && area <= areaThresholdMax) {
+			cog = new Point(cogX / p, cogY / p);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compare coarse images and find regions of interest, i.e. bounding boxes of connected coarse
+	 * pixels with motion, scaled to original image and expanded by a margin.
+	 *
+	 * @param previous the previous coarse image
+	 * @param current the current coarse image
+	 * @return True if any region of interest has been found, false otherwise
+	 */
+	private boolean coarse(BufferedImage previous, BufferedImage current) {
+
+		final int cw = current.getWidth();
+		final int ch = current.getHeight();
+		final byte[] cdata = ((Decimated) current).getPlane();
+		final byte[] pdata = ((Decimated) previous).getPlane();
+		final WebcamMotionZones.Spans engaged = coarseZones.getSpans(cw, ch);
+		final int threshold = pixelThreshold;
+
+		if (hits.length < cw * ch) {
+			hits = new byte[cw * ch];
+			stack = new int[cw * ch];
+		} else {
+			Arrays.fill(hits, 0, cw * ch, (byte) 0);
+		}
+
+		boolean any = false;
+
+		for (int y = 0; y < ch; y++) {
+			for (int k = engaged.rows[y], n = engaged.rows[y + 1]; k < n; k++) {
+				for (int x = engaged.spans[2 * k], x2 = engaged.spans[2 * k + 1], i = y * cw + x; x < x2; x++, i++) {
+					if (Math.abs((cdata[i] & 0xff) - (pdata[i] & 0xff)) >= threshold) {
+						hits[i] = 1;
+						any = true;
+					}
+				}
+			}
+		}
+
+		if (!any) {
+			return false;
+		}
+
+		final BufferedImage original = ((Decimated) current).original;
+		final int f = decimation;
+		final int margin = f + 7;
+		final Rectangle bounds = new Rectangle(0, 0, original.getWidth(), original.getHeight());
+
+		// find 8-connected hits and use their bounding boxes as regions of interest
+
+		for (int start = 0; start < cw * ch; start++) {
+
+			if (hits[start] != 1) {
+				continue;
+			}
+
+			int x1 = cw, y1 = ch, x2 = -1, y2 = -1;
+			int top = 0;
+
+			stack[top++] = start;
+			hits[start] = 2;
+
+			while (top > 0) {
+
+				int i = stack[--top];
+				int x = i % cw;
+				int y = i / cw;
+
+				x1 = Math.min(x1, x);
+				y1 = Math.min(y1, y);
+				x2 = Math.max(x2, x);
+				y2 = Math.max(y2, y);
+
+				for (int ny = Math.max(0, y - 1); ny <= Math.min(ch - 1, y + 1); ny++) {
+					for (int nx = Math.max(0, x - 1); nx <= Math.min(cw - 1, x + 1); nx++) {
+						int j = ny * cw + nx;
+						if (hits[j] == 1) {
+							hits[j] = 2;
+							stack[top++] = j;
+						}
+					}
+				}
+			}
+
+			Rectangle roi = new Rectangle(x1 * f - margin, y1 * f - margin, (x2 - x1 + 1) * f + 2 * margin, (y2 - y1 + 1) * f + 2 * margin);
+			regions.add(roi.intersection(bounds));
+		}
+
+		// merge overlapping regions, so no pixel is counted twice
+
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+			for (int i = 0; i < regions.size() && !merged; i++) {
+				for (int j = i + 1; j < regions.size(); j++) {
+					if (regions.get(i).intersects(regions.get(j))) {
+						regions.set(i, regions.get(i).union(regions.remove(j)));
+						merged = true;
+						break;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get do-not-engage zones translated to coordinates of the given region. Translated zones are
+	 * cached, so their spans are compiled only once for every region.
+	 *
+	 * @param roi the region
+	 * @return Zones intersecting region, in region coordinates
+	 */
+	private WebcamMotionZones getZones(Rectangle roi) {
+
+		final List<Rectangle> zones = doNotEngageZones;
+
+		if (zones.isEmpty()) {
+			return WebcamMotionZones.NONE;
+		}
+
+		if (zones != regionZonesSource) {
+			regionZones.clear();
+			regionZonesSource = zones;
+		}
+
+		WebcamMotionZones translated = regionZones.get(roi);
+		if (translated == null) {
+			regionZones.put(new Rectangle(roi), translated = translate(zones, roi));
+		}
+
+		return translated;
+	}
+
+	/**
+	 * Translate zones to coordinates of the given region.
+	 *
+	 * @param zones the zones in original image coordinates
+	 * @param roi the region
+	 * @return Zones intersecting region, in region coordinates
+	 */
+	private static WebcamMotionZones translate(List<Rectangle> zones, Rectangle roi) {
+		List<Rectangle> translated = new ArrayList<Rectangle>();
+		for (Rectangle zone : zones) {
+			if (zone.intersects(roi)) {
+				translated.add(new Rectangle(zone.x - roi.x, zone.y - roi.y, zone.width, zone.height));
+			}
+		}
+		if (translated.isEmpty()) {
+			return WebcamMotionZones.NONE;
+		}
+		return new WebcamMotionZones(translated, Collections.<Shape> emptyList());
+	}
+
+	/**
+	 * @return Regions of interest analyzed in full resolution in the last detection, in original
+	 *         image coordinates
+	 */
+	public List<Rectangle> getRegions() {
+		return Collections.unmodifiableList(regions);
+	}
+
+	/**
+	 * @return Decimation factor
+	 */
+	public int getDecimation() {
+		return decimation;
+	}
+
+	@Override
+	public Point getCog() {
+		return cog;
+	}
+
+	@Override
+	public double getArea() {
+		return area;
+	}
+
+	/**
+	 * Set pixel intensity difference threshold above which pixel is classified as "moved", in
+	 * both coarse and full resolution images.
+	 *
+	 * @param threshold the pixel intensity difference threshold
+	 * @see WebcamMotionDetectorDefaultAlgorithm#setPixelThreshold(int)
+	 */
+	@Override
+	public void setPixelThreshold(int threshold) {
+		fine.setPixelThreshold(threshold);
+		this.pixelThreshold = threshold;
+	}
+
+	/**
+	 * Set percentage fraction of detected motion area threshold above which it is classified as
+	 * "moved".
+	 *
+	 * @param threshold the percentage fraction of image area
+	 * @see WebcamMotionDetectorDefaultAlgorithm#setAreaThreshold(double)
+	 */
+	@Override
+	public void setAreaThreshold(double threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be negative!");
+		}
+		if (threshold > 100) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be higher than 100!");
+		}
+		this.areaThreshold = threshold;
+	}
+
+	/**
+	 * Set max percentage fraction of detected motion area threshold, below which it is classified
+	 * as "moved".
+	 *
+	 * @param threshold the percentage fraction of image area
+	 * @see WebcamMotionDetectorDefaultAlgorithm#setMaxAreaThreshold(double)
+	 */
+	@Override
+	public void setMaxAreaThreshold(double threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be negative!");
+		}
+		if (threshold > 100) {
+			throw new IllegalArgumentException("Area fraction threshold cannot be higher than 100!");
+		}
+		this.areaThresholdMax = threshold;
+	}
+
+	@Override
+	public void setPointRange(int i) {
+		fine.setPointRange(i);
+		range = i;
+	}
+
+	@Override
+	public int getPointRange() {
+		return range;
+	}
+
+	@Override
+	public void setMaxPoints(int i) {
+		fine.setMaxPoints(i);
+		maxPoints = i;
+	}
+
+	@Override
+	public int getMaxPoints() {
+		return maxPoints;
+	}
+
+	@Override
+	public ArrayList<Point> getPoints() {
+		return points;
+	}
+
+	@Override
+	public void setDoNotEngageZones(List<Rectangle> zones) {
+
+		if (zones == null || zones.isEmpty()) {
+			doNotEngageZones = Collections.emptyList();
+			coarseZones = WebcamMotionZones.NONE;
+			return;
+		}
+
+		AffineTransform scale = AffineTransform.getScaleInstance(1d / decimation, 1d / decimation);
+		List<Shape> scaled = new ArrayList<Shape>(zones.size());
+		for (Rectangle zone : zones) {
+			scaled.add(scale.createTransformedShape(zone));
+		}
+
+		doNotEngageZones = new ArrayList<Rectangle>(zones);
+		coarseZones = new WebcamMotionZones(scaled, Collections.<Shape> emptyList());
+	}
+}
@@ -0,0 +1,34 @@
+package com.github.sarxos.webcam;
+
+/**
+ * Motion detector algorithm which classifies motion by pixel intensity difference and image area
+ * thresholds. {@link WebcamMotionDetector} passes thresholds set on it to the algorithms
+ * implementing this interface.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public interface WebcamMotionDetectorThresholdAlgorithm extends WebcamMotionDetectorAlgorithm {
+
+	/**
+	 * Set pixel intensity difference threshold above which pixel is classified as "moved".
+	 *
+	 * @param threshold the pixel intensity difference threshold (0 - 255)
+	 */
+	void setPixelThreshold(int threshold);
+
+	/**
+	 * Set percentage fraction of detected motion area threshold above which it is classified as
+	 * "moved".
+	 *
+	 * @param threshold the percentage fraction of image area (0 - 100)
+	 */
+	void setAreaThreshold(double threshold);
+
+	/**
+	 * Set max percentage fraction of detected motion area threshold, below which it is classified
+	 * as "moved".
+	 *
+	 * @param threshold the percentage fraction of image area (0 - 100)
+	 */
+	void setMaxAreaThreshold(double threshold);
+}
@@ -0,0 +1,129 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Finds points of motion among moving pixels. Pixel is kept as a point if there is no other point
+ * within the range and max points count has not been reached yet. Kept points are stored in
+ * uniform grid of cells not smaller than the range, so only points from the 3 x 3 neighborhood of
+ * pixel's cell have to be checked. Grid arrays are reused between detections.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+final class WebcamMotionPointsGrid {
+
+	/**
+	 * Minimum and maximum number of cells in grid.
+	 */
+	private static final int MIN_CELLS = 1024;
+	private static final int MAX_CELLS = 1 << 20;
+
+	/**
+	 * Index of the last point kept in every cell or -1 if cell is empty.
+	 */
+	private int[] grid = new int[0];
+
+	/**
+	 * Index of the previous point kept in the same cell, or -1, indexed by point index.
+	 */
+	private int[] next = new int[0];
+
+	private List<Point> points;
+	private int maxPoints;
+	private int range;
+	private long range2;
+	private int cell;
+	private int cols;
+	private int rows;
+
+	/**
+	 * Prepare grid for new detection.
+	 *
+	 * @param points the list where kept points are added
+	 * @param w the image width
+	 * @param h the image height
+	 * @param range the minimum range between points
+	 * @param maxPoints the maximum number of points
+	 * @return False if no point can be kept at all, true otherwise
+	 */
+	boolean reset(List<Point> points, int w, int h, int range, int maxPoints) {
+
+		this.points = points;
+		this.maxPoints = maxPoints;
+		this.range = range;
+		this.range2 = (long) range * range;
+
+		if (maxPoints <= 0) {
+			return false;
+		}
+
+		// there is no other pixel within zero or negative range, so grid is not needed
+
+		if (range <= 0) {
+			return true;
+		}
+
+		// cells can be bigger than range, but not smaller, to limit grid memory for small ranges
+
+		int limit = Math.max(MIN_CELLS, (int) Math.min(MAX_CELLS, 4L * maxPoints));
+
+		cell = Math.max(range, (int) Math.ceil(Math.sqrt((double) w * h / limit)));
+		cols = w / cell + 1;
+		rows = h / cell + 1;
+
+		if (grid.length < cols * rows) {
+			grid = new int[cols * rows];
+		}
+
+		Arrays.fill(grid, 0, cols * rows, -1);
+
+		return true;
+	}
+
+	/**
+	 * Offer moving pixel. Pixels has to be offered in the order in which they should be
+	 * considered.
+	 *
+	 * @param x the pixel x coordinate
+	 * @param y the pixel y coordinate
+	 * @return True if more points can be kept, false if max points count has been reached
+	 */
+	boolean offer(int x, int y) {
+
+		if (range <= 0) {
+			points.add(new Point(x, y));
+			return points.size() < maxPoints;
+		}
+
+		final int[] grid = this.grid;
+		final int cx = x / cell;
+		final int cy = y / cell;
+
+		for (int gy = Math.max(0, cy - 1), gy2 = Math.min(rows - 1, cy + 1); gy <= gy2; gy++) {
+			for (int gx = Math.max(0, cx - 1), gx2 = Math.min(cols - 1, cx + 1); gx <= gx2; gx++) {
+				for (int i = grid[gy * cols + gx]; i >= 0; i = next[i]) {
+					Point g = points.get(i);
+					long dx = g.x - x;
+					long dy = g.y - y;
+					if (dx * dx + dy * dy <= range2) {
+						return true;
+					}
+				}
+			}
+		}
+
+		int i = points.size();
+		if (next.length <= i) {
+			next = Arrays.copyOf(next, Math.max(16, i * 2));
+		}
+
+		next[i] = grid[cy * cols + cx];
+		grid[cy * cols + cx] = i;
+		points.add(new Point(x, y));
+
+		return i + 1 < maxPoints;
+	}
+}
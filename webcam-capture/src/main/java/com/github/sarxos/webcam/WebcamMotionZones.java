@@ -0,0 +1,243 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Immutable set of motion detection zones. It consist of do-not-engage zones, where motion is
+ * never detected, and engage-only zones, which, when not empty, limit detection to the area they
+ * cover. Pixel (x, y) is tested against zone with {@link Shape#contains(double, double)}, so it
+ * follows the same rules as {@link Rectangle#contains(int, int)} did for rectangular zones.<br>
+ * <br>
+ * Zones are compiled into run-length row spans of engaged pixels only once per image size, so the
+ * cost of detection does not depend on how many zones are configured.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+final class WebcamMotionZones {
+
+	/**
+	 * No zones at all, every pixel is engaged.
+	 */
+	static final WebcamMotionZones NONE = new WebcamMotionZones(Collections.<Shape> emptyList(), Collections.<Shape> emptyList());
+
+	/**
+	 * Row spans of engaged pixels compiled for given image size.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	static final class Spans {
+
+		/**
+		 * Image width.
+		 */
+		final int width;
+
+		/**
+		 * Image height.
+		 */
+		final int height;
+
+		/**
+		 * Spans of row y are stored at indices rows[y] to rows[y + 1] - 1.
+		 */
+		final int[] rows;
+
+		/**
+		 * Span k starts at x = spans[2k] (inclusive) and ends at x = spans[2k + 1] (exclusive).
+		 */
+		final int[] spans;
+
+		/**
+		 * Number of engaged pixels.
+		 */
+		final int engaged;
+
+		private Spans(int width, int height, int[] rows, int[] spans, int engaged) {
+			this.width = width;
+			this.height = height;
+			this.rows = rows;
+			this.spans = spans;
+			this.engaged = engaged;
+		}
+	}
+
+	/**
+	 * Do-not-engage zones.
+	 */
+	private final List<Shape> excluded;
+
+	/**
+	 * Engage-only zones.
+	 */
+	private final List<Shape> included;
+
+	/**
+	 * Spans compiled for the last requested image size.
+	 */
+	private volatile Spans compiled = null;
+
+	/**
+	 * Create zones.
+	 *
+	 * @param excluded the do-not-engage zones
+	 * @param included the engage-only zones, empty to engage whole image
+	 */
+	WebcamMotionZones(List<? extends Shape> excluded, List<? extends Shape> included) {
+		this.excluded = copy(excluded);
+		this.included = copy(included);
+	}
+
+	private static List<Shape> copy(List<? extends Shape> shapes) {
+		if (shapes == null || shapes.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Shape> copy = new ArrayList<Shape>(shapes.size());
+		for (Shape shape : shapes) {
+			if (shape == null) {
+				throw new IllegalArgumentException("Motion detection zone cannot be null");
+			}
+			copy.add(shape);
+		}
+		return Collections.unmodifiableList(copy);
+	}
+
+	/**
+	 * @return Do-not-engage zones
+	 */
+	List<Shape> getExcluded() {
+		return excluded;
+	}
+
+	/**
+	 * @return Engage-only zones
+	 */
+	List<Shape> getIncluded() {
+		return included;
+	}
+
+	/**
+	 * @return True if there are no zones and whole image is engaged
+	 */
+	boolean isEmpty() {
+		return excluded.isEmpty() && included.isEmpty();
+	}
+
+	/**
+	 * Get row spans of engaged pixels for image of the given size. Spans are compiled when this
+	 * method is called for the first time for a given size and reused afterwards.
+	 *
+	 * @param w the image width
+	 * @param h the image height
+	 * @return Row spans of engaged pixels
+	 */
+	Spans getSpans(int w, int h) {
+		Spans spans = compiled;
+		if (spans == null || spans.width != w || spans.height != h) {
+			compiled = spans = compile(w, h);
+		}
+		return spans;
+	}
+
+	private Spans compile(int w, int h) {
+
+		int[] rows = new int[h + 1];
+
+		if (isEmpty()) {
+			int[] spans = new int[h * 2];
+			for (int y = 0; y < h; y++) {
+				rows[y + 1] = y + 1;
+				spans[2 * y + 1] = w;
+			}
+			return new Spans(w, h, rows, spans, w * h);
+		}
+
+		// rasterize zones into mask once, excluded zones are painted over included ones
+
+		boolean[] mask = new boolean[w * h];
+
+		if (included.isEmpty()) {
+			for (int i = 0; i < mask.length; i++) {
+				mask[i] = true;
+			}
+		} else {
+			for (Shape shape : included) {
+				paint(mask, w, h, shape, true);
+			}
+		}
+
+		for (Shape shape : excluded) {
+			paint(mask, w, h, shape, false);
+		}
+
+		// convert mask into run-length row spans
+
+		int[] spans = new int[16];
+		int n = 0;
+		int engaged = 0;
+
+		for (int y = 0; y < h; y++) {
+			int x = 0;
+			int i = y * w;
+			while (x < w) {
+				while (x < w && !mask[i + x]) {
+					x++;
+				}
+				if (x == w) {
+					break;
+				}
+				int start = x;
+				while (x < w && mask[i + x]) {
+					x++;
+				}
+				if (n + 2 > spans.length) {
+					int[] tmp = new int[spans.length * 2];
+					System.arraycopy(spans, 0, tmp, 0, n);
+					spans = tmp;
+				}
+				spans[n++] = start;
+				spans[n++] = x;
+				engaged += x - start;
+			}
+			rows[y + 1] = n / 2;
+		}
+
+		int[] trimmed = new int[n];
+		System.arraycopy(spans, 0, trimmed, 0, n);
+
+		return new Spans(w, h, rows, trimmed, engaged);
+	}
+
+	private static void paint(boolean[] mask, int w, int h, Shape shape, boolean value) {
+
+		Rectangle bounds = shape.getBounds().intersection(new Rectangle(0, 0, w, h));
+		if (bounds.isEmpty()) {
+			return;
+		}
+
+		int x1 = bounds.x;
+		int y1 = bounds.y;
+		int x2 = bounds.x + bounds.width;
+		int y2 = bounds.y + bounds.height;
+
+		if (shape instanceof Rectangle) {
+			for (int y = y1; y < y2; y++) {
+				for (int x = x1, i = y * w + x1; x < x2; x++, i++) {
+					mask[i] = value;
+				}
+			}
+		} else {
+			for (int y = y1; y < y2; y++) {
+				for (int x = x1, i = y * w + x1; x < x2; x++, i++) {
+					if (shape.contains(x, y)) {
+						mask[i] = value;
+					}
+				}
+			}
+		}
+	}
+}
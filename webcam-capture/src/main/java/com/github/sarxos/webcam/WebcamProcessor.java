@@ -1,13 +1,21 @@
 package com.github.sarxos.webcam;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +25,40 @@ public class WebcamProcessor {
 
 	private static final Logger LOG = LoggerFactory.getLogger(WebcamProcessor.class);
 
+	/**
+	 * How long idle stripe thread is kept alive (in seconds).
+	 */
+	private static final long STRIPE_KEEP_ALIVE = 60;
+
+	/**
+	 * Affinity key used for tasks without driver and device.
+	 */
+	private static final Object NO_AFFINITY = new Object();
+
+	/**
+	 * Processing mode.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static enum Mode {
+
+		/**
+		 * All tasks are processed one by one on a single thread, no matter which device they are
+		 * related to. This is the default mode.
+		 */
+		GLOBAL,
+
+		/**
+		 * Tasks are processed on single-threaded stripes, one per affinity group. By default every
+		 * device is its own affinity group, but drivers can group devices by implementing
+		 * {@link WebcamAffinitySupport}. Tasks for different groups are processed in parallel,
+		 * while tasks in the same group are still processed one by one. Driver-level tasks (e.g.
+		 * devices discovery) are processed exclusively, never in parallel with any other task of
+		 * the same driver.
+		 */
+		STRIPED,
+	}
+
 	/**
 	 * Thread doing supersync processing.
 	 *
@@ -100,11 +142,113 @@ public class WebcamProcessor {
 		}
 	}
 
+	/**
+	 * Single-threaded processor used for one affinity group in striped mode. Its thread is
+	 * terminated when idle for too long and recreated on demand.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class StripeProcessor {
+
+		/**
+		 * Affinity key of this stripe.
+		 */
+		private final Object key;
+
+		/**
+		 * Driver of tasks processed by this stripe, can be null.
+		 */
+		private final WebcamDriver driver;
+
+		/**
+		 * Is this stripe processing driver-level tasks?
+		 */
+		private final boolean exclusive;
+
+		private final ThreadPoolExecutor executor;
+
+		public StripeProcessor(Object key, WebcamTask task) {
+			this.key = key;
+			this.driver = task.getDriver();
+			this.exclusive = task.isDriverTask();
+			this.executor = new ThreadPoolExecutor(1, 1, STRIPE_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ProcessorThreadFactory());
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+
+		/**
+		 * Process task.
+		 *
+		 * @param task the task to be processed
+		 * @throws InterruptedException when thread has been interrupted
+		 */
+		public void process(final WebcamTask task) throws InterruptedException {
+
+			Future<?> future = executor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					CURRENT.set(StripeProcessor.this);
+					try {
+						task.handle();
+					} finally {
+						CURRENT.remove();
+					}
+				}
+			});
+
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				task.setThrowable(e.getCause());
+				throw new WebcamException("Cannot execute task", e.getCause());
+			}
+		}
+
+		/**
+		 * Stop accepting new tasks, thread terminates when pending tasks are processed.
+		 */
+		public void release() {
+			executor.shutdown();
+		}
+
+		public void shutdown() {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Processing mode.
+	 */
+	private static volatile Mode mode = Mode.GLOBAL;
+
+	/**
+	 * Stripes used in striped mode, by affinity key.
+	 */
+	private static final ConcurrentMap<Object, StripeProcessor> stripes = new ConcurrentHashMap<Object, StripeProcessor>();
+
+	/**
+	 * Locks used in striped mode to process driver-level tasks exclusively, by driver. Device tasks
+	 * share the read lock of their driver while driver-level tasks take the write lock. Locks are
+	 * held by the threads which wait for tasks to be processed, never by stripe threads, so stripe
+	 * thread is never blocked by other stripes.
+	 */
+	private static final ConcurrentMap<WebcamDriver, ReentrantReadWriteLock> locks = new ConcurrentHashMap<WebcamDriver, ReentrantReadWriteLock>();
+
+	/**
+	 * Stripe processing task on the current thread, null if this is not stripe thread.
+	 */
+	private static final ThreadLocal<StripeProcessor> CURRENT = new ThreadLocal<StripeProcessor>();
+
 	/**
 	 * Is processor started?
 	 */
 	private static final AtomicBoolean started = new AtomicBoolean(false);
 
+	/**
+	 * Has any task been processed since processor was created or shut down?
+	 */
+	private static final AtomicBoolean processed = new AtomicBoolean(false);
+
 	/**
 	 * Execution service.
 	 */
@@ -130,6 +274,117 @@ public class WebcamProcessor {
 	 * @throws InterruptedException when thread has been interrupted
 	 */
 	public void process(WebcamTask task) throws InterruptedException {
+		processed.set(true);
+		if (mode == Mode.STRIPED) {
+			processStriped(task);
+		} else {
+			processGlobal(task);
+		}
+	}
+
+	/**
+	 * Is the current thread already processing task which given task shall be serialized with?
+	 * This is true on the processor thread in {@link Mode#GLOBAL} mode, and on the stripe thread
+	 * of the same affinity group in {@link Mode#STRIPED} mode. Tasks for other groups have to be
+	 * passed to their own stripes even if issued from another stripe thread.
+	 *
+	 * @param task the task to check
+	 * @return True if task can be handled on the current thread
+	 */
+	static boolean isProcessing(WebcamTask task) {
+
+		if (!(Thread.currentThread() instanceof ProcessorThread)) {
+			return false;
+		}
+
+		StripeProcessor current = CURRENT.get();
+		if (current == null) {
+			return mode == Mode.GLOBAL;
+		}
+
+		return current.key.equals(getKey(task));
+	}
+
+	private static Object getKey(WebcamTask task) {
+		Object affinity = task.getAffinity();
+		return affinity == null ? NO_AFFINITY : affinity;
+	}
+
+	private void processStriped(WebcamTask task) throws InterruptedException {
+
+		Lock lock = getLock(task);
+		if (lock != null) {
+			lock.lockInterruptibly();
+		}
+
+		try {
+			Object key = getKey(task);
+			while (true) {
+				StripeProcessor stripe = getStripe(key, task);
+				try {
+					stripe.process(task);
+					return;
+				} catch (RejectedExecutionException e) {
+					stripes.remove(key, stripe); // stripe has been released in the meantime
+				}
+			}
+		} finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Get driver lock to be acquired before task is passed to the stripe. When task is issued from
+	 * stripe thread of the same driver, the lock is already held by the thread waiting for the
+	 * outer task, and therefore no lock is returned. In such case driver-level task issued from
+	 * device task is processed without exclusive access, because the shared access held by the
+	 * outer task cannot be upgraded.
+	 *
+	 * @param task the task to be processed
+	 * @return Lock or null if no lock should be acquired
+	 */
+	private Lock getLock(WebcamTask task) {
+
+		WebcamDriver driver = task.getDriver();
+		if (driver == null) {
+			return null;
+		}
+
+		StripeProcessor current = CURRENT.get();
+		if (current != null && current.driver == driver) {
+			if (task.isDriverTask() && !current.exclusive) {
+				LOG.debug("Driver task {} issued from device task, processing without exclusive access", task);
+			}
+			return null;
+		}
+
+		ReentrantReadWriteLock rw = locks.get(driver);
+		if (rw == null) {
+			ReentrantReadWriteLock created = new ReentrantReadWriteLock();
+			if ((rw = locks.putIfAbsent(driver, created)) == null) {
+				rw = created;
+			}
+		}
+
+		return task.isDriverTask() ? rw.writeLock() : rw.readLock();
+	}
+
+	private StripeProcessor getStripe(Object key, WebcamTask task) {
+		StripeProcessor stripe = stripes.get(key);
+		if (stripe == null) {
+			StripeProcessor created = new StripeProcessor(key, task);
+			if ((stripe = stripes.putIfAbsent(key, created)) == null) {
+				stripe = created;
+			} else {
+				created.shutdown();
+			}
+		}
+		return stripe;
+	}
+
+	private void processGlobal(WebcamTask task) throws InterruptedException {
 
 		if (started.compareAndSet(false, true)) {
 			runner = Executors.newSingleThreadExecutor(new ProcessorThreadFactory());
@@ -143,7 +398,64 @@ public class WebcamProcessor {
 		}
 	}
 
+	/**
+	 * Set processing mode. Default mode is {@link Mode#GLOBAL} where all native calls of
+	 * non-thread-safe drivers are serialized on one thread. In {@link Mode#STRIPED} mode devices
+	 * from different affinity groups are accessed in parallel. Mode has to be set before any task
+	 * is processed, that is, before any webcam is discovered or open.
+	 *
+	 * @param mode the new processing mode
+	 * @throws IllegalStateException when mode is changed after processor has been started
+	 */
+	public synchronized void setMode(Mode mode) {
+		if (mode == null) {
+			throw new IllegalArgumentException("Processing mode cannot be null");
+		}
+		if (mode != WebcamProcessor.mode && processed.get()) {
+			throw new IllegalStateException("Processing mode cannot be changed after processor has been started");
+		}
+		WebcamProcessor.mode = mode;
+	}
+
+	/**
+	 * @return Current processing mode
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return Number of stripes created in striped mode
+	 */
+	public int getStripesCount() {
+		return stripes.size();
+	}
+
+	/**
+	 * Release stripe of the disposed device. Its thread terminates after all pending tasks are
+	 * processed. Only stripes of per-device affinity groups are released, groups defined by
+	 * {@link WebcamAffinitySupport} are shared with other devices and kept until shutdown.
+	 *
+	 * @param device the disposed device
+	 */
+	public void release(WebcamDevice device) {
+		if (device == null) {
+			return;
+		}
+		StripeProcessor stripe = stripes.remove(device);
+		if (stripe != null) {
+			stripe.release();
+		}
+	}
+
 	public void shutdown() {
+
+		for (StripeProcessor stripe : stripes.values()) {
+			stripe.shutdown();
+		}
+		stripes.clear();
+		processed.set(false);
+
 		if (started.compareAndSet(true, false)) {
 
 			LOG.debug("Shutting down webcam processor");
@@ -8,15 +8,34 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +56,268 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 
 	private static final String CRLF = "\r\n";
 
+	/**
+	 * HTTP response header sent to every client before the first frame.
+	 */
+	private static final byte[] HTTP_HEADER = new StringBuilder()
+		.append("HTTP/1.0 200 OK").append(CRLF)
+		.append("Connection: close").append(CRLF)
+		.append("Cache-Control: no-cache").append(CRLF)
+		.append("Cache-Control: private").append(CRLF)
+		.append("Pragma: no-cache").append(CRLF)
+		.append("Content-type: multipart/x-mixed-replace; boundary=--").append(BOUNDARY).append(CRLF)
+		.append(CRLF)
+		.toString()
+		.getBytes();
+
+	/**
+	 * Number of consecutive frames client has to receive without skipping any to not be considered
+	 * lagging any more.
+	 */
+	private static final int LAG_RECOVERY_FRAMES = 10;
+
+	/**
+	 * Streaming server mode.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static enum Mode {
+
+		/**
+		 * Every client is served by its own thread writing to blocking socket.
+		 */
+		BLOCKING,
+
+		/**
+		 * All clients are served by a single selector thread writing to non-blocking channels, so
+		 * the number of threads does not depend on the number of connected clients.
+		 */
+		NIO,
+	}
+
+	/**
+	 * Single MJPEG frame encoded once and shared by all the connections. The data array contains
+	 * complete multipart part (boundary, headers, JPEG bytes and trailing CRLF) and it's never
+	 * modified after frame has been created, so it can be safely written to many sockets at once.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class EncodedFrame {
+
+		/**
+		 * The image or compressed frame from which this frame has been created.
+		 */
+		private final Object source;
+
+		/**
+		 * Multipart part bytes, do not modify!
+		 */
+		private final byte[] data;
+
+		/**
+		 * Frame sequence number.
+		 */
+		private final long sequence;
+
+		/**
+		 * The same frame encoded with lower quality for lagging clients, may be null.
+		 */
+		private volatile EncodedFrame degraded = null;
+
+		public EncodedFrame(Object source, byte[] data, long sequence) {
+			this.source = source;
+			this.data = data;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Return new view of the frame data. Frame bytes are wrapped, not copied, and channel
+		 * copies them into its temporary direct buffer, which is cached per thread, so nothing is
+		 * allocated per frame.
+		 *
+		 * @return New read-only view of the frame data
+		 */
+		public ByteBuffer getBuffer() {
+			return ByteBuffer.wrap(data).asReadOnlyBuffer();
+		}
+	}
+
+	/**
+	 * Statistics of a single connected client.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static final class ClientStats {
+
+		private final SocketAddress address;
+		private final long sent;
+		private final long skipped;
+		private final long bytes;
+		private final long lag;
+		private final boolean lagging;
+
+		private ClientStats(SocketAddress address, long sent, long skipped, long bytes, long lag, boolean lagging) {
+			this.address = address;
+			this.sent = sent;
+			this.skipped = skipped;
+			this.bytes = bytes;
+			this.lag = lag;
+			this.lagging = lagging;
+		}
+
+		/**
+		 * @return Client remote address
+		 */
+		public SocketAddress getAddress() {
+			return address;
+		}
+
+		/**
+		 * @return Number of frames sent to the client
+		 */
+		public long getSent() {
+			return sent;
+		}
+
+		/**
+		 * @return Number of frames skipped because client was not able to receive them on time
+		 */
+		public long getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * @return Number of bytes sent to the client
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return Number of frames between the newest one and the last one sent to the client
+		 */
+		public long getLag() {
+			return lag;
+		}
+
+		/**
+		 * @return True if client is lagging and receives degraded frames (if enabled)
+		 */
+		public boolean isLagging() {
+			return lagging;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s sent=%d skipped=%d bytes=%d lag=%d lagging=%s]", getClass().getSimpleName(), address, sent, skipped, bytes, lag, lagging);
+		}
+	}
+
+	/**
+	 * Per-client state shared by both server modes. Client never has more than one frame in
+	 * flight, so slow client does not hold more memory than a single frame, and it always continues
+	 * with the newest frame available, skipping all the ones published in the meantime. Counters
+	 * are written only by the thread serving given client.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private final class Session {
+
+		private final SocketAddress address;
+		private volatile long sent = 0;
+		private volatile long skipped = 0;
+		private volatile long bytes = 0;
+		private volatile long sequence = -1;
+		private volatile boolean lagging = false;
+		private int fluent = 0;
+
+		public Session(SocketAddress address) {
+			this.address = address;
+			sessions.add(this);
+		}
+
+		/**
+		 * Select frame variant to be sent to the client, this is degraded frame for lagging clients
+		 * if available, or the original one otherwise.
+		 *
+		 * @param frame the newest frame
+		 * @return Frame to be sent
+		 */
+		public EncodedFrame select(EncodedFrame frame) {
+			if (lagging && frame.degraded != null) {
+				return frame.degraded;
+			}
+			return frame;
+		}
+
+		/**
+		 * Is given frame newer than the last one sent?
+		 *
+		 * @param frame the frame to check
+		 * @return True if frame has not yet been sent to the client
+		 */
+		public boolean isNew(EncodedFrame frame) {
+			return frame != null && frame.sequence > sequence;
+		}
+
+		/**
+		 * Account frame which has been sent to the client.
+		 *
+		 * @param frame the frame (original, not degraded one)
+		 * @param length the number of bytes written
+		 */
+		public void sent(EncodedFrame frame, int length) {
+
+			long missed = sequence < 0 ? 0 : frame.sequence - sequence - 1;
+
+			if (missed > 0) {
+				skipped += missed;
+				fluent = 0;
+				setLagging(true);
+			} else if (lagging && ++fluent >= LAG_RECOVERY_FRAMES) {
+				setLagging(false);
+			}
+
+			sequence = frame.sequence;
+			sent++;
+			bytes += length;
+
+			writes.incrementAndGet();
+		}
+
+		/**
+		 * Mark client as lagging because new frame has been published while it was still busy
+		 * receiving the previous one.
+		 */
+		public void behind() {
+			fluent = 0;
+			setLagging(true);
+		}
+
+		private void setLagging(boolean lagging) {
+			if (this.lagging != lagging) {
+				this.lagging = lagging;
+				if (lagging) {
+					laggingCount.incrementAndGet();
+				} else {
+					laggingCount.decrementAndGet();
+				}
+			}
+		}
+
+		public void close() {
+			if (sessions.remove(this)) {
+				setLagging(false);
+			}
+		}
+
+		public ClientStats getStats() {
+			EncodedFrame current = frame;
+			long lag = current == null || sequence < 0 ? 0 : current.sequence - sequence;
+			return new ClientStats(address, sent, skipped, bytes, lag, lagging);
+		}
+	}
+
 	private class Acceptor implements Runnable {
 
 		@Override
@@ -64,9 +345,9 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 
 			LOG.info("New connection from {}", socket.getRemoteSocketAddress());
 
+			final Session session = new Session(socket.getRemoteSocketAddress());
 			final BufferedReader br;
 			final BufferedOutputStream bos;
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
 			try {
 				br = new BufferedReader(new InputStreamReader(socket.getInputStream()));
@@ -78,6 +359,7 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 				} catch (IOException e1) {
 					LOG.error("Canot close socket connection from " + socket.getRemoteSocketAddress(), e1);
 				}
+				session.close();
 				return;
 			}
 
@@ -89,6 +371,7 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 				}
 			} catch (IOException e) {
 				LOG.error("Error when reading input", e);
+				session.close();
 				return;
 			}
 
@@ -102,16 +385,7 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 
 				while (started.get()) {
 
-					StringBuilder sb = new StringBuilder();
-					sb.append("HTTP/1.0 200 OK").append(CRLF);
-					sb.append("Connection: close").append(CRLF);
-					sb.append("Cache-Control: no-cache").append(CRLF);
-					sb.append("Cache-Control: private").append(CRLF);
-					sb.append("Pragma: no-cache").append(CRLF);
-					sb.append("Content-type: multipart/x-mixed-replace; boundary=--").append(BOUNDARY).append(CRLF);
-					sb.append(CRLF);
-
-					bos.write(sb.toString().getBytes());
+					bos.write(HTTP_HEADER);
 
 					do {
 
@@ -121,26 +395,22 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 							return;
 						}
 
-						baos.reset();
+						// frame is encoded only once and the same bytes are written to all clients,
+						// if writing previous frame took too long, all the frames published in the
+						// meantime are skipped and the newest one is sent
 
-						long now = System.currentTimeMillis();
-						if (now > last + delay) {
-							image = webcam.getImage();
+						EncodedFrame frame = getFrame();
+						if (!session.isNew(frame)) {
+							Thread.sleep(delay);
+							continue;
 						}
 
-						ImageIO.write(image, "JPG", baos);
-
-						sb.delete(0, sb.length());
-						sb.append("--").append(BOUNDARY).append(CRLF);
-						sb.append("Content-type: image/jpeg").append(CRLF);
-						sb.append("Content-Length: ").append(baos.size()).append(CRLF);
-						sb.append(CRLF);
+						EncodedFrame selected = session.select(frame);
 
 						try {
-							bos.write(sb.toString().getBytes());
-							bos.write(baos.toByteArray());
-							bos.write(CRLF.getBytes());
+							bos.write(selected.data);
 							bos.flush();
+							session.sent(frame, selected.data.length);
 						} catch (SocketException e) {
 
 							if (!socket.isConnected()) {
@@ -193,7 +463,9 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 
 				LOG.info("Closing connection from {}", socket.getRemoteSocketAddress());
 
-				for (Closeable closeable : new Closeable[] { br, bos, baos }) {
+				session.close();
+
+				for (Closeable closeable : new Closeable[] { br, bos }) {
 					try {
 						closeable.close();
 					} catch (IOException e) {
@@ -209,32 +481,494 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 		}
 	}
 
+	/**
+	 * Fetch and encode new frames in non-blocking mode and wake up the selector when it's done.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private class Pump implements Runnable {
+
+		@Override
+		public void run() {
+			while (started.get()) {
+				try {
+					if (webcam.isOpen()) {
+						getFrame();
+					}
+					Selector s = selector;
+					if (s != null) {
+						s.wakeup();
+					}
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					break;
+				} catch (Exception e) {
+					LOG.error("Cannot fetch frame", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Single client connected in non-blocking mode. Client is writing at most one frame at a time.
+	 * When a new frame is available but client is still busy writing the previous one, the new
+	 * frame is not queued, but instead the newest available frame is sent after previous write
+	 * completes.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private final class Client {
+
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private final Session session;
+		private ByteBuffer[] pending = null;
+		private boolean headerSent = false;
+		private EncodedFrame sending = null;
+		private int length = 0;
+
+		public Client(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+			this.session = new Session(channel.socket().getRemoteSocketAddress());
+		}
+
+		/**
+		 * Start writing given frame if client is not busy writing the previous one.
+		 *
+		 * @param frame the frame to send
+		 * @throws IOException when write failed
+		 */
+		public void send(EncodedFrame frame) throws IOException {
+
+			if (!session.isNew(frame)) {
+				return;
+			}
+			if (pending != null) {
+				session.behind();
+				return;
+			}
+
+			EncodedFrame selected = session.select(frame);
+
+			if (headerSent) {
+				pending = new ByteBuffer[] { selected.getBuffer() };
+			} else {
+				pending = new ByteBuffer[] { ByteBuffer.wrap(HTTP_HEADER), selected.getBuffer() };
+				headerSent = true;
+			}
+
+			sending = frame;
+			length = selected.data.length;
+
+			flush();
+		}
+
+		/**
+		 * Write pending buffers with gathering write. If socket send buffer is full, the remaining
+		 * bytes will be written when channel becomes writable again.
+		 *
+		 * @throws IOException when write failed
+		 */
+		public void flush() throws IOException {
+
+			if (pending == null) {
+				return;
+			}
+
+			channel.write(pending);
+
+			if (pending[pending.length - 1].hasRemaining()) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			} else {
+				key.interestOps(SelectionKey.OP_READ);
+				pending = null;
+				session.sent(sending, length);
+				sending = null;
+			}
+		}
+
+		public void close() {
+			LOG.info("Closing connection from {}", channel.socket().getRemoteSocketAddress());
+			session.close();
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOG.debug("Cannot close channel", e);
+			}
+		}
+	}
+
+	/**
+	 * Accept clients and push frames to all of them from a single selector thread.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private class Server implements Runnable {
+
+		private final ByteBuffer input = ByteBuffer.allocate(1024);
+
+		@Override
+		public void run() {
+
+			try (Selector selector = Selector.open(); ServerSocketChannel server = ServerSocketChannel.open()) {
+
+				server.configureBlocking(false);
+				server.bind(new InetSocketAddress(InetAddress.getByName("0.0.0.0"), port), 50);
+				server.register(selector, SelectionKey.OP_ACCEPT);
+
+				WebcamStreamer.this.selector = selector;
+
+				EncodedFrame published = null;
+
+				while (started.get()) {
+
+					selector.select(delay);
+
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+
+						SelectionKey key = keys.next();
+						keys.remove();
+
+						if (!key.isValid()) {
+							continue;
+						}
+
+						if (key.isAcceptable()) {
+							accept(selector, server);
+							continue;
+						}
+
+						Client client = (Client) key.attachment();
+						try {
+							if (key.isReadable()) {
+								read(client);
+							}
+							if (key.isValid() && key.isWritable()) {
+								client.flush();
+								client.send(frame);
+							}
+						} catch (IOException e) {
+							LOG.debug("Connection to client has been lost", e);
+							client.close();
+						}
+					}
+
+					// push new frame to all clients which are not busy
+
+					EncodedFrame current = frame;
+					if (current != published) {
+						published = current;
+						for (SelectionKey key : selector.keys()) {
+							if (key.attachment() instanceof Client) {
+								Client client = (Client) key.attachment();
+								try {
+									client.send(current);
+								} catch (IOException e) {
+									LOG.debug("Connection to client has been lost", e);
+									client.close();
+								}
+							}
+						}
+					}
+				}
+
+				for (SelectionKey key : selector.keys()) {
+					if (key.attachment() instanceof Client) {
+						((Client) key.attachment()).close();
+					}
+				}
+
+			} catch (Exception e) {
+				LOG.error("Cannot accept socket connection", e);
+			} finally {
+				WebcamStreamer.this.selector = null;
+			}
+		}
+
+		private void accept(Selector selector, ServerSocketChannel server) throws IOException {
+
+			SocketChannel channel = server.accept();
+			if (channel == null) {
+				return;
+			}
+
+			LOG.info("New connection from {}", channel.socket().getRemoteSocketAddress());
+
+			channel.configureBlocking(false);
+			channel.socket().setKeepAlive(false);
+			channel.socket().setTcpNoDelay(true);
+
+			SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+			Client client = new Client(channel, key);
+			key.attach(client);
+
+			client.send(frame);
+		}
+
+		/**
+		 * Consume and ignore whatever client sends, close connection on end of stream.
+		 *
+		 * @param client the client to read from
+		 * @throws IOException when read failed
+		 */
+		private void read(Client client) throws IOException {
+			int n;
+			do {
+				input.clear();
+				n = client.channel.read(input);
+			} while (n > 0);
+			if (n < 0) {
+				client.close();
+			}
+		}
+	}
+
 	private Webcam webcam = null;
 	private double fps = 0;
 	private int number = 0;
 	private int port = 0;
 	private long last = -1;
 	private long delay = -1;
-	private BufferedImage image = null;
 	private ExecutorService executor = Executors.newCachedThreadPool(this);
 	private AtomicBoolean started = new AtomicBoolean(false);
 
+	/**
+	 * Streaming server mode.
+	 */
+	private final Mode mode;
+
+	/**
+	 * Selector used in non-blocking mode, null when server is not running.
+	 */
+	private volatile Selector selector = null;
+
+	/**
+	 * Lock guarding frame fetching and encoding.
+	 */
+	private final Object frameLock = new Object();
+
+	/**
+	 * Output stream used to encode images, guarded by frame lock.
+	 */
+	private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+	/**
+	 * The most recent encoded frame, shared by all connections.
+	 */
+	private volatile EncodedFrame frame = null;
+
+	/**
+	 * Number of distinct frames obtained from webcam.
+	 */
+	private final AtomicLong frames = new AtomicLong(0);
+
+	/**
+	 * Number of JPEG encodes performed.
+	 */
+	private final AtomicLong encodes = new AtomicLong(0);
+
+	/**
+	 * Number of frames written to all clients.
+	 */
+	private final AtomicLong writes = new AtomicLong(0);
+
+	/**
+	 * Currently connected clients.
+	 */
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Number of currently lagging clients.
+	 */
+	private final AtomicInteger laggingCount = new AtomicInteger(0);
+
+	/**
+	 * JPEG quality of frames sent to lagging clients, 0 when disabled.
+	 */
+	private volatile float degradedQuality = 0;
+
 	public WebcamStreamer(int port, Webcam webcam, double fps, boolean start) {
+		this(port, webcam, fps, start, Mode.BLOCKING);
+	}
+
+	/**
+	 * Create new streamer. In {@link Mode#BLOCKING} mode every connected client is served by a
+	 * separate thread, while in {@link Mode#NIO} mode all clients are served by a single selector
+	 * thread and one additional thread fetching and encoding frames, so hundreds of clients can be
+	 * connected without spawning hundreds of threads.
+	 *
+	 * @param port the port to listen on
+	 * @param webcam the webcam to stream from
+	 * @param fps the frames per second rate
+	 * @param start true if streamer should be started immediately
+	 * @param mode the server mode
+	 */
+	public WebcamStreamer(int port, Webcam webcam, double fps, boolean start, Mode mode) {
 
 		if (webcam == null) {
 			throw new IllegalArgumentException("Webcam for streaming cannot be null");
 		}
+		if (mode == null) {
+			throw new IllegalArgumentException("Streamer mode cannot be null");
+		}
 
 		this.port = port;
 		this.webcam = webcam;
 		this.fps = fps;
 		this.delay = (long) (1000 / fps);
+		this.mode = mode;
 
 		if (start) {
 			start();
 		}
 	}
 
+	/**
+	 * Return the most recent encoded frame. New image is fetched from webcam only when the frame
+	 * delay has passed and it is encoded only if it differs from the one which has already been
+	 * encoded, so no matter how many clients are connected, every frame is encoded exactly once.
+	 * When webcam can provide compressed JPEG frames, these are sent as they are, without being
+	 * decoded and encoded again.
+	 *
+	 * @return The most recent encoded frame or null if no image is available yet
+	 * @throws IOException when image cannot be encoded
+	 */
+	private EncodedFrame getFrame() throws IOException {
+
+		synchronized (frameLock) {
+
+			EncodedFrame current = frame;
+
+			long now = System.currentTimeMillis();
+			if (current != null && now <= last + delay) {
+				return current;
+			}
+
+			WebcamCompressedFrame compressed = null;
+			if (webcam.isCompressedFrameSupported()) {
+				compressed = webcam.getCompressedFrame();
+				if (compressed != null && !compressed.isJpeg()) {
+					compressed = null;
+				}
+			}
+
+			BufferedImage image = compressed == null ? webcam.getImage() : null;
+			Object source = compressed == null ? image : compressed;
+			last = now;
+
+			if (source == null || current != null && current.source == source) {
+				return current;
+			}
+
+			frames.incrementAndGet();
+
+			long sequence = current == null ? 0 : current.sequence + 1;
+
+			byte[] data = compressed == null ? encode(image) : toPart(compressed.getBytes());
+			EncodedFrame encoded = new EncodedFrame(source, data, sequence);
+
+			// encode lower quality variant only when there is anyone to receive it, compressed
+			// frame has to be decoded first
+
+			float quality = degradedQuality;
+			if (quality > 0 && laggingCount.get() > 0) {
+				if (image == null) {
+					image = compressed.decode();
+				}
+				if (image != null) {
+					encoded.degraded = new EncodedFrame(source, toPart(compress(image, quality)), sequence);
+				}
+			}
+
+			return frame = encoded;
+		}
+	}
+
+	/**
+	 * Encode image into JPEG and wrap it into multipart part (boundary, headers, JPEG bytes and
+	 * trailing CRLF), exactly as every new frame is encoded before it's sent to clients. Streamer
+	 * does not have to be started, so this can be used to measure encoding cost.
+	 *
+	 * @param image the image to encode
+	 * @return Multipart part bytes
+	 * @throws IOException when image cannot be encoded
+	 */
+	public byte[] encode(BufferedImage image) throws IOException {
+		synchronized (frameLock) {
+			baos.reset();
+			ImageIO.write(image, "JPG", baos);
+			encodes.incrementAndGet();
+			return toPart(baos);
+		}
+	}
+
+	/**
+	 * Compress image into JPEG with a given quality.
+	 *
+	 * @param image the image to compress
+	 * @param quality the JPEG quality (1 = 100%, 0.5 = 50%, 0.1 = 10%, etc)
+	 * @return Stream with compressed bytes
+	 * @throws IOException when image cannot be compressed
+	 */
+	private ByteArrayOutputStream compress(BufferedImage image, float quality) throws IOException {
+
+		baos.reset();
+
+		final JPEGImageWriteParam params = new JPEGImageWriteParam(null);
+		params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		params.setCompressionQuality(quality);
+
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+		try (MemoryCacheImageOutputStream mcios = new MemoryCacheImageOutputStream(baos)) {
+			writer.setOutput(mcios);
+			writer.write(null, new IIOImage(image, null, null), params);
+		} finally {
+			writer.dispose();
+		}
+
+		encodes.incrementAndGet();
+
+		return baos;
+	}
+
+	/**
+	 * Wrap JPEG bytes into multipart part (boundary, headers, JPEG bytes and trailing CRLF).
+	 *
+	 * @param jpeg the stream with JPEG bytes
+	 * @return Multipart part bytes
+	 */
+	private static byte[] toPart(ByteArrayOutputStream jpeg) {
+		return toPart(jpeg.toByteArray());
+	}
+
+	/**
+	 * Wrap JPEG bytes into multipart part (boundary, headers, JPEG bytes and trailing CRLF).
+	 *
+	 * @param bytes the JPEG bytes
+	 * @return Multipart part bytes
+	 */
+	private static byte[] toPart(byte[] bytes) {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("--").append(BOUNDARY).append(CRLF);
+		sb.append("Content-type: image/jpeg").append(CRLF);
+		sb.append("Content-Length: ").append(bytes.length).append(CRLF);
+		sb.append(CRLF);
+
+		byte[] header = sb.toString().getBytes();
+		byte[] data = new byte[header.length + bytes.length + 2];
+
+		System.arraycopy(header, 0, data, 0, header.length);
+		System.arraycopy(bytes, 0, data, header.length, bytes.length);
+		data[data.length - 2] = '\r';
+		data[data.length - 1] = '\n';
+
+		return data;
+	}
+
 	@Override
 	public Thread newThread(Runnable r) {
 		Thread thread = new Thread(r, String.format("streamer-thread-%s", number++));
@@ -247,12 +981,25 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 		if (started.compareAndSet(false, true)) {
 			webcam.addWebcamListener(this);
 			webcam.open();
-			executor.execute(new Acceptor());
+			switch (mode) {
+				case NIO:
+					executor.execute(new Server());
+					executor.execute(new Pump());
+					break;
+				case BLOCKING:
+				default:
+					executor.execute(new Acceptor());
+					break;
+			}
 		}
 	}
 
 	public void stop() {
 		if (started.compareAndSet(true, false)) {
+			Selector s = selector;
+			if (s != null) {
+				s.wakeup();
+			}
 			executor.shutdown();
 			webcam.removeWebcamListener(this);
 			webcam.close();
@@ -289,4 +1036,97 @@ public class WebcamStreamer implements ThreadFactory, WebcamListener {
 		return port;
 	}
 
+	/**
+	 * @return Streaming server mode
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Return number of distinct frames obtained from webcam and served by this streamer.
+	 *
+	 * @return Number of frames
+	 */
+	public long getFramesCount() {
+		return frames.get();
+	}
+
+	/**
+	 * Return number of JPEG encodes performed by this streamer. Since every frame is encoded only
+	 * once and shared by all connected clients, this should be equal to the frames count no matter
+	 * how many clients are connected. Compressed JPEG frames are sent without encoding, so these
+	 * are not counted here.
+	 *
+	 * @return Number of JPEG encodes
+	 */
+	public long getEncodesCount() {
+		return encodes.get();
+	}
+
+	/**
+	 * Return average number of JPEG encodes per single frame.
+	 *
+	 * @return Encodes per frame ratio
+	 */
+	public double getEncodesPerFrame() {
+		long f = frames.get();
+		return f == 0 ? 0 : (double) encodes.get() / f;
+	}
+
+	/**
+	 * Return number of frames written to all connected clients.
+	 *
+	 * @return Number of frames written
+	 */
+	public long getWritesCount() {
+		return writes.get();
+	}
+
+	/**
+	 * Return statistics of all currently connected clients.
+	 *
+	 * @return List of clients statistics
+	 */
+	public List<ClientStats> getClientStats() {
+		List<ClientStats> stats = new ArrayList<ClientStats>();
+		for (Session session : sessions) {
+			stats.add(session.getStats());
+		}
+		return stats;
+	}
+
+	/**
+	 * Return number of currently connected clients which are lagging, that is, clients which had
+	 * to skip some frames and have not yet received {@value #LAG_RECOVERY_FRAMES} consecutive
+	 * frames since then.
+	 *
+	 * @return Number of lagging clients
+	 */
+	public int getLaggingClientsCount() {
+		return laggingCount.get();
+	}
+
+	/**
+	 * @return JPEG quality of frames sent to lagging clients, 0 if disabled
+	 */
+	public float getDegradedQuality() {
+		return degradedQuality;
+	}
+
+	/**
+	 * Set JPEG quality of frames sent to lagging clients. Client is lagging when it was not able to
+	 * receive frames on time and some of them had to be skipped. When set, every frame is
+	 * additionally encoded with given quality as long as there is at least one lagging client, and
+	 * lagging clients receive smaller frames until they catch up. Set to 0 to disable (default).
+	 *
+	 * @param quality the JPEG quality (0 - 1), 0 to disable
+	 */
+	public void setDegradedQuality(float quality) {
+		if (quality < 0 || quality > 1) {
+			throw new IllegalArgumentException("JPEG quality must be between 0 and 1");
+		}
+		this.degradedQuality = quality;
+	}
+
 }
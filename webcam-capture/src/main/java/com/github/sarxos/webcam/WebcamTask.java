@@ -6,17 +6,27 @@ public abstract class WebcamTask {
 
 	private boolean doSync = true;
 	private WebcamProcessor processor = null;
+	private WebcamDriver driver = null;
 	private WebcamDevice device = null;
+	private Object affinity = null;
 	private Throwable throwable = null;
 
 	public WebcamTask(boolean threadSafe, WebcamDevice device) {
 		this.doSync = !threadSafe;
 		this.device = device;
+		this.affinity = device;
 		this.processor = WebcamProcessor.getInstance();
 	}
 
 	public WebcamTask(WebcamDriver driver, WebcamDevice device) {
 		this(driver.isThreadSafe(), device);
+		this.driver = driver;
+		if (driver instanceof WebcamAffinitySupport) {
+			this.affinity = ((WebcamAffinitySupport) driver).getAffinity(device);
+		}
+		if (device == null || affinity == null) {
+			this.affinity = driver;
+		}
 	}
 
 	public WebcamTask(WebcamDevice device) {
@@ -27,6 +37,34 @@ public abstract class WebcamTask {
 		return device;
 	}
 
+	/**
+	 * @return Driver this task has been created for, or null if not known
+	 */
+	public WebcamDriver getDriver() {
+		return driver;
+	}
+
+	/**
+	 * Get affinity key used to select processor stripe. Tasks with equal affinity are never
+	 * processed in parallel. By default this is the device itself, unless driver implements
+	 * {@link WebcamAffinitySupport}. Driver-level tasks use the driver as their affinity key.
+	 *
+	 * @return Affinity key, null only if task has neither driver nor device
+	 */
+	public Object getAffinity() {
+		return affinity;
+	}
+
+	/**
+	 * Is this a driver-level task? Such tasks (e.g. devices discovery) are never processed in
+	 * parallel with any other task of the same driver.
+	 *
+	 * @return True if this is driver-level task
+	 */
+	public boolean isDriverTask() {
+		return driver != null && affinity == driver;
+	}
+
 	/**
 	 * Process task by processor thread.
 	 * 
@@ -34,7 +72,7 @@ public abstract class WebcamTask {
 	 */
 	public void process() throws InterruptedException {
 
-		boolean alreadyInSync = Thread.currentThread() instanceof WebcamProcessor.ProcessorThread;
+		boolean alreadyInSync = WebcamProcessor.isProcessing(this);
 
 		if (alreadyInSync) {
 			handle();
@@ -3,6 +3,10 @@ package com.github.sarxos.webcam;
 import static com.github.sarxos.webcam.WebcamExceptionHandler.handle;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
@@ -93,6 +97,11 @@ public class WebcamUpdater implements Runnable {
 	 */
 	private static final int TARGET_FPS = 50;
 
+	/**
+	 * Default number of frames kept in the frame ring.
+	 */
+	public static final int DEFAULT_RING_CAPACITY = 8;
+
 	private static final UpdaterThreadFactory THREAD_FACTORY = new UpdaterThreadFactory();
 
 	/**
@@ -122,6 +131,39 @@ public class WebcamUpdater implements Runnable {
 
 	private volatile boolean imageNew = false;
 
+	/**
+	 * Ring of the last frames.
+	 */
+	private final WebcamFrameRing ring;
+
+	/**
+	 * Monitor used to wake up threads awaiting new frame.
+	 */
+	private final Object monitor = new Object();
+
+	/**
+	 * Number of threads awaiting new frame, so monitor is touched only when necessary.
+	 */
+	private final AtomicInteger waiting = new AtomicInteger(0);
+
+	/**
+	 * Futures to be completed when new frame is available.
+	 */
+	private final Queue<FrameRequest> requests = new ConcurrentLinkedQueue<FrameRequest>();
+
+	/**
+	 * Request for frame newer than the given sequence number.
+	 */
+	private static final class FrameRequest {
+
+		private final long sequence;
+		private final CompletableFuture<WebcamFrame> future = new CompletableFuture<WebcamFrame>();
+
+		public FrameRequest(long sequence) {
+			this.sequence = sequence;
+		}
+	}
+
 	/**
 	 * DelayCalculator implementation.
 	 */
@@ -143,7 +185,19 @@ public class WebcamUpdater implements Runnable {
 	 * @param delayCalculator implementation
 	 */
 	public WebcamUpdater(Webcam webcam, DelayCalculator delayCalculator) {
+		this(webcam, delayCalculator, DEFAULT_RING_CAPACITY);
+	}
+
+	/**
+	 * Construct new webcam updater.
+	 * 
+	 * @param webcam the webcam to which updater shall be attached
+	 * @param delayCalculator implementation
+	 * @param capacity the number of last frames to keep in the frame ring
+	 */
+	public WebcamUpdater(Webcam webcam, DelayCalculator delayCalculator, int capacity) {
 		this.webcam = webcam;
+		this.ring = new WebcamFrameRing(capacity);
 		if (delayCalculator == null) {
 			this.delayCalculator = new DefaultDelayCalculator();
 		} else {
@@ -158,7 +212,11 @@ public class WebcamUpdater implements Runnable {
 
 		if (running.compareAndSet(false, true)) {
 
-			image.set(new WebcamGetImageTask(Webcam.getDriver(), webcam.getDevice()).getImage());
+			BufferedImage bi = new WebcamGetImageTask(Webcam.getDriver(), webcam.getDevice()).getImage();
+			image.set(bi);
+			if (bi != null) {
+				publish(bi, System.nanoTime());
+			}
 
 			executor = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
 			executor.execute(this);
@@ -175,6 +233,19 @@ public class WebcamUpdater implements Runnable {
 	public void stop() {
 		if (running.compareAndSet(true, false)) {
 
+			// wake up everyone who is waiting for new frame
+
+			if (waiting.get() > 0) {
+				synchronized (monitor) {
+					monitor.notifyAll();
+				}
+			}
+
+			FrameRequest request = null;
+			while ((request = requests.poll()) != null) {
+				request.future.completeExceptionally(new WebcamException("Webcam updater has been stopped"));
+			}
+
 			executor.shutdown();
 			while (!executor.isTerminated()) {
 				try {
@@ -204,6 +275,29 @@ public class WebcamUpdater implements Runnable {
 		}
 	}
 
+	/**
+	 * Publish new frame and wake up all the threads and futures waiting for it.
+	 *
+	 * @param bi the image
+	 * @param timestamp the capture timestamp in nanoseconds
+	 */
+	private void publish(BufferedImage bi, long timestamp) {
+
+		WebcamFrame frame = ring.publish(bi, timestamp);
+
+		if (waiting.get() > 0) {
+			synchronized (monitor) {
+				monitor.notifyAll();
+			}
+		}
+
+		for (FrameRequest request : requests) {
+			if (frame.getSequence() > request.sequence && requests.remove(request)) {
+				request.future.complete(frame);
+			}
+		}
+	}
+
 	private void tick() {
 
 		if (!webcam.isOpen()) {
@@ -221,7 +315,12 @@ public class WebcamUpdater implements Runnable {
 		boolean imageOk = false;
 		long t1 = System.currentTimeMillis();
 		try {
-			image.set(webcam.transform(new WebcamGetImageTask(driver, device).getImage()));
+			BufferedImage bi = webcam.transform(new WebcamGetImageTask(driver, device).getImage());
+			long timestamp = System.nanoTime();
+			image.set(bi);
+			if (bi != null) {
+				publish(bi, timestamp);
+			}
 			imageNew = true;
 			imageOk = true;
 		} catch (WebcamException e) {
@@ -272,25 +371,21 @@ public class WebcamUpdater implements Runnable {
 	 */
 	public BufferedImage getImage() {
 
-		int i = 0;
-		while (image.get() == null) {
-
-			// Just in case if another thread starts calling this method before
-			// updater has been properly started. This will loop while image is
-			// not available.
+		// Just in case if another thread starts calling this method before updater has been
+		// properly started. This will wait until image is available, but no longer than 10
+		// seconds (timeout).
 
+		if (image.get() == null) {
 			try {
-				Thread.sleep(100);
+				await(0, 10, TimeUnit.SECONDS, false);
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e);
 			}
+		}
 
-			// Return null if more than 10 seconds passed (timeout).
-
-			if (i++ > 100) {
-				LOG.error("Image has not been found for more than 10 seconds");
-				return null;
-			}
+		if (image.get() == null) {
+			LOG.error("Image has not been found for more than 10 seconds");
+			return null;
 		}
 
 		imageNew = false;
@@ -298,10 +393,135 @@ public class WebcamUpdater implements Runnable {
 		return image.get();
 	}
 
+	/**
+	 * Wait for frame newer than the one with given sequence number. If such frame is already
+	 * available this method returns immediately, otherwise calling thread is blocked until updater
+	 * obtains new image, timeout elapses or updater is stopped. No polling is involved, waiting
+	 * threads are woken up directly by the updater.
+	 *
+	 * @param sequence the sequence number of the last frame seen (0 to wait for the first one)
+	 * @param timeout the maximum time to wait
+	 * @param unit the time unit of the timeout argument
+	 * @return The newest frame, or null if timeout elapsed or updater has been stopped
+	 * @throws InterruptedException when thread has been interrupted
+	 */
+	public WebcamFrame awaitFrameAfter(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+		return await(sequence, timeout, unit, true);
+	}
+
+	private WebcamFrame await(long sequence, long timeout, TimeUnit unit, boolean stopOnClose) throws InterruptedException {
+
+		WebcamFrame frame = ring.getLatest();
+		if (frame != null && frame.getSequence() > sequence) {
+			return frame;
+		}
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		waiting.incrementAndGet();
+		try {
+			synchronized (monitor) {
+				while (true) {
+
+					frame = ring.getLatest();
+					if (frame != null && frame.getSequence() > sequence) {
+						return frame;
+					}
+					if (stopOnClose && !running.get()) {
+						return null;
+					}
+
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return null;
+					}
+
+					TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+				}
+			}
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return future which will be completed with the first frame newer than the one with given
+	 * sequence number. If such frame is already available, the returned future is already
+	 * completed. The future is completed by the updater thread, so heavy processing should be done
+	 * in asynchronous dependent stages not to delay further updates. When updater is stopped before
+	 * new frame arrives, the future completes exceptionally with {@link WebcamException}.
+	 *
+	 * @param sequence the sequence number of the last frame seen (0 to wait for the first one)
+	 * @return Future frame
+	 */
+	public CompletableFuture<WebcamFrame> awaitFrameAfterAsync(long sequence) {
+
+		WebcamFrame frame = ring.getLatest();
+		if (frame != null && frame.getSequence() > sequence) {
+			return CompletableFuture.completedFuture(frame);
+		}
+
+		FrameRequest request = new FrameRequest(sequence);
+		requests.add(request);
+
+		// frame could have been published in the meantime
+
+		frame = ring.getLatest();
+		if (frame != null && frame.getSequence() > sequence && requests.remove(request)) {
+			request.future.complete(frame);
+		}
+
+		// updater could have been stopped in the meantime, and nobody will complete request then
+
+		if (!running.get() && requests.remove(request)) {
+			request.future.completeExceptionally(new WebcamException("Webcam updater has been stopped"));
+		}
+
+		return request.future;
+	}
+
 	protected boolean isImageNew() {
 		return imageNew;
 	}
 
+	/**
+	 * Return the newest frame. Unlike {@link #getImage()} this method does not block and does not
+	 * affect the new image flag, so it can be used by many consumers at once.
+	 * 
+	 * @return The newest frame or null if no image has been obtained yet
+	 */
+	public WebcamFrame getFrame() {
+		return ring.getLatest();
+	}
+
+	/**
+	 * Return frames newer than the one with given sequence number which are still kept in the
+	 * frame ring, ordered from the oldest to the newest. Every consumer should keep sequence number
+	 * of the last frame it has processed and pass it here, so consumers do not steal new frames from
+	 * each other. The number of frames missed by consumer is equal to the difference between the
+	 * sequence number of the first frame returned and the one passed in the argument minus one.
+	 * 
+	 * @param sequence the sequence number of the last frame seen (0 to get all frames available)
+	 * @return List of frames, empty if there is no newer frame
+	 */
+	public List<WebcamFrame> getFramesAfter(long sequence) {
+		return ring.getFramesAfter(sequence);
+	}
+
+	/**
+	 * @return Sequence number of the newest frame, 0 if no image has been obtained yet
+	 */
+	public long getSequence() {
+		return ring.getSequence();
+	}
+
+	/**
+	 * @return The number of last frames kept in the frame ring
+	 */
+	public int getRingCapacity() {
+		return ring.getCapacity();
+	}
+
 	/**
 	 * Return current FPS number. It is calculated in real-time on the base of how often camera
 	 * serve new image.
@@ -3,6 +3,7 @@ package com.github.sarxos.webcam;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.Locale;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
@@ -15,14 +16,7 @@ import com.github.sarxos.webcam.util.ImageUtils;
 public class WebcamUtils {
 
 	public static final void capture(Webcam webcam, File file) {
-		if (!webcam.isOpen()) {
-			webcam.open();
-		}
-		try {
-			ImageIO.write(webcam.getImage(), ImageUtils.FORMAT_JPG, file);
-		} catch (IOException e) {
-			throw new WebcamException(e);
-		}
+		capture(webcam, file, ImageUtils.FORMAT_JPG);
 	}
 
 	public static final void capture(Webcam webcam, File file, String format) {
@@ -30,7 +24,12 @@ public class WebcamUtils {
 			webcam.open();
 		}
 		try {
-			ImageIO.write(webcam.getImage(), format, file);
+			byte[] jpeg = getCompressedBytes(webcam, format);
+			if (jpeg != null) {
+				Files.write(file.toPath(), jpeg);
+			} else {
+				ImageIO.write(webcam.getImage(), format, file);
+			}
 		} catch (IOException e) {
 			throw new WebcamException(e);
 		}
@@ -52,9 +51,39 @@ public class WebcamUtils {
 	}
 
 	public static final byte[] getImageBytes(Webcam webcam, String format) {
+		byte[] jpeg = getCompressedBytes(webcam, format);
+		if (jpeg != null) {
+			return jpeg.clone(); // frame bytes are shared
+		}
 		return ImageUtils.toByteArray(webcam.getImage(), format);
 	}
 
+	/**
+	 * Get JPEG bytes exactly as they have been received from webcam, so image does not have to be
+	 * decoded and encoded again, if this is possible.
+	 *
+	 * @param webcam the webcam from which frame should be obtained
+	 * @param format the requested file format
+	 * @return JPEG bytes or null if format is not JPEG or webcam cannot provide compressed frame
+	 */
+	private static byte[] getCompressedBytes(Webcam webcam, String format) {
+
+		if (!isJpeg(format) || !webcam.isCompressedFrameSupported()) {
+			return null;
+		}
+
+		WebcamCompressedFrame frame = webcam.getCompressedFrame();
+		if (frame == null || !frame.isJpeg()) {
+			return null;
+		}
+
+		return frame.getBytes();
+	}
+
+	private static boolean isJpeg(String format) {
+		return ImageUtils.FORMAT_JPG.equalsIgnoreCase(format) || "jpeg".equalsIgnoreCase(format);
+	}
+
 	/**
 	 * Capture image as BYteBuffer.
 	 *
@@ -10,6 +10,7 @@ import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
+import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -21,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import com.github.sarxos.webcam.WebcamDevice;
 import com.github.sarxos.webcam.WebcamDevice.BufferAccess;
+import com.github.sarxos.webcam.WebcamDevice.ImageReuse;
 import com.github.sarxos.webcam.WebcamException;
 import com.github.sarxos.webcam.WebcamExceptionHandler;
 import com.github.sarxos.webcam.WebcamResolution;
@@ -30,7 +32,7 @@ import com.github.sarxos.webcam.ds.buildin.natives.DeviceList;
 import com.github.sarxos.webcam.ds.buildin.natives.OpenIMAJGrabber;
 
 
-public class WebcamDefaultDevice implements WebcamDevice, BufferAccess, Runnable, WebcamDevice.FPSSource {
+public class WebcamDefaultDevice implements WebcamDevice, BufferAccess, ImageReuse, Runnable, WebcamDevice.FPSSource {
 
 	/**
 	 * Logger.
@@ -275,6 +277,11 @@ public class WebcamDefaultDevice implements WebcamDevice, BufferAccess, Runnable
 
 	@Override
 	public BufferedImage getImage() {
+		return getImage(null);
+	}
+
+	@Override
+	public BufferedImage getImage(BufferedImage reuse) {
 
 		ByteBuffer buffer = getImageBytes();
 
@@ -283,6 +290,11 @@ public class WebcamDefaultDevice implements WebcamDevice, BufferAccess, Runnable
 			return null;
 		}
 
+		if (isReusable(reuse, size)) {
+			buffer.get(((DataBufferByte) reuse.getRaster().getDataBuffer()).getData());
+			return reuse;
+		}
+
 		byte[] bytes = new byte[size.width * size.height * 3];
 		byte[][] data = new byte[][] { bytes };
 
@@ -297,6 +309,42 @@ public class WebcamDefaultDevice implements WebcamDevice, BufferAccess, Runnable
 		return bi;
 	}
 
+	/**
+	 * Check if image can be reused, i.e. it has the same size and pixel layout as images created by
+	 * this device.
+	 *
+	 * @param image the image to check
+	 * @param size the size of images created by device
+	 * @return True if image data can be overwritten with new frame, false otherwise
+	 */
+	static boolean isReusable(BufferedImage image, Dimension size) {
+
+		if (image == null) {
+			return false;
+		}
+		if (image.getWidth() != size.width || image.getHeight() != size.height) {
+			return false;
+		}
+
+		DataBuffer dbuf = image.getRaster().getDataBuffer();
+		if (!(dbuf instanceof DataBufferByte) || dbuf.getNumBanks() != 1 || dbuf.getSize() != size.width * size.height * 3) {
+			return false;
+		}
+
+		SampleModel sm = image.getSampleModel();
+		if (!(sm instanceof ComponentSampleModel)) {
+			return false;
+		}
+
+		ComponentSampleModel csm = (ComponentSampleModel) sm;
+		if (csm.getPixelStride() != 3 || csm.getScanlineStride() != size.width * 3) {
+			return false;
+		}
+
+		int[] offsets = csm.getBandOffsets();
+		return offsets.length == 3 && offsets[0] == 0 && offsets[1] == 1 && offsets[2] == 2 && dbuf.getOffset() == 0;
+	}
+
 	@Override
 	public void open() {
 
@@ -2,6 +2,7 @@ package com.github.sarxos.webcam.ds.cgt;
 
 import com.github.sarxos.webcam.WebcamDevice;
 import com.github.sarxos.webcam.WebcamDriver;
+import com.github.sarxos.webcam.WebcamProcessor;
 import com.github.sarxos.webcam.WebcamTask;
 
 
@@ -17,7 +18,11 @@ public class WebcamDisposeTask extends WebcamTask {
 	}
 
 	public void dispose() throws InterruptedException {
-		process();
+		try {
+			process();
+		} finally {
+			WebcamProcessor.getInstance().release(getDevice());
+		}
 	}
 
 	@Override
@@ -0,0 +1,47 @@
+package com.github.sarxos.webcam.ds.cgt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.sarxos.webcam.WebcamCompressedFrame;
+import com.github.sarxos.webcam.WebcamDevice;
+import com.github.sarxos.webcam.WebcamDevice.CompressedAccess;
+import com.github.sarxos.webcam.WebcamDriver;
+import com.github.sarxos.webcam.WebcamTask;
+
+
+public class WebcamGetCompressedFrameTask extends WebcamTask {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WebcamGetCompressedFrameTask.class);
+
+	private volatile WebcamCompressedFrame frame = null;
+
+	public WebcamGetCompressedFrameTask(WebcamDriver driver, WebcamDevice device) {
+		super(driver, device);
+	}
+
+	public WebcamCompressedFrame getFrame() {
+		try {
+			process();
+		} catch (InterruptedException e) {
+			LOG.debug("Compressed frame request interrupted", e);
+			return null;
+		}
+		return frame;
+	}
+
+	@Override
+	protected void handle() {
+
+		WebcamDevice device = getDevice();
+		if (!device.isOpen()) {
+			return;
+		}
+
+		if (!(device instanceof CompressedAccess)) {
+			return;
+		}
+
+		frame = ((CompressedAccess) device).getCompressedFrame();
+	}
+}
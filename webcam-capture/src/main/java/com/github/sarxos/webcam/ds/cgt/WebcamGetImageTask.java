@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.sarxos.webcam.WebcamDevice;
+import com.github.sarxos.webcam.WebcamDevice.ImageReuse;
 import com.github.sarxos.webcam.WebcamDriver;
 import com.github.sarxos.webcam.WebcamTask;
 
@@ -15,11 +16,25 @@ public class WebcamGetImageTask extends WebcamTask {
 	private static final Logger LOG = LoggerFactory.getLogger(WebcamGetImageTask.class);
 
 	private volatile BufferedImage image = null;
+	private volatile BufferedImage reuse = null;
 
 	public WebcamGetImageTask(WebcamDriver driver, WebcamDevice device) {
 		super(driver, device);
 	}
 
+	/**
+	 * Create task which will try to write new frame into already existing image. This works only if
+	 * device implements {@link ImageReuse}, otherwise new image is created.
+	 *
+	 * @param driver the webcam driver
+	 * @param device the webcam device
+	 * @param reuse the image to be reused, can be null
+	 */
+	public WebcamGetImageTask(WebcamDriver driver, WebcamDevice device, BufferedImage reuse) {
+		super(driver, device);
+		this.reuse = reuse;
+	}
+
 	public BufferedImage getImage() {
 
 		try {
@@ -40,6 +55,10 @@ public class WebcamGetImageTask extends WebcamTask {
 			return;
 		}
 
-		image = device.getImage();
+		if (reuse != null && device instanceof ImageReuse) {
+			image = ((ImageReuse) device).getImage(reuse);
+		} else {
+			image = device.getImage();
+		}
 	}
 }
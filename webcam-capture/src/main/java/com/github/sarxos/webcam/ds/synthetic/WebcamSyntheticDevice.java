@@ -0,0 +1,578 @@
+package com.github.sarxos.webcam.ds.synthetic;
+
+import java.awt.Dimension;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.sarxos.webcam.WebcamDevice;
+import com.github.sarxos.webcam.WebcamResolution;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+/**
+ * Synthetic webcam device. Frames are generated into pre-allocated RGB buffer which is then
+ * exposed directly via {@link WebcamDevice.BufferAccess} or copied into images. Accepted
+ * parameters (see {@link WebcamDevice.Configurable}) are:
+ * <ul>
+ * <li><b>fps</b> - {@link Number}, frames per second, 0 or less means unthrottled,</li>
+ * <li><b>pattern</b> - {@link Pattern} or its name, frames pattern.</li>
+ * </ul>
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class WebcamSyntheticDevice implements WebcamDevice, WebcamDevice.BufferAccess, WebcamDevice.ImageReuse, WebcamDevice.FPSSource, WebcamDevice.Configurable {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(WebcamSyntheticDevice.class);
+
+	/**
+	 * Resolutions supported by default.
+	 */
+	private static final Dimension[] DIMENSIONS = new Dimension[] {
+		WebcamResolution.QQVGA.getSize(),
+		WebcamResolution.QVGA.getSize(),
+		WebcamResolution.VGA.getSize(),
+		WebcamResolution.HD.getSize(),
+		WebcamResolution.FHD.getSize(),
+	};
+
+	/**
+	 * Colors of the blobs in {@link Pattern#BLOBS} pattern.
+	 */
+	private static final int[] BLOB_COLORS = new int[] { 0xFFFFFF, 0x000000, 0xE02020, 0x20C040 };
+
+	/**
+	 * Blob angular speed in radians per frame.
+	 */
+	private static final double BLOB_SPEED = 0.05;
+
+	/**
+	 * RGB color model, the same as in default driver.
+	 */
+	private static final ColorModel RGB_MODEL = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8 }, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+	private final String name;
+	private final Dimension[] resolutions;
+	private final PixelFormat format;
+
+	private Dimension resolution;
+	private Pattern pattern;
+	private volatile boolean open = false;
+	private volatile boolean disposed = false;
+
+	/**
+	 * Frame period in nanoseconds, 0 when unthrottled.
+	 */
+	private long period;
+
+	/**
+	 * Time when next frame can be generated.
+	 */
+	private long next = 0;
+
+	/**
+	 * Number of generated frames.
+	 */
+	private long frame = 0;
+
+	/**
+	 * Random generator state (xorshift).
+	 */
+	private long seed;
+
+	private byte[] rgb = null;
+	private byte[] background = null;
+	private ByteBuffer buffer = null;
+	private ComponentSampleModel smodel = null;
+
+	private long t1 = -1;
+	private long t2 = -1;
+	private volatile double fps = 0;
+
+	public WebcamSyntheticDevice(int number, Dimension resolution, double fps, Pattern pattern, PixelFormat format) {
+
+		this.name = "Synthetic Webcam " + number;
+		this.resolution = resolution;
+		this.pattern = pattern;
+		this.format = format;
+		this.seed = 0x9E3779B97F4A7C15L * (number + 1);
+
+		this.period = toPeriod(fps);
+
+		List<Dimension> sizes = new ArrayList<Dimension>(Arrays.asList(DIMENSIONS));
+		if (!sizes.contains(resolution)) {
+			sizes.add(resolution);
+		}
+
+		this.resolutions = sizes.toArray(new Dimension[sizes.size()]);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Dimension[] getResolutions() {
+		return resolutions;
+	}
+
+	@Override
+	public synchronized Dimension getResolution() {
+		return resolution;
+	}
+
+	@Override
+	public synchronized void setResolution(Dimension size) {
+
+		if (size == null) {
+			throw new IllegalArgumentException("Size cannot be null");
+		}
+		if (open) {
+			throw new IllegalStateException("Cannot change resolution when webcam is open, please close it first");
+		}
+
+		this.resolution = size;
+	}
+
+	/**
+	 * @return Pixel format of images returned by this device
+	 */
+	public PixelFormat getPixelFormat() {
+		return format;
+	}
+
+	/**
+	 * @return Frames pattern
+	 */
+	public synchronized Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Set frames pattern.
+	 *
+	 * @param pattern the new pattern
+	 */
+	public synchronized void setPattern(Pattern pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Pattern cannot be null");
+		}
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Set target FPS, 0 or less means frames are generated as fast as possible.
+	 *
+	 * @param fps the frames per second
+	 */
+	public synchronized void setFPS(double fps) {
+		this.period = toPeriod(fps);
+	}
+
+	/**
+	 * @param fps the frames per second
+	 * @return Time between frames in nanoseconds, 0 if there is no limit
+	 */
+	private static long toPeriod(double fps) {
+		return fps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / fps) : 0;
+	}
+
+	@Override
+	public void setParameters(Map<String, ?> parameters) {
+
+		Object fps = parameters.get("fps");
+		if (fps instanceof Number) {
+			setFPS(((Number) fps).doubleValue());
+		}
+
+		Object pattern = parameters.get("pattern");
+		if (pattern instanceof Pattern) {
+			setPattern((Pattern) pattern);
+		} else if (pattern != null) {
+			setPattern(Pattern.valueOf(pattern.toString().toUpperCase()));
+		}
+	}
+
+	@Override
+	public synchronized BufferedImage getImage() {
+		return getImage(null);
+	}
+
+	@Override
+	public synchronized BufferedImage getImage(BufferedImage reuse) {
+
+		if (!nextFrame()) {
+			return null;
+		}
+
+		BufferedImage image = isReusable(reuse) ? reuse : createImage();
+		write(image);
+
+		return image;
+	}
+
+	@Override
+	public synchronized ByteBuffer getImageBytes() {
+
+		if (!nextFrame()) {
+			return null;
+		}
+
+		return buffer.duplicate();
+	}
+
+	@Override
+	public synchronized void getImageBytes(ByteBuffer target) {
+
+		if (!open) {
+			LOG.debug("Webcam is closed, image will be null");
+			return;
+		}
+
+		int length = rgb.length;
+		int remaining = target.remaining();
+
+		if (length > remaining) {
+			throw new IllegalArgumentException(String.format("Not enough remaining space in target buffer (%d necessary vs %d remaining)", length, remaining));
+		}
+
+		if (nextFrame()) {
+			target.put(rgb);
+		}
+	}
+
+	@Override
+	public double getFPS() {
+		return fps;
+	}
+
+	@Override
+	public synchronized void open() {
+
+		if (disposed || open) {
+			return;
+		}
+
+		LOG.debug("Opening synthetic device {}", name);
+
+		int w = resolution.width;
+		int h = resolution.height;
+
+		rgb = new byte[w * h * 3];
+		buffer = ByteBuffer.wrap(rgb).asReadOnlyBuffer();
+		smodel = new ComponentSampleModel(DataBuffer.TYPE_BYTE, w, h, 3, w * 3, new int[] { 0, 1, 2 });
+		background = new byte[w * h * 3];
+
+		for (int y = 0, i = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				background[i++] = (byte) (40 + 160 * x / w);
+				background[i++] = (byte) (60 + 120 * y / h);
+				background[i++] = (byte) (90 + 80 * (x + y) / (w + h));
+			}
+		}
+
+		frame = 0;
+		next = System.nanoTime();
+		open = true;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (open) {
+			LOG.debug("Closing synthetic device {}", name);
+			open = false;
+		}
+	}
+
+	@Override
+	public synchronized void dispose() {
+		disposed = true;
+		close();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Wait for the next frame slot and generate new frame into RGB buffer.
+	 *
+	 * @return True if frame has been generated, false if device is closed
+	 */
+	private boolean nextFrame() {
+
+		if (!open) {
+			LOG.debug("Webcam is closed, image will be null");
+			return false;
+		}
+
+		throttle();
+
+		switch (pattern) {
+			case GRADIENT:
+				gradient();
+				break;
+			case NOISE:
+				noise();
+				break;
+			case BLOBS:
+				blobs();
+				break;
+		}
+
+		frame++;
+
+		if (t1 == -1 || t2 == -1) {
+			t1 = System.nanoTime();
+			t2 = t1;
+		}
+
+		t1 = t2;
+		t2 = System.nanoTime();
+
+		fps = (4 * fps + TimeUnit.SECONDS.toNanos(1) / (double) (t2 - t1 + 1)) / 5;
+
+		return true;
+	}
+
+	/**
+	 * Park calling thread until the next frame slot when FPS is limited.
+	 */
+	private void throttle() {
+
+		if (period <= 0) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		while (next - now > 0) {
+			LockSupport.parkNanos(next - now);
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			now = System.nanoTime();
+		}
+
+		// do not try to catch up when consumer was slower than FPS
+
+		next = Math.max(next, now - period) + period;
+	}
+
+	private void gradient() {
+
+		int w = resolution.width;
+		int h = resolution.height;
+		int t = (int) (frame << 2);
+		byte[] rgb = this.rgb;
+
+		for (int y = 0, i = 0; y < h; y++) {
+			int g = (y << 8) / h + t;
+			for (int x = 0; x < w; x++) {
+				int r = (x << 8) / w + t;
+				rgb[i++] = (byte) r;
+				rgb[i++] = (byte) g;
+				rgb[i++] = (byte) ((r + g) >> 1);
+			}
+		}
+	}
+
+	private void noise() {
+
+		byte[] rgb = this.rgb;
+		long s = seed;
+		int i = 0;
+		int n = rgb.length;
+
+		while (i < n) {
+
+			s ^= s << 13;
+			s ^= s >>> 7;
+			s ^= s << 17;
+
+			for (int k = 0; k < 8 && i < n; k++, i++) {
+				rgb[i] = (byte) (s >>> (k << 3));
+			}
+		}
+
+		seed = s;
+	}
+
+	private void blobs() {
+
+		int w = resolution.width;
+		int h = resolution.height;
+		int r = Math.max(2, Math.min(w, h) / 10);
+		double t = frame * BLOB_SPEED;
+
+		System.arraycopy(background, 0, rgb, 0, rgb.length);
+
+		for (int b = 0; b < BLOB_COLORS.length; b++) {
+			double phase = b * Math.PI / 2;
+			int cx = (int) (w / 2 + (w / 3) * Math.sin(t * (b + 1) + phase));
+			int cy = (int) (h / 2 + (h / 3) * Math.cos(t * (b + 2) / 2 + phase));
+			fillCircle(cx, cy, r, BLOB_COLORS[b]);
+		}
+	}
+
+	private void fillCircle(int cx, int cy, int r, int color) {
+
+		int w = resolution.width;
+		int h = resolution.height;
+		byte cr = (byte) (color >> 16);
+		byte cg = (byte) (color >> 8);
+		byte cb = (byte) color;
+
+		for (int dy = -r; dy <= r; dy++) {
+
+			int y = cy + dy;
+			if (y < 0 || y >= h) {
+				continue;
+			}
+
+			int half = (int) Math.sqrt(r * r - dy * dy);
+			int x1 = Math.max(0, cx - half);
+			int x2 = Math.min(w - 1, cx + half);
+
+			for (int x = x1, i = (y * w + x1) * 3; x <= x2; x++) {
+				rgb[i++] = cr;
+				rgb[i++] = cg;
+				rgb[i++] = cb;
+			}
+		}
+	}
+
+	/**
+	 * Create new empty image in this device pixel format.
+	 *
+	 * @return New image
+	 */
+	private BufferedImage createImage() {
+
+		int w = resolution.width;
+		int h = resolution.height;
+
+		switch (format) {
+			case BGR:
+				return new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+			case INT_RGB:
+				return new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			case GRAY:
+				return new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+			default:
+				byte[] bytes = new byte[w * h * 3];
+				DataBufferByte dbuf = new DataBufferByte(new byte[][] { bytes }, bytes.length, new int[] { 0 });
+				WritableRaster raster = Raster.createWritableRaster(smodel, dbuf, null);
+				return new BufferedImage(RGB_MODEL, raster, false, null);
+		}
+	}
+
+	/**
+	 * Check if image can be reused, i.e. it has the same size and pixel layout as images created
+	 * by this device.
+	 *
+	 * @param image the image to check
+	 * @return True if image data can be overwritten with new frame, false otherwise
+	 */
+	private boolean isReusable(BufferedImage image) {
+
+		if (image == null) {
+			return false;
+		}
+
+		int w = resolution.width;
+		int h = resolution.height;
+
+		if (image.getWidth() != w || image.getHeight() != h) {
+			return false;
+		}
+
+		WritableRaster raster = image.getRaster();
+		if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+			return false;
+		}
+		if (raster.getDataBuffer().getNumBanks() != 1 || raster.getDataBuffer().getOffset() != 0) {
+			return false;
+		}
+
+		switch (format) {
+			case BGR:
+				return image.getType() == BufferedImage.TYPE_3BYTE_BGR;
+			case INT_RGB:
+				return image.getType() == BufferedImage.TYPE_INT_RGB;
+			case GRAY:
+				return image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+			default:
+				return smodel.equals(image.getSampleModel()) && RGB_MODEL.equals(image.getColorModel()) && raster.getDataBuffer() instanceof DataBufferByte;
+		}
+	}
+
+	/**
+	 * Write current RGB frame into image.
+	 *
+	 * @param image the image to write into
+	 */
+	private void write(BufferedImage image) {
+
+		DataBuffer dbuf = image.getRaster().getDataBuffer();
+		byte[] rgb = this.rgb;
+		int n = rgb.length;
+
+		switch (format) {
+			case BGR: {
+				byte[] data = ((DataBufferByte) dbuf).getData();
+				for (int i = 0; i < n; i += 3) {
+					data[i] = rgb[i + 2];
+					data[i + 1] = rgb[i + 1];
+					data[i + 2] = rgb[i];
+				}
+				break;
+			}
+			case INT_RGB: {
+				int[] data = ((DataBufferInt) dbuf).getData();
+				for (int i = 0, p = 0; i < n; i += 3) {
+					data[p++] = (rgb[i] & 0xFF) << 16 | (rgb[i + 1] & 0xFF) << 8 | rgb[i + 2] & 0xFF;
+				}
+				break;
+			}
+			case GRAY: {
+				byte[] data = ((DataBufferByte) dbuf).getData();
+				for (int i = 0, p = 0; i < n; i += 3) {
+					data[p++] = (byte) ((rgb[i] & 0xFF) * 77 + (rgb[i + 1] & 0xFF) * 151 + (rgb[i + 2] & 0xFF) * 28 >> 8);
+				}
+				break;
+			}
+			default:
+				System.arraycopy(rgb, 0, ((DataBufferByte) dbuf).getData(), 0, n);
+				break;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.sarxos.webcam.ds.synthetic;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.sarxos.webcam.WebcamDevice;
+import com.github.sarxos.webcam.WebcamDiscoverySupport;
+import com.github.sarxos.webcam.WebcamDriver;
+import com.github.sarxos.webcam.WebcamResolution;
+
+
+/**
+ * Headless driver producing synthetic frames at high rate. It does not require any camera or
+ * graphics environment, so it can be used to load test the whole capture pipeline, e.g. on CI
+ * servers. Frames are generated into pre-allocated buffers, so in steady state no memory is
+ * allocated, except for new images returned from {@link WebcamDevice#getImage()} (use
+ * {@link WebcamDevice.ImageReuse} or {@link WebcamDevice.BufferAccess} to avoid that).
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class WebcamSyntheticDriver implements WebcamDriver, WebcamDiscoverySupport {
+
+	/**
+	 * Pattern of synthetic frames.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static enum Pattern {
+
+		/**
+		 * Diagonal color gradient moving with every frame.
+		 */
+		GRADIENT,
+
+		/**
+		 * Random noise, every frame is completely different, worst case for compression.
+		 */
+		NOISE,
+
+		/**
+		 * Static gradient background with few solid blobs moving on scripted paths, good for
+		 * motion detection tests.
+		 */
+		BLOBS,
+	}
+
+	/**
+	 * Pixel format of images returned by synthetic device. Raw bytes obtained via
+	 * {@link WebcamDevice.BufferAccess} are always RGB, 3 bytes per pixel.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	public static enum PixelFormat {
+
+		/**
+		 * Interleaved RGB bytes, the same layout as images from the default driver.
+		 */
+		RGB,
+
+		/**
+		 * Interleaved BGR bytes ({@link java.awt.image.BufferedImage#TYPE_3BYTE_BGR}).
+		 */
+		BGR,
+
+		/**
+		 * Packed RGB integers ({@link java.awt.image.BufferedImage#TYPE_INT_RGB}).
+		 */
+		INT_RGB,
+
+		/**
+		 * Single byte luminance ({@link java.awt.image.BufferedImage#TYPE_BYTE_GRAY}).
+		 */
+		GRAY,
+	}
+
+	/**
+	 * Default resolution.
+	 */
+	public static final Dimension DEFAULT_RESOLUTION = WebcamResolution.VGA.getSize();
+
+	/**
+	 * Default FPS.
+	 */
+	public static final double DEFAULT_FPS = 30;
+
+	private final List<WebcamDevice> devices;
+
+	/**
+	 * Create driver with a given number of devices, VGA resolution, 30 FPS, moving gradient
+	 * pattern and RGB pixel format.
+	 *
+	 * @param count the number of devices
+	 */
+	public WebcamSyntheticDriver(int count) {
+		this(count, DEFAULT_RESOLUTION, DEFAULT_FPS, Pattern.GRADIENT, PixelFormat.RGB);
+	}
+
+	/**
+	 * Create driver with a given number of devices.
+	 *
+	 * @param count the number of devices
+	 * @param resolution the initial resolution of every device
+	 * @param fps the frames per second, 0 or less means unthrottled
+	 * @param pattern the frames pattern
+	 * @param format the images pixel format
+	 */
+	public WebcamSyntheticDriver(int count, Dimension resolution, double fps, Pattern pattern, PixelFormat format) {
+
+		if (count < 0) {
+			throw new IllegalArgumentException("Devices count cannot be negative");
+		}
+		if (resolution == null) {
+			throw new IllegalArgumentException("Resolution cannot be null");
+		}
+		if (pattern == null) {
+			throw new IllegalArgumentException("Pattern cannot be null");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("Pixel format cannot be null");
+		}
+
+		List<WebcamDevice> devices = new ArrayList<WebcamDevice>(count);
+		for (int i = 0; i < count; i++) {
+			devices.add(new WebcamSyntheticDevice(i, resolution, fps, pattern, format));
+		}
+
+		this.devices = Collections.unmodifiableList(devices);
+	}
+
+	@Override
+	public List<WebcamDevice> getDevices() {
+		return devices;
+	}
+
+	/**
+	 * Synthetic devices does not share any state, so driver is thread-safe.
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public long getScanInterval() {
+		return DEFAULT_SCAN_INTERVAL;
+	}
+
+	@Override
+	public boolean isScanPossible() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -1,13 +1,12 @@
 package com.github.sarxos.webcam.util;
 
 import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 
 import javax.imageio.ImageIO;
 
@@ -16,7 +15,12 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * This is {@link InputStream} with ability to read MJPEG frames as {@link BufferedImage}.
+ * This is {@link InputStream} with ability to read MJPEG frames as {@link BufferedImage}.<br>
+ * <br>
+ * Stream is read in large chunks into internal buffer, which grows when needed and is reused for
+ * all frames. Part headers, Content-Length and JPEG markers are found by scanning this buffer, and
+ * JPEG data is decoded directly from it or returned as its slice by {@link #readFrameBuffer()},
+ * without copying. Frame length is limited only by the maximum frame length given in constructor.
  *
  * @author Bartosz Firyn (sarxos)
  */
@@ -27,122 +31,398 @@ public class MjpegInputStream extends DataInputStream {
 	/**
 	 * The first two bytes of every JPEG frame are the Start Of Image (SOI) marker values FFh D8h.
 	 */
-	private final byte[] SOI_MARKER = { (byte) 0xFF, (byte) 0xD8 };
+	private static final int SOI_MARKER = 0xD8;
 
 	/**
 	 * All JPEG data streams end with the End Of Image (EOI) marker values FFh D9h.
 	 */
-	private final byte[] EOI_MARKER = { (byte) 0xFF, (byte) 0xD9 };
+	private static final int EOI_MARKER = 0xD9;
 
 	/**
-	 * Name of content length header.
+	 * Name of content length header, in lower case.
 	 */
-	private final String CONTENT_LENGTH = "Content-Length".toLowerCase();
+	private static final byte[] CONTENT_LENGTH = "content-length".getBytes();
 
 	/**
-	 * Maximum header length.
+	 * Default max frame length (16 MB).
 	 */
-	private final static int HEADER_MAX_LENGTH = 100;
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
 
 	/**
-	 * Max frame length (100kB).
+	 * Max length of part headers preceding the frame.
 	 */
-	private final static int FRAME_MAX_LENGTH = 100000 + HEADER_MAX_LENGTH;
+	private static final int HEADER_MAX_LENGTH = 64 * 1024;
+
+	/**
+	 * Initial buffer size, buffer is read in chunks of at least this size.
+	 */
+	private static final int CHUNK_LENGTH = 64 * 1024;
+
+	/**
+	 * Buffer which is read from the underlying stream in chunks and is scanned for frames. All
+	 * stream reads go through this buffer, so bytes buffered but not consumed by frames are still
+	 * available from {@link DataInputStream} methods.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class Buffer extends InputStream {
+
+		private final InputStream source;
+
+		private byte[] bytes = new byte[CHUNK_LENGTH];
+
+		/**
+		 * Index of the first byte not consumed yet.
+		 */
+		private int pos = 0;
+
+		/**
+		 * Index after the last byte read from the source.
+		 */
+		private int limit = 0;
+
+		Buffer(InputStream source) {
+			this.source = source;
+		}
+
+		/**
+		 * Read next chunk from the source. Consumed bytes are discarded and buffer grows when it is
+		 * full, but never above given capacity.
+		 *
+		 * @param capacity the max number of unconsumed bytes to be kept
+		 * @return False on end of stream or when buffer is full up to its capacity
+		 * @throws IOException when stream cannot be read
+		 */
+		boolean fill(int capacity) throws IOException {
+
+			if (pos > 0 && limit == bytes.length) {
+				System.arraycopy(bytes, pos, bytes, 0, limit - pos);
+				limit -= pos;
+				pos = 0;
+			}
+
+			if (limit == bytes.length) {
+				if (limit >= capacity) {
+					return false;
+				}
+				byte[] tmp = new byte[(int) Math.min(capacity, 2L * bytes.length)];
+				System.arraycopy(bytes, 0, tmp, 0, limit);
+				bytes = tmp;
+			}
+
+			int n = source.read(bytes, limit, bytes.length - limit);
+			if (n < 0) {
+				return false;
+			}
+
+			limit += n;
+
+			return true;
+		}
+
+		/**
+		 * Make sure given number of unconsumed bytes is available.
+		 *
+		 * @param length the number of bytes
+		 * @throws EOFException when stream ends before
+		 */
+		void require(int length) throws IOException {
+			while (limit - pos < length) {
+				if (!fill(length)) {
+					throw new EOFException("MJPEG stream ended in the middle of frame");
+				}
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (pos == limit && !fill(CHUNK_LENGTH)) {
+				return -1;
+			}
+			return bytes[pos++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (pos == limit) {
+				if (len >= bytes.length) {
+					return source.read(b, off, len);
+				}
+				if (!fill(CHUNK_LENGTH)) {
+					return -1;
+				}
+			}
+			int n = Math.min(len, limit - pos);
+			System.arraycopy(bytes, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			if (pos == limit) {
+				return source.skip(n);
+			}
+			int k = (int) Math.min(n, limit - pos);
+			pos += k;
+			return k;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return limit - pos + source.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			source.close();
+		}
+	}
+
+	/**
+	 * Stream buffer.
+	 */
+	private final Buffer buffer;
+
+	/**
+	 * Max frame length.
+	 */
+	private final int maxFrameLength;
 
 	/**
 	 * Is stream open?
 	 */
 	private boolean open = true;
 
+	/**
+	 * Create MJPEG stream with default max frame length.
+	 *
+	 * @param in the stream to read from
+	 * @see #DEFAULT_MAX_FRAME_LENGTH
+	 */
 	public MjpegInputStream(final InputStream in) {
-		super(new BufferedInputStream(in, FRAME_MAX_LENGTH));
+		this(in, DEFAULT_MAX_FRAME_LENGTH);
 	}
 
-	private int getEndOfSeqeunce(final DataInputStream in, final byte[] sequence) throws IOException {
-		int s = 0;
-		byte c;
-		for (int i = 0; i < FRAME_MAX_LENGTH; i++) {
-			c = (byte) in.readUnsignedByte();
-			if (c == sequence[s]) {
-				s++;
-				if (s == sequence.length) {
-					return i + 1;
-				}
-			} else {
-				s = 0;
-			}
+	/**
+	 * Create MJPEG stream.
+	 *
+	 * @param in the stream to read from
+	 * @param maxFrameLength the max length of single JPEG frame, in bytes
+	 */
+	public MjpegInputStream(final InputStream in, final int maxFrameLength) {
+		super(new Buffer(in));
+		if (maxFrameLength <= 0) {
+			throw new IllegalArgumentException("Max frame length must be positive");
 		}
-		return -1;
+		this.buffer = (Buffer) this.in;
+		this.maxFrameLength = maxFrameLength;
 	}
 
-	private int getStartOfSequence(final DataInputStream in, final byte[] sequence) throws IOException {
-		int end = getEndOfSeqeunce(in, sequence);
-		return end < 0 ? -1 : end - sequence.length;
+	/**
+	 * @return Max length of single JPEG frame, in bytes
+	 */
+	public int getMaxFrameLength() {
+		return maxFrameLength;
 	}
 
-	private int parseContentLength(final byte[] headerBytes) throws IOException, NumberFormatException {
+	/**
+	 * Find FFh followed by the given marker byte in unconsumed buffer bytes, reading more bytes
+	 * when needed.
+	 *
+	 * @param from the buffer index where scanning starts
+	 * @param marker the marker byte following FFh
+	 * @param capacity the max number of unconsumed bytes to scan
+	 * @return Buffer index of FFh, or -1 when marker has not been found within capacity
+	 * @throws IOException when stream cannot be read or ends
+	 */
+	private int find(int from, int marker, int capacity) throws IOException {
+
+		final Buffer b = buffer;
+		final byte m = (byte) marker;
+
+		// offset relative to pos, since buffer may be compacted when it's filled
 
-		try (
-			final ByteArrayInputStream bais = new ByteArrayInputStream(headerBytes);
-			final InputStreamReader isr = new InputStreamReader(bais);
-			final BufferedReader br = new BufferedReader(isr)) {
+		int offset = from - b.pos;
 
-			String line = null;
-			while ((line = br.readLine()) != null) {
-				if (line.toLowerCase().startsWith(CONTENT_LENGTH)) {
-					final String[] parts = line.split(":");
-					if (parts.length == 2) {
-						return Integer.parseInt(parts[1].trim());
-					}
+		while (true) {
+
+			final byte[] bytes = b.bytes;
+
+			for (int i = b.pos + offset, n = Math.min(b.limit, b.pos + capacity) - 1; i < n; i++) {
+				if (bytes[i] == (byte) 0xFF && bytes[i + 1] == m) {
+					return i;
 				}
 			}
+
+			if (b.limit - b.pos >= capacity) {
+				return -1;
+			}
+
+			offset = Math.max(offset, b.limit - 1 - b.pos);
+
+			if (!b.fill(capacity)) {
+				throw new EOFException("MJPEG stream ended before JPEG marker has been found");
+			}
+		}
+	}
+
+	/**
+	 * Parse Content-Length header from part headers. Header name is matched case-insensitively at
+	 * the beginning of each line.
+	 *
+	 * @param bytes the buffer
+	 * @param from the headers start (inclusive)
+	 * @param to the headers end (exclusive)
+	 * @return Content length or -1 if header is missing or invalid
+	 */
+	public static int parseContentLength(final byte[] bytes, final int from, final int to) {
+
+		final byte[] name = CONTENT_LENGTH;
+
+		for (int i = from; i + name.length < to; i++) {
+
+			if (i > from && bytes[i - 1] != '\n') {
+				continue;
+			}
+
+			int k = 0;
+			while (k < name.length && Character.toLowerCase(bytes[i + k]) == name[k]) {
+				k++;
+			}
+			if (k < name.length) {
+				continue;
+			}
+
+			int j = i + k;
+			while (j < to && bytes[j] == ' ') {
+				j++;
+			}
+			if (j == to || bytes[j++] != ':') {
+				continue;
+			}
+			while (j < to && bytes[j] == ' ') {
+				j++;
+			}
+
+			long length = 0;
+			int digits = 0;
+			for (; j < to && bytes[j] >= '0' && bytes[j] <= '9'; j++, digits++) {
+				length = Math.min(Integer.MAX_VALUE, length * 10 + (bytes[j] - '0'));
+			}
+
+			return digits > 0 ? (int) length : -1;
 		}
 
-		return 0;
+		return -1;
 	}
 
 	/**
-	 * Read single MJPEG frame (JPEG image) from stram.
+	 * Read next frame into buffer. Frame starts with the SOI marker, and its length is taken from
+	 * Content-Length header of the part or, when there is no such header, it ends with EOI marker.
+	 * Frame longer than max frame length is skipped if its length is known, otherwise
+	 * {@link IOException} is thrown.
 	 *
-	 * @return JPEG image as {@link BufferedImage} or null
+	 * @return Frame length, frame bytes are the last consumed bytes in buffer, or -1 if frame has
+	 *         been skipped
 	 * @throws IOException when there is a problem in reading from stream
 	 */
-	public BufferedImage readFrame() throws IOException {
+	private int next() throws IOException {
 
-		if (!open) {
-			return null;
+		final Buffer b = buffer;
+
+		int soi = find(b.pos, SOI_MARKER, HEADER_MAX_LENGTH);
+		if (soi < 0) {
+			throw new IOException("Invalid MJPEG stream, SOI (0xFF,0xD8) not found in " + HEADER_MAX_LENGTH + " bytes");
 		}
 
-		mark(FRAME_MAX_LENGTH);
+		int length = parseContentLength(b.bytes, b.pos, soi);
 
-		int n = getStartOfSequence(this, SOI_MARKER);
+		// frame starts at SOI, header bytes are consumed
 
-		reset();
+		b.pos = soi;
 
-		final byte[] header = new byte[n];
+		if (length > maxFrameLength) {
+			LOG.warn("MJPEG frame of {} bytes exceeds max frame length {}, skipping", length, maxFrameLength);
+			skipFully(length);
+			return -1;
+		}
 
-		readFully(header);
+		if (length > 0) {
+			b.require(length);
+		} else {
+			int eoi = find(b.pos + 2, EOI_MARKER, maxFrameLength);
+			if (eoi < 0) {
+				throw new IOException("Invalid MJPEG stream, EOI (0xFF,0xD9) not found in " + maxFrameLength + " bytes");
+			}
+			length = eoi + 2 - b.pos;
+		}
 
-		int length = -1;
-		try {
-			length = parseContentLength(header);
-		} catch (NumberFormatException e) {
-			length = getEndOfSeqeunce(this, EOI_MARKER);
+		b.pos += length;
+
+		return length;
+	}
+
+	private void skipFully(int length) throws IOException {
+		while (length > 0) {
+			int n = (int) skip(length);
+			if (n <= 0) {
+				if (read() < 0) {
+					throw new EOFException("MJPEG stream ended in the middle of frame");
+				}
+				n = 1;
+			}
+			length -= n;
 		}
+	}
 
-		if (length == 0) {
-			LOG.error("Invalid MJPEG stream, EOI (0xFF,0xD9) not found!");
+	/**
+	 * Read single MJPEG frame as JPEG bytes, without decoding it. Returned buffer is a read-only
+	 * slice of the internal buffer, which is valid only until the next read from this stream.
+	 *
+	 * @return JPEG bytes or null if stream is closed or frame has been skipped
+	 * @throws IOException when there is a problem in reading from stream
+	 */
+	public ByteBuffer readFrameBuffer() throws IOException {
+
+		if (!open) {
+			return null;
 		}
 
-		reset();
+		final int length = next();
 
-		final byte[] frame = new byte[length];
+		if (length < 0) {
+			return null;
+		}
+
+		return ByteBuffer.wrap(buffer.bytes, buffer.pos - length, length).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Read single MJPEG frame (JPEG image) from stream.
+	 *
+	 * @return JPEG image as {@link BufferedImage} or null
+	 * @throws IOException when there is a problem in reading from stream
+	 */
+	public BufferedImage readFrame() throws IOException {
+
+		if (!open) {
+			return null;
+		}
 
-		skipBytes(n);
+		final int length = next();
 
-		readFully(frame);
+		if (length < 0) {
+			return null;
+		}
 
-		try (final ByteArrayInputStream bais = new ByteArrayInputStream(frame)) {
+		try (final ByteArrayInputStream bais = new ByteArrayInputStream(buffer.bytes, buffer.pos - length, length)) {
 			return ImageIO.read(bais);
 		} catch (IOException e) {
 			return null;
@@ -161,4 +441,4 @@ public class MjpegInputStream extends DataInputStream {
 	public boolean isClosed() {
 		return !open;
 	}
-}
\ No newline at end of file
+}
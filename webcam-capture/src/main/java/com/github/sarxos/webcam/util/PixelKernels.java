@@ -0,0 +1,175 @@
+package com.github.sarxos.webcam.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pixel processing kernels used in hot loops of motion detector and image filters. There are two
+ * implementations - the scalar one, which works everywhere, and the vectorized one, which uses
+ * {@code jdk.incubator.vector} API to process many pixels with a single SIMD instruction. Since
+ * vector API is still an incubator module, it is not resolved by default and the vectorized
+ * kernels are used only when JVM is started with {@code --add-modules jdk.incubator.vector} and
+ * the CPU supports vectors of at least 256 bits, otherwise scalar kernels are used. Both
+ * implementations give exactly the same results.<br>
+ * <br>
+ * Luma values and differences are unsigned bytes (0 - 255) stored in byte arrays. Kernels are
+ * stateless and can be used by many threads at the same time.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public abstract class PixelKernels {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(PixelKernels.class);
+
+	/**
+	 * Name of the incubator module with vector API.
+	 */
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+	/**
+	 * Name of the class with vectorized kernels, it's loaded reflectively so this class can be
+	 * loaded even when vector API module is not present.
+	 */
+	private static final String VECTOR_KERNELS = "com.github.sarxos.webcam.util.VectorPixelKernels";
+
+	/**
+	 * Set this system property to true to always use scalar kernels.
+	 */
+	public static final String SCALAR_PROPERTY = "webcam.kernels.scalar";
+
+	/**
+	 * Kernels holder, initialized when kernels are used for the first time.
+	 *
+	 * @author Bartosz Firyn (sarxos)
+	 */
+	private static final class Holder {
+
+		private static final PixelKernels SCALAR = new ScalarPixelKernels();
+		private static final PixelKernels VECTOR = loadVector();
+		private static final PixelKernels DEFAULT = VECTOR != null && !Boolean.getBoolean(SCALAR_PROPERTY) ? VECTOR : SCALAR;
+
+		private static PixelKernels loadVector() {
+
+			if (!ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+				LOG.debug("Module {} is not present, scalar pixel kernels will be used", VECTOR_MODULE);
+				return null;
+			}
+
+			try {
+				PixelKernels kernels = (PixelKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+				if (!kernels.isSupported()) {
+					LOG.debug("Vector pixel kernels are not supported on this CPU, scalar ones will be used");
+					return null;
+				}
+				return kernels;
+			} catch (Exception | LinkageError e) {
+				LOG.debug("Cannot load vector pixel kernels, scalar ones will be used", e);
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @return Kernels to be used, vectorized when available, scalar otherwise
+	 */
+	public static PixelKernels getDefault() {
+		return Holder.DEFAULT;
+	}
+
+	/**
+	 * @return Scalar kernels
+	 */
+	public static PixelKernels getScalar() {
+		return Holder.SCALAR;
+	}
+
+	/**
+	 * @return Vectorized kernels or null if they are not available in this JVM
+	 */
+	public static PixelKernels getVector() {
+		return Holder.VECTOR;
+	}
+
+	/**
+	 * @return True if kernels can be used efficiently on this platform
+	 */
+	protected boolean isSupported() {
+		return true;
+	}
+
+	/**
+	 * Convert RGB pixels into luma, luma = (77 * r + 151 * g + 28 * b) >> 8. Alpha is ignored.
+	 *
+	 * @param rgb the RGB pixels
+	 * @param offset the index of the first pixel
+	 * @param luma the destination luma array
+	 * @param lumaOffset the destination index of the first luma value
+	 * @param length the number of pixels
+	 */
+	public abstract void luma(int[] rgb, int offset, byte[] luma, int lumaOffset, int length);
+
+	/**
+	 * Compute absolute differences of two luma arrays, diff[i] = |a[i] - b[i]|.
+	 *
+	 * @param a the first luma array
+	 * @param b the second luma array
+	 * @param offset the index of the first value in both arrays
+	 * @param diff the destination array for differences
+	 * @param diffOffset the destination index of the first difference
+	 * @param length the number of values
+	 */
+	public abstract void absDiff(byte[] a, byte[] b, int offset, byte[] diff, int diffOffset, int length);
+
+	/**
+	 * Find the first value greater or equal to the threshold.
+	 *
+	 * @param values the values array
+	 * @param from the index of the first value (inclusive)
+	 * @param to the index of the last value (exclusive)
+	 * @param threshold the threshold (0 - 255)
+	 * @return Index of the first value at least equal to the threshold, or to when there is none
+	 */
+	public abstract int indexAbove(byte[] values, int from, int to, int threshold);
+
+	/**
+	 * Count values greater or equal to the threshold.
+	 *
+	 * @param values the values array
+	 * @param from the index of the first value (inclusive)
+	 * @param to the index of the last value (exclusive)
+	 * @param threshold the threshold (0 - 255)
+	 * @return Number of values at least equal to the threshold
+	 */
+	public abstract int countAbove(byte[] values, int from, int to, int threshold);
+
+	/**
+	 * Add row of unsigned bytes to row sums, sums[i] += add[i].
+	 *
+	 * @param sums the row sums
+	 * @param add the row to add
+	 * @param addOffset the index of the first value to add
+	 * @param length the number of values
+	 */
+	public abstract void addRow(int[] sums, byte[] add, int addOffset, int length);
+
+	/**
+	 * Slide row sums by one row, sums[i] += add[i] - sub[i], as done by sliding window box blur.
+	 *
+	 * @param sums the row sums
+	 * @param add the row which enters the window
+	 * @param addOffset the index of the first value to add
+	 * @param sub the row which leaves the window
+	 * @param subOffset the index of the first value to subtract
+	 * @param length the number of values
+	 */
+	public abstract void slideRow(int[] sums, byte[] add, int addOffset, byte[] sub, int subOffset, int length);
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,59 @@
+package com.github.sarxos.webcam.util;
+
+/**
+ * Scalar pixel kernels which process one pixel at a time.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+class ScalarPixelKernels extends PixelKernels {
+
+	@Override
+	public void luma(int[] rgb, int offset, byte[] luma, int lumaOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			int p = rgb[offset + i];
+			luma[lumaOffset + i] = (byte) ((((p >> 16) & 0xff) * 77 + ((p >> 8) & 0xff) * 151 + (p & 0xff) * 28) >> 8);
+		}
+	}
+
+	@Override
+	public void absDiff(byte[] a, byte[] b, int offset, byte[] diff, int diffOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			diff[diffOffset + i] = (byte) Math.abs((a[offset + i] & 0xff) - (b[offset + i] & 0xff));
+		}
+	}
+
+	@Override
+	public int indexAbove(byte[] values, int from, int to, int threshold) {
+		for (int i = from; i < to; i++) {
+			if ((values[i] & 0xff) >= threshold) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	@Override
+	public int countAbove(byte[] values, int from, int to, int threshold) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if ((values[i] & 0xff) >= threshold) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void addRow(int[] sums, byte[] add, int addOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			sums[i] += add[addOffset + i] & 0xff;
+		}
+	}
+
+	@Override
+	public void slideRow(int[] sums, byte[] add, int addOffset, byte[] sub, int subOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			sums[i] += (add[addOffset + i] & 0xff) - (sub[subOffset + i] & 0xff);
+		}
+	}
+}
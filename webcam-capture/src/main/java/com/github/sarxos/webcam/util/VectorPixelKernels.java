@@ -0,0 +1,170 @@
+package com.github.sarxos.webcam.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Pixel kernels vectorized with {@code jdk.incubator.vector} API. Vector loops process as many
+ * pixels as fit into the preferred vector size and remaining pixels are processed with scalar
+ * kernels. Unsigned bytes are compared by flipping their sign bits, so that unsigned order becomes
+ * signed order, which is the only one supported by byte vectors.<br>
+ * <br>
+ * This class must be loaded only when {@code jdk.incubator.vector} module is present.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+class VectorPixelKernels extends ScalarPixelKernels {
+
+	/**
+	 * Vector of bytes, used when bytes are processed as bytes.
+	 */
+	private static final VectorSpecies<Byte> B = ByteVector.SPECIES_PREFERRED;
+
+	/**
+	 * Vector of ints.
+	 */
+	private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * Vector of as many bytes as there are ints in {@link #I}, used when bytes are widened to ints
+	 * or ints are narrowed to bytes.
+	 */
+	private static final VectorSpecies<Byte> BI = VectorShape.forBitSize(Math.max(64, I.length() * 8)).withLanes(byte.class);
+
+	/**
+	 * Mask which flips sign bit of byte.
+	 */
+	private static final byte SIGN = (byte) 0x80;
+
+	@Override
+	protected boolean isSupported() {
+
+		// narrower vectors are not worth the overhead, and bytes species has to match ints one
+
+		return I.vectorBitSize() >= 256 && BI.length() == I.length();
+	}
+
+	@Override
+	public void luma(int[] rgb, int offset, byte[] luma, int lumaOffset, int length) {
+
+		int i = 0;
+
+		for (int n = I.loopBound(length); i < n; i += I.length()) {
+			IntVector p = IntVector.fromArray(I, rgb, offset + i);
+			IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xff);
+			IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xff);
+			IntVector b = p.and(0xff);
+			IntVector y = r.mul(77).add(g.mul(151)).add(b.mul(28)).lanewise(VectorOperators.LSHR, 8);
+			((ByteVector) y.convertShape(VectorOperators.I2B, BI, 0)).intoArray(luma, lumaOffset + i);
+		}
+
+		super.luma(rgb, offset + i, luma, lumaOffset + i, length - i);
+	}
+
+	@Override
+	public void absDiff(byte[] a, byte[] b, int offset, byte[] diff, int diffOffset, int length) {
+
+		int i = 0;
+
+		// difference of sign-flipped values is the same as difference of unsigned values, and it
+		// always fits in unsigned byte
+
+		for (int n = B.loopBound(length); i < n; i += B.length()) {
+			ByteVector va = ByteVector.fromArray(B, a, offset + i).lanewise(VectorOperators.XOR, SIGN);
+			ByteVector vb = ByteVector.fromArray(B, b, offset + i).lanewise(VectorOperators.XOR, SIGN);
+			va.max(vb).sub(va.min(vb)).intoArray(diff, diffOffset + i);
+		}
+
+		super.absDiff(a, b, offset + i, diff, diffOffset + i, length - i);
+	}
+
+	@Override
+	public int indexAbove(byte[] values, int from, int to, int threshold) {
+
+		if (threshold > 255) {
+			return to;
+		}
+
+		final byte t = (byte) (Math.max(0, threshold) ^ SIGN);
+
+		int i = from;
+
+		for (int n = from + B.loopBound(to - from); i < n; i += B.length()) {
+			VectorMask<Byte> above = ByteVector.fromArray(B, values, i)
+				.lanewise(VectorOperators.XOR, SIGN)
+				.compare(VectorOperators.GE, t);
+			if (above.anyTrue()) {
+				return i + above.firstTrue();
+			}
+		}
+
+		return super.indexAbove(values, i, to, threshold);
+	}
+
+	@Override
+	public int countAbove(byte[] values, int from, int to, int threshold) {
+
+		if (threshold > 255) {
+			return 0;
+		}
+
+		final byte t = (byte) (Math.max(0, threshold) ^ SIGN);
+
+		int i = from;
+		int count = 0;
+
+		for (int n = from + B.loopBound(to - from); i < n; i += B.length()) {
+			count += ByteVector.fromArray(B, values, i)
+				.lanewise(VectorOperators.XOR, SIGN)
+				.compare(VectorOperators.GE, t)
+				.trueCount();
+		}
+
+		return count + super.countAbove(values, i, to, threshold);
+	}
+
+	@Override
+	public void addRow(int[] sums, byte[] add, int addOffset, int length) {
+
+		int i = 0;
+
+		for (int n = I.loopBound(length); i < n; i += I.length()) {
+			IntVector.fromArray(I, sums, i)
+				.add(widen(add, addOffset + i))
+				.intoArray(sums, i);
+		}
+
+		for (; i < length; i++) {
+			sums[i] += add[addOffset + i] & 0xff;
+		}
+	}
+
+	@Override
+	public void slideRow(int[] sums, byte[] add, int addOffset, byte[] sub, int subOffset, int length) {
+
+		int i = 0;
+
+		for (int n = I.loopBound(length); i < n; i += I.length()) {
+			IntVector.fromArray(I, sums, i)
+				.add(widen(add, addOffset + i))
+				.sub(widen(sub, subOffset + i))
+				.intoArray(sums, i);
+		}
+
+		for (; i < length; i++) {
+			sums[i] += (add[addOffset + i] & 0xff) - (sub[subOffset + i] & 0xff);
+		}
+	}
+
+	/**
+	 * Load unsigned bytes and widen them to ints.
+	 */
+	private static IntVector widen(byte[] bytes, int offset) {
+		return ((IntVector) ByteVector.fromArray(BI, bytes, offset).convertShape(VectorOperators.B2I, I, 0)).and(0xff);
+	}
+}
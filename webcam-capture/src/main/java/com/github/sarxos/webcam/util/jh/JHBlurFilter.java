@@ -165,7 +165,7 @@ public class JHBlurFilter extends JHFilter {
 		for (int y = 0; y < height; y++) {
 			int outIndex = y;
 
-			out[outIndex] = in[0];
+			out[outIndex] = in[inIndex];
 			outIndex += height;
 			for (int x = 1; x < width - 1; x++) {
 				int i = inIndex + x;
@@ -196,7 +196,7 @@ public class JHBlurFilter extends JHFilter {
 				out[outIndex] = (a1 << 24) | (r1 << 16) | (g1 << 8) | b1;
 				outIndex += height;
 			}
-			out[outIndex] = in[width - 1];
+			out[outIndex] = in[inIndex + width - 1];
 			inIndex += width;
 		}
 	}
@@ -0,0 +1,295 @@
+package com.github.sarxos.webcam.util.jh;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+
+import com.github.sarxos.webcam.util.PixelKernels;
+
+
+/**
+ * Fused gray and box blur filter. Image is first converted to 8-bit luma, with the same weights
+ * as {@link JHGrayFilter} uses, and then blurred with separable sliding window box blur on the
+ * single channel plane, with edge pixels clamped. The result is a compact byte[] plane of luma
+ * values, one byte per pixel, which can be also wrapped in {@link BufferedImage#TYPE_BYTE_GRAY}
+ * image.<br>
+ * <br>
+ * Working buffers are kept and reused between calls, so instance of this filter must not be used
+ * by many threads at the same time. Alpha channel is ignored. Luma conversion and vertical blur
+ * are done with {@link PixelKernels}.
+ *
+ * @author Bartosz Firyn (sarxos)
+ */
+public class JHGrayBlurFilter extends JHFilter {
+
+	private final PixelKernels kernels = PixelKernels.getDefault();
+
+	private final int hRadius;
+	private final int vRadius;
+
+	/**
+	 * Division tables, divide[sum] = sum / (2 * radius + 1).
+	 */
+	private final int[] hDivide;
+	private final int[] vDivide;
+
+	/**
+	 * Luma of rows needed to blur requested rows, and the same rows blurred horizontally.
+	 */
+	private byte[] luma = new byte[0];
+	private byte[] blurred = new byte[0];
+
+	/**
+	 * Rows buffers.
+	 */
+	private int[] pixels = new int[0];
+	private byte[] bytes = new byte[0];
+	private int[] sums = new int[0];
+
+	/**
+	 * Create fused gray and blur filter.
+	 *
+	 * @param hRadius the horizontal blur radius
+	 * @param vRadius the vertical blur radius
+	 */
+	public JHGrayBlurFilter(int hRadius, int vRadius) {
+
+		if (hRadius < 0 || vRadius < 0) {
+			throw new IllegalArgumentException("Blur radius cannot be negative");
+		}
+
+		this.hRadius = hRadius;
+		this.vRadius = vRadius;
+		this.hDivide = divide(hRadius);
+		this.vDivide = divide(vRadius);
+	}
+
+	private static int[] divide(int radius) {
+		int size = 2 * radius + 1;
+		int[] divide = new int[256 * size];
+		for (int i = 0; i < divide.length; i++) {
+			divide[i] = i / size;
+		}
+		return divide;
+	}
+
+	public int getHRadius() {
+		return hRadius;
+	}
+
+	public int getVRadius() {
+		return vRadius;
+	}
+
+	/**
+	 * Filter image into {@link BufferedImage#TYPE_BYTE_GRAY} image. Luma values are stored in
+	 * destination image raster as they are, without any color space conversion.
+	 *
+	 * @param src the source image
+	 * @param dst the destination gray image of the same size, or null to create new one
+	 * @return Destination image
+	 */
+	@Override
+	public BufferedImage filter(BufferedImage src, BufferedImage dst) {
+
+		if (dst == null) {
+			dst = createCompatibleDestImage(src, null);
+		} else if (dst.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+			throw new IllegalArgumentException("Destination image must be of TYPE_BYTE_GRAY type");
+		}
+
+		WritableRaster raster = dst.getRaster();
+		if (raster.getParent() == null && raster.getDataBuffer().getOffset() == 0) {
+			filterLuma(src, ((DataBufferByte) raster.getDataBuffer()).getData());
+		} else {
+			raster.setDataElements(0, 0, src.getWidth(), src.getHeight(), filterLuma(src, null));
+		}
+
+		return dst;
+	}
+
+	@Override
+	public BufferedImage createCompatibleDestImage(BufferedImage src, ColorModel dstCM) {
+		return new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+	}
+
+	/**
+	 * Filter image into luma plane.
+	 *
+	 * @param src the source image
+	 * @param dst the destination plane, or null to create new one
+	 * @return Plane of blurred luma values, indexed in row-major order (y * w + x)
+	 */
+	public byte[] filterLuma(BufferedImage src, byte[] dst) {
+		return filterLuma(src, dst, 0, src.getHeight());
+	}
+
+	/**
+	 * Filter given rows of image into luma plane. Only rows y0 to y1 - 1 of destination plane
+	 * are written, and they are exactly the same as when whole image is filtered, so image can be
+	 * filtered in bands, each with its own filter instance.
+	 *
+	 * @param src the source image
+	 * @param dst the destination plane of the whole image, or null to create new one
+	 * @param y0 the first row (inclusive)
+	 * @param y1 the last row (exclusive)
+	 * @return Plane of blurred luma values, indexed in row-major order (y * w + x)
+	 */
+	public byte[] filterLuma(BufferedImage src, byte[] dst, int y0, int y1) {
+
+		final int w = src.getWidth();
+		final int h = src.getHeight();
+
+		if (y0 < 0 || y1 > h || y0 > y1) {
+			throw new IllegalArgumentException(String.format("Invalid rows range %d - %d", y0, y1));
+		}
+
+		if (dst == null) {
+			dst = new byte[w * h];
+		} else if (dst.length < w * h) {
+			throw new IllegalArgumentException("Destination plane is too small");
+		}
+
+		if (y0 == y1) {
+			return dst;
+		}
+
+		// rows needed to blur requested rows vertically
+
+		final int r = vRadius;
+		final int ys = Math.max(0, y0 - r);
+		final int ye = Math.min(h, y1 + r);
+		final int n = (ye - ys) * w;
+
+		if (luma.length < n) {
+			luma = new byte[n];
+			blurred = new byte[n];
+		}
+		if (pixels.length < w) {
+			pixels = new int[w];
+			bytes = new byte[w * 3];
+			sums = new int[w];
+		}
+
+		for (int y = ys; y < ye; y++) {
+			luma(src, y, w, (y - ys) * w);
+			blurHorizontal((y - ys) * w, w);
+		}
+
+		blurVertical(dst, w, h, y0, y1, ys);
+
+		return dst;
+	}
+
+	/**
+	 * Convert image row to luma.
+	 */
+	private void luma(BufferedImage src, int y, int w, int offset) {
+
+		final int[] row = pixels;
+		final WritableRaster raster = src.getRaster();
+
+		switch (src.getType()) {
+
+			case BufferedImage.TYPE_INT_RGB:
+			case BufferedImage.TYPE_INT_ARGB:
+				raster.getDataElements(0, y, w, 1, row);
+				break;
+
+			case BufferedImage.TYPE_3BYTE_BGR: {
+
+				// data elements are returned in bands order, which is R, G, B
+
+				raster.getDataElements(0, y, w, 1, bytes);
+				for (int x = 0, j = 0; x < w; x++, j += 3) {
+					luma[offset + x] = (byte) (((bytes[j] & 0xff) * 77 + (bytes[j + 1] & 0xff) * 151 + (bytes[j + 2] & 0xff) * 28) >> 8);
+				}
+				return;
+			}
+
+			default:
+				src.getRGB(0, y, w, 1, row, 0, w);
+				break;
+		}
+
+		kernels.luma(row, 0, luma, offset, w);
+	}
+
+	/**
+	 * Blur one row of luma plane horizontally with sliding window.
+	 */
+	private void blurHorizontal(int offset, int w) {
+
+		final byte[] in = luma;
+		final byte[] out = blurred;
+		final int[] divide = hDivide;
+		final int r = hRadius;
+		final int last = w - 1;
+
+		int sum = 0;
+		for (int i = -r; i <= r; i++) {
+			sum += in[offset + clamp(i, 0, last)] & 0xff;
+		}
+
+		for (int x = 0; x < w; x++) {
+			out[offset + x] = (byte) divide[sum];
+			int i1 = x + r + 1;
+			if (i1 > last) {
+				i1 = last;
+			}
+			int i2 = x - r;
+			if (i2 < 0) {
+				i2 = 0;
+			}
+			sum += (in[offset + i1] & 0xff) - (in[offset + i2] & 0xff);
+		}
+	}
+
+	/**
+	 * Blur horizontally blurred rows vertically, with sliding window of column sums.
+	 */
+	private void blurVertical(byte[] dst, int w, int h, int y0, int y1, int ys) {
+
+		final byte[] in = blurred;
+		final int[] divide = vDivide;
+		final int[] sums = this.sums;
+		final int r = vRadius;
+		final int last = h - 1;
+
+		// rows outside of image are clamped to image edges, not band edges, all these rows are
+		// available in the buffer
+
+		for (int x = 0; x < w; x++) {
+			sums[x] = 0;
+		}
+		for (int i = -r; i <= r; i++) {
+			kernels.addRow(sums, in, (clamp(y0 + i, 0, last) - ys) * w, w);
+		}
+
+		for (int y = y0; y < y1; y++) {
+
+			int o = y * w;
+			for (int x = 0; x < w; x++) {
+				dst[o + x] = (byte) divide[sums[x]];
+			}
+
+			if (y + 1 == y1) {
+				break;
+			}
+
+			int o1 = (Math.min(y + r + 1, last) - ys) * w;
+			int o2 = (Math.max(y - r, 0) - ys) * w;
+			kernels.slideRow(sums, in, o1, in, o2, w);
+		}
+	}
+
+	private static int clamp(int x, int a, int b) {
+		return (x < a) ? a : (x > b) ? b : x;
+	}
+
+	@Override
+	public String toString() {
+		return "Blur/Gray Box Blur...";
+	}
+}
@@ -0,0 +1,154 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.ds.test.DummyDevice;
+import com.github.sarxos.webcam.util.ImageUtils;
+
+
+public class WebcamCompressedFrameTest {
+
+	/**
+	 * Device providing compressed frames which counts how many have been read.
+	 */
+	private static final class CompressedDevice extends DummyDevice implements WebcamDevice.CompressedAccess {
+
+		private final AtomicInteger reads = new AtomicInteger(0);
+
+		private final boolean consumed;
+
+		public CompressedDevice(boolean consumed) {
+			this.consumed = consumed;
+		}
+
+		@Override
+		public WebcamCompressedFrame getCompressedFrame() {
+			reads.incrementAndGet();
+			byte[] jpeg = ImageUtils.toByteArray(getImage(), ImageUtils.FORMAT_JPG);
+			return new WebcamCompressedFrame(jpeg, WebcamCompressedFrame.CONTENT_TYPE_JPEG, System.nanoTime());
+		}
+
+		@Override
+		public boolean isFrameConsumed() {
+			return consumed;
+		}
+	}
+
+	private static Webcam open(final CompressedDevice device, boolean async) {
+
+		Webcam.setDriver(new WebcamDriver() {
+
+			@Override
+			public List<WebcamDevice> getDevices() {
+				return Collections.<WebcamDevice> singletonList(device);
+			}
+
+			@Override
+			public boolean isThreadSafe() {
+				return true;
+			}
+		});
+
+		Webcam webcam = Webcam.getDefault();
+		webcam.open(async);
+
+		return webcam;
+	}
+
+	@After
+	public void after() {
+		Webcam.resetDriver();
+	}
+
+	@Test
+	public void test_decode() {
+
+		byte[] jpeg = ImageUtils.toByteArray(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), ImageUtils.FORMAT_JPG);
+		WebcamCompressedFrame frame = new WebcamCompressedFrame(jpeg, "IMAGE/JPEG", 1);
+
+		Assertions
+			.assertThat(frame.isJpeg())
+			.isTrue();
+		Assertions
+			.assertThat(frame.getLength())
+			.isEqualTo(jpeg.length);
+		Assertions
+			.assertThat(frame.decode().getWidth())
+			.isEqualTo(64);
+	}
+
+	@Test
+	public void test_decodeInvalid() {
+
+		WebcamCompressedFrame frame = new WebcamCompressedFrame(new byte[] { 1, 2, 3 }, "image/png", 1);
+
+		Assertions
+			.assertThat(frame.isJpeg())
+			.isFalse();
+		Assertions
+			.assertThat(frame.decode())
+			.isNull();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_nullBytes() {
+		new WebcamCompressedFrame(null, WebcamCompressedFrame.CONTENT_TYPE_JPEG, 1);
+	}
+
+	@Test
+	public void test_consumedFrameNotReadInAsyncMode() {
+
+		CompressedDevice device = new CompressedDevice(true);
+		Webcam webcam = open(device, true);
+
+		// updater reads images from the same stream, compressed frame would be lost for it
+
+		Assertions
+			.assertThat(webcam.isCompressedFrameSupported())
+			.isFalse();
+		Assertions
+			.assertThat(webcam.getCompressedFrame())
+			.isNull();
+		Assertions
+			.assertThat(device.reads.get())
+			.isEqualTo(0);
+
+		webcam.close();
+		webcam.open(false);
+
+		Assertions
+			.assertThat(webcam.isCompressedFrameSupported())
+			.isTrue();
+		Assertions
+			.assertThat(webcam.getCompressedFrame())
+			.isNotNull();
+
+		webcam.close();
+	}
+
+	@Test
+	public void test_sharedFrameReadInAsyncMode() {
+
+		CompressedDevice device = new CompressedDevice(false);
+		Webcam webcam = open(device, true);
+
+		Assertions
+			.assertThat(webcam.isCompressedFrameSupported())
+			.isTrue();
+		Assertions
+			.assertThat(webcam.getCompressedFrame())
+			.isNotNull();
+		Assertions
+			.assertThat(device.reads.get())
+			.isEqualTo(1);
+
+		webcam.close();
+	}
+}
@@ -0,0 +1,86 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class WebcamFrameRingTest {
+
+	private static final BufferedImage IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+	@Test
+	public void test_empty() {
+
+		final WebcamFrameRing ring = new WebcamFrameRing(4);
+
+		Assertions
+			.assertThat(ring.getLatest())
+			.isNull();
+		Assertions
+			.assertThat(ring.getSequence())
+			.isEqualTo(0);
+		Assertions
+			.assertThat(ring.getFramesAfter(0))
+			.isEmpty();
+	}
+
+	@Test
+	public void test_publish() {
+
+		final WebcamFrameRing ring = new WebcamFrameRing(4);
+		final WebcamFrame frame1 = ring.publish(IMAGE, 100);
+		final WebcamFrame frame2 = ring.publish(IMAGE, 200);
+
+		Assertions
+			.assertThat(frame1.getSequence())
+			.isEqualTo(1);
+		Assertions
+			.assertThat(frame2.getSequence())
+			.isEqualTo(2);
+		Assertions
+			.assertThat(frame2.getTimestamp())
+			.isEqualTo(200);
+		Assertions
+			.assertThat(ring.getLatest())
+			.isSameAs(frame2);
+		Assertions
+			.assertThat(ring.getFramesAfter(0))
+			.containsExactly(frame1, frame2);
+		Assertions
+			.assertThat(ring.getFramesAfter(1))
+			.containsExactly(frame2);
+		Assertions
+			.assertThat(ring.getFramesAfter(2))
+			.isEmpty();
+	}
+
+	@Test
+	public void test_overwrite() {
+
+		final WebcamFrameRing ring = new WebcamFrameRing(3);
+
+		for (int i = 0; i < 10; i++) {
+			ring.publish(IMAGE, i);
+		}
+
+		final List<WebcamFrame> frames = ring.getFramesAfter(2);
+
+		Assertions
+			.assertThat(frames)
+			.hasSize(3);
+		Assertions
+			.assertThat(frames.get(0).getSequence())
+			.isEqualTo(8);
+		Assertions
+			.assertThat(frames.get(2).getSequence())
+			.isEqualTo(10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_zeroCapacity() {
+		new WebcamFrameRing(0);
+	}
+}
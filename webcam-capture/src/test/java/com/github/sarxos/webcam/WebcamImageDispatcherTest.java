@@ -0,0 +1,143 @@
+package com.github.sarxos.webcam;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+
+
+public class WebcamImageDispatcherTest {
+
+	/**
+	 * Listener blocked on the first notification until released.
+	 */
+	private static final class BlockingListener implements WebcamListener {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public void webcamOpen(WebcamEvent we) {
+		}
+
+		@Override
+		public void webcamClosed(WebcamEvent we) {
+		}
+
+		@Override
+		public void webcamDisposed(WebcamEvent we) {
+		}
+
+		@Override
+		public void webcamImageObtained(WebcamEvent we) {
+			count.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private static final BufferedImage IMAGE = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+
+	private Webcam webcam;
+
+	@Before
+	public void before() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1));
+		webcam = Webcam.getDefault();
+	}
+
+	@After
+	public void after() {
+		Webcam.resetDriver();
+	}
+
+	private void dispatch(WebcamImageDispatcher dispatcher, BlockingListener listener, int count) throws InterruptedException {
+		dispatcher.dispatch(IMAGE);
+		listener.started.await(5, TimeUnit.SECONDS);
+		for (int i = 1; i < count; i++) {
+			dispatcher.dispatch(IMAGE);
+		}
+	}
+
+	@Test
+	public void test_latest() throws InterruptedException {
+
+		BlockingListener listener = new BlockingListener();
+		webcam.addWebcamListener(listener);
+
+		WebcamImageDispatcher dispatcher = new WebcamImageDispatcher(webcam, WebcamDispatchPolicy.LATEST, 10, false);
+		dispatch(dispatcher, listener, 10);
+
+		listener.release.countDown();
+		dispatcher.shutdown();
+
+		Assertions
+			.assertThat(listener.count.get())
+			.isEqualTo(2);
+		Assertions
+			.assertThat(dispatcher.getDroppedCount())
+			.isEqualTo(8);
+	}
+
+	@Test
+	public void test_dropOldest() throws InterruptedException {
+
+		BlockingListener listener = new BlockingListener();
+		webcam.addWebcamListener(listener);
+
+		WebcamImageDispatcher dispatcher = new WebcamImageDispatcher(webcam, WebcamDispatchPolicy.DROP_OLDEST, 3, false);
+		dispatch(dispatcher, listener, 10);
+
+		listener.release.countDown();
+		dispatcher.shutdown();
+
+		Assertions
+			.assertThat(listener.count.get())
+			.isEqualTo(4);
+		Assertions
+			.assertThat(dispatcher.getDroppedCount())
+			.isEqualTo(6);
+	}
+
+	@Test
+	public void test_perListener() throws InterruptedException {
+
+		BlockingListener slow = new BlockingListener();
+		BlockingListener fast = new BlockingListener();
+		fast.release.countDown();
+
+		webcam.addWebcamListener(slow);
+		webcam.addWebcamListener(fast);
+
+		WebcamImageDispatcher dispatcher = new WebcamImageDispatcher(webcam, WebcamDispatchPolicy.DROP_OLDEST, 3, true);
+		dispatch(dispatcher, slow, 10);
+
+		slow.release.countDown();
+		dispatcher.shutdown();
+
+		// fast listener is not affected by the slow one, it can only miss notifications because
+		// of its own speed
+
+		Assertions
+			.assertThat(fast.count.get() + dispatcher.getDroppedCount(fast))
+			.isEqualTo(10);
+		Assertions
+			.assertThat(slow.count.get())
+			.isEqualTo(4);
+		Assertions
+			.assertThat(dispatcher.getDroppedCount(slow))
+			.isEqualTo(6);
+	}
+}
@@ -0,0 +1,140 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+public class WebcamImageReuseTest {
+
+	private static final long TIMEOUT = 5000;
+
+	private Webcam webcam;
+
+	@Before
+	public void before() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1, new Dimension(176, 144), 100, Pattern.NOISE, PixelFormat.RGB));
+		webcam = Webcam.getDefault();
+	}
+
+	@After
+	public void after() {
+		webcam.close();
+		Webcam.resetDriver();
+	}
+
+	@Test
+	public void test_reuse() throws InterruptedException {
+
+		final AtomicInteger notified = new AtomicInteger(0);
+
+		webcam.setDispatchPolicy(WebcamDispatchPolicy.BLOCKING);
+		webcam.addWebcamListener(new WebcamListener() {
+
+			@Override
+			public void webcamOpen(WebcamEvent we) {
+				// do nothing
+			}
+
+			@Override
+			public void webcamClosed(WebcamEvent we) {
+				// do nothing
+			}
+
+			@Override
+			public void webcamDisposed(WebcamEvent we) {
+				// do nothing
+			}
+
+			@Override
+			public void webcamImageObtained(WebcamEvent we) {
+				notified.incrementAndGet();
+			}
+		});
+		webcam.open();
+
+		BufferedImage image1 = webcam.getImage(null);
+		BufferedImage image2 = webcam.getImage(image1);
+
+		Assertions
+			.assertThat(image1)
+			.isNotNull();
+		Assertions
+			.assertThat(image2)
+			.isSameAs(image1);
+
+		// reused image is measured and passed to listeners the same way as new one
+
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (notified.get() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		Assertions
+			.assertThat(notified.get())
+			.isEqualTo(2);
+		Assertions
+			.assertThat(webcam.getFPS())
+			.isGreaterThan(0.0);
+
+		// image which is not compatible with device images is not reused
+
+		BufferedImage other = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image3 = webcam.getImage(other);
+
+		Assertions
+			.assertThat(image3)
+			.isNotNull();
+		Assertions
+			.assertThat(image3)
+			.isNotSameAs(other);
+	}
+
+	@Test
+	public void test_noReuseWithTransformer() {
+
+		final AtomicInteger transformed = new AtomicInteger(0);
+
+		webcam.setImageTransformer(new WebcamImageTransformer() {
+
+			@Override
+			public BufferedImage transform(BufferedImage image) {
+				transformed.incrementAndGet();
+				return image;
+			}
+		});
+		webcam.open();
+
+		BufferedImage image1 = webcam.getImage();
+		BufferedImage image2 = webcam.getImage(image1);
+
+		Assertions
+			.assertThat(image2)
+			.isNotSameAs(image1);
+		Assertions
+			.assertThat(transformed.get())
+			.isEqualTo(2);
+	}
+
+	@Test
+	public void test_noReuseInAsyncMode() {
+
+		webcam.open(true);
+
+		BufferedImage reuse = new BufferedImage(176, 144, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image = webcam.getImage(reuse);
+
+		Assertions
+			.assertThat(image)
+			.isNotSameAs(reuse);
+	}
+}
@@ -0,0 +1,268 @@
+package com.github.sarxos.webcam;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.WebcamMotionDetectionService.Metrics;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+
+
+public class WebcamMotionDetectionServiceTest {
+
+	/**
+	 * Detector which does not analyze images, it only counts checks and takes given time.
+	 */
+	private static final class StubDetector extends WebcamMotionDetector {
+
+		private final AtomicInteger checks = new AtomicInteger(0);
+
+		private volatile long time;
+
+		public StubDetector(Webcam webcam, long time) {
+			super(webcam, 25, 0.2, 100);
+			this.time = time;
+		}
+
+		@Override
+		protected void detect() {
+			checks.incrementAndGet();
+			if (time > 0) {
+				try {
+					Thread.sleep(time);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	private static final long TIMEOUT = 10000;
+
+	private Webcam webcam;
+
+	private WebcamMotionDetectionService service;
+
+	@Before
+	public void before() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1));
+		webcam = Webcam.getDefault();
+	}
+
+	@After
+	public void after() {
+		if (service != null) {
+			service.shutdown();
+		}
+		Webcam.resetDriver();
+	}
+
+	private static void awaitChecks(StubDetector detector, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (detector.checks.get() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assertions
+			.assertThat(detector.checks.get())
+			.isGreaterThanOrEqualTo(count);
+	}
+
+	private void awaitOverloaded(boolean overloaded) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (service.isOverloaded() != overloaded && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		Assertions
+			.assertThat(service.isOverloaded())
+			.isEqualTo(overloaded);
+	}
+
+	@Test
+	public void test_stretchUnderOverload() throws InterruptedException {
+
+		service = new WebcamMotionDetectionService(1);
+
+		// 4 detectors taking 60 ms each on single thread cannot be checked every 100 ms
+
+		StubDetector[] detectors = new StubDetector[4];
+		for (int i = 0; i < detectors.length; i++) {
+			service.add(detectors[i] = new StubDetector(webcam, 60));
+		}
+
+		awaitOverloaded(true);
+
+		Assertions
+			.assertThat(service.getStretch())
+			.isGreaterThan(1)
+			.isLessThanOrEqualTo(WebcamMotionDetectionService.MAX_STRETCH);
+
+		// metrics report interval used by the check done after intervals have been stretched
+
+		awaitChecks(detectors[0], detectors[0].checks.get() + 2);
+
+		Assertions
+			.assertThat(service.getMetrics(detectors[0]).getInterval())
+			.isGreaterThan(100);
+
+		// overload ends, intervals are restored
+
+		for (StubDetector detector : detectors) {
+			detector.time = 0;
+		}
+
+		awaitOverloaded(false);
+
+		Assertions
+			.assertThat(service.getStretch())
+			.isEqualTo(1.0);
+	}
+
+	@Test
+	public void test_metrics() throws InterruptedException {
+
+		service = new WebcamMotionDetectionService(1);
+
+		StubDetector detector = new StubDetector(webcam, 20);
+		StubDetector other = new StubDetector(webcam, 0);
+
+		Assertions
+			.assertThat(service.getMetrics(other))
+			.isNull();
+
+		service.add(detector);
+		awaitChecks(detector, 3);
+
+		Metrics metrics = service.getMetrics(detector);
+
+		Assertions
+			.assertThat(metrics)
+			.isNotNull();
+		Assertions
+			.assertThat(metrics.getChecks())
+			.isGreaterThanOrEqualTo(2);
+		Assertions
+			.assertThat(metrics.getLatency())
+			.isGreaterThanOrEqualTo(15.0);
+		Assertions
+			.assertThat(metrics.getAverageLatency())
+			.isGreaterThanOrEqualTo(15.0);
+		Assertions
+			.assertThat(metrics.getMaxLatency())
+			.isGreaterThanOrEqualTo(metrics.getLatency());
+		Assertions
+			.assertThat(metrics.getLag())
+			.isGreaterThanOrEqualTo(0.0);
+		Assertions
+			.assertThat(metrics.getMaxLag())
+			.isGreaterThanOrEqualTo(metrics.getLag());
+		Assertions
+			.assertThat(metrics.getInterval())
+			.isEqualTo(100);
+	}
+
+	@Test
+	public void test_removedNotChecked() throws InterruptedException {
+
+		service = new WebcamMotionDetectionService(2);
+
+		StubDetector removed = new StubDetector(webcam, 0);
+		StubDetector kept = new StubDetector(webcam, 0);
+
+		service.add(removed);
+		service.add(kept);
+		awaitChecks(removed, 2);
+
+		Assertions
+			.assertThat(service.remove(removed))
+			.isTrue();
+		Assertions
+			.assertThat(service.remove(removed))
+			.isFalse();
+		Assertions
+			.assertThat(removed.getService())
+			.isNull();
+		Assertions
+			.assertThat(service.getMetrics(removed))
+			.isNull();
+
+		Thread.sleep(50); // check which was already running completes
+		int count = removed.checks.get();
+		awaitChecks(kept, kept.checks.get() + 3);
+
+		Assertions
+			.assertThat(removed.checks.get())
+			.isEqualTo(count);
+	}
+
+	@Test
+	public void test_stoppedNotChecked() throws InterruptedException {
+
+		service = new WebcamMotionDetectionService(2);
+
+		StubDetector stopped = new StubDetector(webcam, 0);
+		StubDetector kept = new StubDetector(webcam, 0);
+
+		service.add(stopped);
+		service.add(kept);
+		awaitChecks(stopped, 2);
+
+		stopped.stop();
+
+		Assertions
+			.assertThat(service.getDetectors())
+			.contains(stopped);
+		Assertions
+			.assertThat(service.getMetrics(stopped))
+			.isNull();
+
+		Thread.sleep(50); // check which was already running completes
+		int count = stopped.checks.get();
+		awaitChecks(kept, kept.checks.get() + 3);
+
+		Assertions
+			.assertThat(stopped.checks.get())
+			.isEqualTo(count);
+
+		// detector stopped in the service can be started again
+
+		stopped.start();
+		awaitChecks(stopped, count + 1);
+	}
+
+	@Test
+	public void test_shutdown() throws InterruptedException {
+
+		service = new WebcamMotionDetectionService(1);
+
+		StubDetector detector = new StubDetector(webcam, 0);
+		service.add(detector);
+		awaitChecks(detector, 2);
+
+		service.shutdown();
+
+		Assertions
+			.assertThat(service.isShutdown())
+			.isTrue();
+		Assertions
+			.assertThat(service.getDetectors())
+			.isEmpty();
+
+		Thread.sleep(50); // check which was already running completes
+		int count = detector.checks.get();
+		Thread.sleep(300);
+
+		Assertions
+			.assertThat(detector.checks.get())
+			.isEqualTo(count);
+
+		try {
+			service.add(new StubDetector(webcam, 0));
+			Assertions.fail("Detector should not be added to service which has been shut down");
+		} catch (IllegalStateException e) {
+			// ok
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class WebcamMotionDetectorBackgroundAlgorithmTest {
+
+	private static BufferedImage image(int type, int level, long seed, int ox, int oy) {
+		Random r = new Random(seed);
+		BufferedImage image = new BufferedImage(160, 120, type);
+		for (int y = 0; y < 120; y++) {
+			for (int x = 0; x < 160; x++) {
+				int v = Math.min(255, level + r.nextInt(5));
+				if (x >= ox && x < ox + 20 && y >= oy && y < oy + 20) {
+					v = 255 - v;
+				}
+				image.setRGB(x, y, v << 16 | v << 8 | v);
+			}
+		}
+		return image;
+	}
+
+	@Test
+	public void test_noMotionOnFirstImage() {
+
+		WebcamMotionDetectorBackgroundAlgorithm algorithm = new WebcamMotionDetectorBackgroundAlgorithm();
+		BufferedImage image = image(BufferedImage.TYPE_INT_RGB, 100, 0, 40, 40);
+
+		Assertions
+			.assertThat(algorithm.detect(null, algorithm.filter(image)))
+			.isFalse();
+		Assertions
+			.assertThat(algorithm.getCog())
+			.isEqualTo(new Point(80, 60));
+	}
+
+	@Test
+	public void test_detectObject() {
+
+		int[] types = new int[] {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_BYTE_GRAY,
+		};
+
+		for (int type : types) {
+
+			WebcamMotionDetectorBackgroundAlgorithm algorithm = new WebcamMotionDetectorBackgroundAlgorithm();
+
+			for (int i = 0; i < 20; i++) {
+				algorithm.detect(null, image(type, 100, i, -100, -100));
+			}
+
+			Assertions
+				.assertThat(algorithm.detect(null, image(type, 100, 99, 100, 60)))
+				.isTrue();
+			Assertions
+				.assertThat(algorithm.getCog())
+				.isEqualTo(new Point(109, 69));
+			Assertions
+				.assertThat(algorithm.getPoints().get(0))
+				.isEqualTo(new Point(100, 60));
+		}
+	}
+
+	@Test
+	public void test_sameForDifferentImageTypes() {
+
+		WebcamMotionDetectorBackgroundAlgorithm rgb = new WebcamMotionDetectorBackgroundAlgorithm();
+		WebcamMotionDetectorBackgroundAlgorithm bgr = new WebcamMotionDetectorBackgroundAlgorithm();
+		Random r = new Random(5);
+
+		for (int i = 0; i < 10; i++) {
+
+			BufferedImage a = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+			BufferedImage b = new BufferedImage(64, 48, BufferedImage.TYPE_3BYTE_BGR);
+
+			for (int y = 0; y < 48; y++) {
+				for (int x = 0; x < 64; x++) {
+					int c = r.nextInt(0x1000000);
+					a.setRGB(x, y, c);
+					b.setRGB(x, y, c);
+				}
+			}
+
+			Assertions
+				.assertThat(bgr.detect(null, b))
+				.isEqualTo(rgb.detect(null, a));
+			Assertions
+				.assertThat(bgr.getArea())
+				.isEqualTo(rgb.getArea());
+			Assertions
+				.assertThat(bgr.getCog())
+				.isEqualTo(rgb.getCog());
+		}
+	}
+
+	@Test
+	public void test_adaptToSlowLightingChange() {
+
+		WebcamMotionDetectorBackgroundAlgorithm algorithm = new WebcamMotionDetectorBackgroundAlgorithm();
+
+		for (int i = 0; i < 100; i++) {
+			algorithm.detect(null, image(BufferedImage.TYPE_INT_RGB, 50 + i, i, -100, -100));
+			if (i > 10) {
+				Assertions
+					.assertThat(algorithm.getArea())
+					.isEqualTo(0d);
+			}
+		}
+	}
+}
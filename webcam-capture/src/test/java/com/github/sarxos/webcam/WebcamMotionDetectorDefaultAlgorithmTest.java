@@ -0,0 +1,313 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class WebcamMotionDetectorDefaultAlgorithmTest {
+
+	/**
+	 * Reference implementation, the original column-major detection loop.
+	 */
+	private static final class Reference {
+
+		final ArrayList<Point> points = new ArrayList<Point>();
+		final ArrayList<Integer> thresholds = new ArrayList<Integer>();
+		double area;
+		Point cog;
+
+		boolean detect(BufferedImage previous, BufferedImage current, int threshold, int range, int maxPoints, List<Rectangle> zones) {
+
+			int p = 0;
+			int cogX = 0;
+			int cogY = 0;
+			int j = 0;
+			int w = current.getWidth();
+			int h = current.getHeight();
+
+			for (int x = 0; x < w; x++) {
+				for (int y = 0; y < h; y++) {
+
+					boolean skip = false;
+					for (Rectangle zone : zones) {
+						if (zone.contains(x, y)) {
+							skip = true;
+						}
+					}
+					if (skip) {
+						continue;
+					}
+
+					int pid = combine(current.getRGB(x, y), previous.getRGB(x, y)) & 0xff;
+
+					if (pid >= threshold) {
+						Point pp = new Point(x, y);
+						boolean keep = j < maxPoints;
+						if (keep) {
+							for (Point g : points) {
+								if (g.x != pp.x || g.y != pp.y) {
+									if (pp.distance(g) <= range) {
+										keep = false;
+										break;
+									}
+								}
+							}
+						}
+						if (keep) {
+							points.add(new Point(x, y));
+							j += 1;
+						}
+						cogX += x;
+						cogY += y;
+						p += 1;
+						thresholds.add(pid);
+					}
+				}
+			}
+
+			area = p * 100d / (w * h);
+
+			if (area >= WebcamMotionDetectorDefaultAlgorithm.DEFAULT_AREA_THREASHOLD && area <= 100) {
+				cog = new Point(cogX / p, cogY / p);
+				return true;
+			} else {
+				cog = new Point(w / 2, h / 2);
+				return false;
+			}
+		}
+
+		static int combine(int rgb1, int rgb2) {
+			int a1 = (rgb1 >> 24) & 0xff;
+			int r1 = (rgb1 >> 16) & 0xff;
+			int g1 = (rgb1 >> 8) & 0xff;
+			int b1 = rgb1 & 0xff;
+			int a2 = (rgb2 >> 24) & 0xff;
+			int r2 = (rgb2 >> 16) & 0xff;
+			int g2 = (rgb2 >> 8) & 0xff;
+			int b2 = rgb2 & 0xff;
+			r1 = clamp(Math.abs(r1 - r2));
+			g1 = clamp(Math.abs(g1 - g2));
+			b1 = clamp(Math.abs(b1 - b2));
+			if (a1 != 0xff) {
+				a1 = a1 * 0xff / 255;
+				int a3 = (255 - a1) * a2 / 255;
+				r1 = clamp((r1 * a1 + r2 * a3) / 255);
+				g1 = clamp((g1 * a1 + g2 * a3) / 255);
+				b1 = clamp((b1 * a1 + b2 * a3) / 255);
+				a1 = clamp(a1 + a3);
+			}
+			return (a1 << 24) | (r1 << 16) | (g1 << 8) | b1;
+		}
+
+		static int clamp(int c) {
+			return c < 0 ? 0 : c > 255 ? 255 : c;
+		}
+	}
+
+	private static BufferedImage create(int type, int w, int h) {
+		if (type != BufferedImage.TYPE_CUSTOM) {
+			return new BufferedImage(w, h, type);
+		}
+		ComponentSampleModel sm = new ComponentSampleModel(DataBuffer.TYPE_BYTE, w, h, 3, w * 3, new int[] { 0, 1, 2 });
+		ComponentColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8 }, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+		return new BufferedImage(cm, Raster.createWritableRaster(sm, new DataBufferByte(w * h * 3), null), false, null);
+	}
+
+	/**
+	 * Create pair of gray images with random gray background and few changed rectangles.
+	 */
+	private static BufferedImage[] images(int type, int w, int h, long seed) {
+
+		Random r = new Random(seed);
+		BufferedImage a = create(type, w, h);
+		BufferedImage b = create(type, w, h);
+
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int v = 100 + r.nextInt(20);
+				int alpha = type == BufferedImage.TYPE_INT_ARGB && r.nextInt(10) == 0 ? r.nextInt(256) : 0xff;
+				a.setRGB(x, y, alpha << 24 | v << 16 | v << 8 | v);
+				b.setRGB(x, y, alpha << 24 | v << 16 | v << 8 | v);
+			}
+		}
+
+		for (int k = 0; k < 5; k++) {
+			int rx = r.nextInt(w);
+			int ry = r.nextInt(h);
+			int rw = 1 + r.nextInt(w / 3);
+			int rh = 1 + r.nextInt(h / 3);
+			int v = r.nextInt(256);
+			for (int y = ry; y < Math.min(h, ry + rh); y++) {
+				for (int x = rx; x < Math.min(w, rx + rw); x++) {
+					b.setRGB(x, y, 0xff000000 | v << 16 | v << 8 | v);
+				}
+			}
+		}
+
+		return new BufferedImage[] { a, b };
+	}
+
+	private static void compare(int type, int w, int h, long seed, int range, int maxPoints, List<Rectangle> zones) {
+
+		BufferedImage[] images = images(type, w, h, seed);
+
+		Reference reference = new Reference();
+		boolean expected = reference.detect(images[0], images[1], WebcamMotionDetectorDefaultAlgorithm.DEFAULT_PIXEL_THREASHOLD, range, maxPoints, zones);
+
+		WebcamMotionDetectorDefaultAlgorithm algorithm = new WebcamMotionDetectorDefaultAlgorithm();
+		algorithm.setPointRange(range);
+		algorithm.setMaxPoints(maxPoints);
+		algorithm.setDoNotEngageZones(zones);
+
+		boolean actual = algorithm.detect(images[0], images[1]);
+
+		Assertions
+			.assertThat(actual)
+			.isEqualTo(expected);
+		Assertions
+			.assertThat(algorithm.getArea())
+			.isEqualTo(reference.area);
+		Assertions
+			.assertThat(algorithm.getCog())
+			.isEqualTo(reference.cog);
+		Assertions
+			.assertThat(algorithm.getPoints())
+			.isEqualTo(reference.points);
+		Assertions
+			.assertThat(algorithm.getThresholds())
+			.isEqualTo(reference.thresholds);
+	}
+
+	@Test
+	public void test_detectSameAsReference() {
+
+		int[] types = new int[] {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_BYTE_GRAY,
+			BufferedImage.TYPE_CUSTOM,
+		};
+
+		for (int type : types) {
+			for (long seed = 0; seed < 4; seed++) {
+				compare(type, 97, 61, seed, 10, 100, new ArrayList<Rectangle>());
+				compare(type, 160, 120, seed, WebcamMotionDetectorDefaultAlgorithm.DEFAULT_RANGE, WebcamMotionDetectorDefaultAlgorithm.DEFAULT_MAX_POINTS, new ArrayList<Rectangle>());
+			}
+		}
+	}
+
+	@Test
+	public void test_detectWithZonesSameAsReference() {
+
+		List<Rectangle> zones = Arrays.asList(new Rectangle(10, 10, 30, 20), new Rectangle(50, 0, 10, 120));
+
+		int[] types = new int[] {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_CUSTOM,
+		};
+
+		for (int type : types) {
+			for (long seed = 0; seed < 4; seed++) {
+				compare(type, 160, 120, seed, 5, 1000, zones);
+			}
+		}
+	}
+
+	@Test
+	public void test_manyPointsSameAsReference() {
+		for (int range : new int[] { -1, 0, 1, 3, 20 }) {
+			compare(BufferedImage.TYPE_INT_RGB, 160, 120, range, range, 5000, new ArrayList<Rectangle>());
+		}
+	}
+
+	@Test
+	public void test_parallelSameAsSerial() {
+
+		List<Rectangle> zones = Arrays.asList(new Rectangle(40, 30, 50, 200));
+
+		for (int type : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR }) {
+
+			BufferedImage[] images = images(type, 320, 240, type);
+
+			WebcamMotionDetectorDefaultAlgorithm serial = new WebcamMotionDetectorDefaultAlgorithm();
+			serial.setParallelThreshold(Integer.MAX_VALUE);
+			serial.setDoNotEngageZones(zones);
+			serial.setPointRange(5);
+			serial.setMaxPoints(1000);
+
+			WebcamMotionDetectorDefaultAlgorithm parallel = new WebcamMotionDetectorDefaultAlgorithm();
+			parallel.setParallelThreshold(0);
+			parallel.setParallelBands(5);
+			parallel.setDoNotEngageZones(zones);
+			parallel.setPointRange(5);
+			parallel.setMaxPoints(1000);
+
+			BufferedImage sp = serial.filter(images[0]);
+			BufferedImage sc = serial.filter(images[1]);
+			BufferedImage pp = parallel.filter(images[0]);
+			BufferedImage pc = parallel.filter(images[1]);
+
+			for (int y = 0; y < 240; y++) {
+				for (int x = 0; x < 320; x++) {
+					Assertions
+						.assertThat(pc.getRGB(x, y))
+						.isEqualTo(sc.getRGB(x, y));
+				}
+			}
+
+			Assertions
+				.assertThat(parallel.detect(pp, pc))
+				.isEqualTo(serial.detect(sp, sc));
+			Assertions
+				.assertThat(parallel.getArea())
+				.isEqualTo(serial.getArea());
+			Assertions
+				.assertThat(parallel.getCog())
+				.isEqualTo(serial.getCog());
+			Assertions
+				.assertThat(parallel.getPoints())
+				.isEqualTo(serial.getPoints());
+			Assertions
+				.assertThat(parallel.getThresholds())
+				.isEqualTo(serial.getThresholds());
+		}
+	}
+
+	@Test
+	public void test_noMotion() {
+
+		BufferedImage image = create(BufferedImage.TYPE_INT_RGB, 64, 48);
+		WebcamMotionDetectorDefaultAlgorithm algorithm = new WebcamMotionDetectorDefaultAlgorithm();
+
+		Assertions
+			.assertThat(algorithm.detect(image, image))
+			.isFalse();
+		Assertions
+			.assertThat(algorithm.getArea())
+			.isEqualTo(0d);
+		Assertions
+			.assertThat(algorithm.getCog())
+			.isEqualTo(new Point(32, 24));
+		Assertions
+			.assertThat(algorithm.getPoints())
+			.isEmpty();
+	}
+}
@@ -0,0 +1,164 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class WebcamMotionDetectorPyramidAlgorithmTest {
+
+	private static BufferedImage image(Rectangle... objects) {
+		BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.GRAY);
+		g.fillRect(0, 0, 640, 480);
+		g.setColor(Color.WHITE);
+		for (Rectangle object : objects) {
+			g.fill(object);
+		}
+		g.dispose();
+		return image;
+	}
+
+	@Test
+	public void test_noMotion() {
+
+		WebcamMotionDetectorPyramidAlgorithm algorithm = new WebcamMotionDetectorPyramidAlgorithm();
+
+		BufferedImage previous = algorithm.filter(image());
+		BufferedImage current = algorithm.filter(image());
+
+		Assertions
+			.assertThat(previous.getWidth())
+			.isEqualTo(160);
+		Assertions
+			.assertThat(algorithm.detect(previous, current))
+			.isFalse();
+		Assertions
+			.assertThat(algorithm.getRegions())
+			.isEmpty();
+	}
+
+	@Test
+	public void test_filterImageTypes() {
+
+		BufferedImage rgb = image(new Rectangle(400, 300, 40, 40));
+		BufferedImage bgr = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+		BufferedImage other = new BufferedImage(640, 480, BufferedImage.TYPE_INT_BGR);
+		bgr.getGraphics().drawImage(rgb, 0, 0, null);
+		other.getGraphics().drawImage(rgb, 0, 0, null);
+
+		WebcamMotionDetectorPyramidAlgorithm algorithm = new WebcamMotionDetectorPyramidAlgorithm();
+
+		Object expected = algorithm.filter(rgb).getRaster().getDataElements(0, 0, 160, 120, null);
+
+		// images of all types are sampled the same way
+
+		Assertions
+			.assertThat(algorithm.filter(bgr).getRaster().getDataElements(0, 0, 160, 120, null))
+			.isEqualTo(expected);
+		Assertions
+			.assertThat(algorithm.filter(other).getRaster().getDataElements(0, 0, 160, 120, null))
+			.isEqualTo(expected);
+	}
+
+	@Test
+	public void test_sameAsDefault() {
+
+		Rectangle a = new Rectangle(400, 300, 40, 40);
+		Rectangle b = new Rectangle(50, 60, 30, 20);
+
+		WebcamMotionDetectorPyramidAlgorithm pyramid = new WebcamMotionDetectorPyramidAlgorithm();
+		WebcamMotionDetectorDefaultAlgorithm reference = new WebcamMotionDetectorDefaultAlgorithm();
+
+		BufferedImage previous = image();
+		BufferedImage current = image(a, b);
+
+		Assertions
+			.assertThat(pyramid.detect(pyramid.filter(previous), pyramid.filter(current)))
+			.isTrue();
+		Assertions
+			.assertThat(reference.detect(reference.filter(previous), reference.filter(current)))
+			.isTrue();
+		Assertions
+			.assertThat(pyramid.getRegions().size())
+			.isEqualTo(2);
+		Assertions
+			.assertThat(pyramid.getArea())
+			.isEqualTo(reference.getArea());
+		Assertions
+			.assertThat(pyramid.getCog())
+			.isEqualTo(reference.getCog());
+		Assertions
+			.assertThat(pyramid.getPoints())
+			.isEqualTo(reference.getPoints());
+	}
+
+	@Test
+	public void test_doNotEngageZones() {
+
+		Rectangle a = new Rectangle(400, 300, 40, 40);
+
+		WebcamMotionDetectorPyramidAlgorithm pyramid = new WebcamMotionDetectorPyramidAlgorithm();
+		pyramid.setDoNotEngageZones(Arrays.asList(new Rectangle(380, 280, 80, 80)));
+
+		Assertions
+			.assertThat(pyramid.detect(pyramid.filter(image()), pyramid.filter(image(a))))
+			.isFalse();
+		Assertions
+			.assertThat(pyramid.getArea())
+			.isEqualTo(0d);
+	}
+
+	@Test
+	public void test_sequenceSameAsFresh() {
+
+		Rectangle a = new Rectangle(400, 300, 40, 40);
+		List<Rectangle> zones = Arrays.asList(new Rectangle(380, 280, 40, 40));
+
+		// object appears and disappears in the same region, so regions filtered and zones
+		// translated for one frame are reused for the next one
+
+		BufferedImage[] frames = new BufferedImage[] { image(), image(a), image(), image(a) };
+
+		WebcamMotionDetectorPyramidAlgorithm sequence = new WebcamMotionDetectorPyramidAlgorithm();
+		sequence.setDoNotEngageZones(zones);
+
+		BufferedImage previous = sequence.filter(frames[0]);
+
+		for (int i = 1; i < frames.length; i++) {
+
+			BufferedImage current = sequence.filter(frames[i]);
+
+			WebcamMotionDetectorPyramidAlgorithm fresh = new WebcamMotionDetectorPyramidAlgorithm();
+			fresh.setDoNotEngageZones(zones);
+
+			Assertions
+				.assertThat(sequence.detect(previous, current))
+				.isTrue();
+			Assertions
+				.assertThat(fresh.detect(fresh.filter(frames[i - 1]), fresh.filter(frames[i])))
+				.isTrue();
+			Assertions
+				.assertThat(sequence.getRegions())
+				.isEqualTo(fresh.getRegions());
+			Assertions
+				.assertThat(sequence.getArea())
+				.isEqualTo(fresh.getArea());
+			Assertions
+				.assertThat(sequence.getCog())
+				.isEqualTo(fresh.getCog());
+			Assertions
+				.assertThat(sequence.getPoints())
+				.isEqualTo(fresh.getPoints());
+
+			previous = current;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+
+
+public class WebcamMotionDetectorTest {
+
+	private static final long TIMEOUT = 5000;
+
+	/**
+	 * Algorithm which counts analyzed images and blocks analysis until it's released.
+	 */
+	private static final class CountingAlgorithm extends WebcamMotionDetectorDefaultAlgorithm {
+
+		private final AtomicInteger analyzed = new AtomicInteger(0);
+
+		private final CountDownLatch release;
+
+		public CountingAlgorithm(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public BufferedImage filter(BufferedImage original) {
+			analyzed.incrementAndGet();
+			try {
+				release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.filter(original);
+		}
+	}
+
+	private Webcam webcam;
+
+	@Before
+	public void before() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1));
+		webcam = Webcam.getDefault();
+	}
+
+	@After
+	public void after() {
+		webcam.close();
+		Webcam.resetDriver();
+	}
+
+	/**
+	 * Wait until the given number of images has been analyzed or skipped.
+	 */
+	private static void await(WebcamMotionDetector detector, CountingAlgorithm algorithm, int n) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (algorithm.analyzed.get() + detector.getSkippedFramesCount() < n && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assertions
+			.assertThat(algorithm.analyzed.get() + detector.getSkippedFramesCount())
+			.isEqualTo(n);
+	}
+
+	private static BufferedImage image(Color color) {
+		BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.GRAY);
+		g.fillRect(0, 0, 320, 240);
+		g.setColor(color);
+		g.fillRect(100, 100, 60, 60);
+		g.dispose();
+		return image;
+	}
+
+	@Test
+	public void test_thresholdsPassedToAlgorithm() {
+
+		WebcamMotionDetectorAlgorithm[] algorithms = new WebcamMotionDetectorAlgorithm[] {
+			new WebcamMotionDetectorDefaultAlgorithm(),
+			new WebcamMotionDetectorPyramidAlgorithm(),
+		};
+
+		for (WebcamMotionDetectorAlgorithm algorithm : algorithms) {
+
+			WebcamMotionDetector detector = new WebcamMotionDetector(webcam, algorithm, 500);
+			detector.setAreaThreshold(0.1);
+
+			BufferedImage previous = algorithm.filter(image(Color.GRAY));
+			BufferedImage current = algorithm.filter(image(Color.WHITE));
+
+			Assertions
+				.assertThat(algorithm.detect(previous, current))
+				.isTrue();
+
+			// gray to white difference is below this threshold
+
+			detector.setPixelThreshold(200);
+
+			Assertions
+				.assertThat(algorithm.detect(previous, current))
+				.isFalse();
+		}
+	}
+
+	@Test
+	public void test_frameDrivenStartOpensWebcam() {
+
+		WebcamMotionDetector detector = new WebcamMotionDetector(webcam);
+		detector.setFrameStep(1);
+		detector.start();
+
+		Assertions
+			.assertThat(webcam.isOpen())
+			.isTrue();
+
+		// webcam opened by detector is closed by it
+
+		detector.stop();
+
+		Assertions
+			.assertThat(webcam.isOpen())
+			.isFalse();
+	}
+
+	@Test
+	public void test_frameDrivenStopKeepsWebcamOpen() {
+
+		webcam.open(true);
+
+		WebcamMotionDetector detector = new WebcamMotionDetector(webcam);
+		detector.setFrameStep(1);
+		detector.start();
+		detector.stop();
+
+		// webcam opened by someone else is still in use
+
+		Assertions
+			.assertThat(webcam.isOpen())
+			.isTrue();
+	}
+
+	@Test
+	public void test_frameStep() throws InterruptedException {
+
+		// images are obtained in this thread and blocking policy does not drop any notification
+
+		webcam.setDispatchPolicy(WebcamDispatchPolicy.BLOCKING);
+		webcam.open();
+
+		CountingAlgorithm algorithm = new CountingAlgorithm(new CountDownLatch(0));
+		WebcamMotionDetector detector = new WebcamMotionDetector(webcam, algorithm, 500);
+		detector.setFrameStep(3);
+		detector.start();
+
+		// only every third image is analyzed, or skipped if previous analysis is still in progress
+
+		for (int i = 0; i < 9; i++) {
+			webcam.getImage();
+			await(detector, algorithm, i / 3 + 1);
+		}
+
+		detector.stop();
+
+		Assertions
+			.assertThat(algorithm.analyzed.get() + detector.getSkippedFramesCount())
+			.isEqualTo(3L);
+		Assertions
+			.assertThat(algorithm.analyzed.get())
+			.isGreaterThanOrEqualTo(1);
+	}
+
+	@Test
+	public void test_skippedFramesCount() throws InterruptedException {
+
+		webcam.setDispatchPolicy(WebcamDispatchPolicy.BLOCKING);
+		webcam.open();
+
+		CountDownLatch release = new CountDownLatch(1);
+		CountingAlgorithm algorithm = new CountingAlgorithm(release);
+		WebcamMotionDetector detector = new WebcamMotionDetector(webcam, algorithm, 500);
+		detector.setFrameStep(1);
+		detector.start();
+
+		// first image is being analyzed, so the next ones are skipped
+
+		webcam.getImage();
+		await(detector, algorithm, 1);
+		webcam.getImage();
+		webcam.getImage();
+
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (detector.getSkippedFramesCount() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		release.countDown();
+		detector.stop();
+
+		Assertions
+			.assertThat(detector.getSkippedFramesCount())
+			.isEqualTo(2L);
+		Assertions
+			.assertThat(algorithm.analyzed.get())
+			.isEqualTo(1);
+	}
+}
@@ -0,0 +1,102 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class WebcamMotionZonesTest {
+
+	private static boolean[] mask(WebcamMotionZones.Spans spans) {
+		boolean[] mask = new boolean[spans.width * spans.height];
+		for (int y = 0; y < spans.height; y++) {
+			for (int k = spans.rows[y]; k < spans.rows[y + 1]; k++) {
+				for (int x = spans.spans[2 * k]; x < spans.spans[2 * k + 1]; x++) {
+					mask[y * spans.width + x] = true;
+				}
+			}
+		}
+		return mask;
+	}
+
+	private static boolean[] expected(int w, int h, List<? extends Shape> excluded, List<? extends Shape> included) {
+		boolean[] mask = new boolean[w * h];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				boolean engaged = included.isEmpty();
+				for (Shape shape : included) {
+					engaged |= shape.contains(x, y);
+				}
+				for (Shape shape : excluded) {
+					engaged &= !shape.contains(x, y);
+				}
+				mask[y * w + x] = engaged;
+			}
+		}
+		return mask;
+	}
+
+	@Test
+	public void test_noZones() {
+
+		WebcamMotionZones.Spans spans = WebcamMotionZones.NONE.getSpans(40, 30);
+
+		Assertions
+			.assertThat(spans.engaged)
+			.isEqualTo(40 * 30);
+		Assertions
+			.assertThat(spans.rows[30])
+			.isEqualTo(30);
+	}
+
+	@Test
+	public void test_excludedAndIncluded() {
+
+		Polygon triangle = new Polygon(new int[] { 5, 70, 20 }, new int[] { 3, 25, 55 }, 3);
+		List<Shape> excluded = Arrays.<Shape> asList(new Rectangle(-10, 20, 30, 5), triangle);
+		List<Shape> included = Arrays.<Shape> asList(new Ellipse2D.Double(10, 5, 60, 40), new Rectangle(0, 50, 80, 100));
+
+		int w = 80;
+		int h = 60;
+
+		WebcamMotionZones zones = new WebcamMotionZones(excluded, included);
+		boolean[] expected = expected(w, h, excluded, included);
+		boolean[] actual = mask(zones.getSpans(w, h));
+
+		Assertions
+			.assertThat(Arrays.equals(actual, expected))
+			.isTrue();
+
+		int engaged = 0;
+		for (boolean e : expected) {
+			engaged += e ? 1 : 0;
+		}
+
+		Assertions
+			.assertThat(zones.getSpans(w, h).engaged)
+			.isEqualTo(engaged);
+	}
+
+	@Test
+	public void test_recompiledOnResize() {
+
+		List<Shape> excluded = Collections.<Shape> singletonList(new Rectangle(0, 0, 10, 10));
+		WebcamMotionZones zones = new WebcamMotionZones(excluded, Collections.<Shape> emptyList());
+
+		WebcamMotionZones.Spans small = zones.getSpans(20, 20);
+
+		Assertions
+			.assertThat(zones.getSpans(20, 20))
+			.isSameAs(small);
+		Assertions
+			.assertThat(zones.getSpans(40, 20).engaged)
+			.isEqualTo(40 * 20 - 100);
+	}
+}
@@ -0,0 +1,270 @@
+package com.github.sarxos.webcam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.ds.cgt.WebcamDisposeTask;
+import com.github.sarxos.webcam.ds.test.DummyDevice;
+import com.github.sarxos.webcam.ds.test.DummyDriver;
+
+
+public class WebcamProcessorTest {
+
+	private static final long TIMEOUT = 5000;
+
+	/**
+	 * Task which runs given code.
+	 */
+	private static final class Task extends WebcamTask {
+
+		private final Runnable runnable;
+
+		public Task(WebcamDriver driver, WebcamDevice device, Runnable runnable) {
+			super(driver, device);
+			this.runnable = runnable;
+		}
+
+		@Override
+		protected void handle() {
+			runnable.run();
+		}
+	}
+
+	private final WebcamProcessor processor = WebcamProcessor.getInstance();
+
+	private final WebcamDriver driver = new DummyDriver();
+
+	private final WebcamDevice a = new DummyDevice();
+
+	private final WebcamDevice b = new DummyDevice();
+
+	@Before
+	public void before() {
+		processor.shutdown();
+		processor.setMode(WebcamProcessor.Mode.STRIPED);
+	}
+
+	@After
+	public void after() {
+		processor.shutdown();
+		processor.setMode(WebcamProcessor.Mode.GLOBAL);
+	}
+
+	/**
+	 * Process task in new thread.
+	 */
+	private static Thread start(final WebcamTask task, final AtomicReference<Throwable> failure) {
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					task.process();
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void test_devicesInParallel() throws InterruptedException {
+
+		// both tasks pass the barrier only if they are processed at the same time
+
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Runnable await = new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					barrier.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+
+		Thread t1 = start(new Task(driver, a, await), failure);
+		Thread t2 = start(new Task(driver, b, await), failure);
+
+		t1.join(2 * TIMEOUT);
+		t2.join(2 * TIMEOUT);
+
+		Assertions
+			.assertThat(failure.get())
+			.isNull();
+		Assertions
+			.assertThat(processor.getStripesCount())
+			.isEqualTo(2);
+	}
+
+	@Test
+	public void test_deviceTasksSerialized() throws InterruptedException {
+
+		final AtomicInteger active = new AtomicInteger(0);
+		final AtomicInteger max = new AtomicInteger(0);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		final Runnable work = new Runnable() {
+
+			@Override
+			public void run() {
+				int n = active.incrementAndGet();
+				if (n > max.get()) {
+					max.set(n);
+				}
+				sleep(2);
+				active.decrementAndGet();
+			}
+		};
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 20; j++) {
+							new Task(driver, a, work).process();
+						}
+					} catch (Throwable t) {
+						failure.set(t);
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join(TIMEOUT);
+		}
+
+		Assertions
+			.assertThat(failure.get())
+			.isNull();
+		Assertions
+			.assertThat(max.get())
+			.isEqualTo(1);
+	}
+
+	@Test
+	public void test_driverTaskExclusive() throws InterruptedException {
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean deviceRunning = new AtomicBoolean(false);
+		final AtomicBoolean overlap = new AtomicBoolean(false);
+		final AtomicBoolean driverDone = new AtomicBoolean(false);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Thread device = start(new Task(driver, a, new Runnable() {
+
+			@Override
+			public void run() {
+				deviceRunning.set(true);
+				started.countDown();
+				try {
+					release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				deviceRunning.set(false);
+			}
+		}), failure);
+
+		Assertions
+			.assertThat(started.await(TIMEOUT, TimeUnit.MILLISECONDS))
+			.isTrue();
+
+		// driver-level task, e.g. devices discovery, waits for device task to complete
+
+		Thread discovery = start(new Task(driver, null, new Runnable() {
+
+			@Override
+			public void run() {
+				overlap.set(deviceRunning.get());
+				driverDone.set(true);
+			}
+		}), failure);
+
+		Thread.sleep(200);
+
+		Assertions
+			.assertThat(driverDone.get())
+			.isFalse();
+
+		release.countDown();
+		device.join(TIMEOUT);
+		discovery.join(TIMEOUT);
+
+		Assertions
+			.assertThat(failure.get())
+			.isNull();
+		Assertions
+			.assertThat(driverDone.get())
+			.isTrue();
+		Assertions
+			.assertThat(overlap.get())
+			.isFalse();
+	}
+
+	@Test
+	public void test_stripeReleasedOnDispose() throws InterruptedException {
+
+		Runnable nothing = new Runnable() {
+
+			@Override
+			public void run() {
+				// do nothing
+			}
+		};
+
+		new Task(driver, a, nothing).process();
+		new Task(driver, b, nothing).process();
+
+		Assertions
+			.assertThat(processor.getStripesCount())
+			.isEqualTo(2);
+
+		new WebcamDisposeTask(driver, a).dispose();
+
+		Assertions
+			.assertThat(processor.getStripesCount())
+			.isEqualTo(1);
+
+		// disposed device can be used again, new stripe is created for it
+
+		new Task(driver, a, nothing).process();
+
+		Assertions
+			.assertThat(processor.getStripesCount())
+			.isEqualTo(2);
+	}
+}
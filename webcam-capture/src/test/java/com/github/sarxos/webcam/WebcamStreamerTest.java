@@ -0,0 +1,315 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.WebcamStreamer.ClientStats;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+public class WebcamStreamerTest {
+
+	private static final long TIMEOUT = 10000;
+
+	private Webcam webcam;
+
+	private WebcamStreamer streamer;
+
+	@Before
+	public void before() {
+		Webcam.setDriver(new WebcamSyntheticDriver(1, new Dimension(320, 240), 30, Pattern.NOISE, PixelFormat.RGB));
+		webcam = Webcam.getDefault();
+	}
+
+	@After
+	public void after() {
+		if (streamer != null) {
+			streamer.stop();
+		}
+		Webcam.resetDriver();
+	}
+
+	private static int getFreePort() throws IOException {
+		try (ServerSocket server = new ServerSocket(0)) {
+			return server.getLocalPort();
+		}
+	}
+
+	/**
+	 * Connect to the streamer, retrying until server socket is bound, and send request.
+	 */
+	private static Socket connect(int port, int receiveBufferSize) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (true) {
+			Socket socket = new Socket();
+			if (receiveBufferSize > 0) {
+				socket.setReceiveBufferSize(receiveBufferSize);
+			}
+			socket.setSoTimeout((int) TIMEOUT);
+			try {
+				socket.connect(new InetSocketAddress("127.0.0.1", port));
+				socket.getOutputStream().write("GET / HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				return socket;
+			} catch (ConnectException e) {
+				socket.close();
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(20);
+			}
+		}
+	}
+
+	private static String readLine(InputStream is) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = is.read()) != '\n') {
+			if (b < 0) {
+				throw new IOException("End of stream");
+			}
+			line.write(b);
+		}
+		byte[] bytes = line.toByteArray();
+		Assertions
+			.assertThat(bytes.length > 0 && bytes[bytes.length - 1] == '\r')
+			.isTrue();
+		return new String(bytes, 0, bytes.length - 1, StandardCharsets.ISO_8859_1);
+	}
+
+	private static void readHeader(DataInputStream dis) throws IOException {
+		Assertions
+			.assertThat(readLine(dis))
+			.isEqualTo("HTTP/1.0 200 OK");
+		boolean multipart = false;
+		String line;
+		while (!(line = readLine(dis)).isEmpty()) {
+			if (line.equals("Content-type: multipart/x-mixed-replace; boundary=--mjpegframe")) {
+				multipart = true;
+			}
+		}
+		Assertions
+			.assertThat(multipart)
+			.isTrue();
+	}
+
+	/**
+	 * Read single multipart part and check it contains valid JPEG image.
+	 */
+	private static BufferedImage readPart(DataInputStream dis) throws IOException {
+
+		Assertions
+			.assertThat(readLine(dis))
+			.isEqualTo("--mjpegframe");
+		Assertions
+			.assertThat(readLine(dis))
+			.isEqualTo("Content-type: image/jpeg");
+
+		String length = readLine(dis);
+		Assertions
+			.assertThat(length)
+			.startsWith("Content-Length: ");
+		Assertions
+			.assertThat(readLine(dis))
+			.isEmpty();
+
+		byte[] jpeg = new byte[Integer.parseInt(length.substring("Content-Length: ".length()))];
+		dis.readFully(jpeg);
+
+		Assertions
+			.assertThat(readLine(dis))
+			.isEmpty();
+		Assertions
+			.assertThat(jpeg[0] == (byte) 0xFF && jpeg[1] == (byte) 0xD8)
+			.isTrue();
+		Assertions
+			.assertThat(jpeg[jpeg.length - 2] == (byte) 0xFF && jpeg[jpeg.length - 1] == (byte) 0xD9)
+			.isTrue();
+
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+		Assertions
+			.assertThat(image)
+			.isNotNull();
+
+		return image;
+	}
+
+	private void awaitClients(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (streamer.getClientStats().size() != count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		Assertions
+			.assertThat(streamer.getClientStats())
+			.hasSize(count);
+	}
+
+	private ClientStats awaitLagging(boolean lagging) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < deadline) {
+			List<ClientStats> stats = streamer.getClientStats();
+			if (stats.size() == 1 && stats.get(0).isLagging() == lagging) {
+				return stats.get(0);
+			}
+			Thread.sleep(20);
+		}
+		Assertions.fail("Client lagging state has not changed to " + lagging);
+		return null;
+	}
+
+	@Test
+	public void test_nioManyClients() throws Exception {
+
+		int port = getFreePort();
+		streamer = new WebcamStreamer(port, webcam, 30, true, WebcamStreamer.Mode.NIO);
+
+		Socket[] sockets = new Socket[3];
+		DataInputStream[] inputs = new DataInputStream[sockets.length];
+
+		for (int i = 0; i < sockets.length; i++) {
+			sockets[i] = connect(port, 0);
+			inputs[i] = new DataInputStream(sockets[i].getInputStream());
+			readHeader(inputs[i]);
+		}
+
+		for (int j = 0; j < 3; j++) {
+			for (DataInputStream dis : inputs) {
+				BufferedImage image = readPart(dis);
+				Assertions
+					.assertThat(image.getWidth())
+					.isEqualTo(320);
+				Assertions
+					.assertThat(image.getHeight())
+					.isEqualTo(240);
+			}
+		}
+
+		awaitClients(3);
+
+		// closed client is removed, the others are still served
+
+		sockets[0].close();
+
+		awaitClients(2);
+
+		for (int j = 0; j < 5; j++) {
+			for (int i = 1; i < sockets.length; i++) {
+				readPart(inputs[i]);
+			}
+		}
+
+		for (int i = 1; i < sockets.length; i++) {
+			sockets[i].close();
+		}
+
+		// every frame has been encoded only once, no matter how many clients received it, the
+		// newest one can still be being encoded
+
+		long encodes = streamer.getEncodesCount();
+		long frames = streamer.getFramesCount();
+
+		Assertions
+			.assertThat(encodes)
+			.isBetween(frames - 1, frames);
+	}
+
+	@Test
+	public void test_slowClient() throws Exception {
+
+		int port = getFreePort();
+		streamer = new WebcamStreamer(port, webcam, 30, false, WebcamStreamer.Mode.NIO);
+		streamer.setDegradedQuality(0.2f);
+		streamer.start();
+
+		// small receive buffer, so socket buffers are filled after few frames
+
+		final Socket socket = connect(port, 8 * 1024);
+		final DataInputStream dis = new DataInputStream(socket.getInputStream());
+
+		readHeader(dis);
+		readPart(dis);
+
+		// client stops reading, streamer cannot write new frames and marks client as lagging
+
+		ClientStats stats = awaitLagging(true);
+
+		Assertions
+			.assertThat(streamer.getLaggingClientsCount())
+			.isEqualTo(1);
+
+		// client reads again, frames published in the meantime are skipped and it receives only
+		// the newest ones
+
+		final AtomicInteger received = new AtomicInteger(0);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Thread reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					while (!socket.isClosed()) {
+						readPart(dis);
+						received.incrementAndGet();
+					}
+				} catch (Throwable t) {
+					if (!socket.isClosed()) {
+						failure.set(t);
+					}
+				}
+			}
+		});
+		reader.setDaemon(true);
+		reader.start();
+
+		// client receiving frames on time recovers
+
+		stats = awaitLagging(false);
+
+		socket.close();
+		reader.join(TIMEOUT);
+
+		Assertions
+			.assertThat(failure.get())
+			.isNull();
+		Assertions
+			.assertThat(stats.getSkipped())
+			.isGreaterThan(0);
+		Assertions
+			.assertThat(stats.getSent())
+			.isGreaterThan(10);
+		Assertions
+			.assertThat(received.get())
+			.isGreaterThanOrEqualTo(10);
+		Assertions
+			.assertThat(streamer.getLaggingClientsCount())
+			.isEqualTo(0);
+
+		// lower quality variant has been encoded for lagging client
+
+		Assertions
+			.assertThat(streamer.getEncodesCount())
+			.isGreaterThan(streamer.getFramesCount());
+	}
+}
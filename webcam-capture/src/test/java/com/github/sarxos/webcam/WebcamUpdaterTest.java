@@ -0,0 +1,184 @@
+package com.github.sarxos.webcam;
+
+import java.awt.Dimension;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+public class WebcamUpdaterTest {
+
+	private static final long TIMEOUT = 5000;
+
+	private Webcam webcam;
+
+	@Before
+	public void before() {
+
+		// one frame per second, so no new frame arrives during short waits
+
+		Webcam.setDriver(new WebcamSyntheticDriver(1, new Dimension(176, 144), 1, Pattern.NOISE, PixelFormat.RGB));
+		webcam = Webcam.getDefault();
+	}
+
+	@After
+	public void after() {
+		webcam.close();
+		Webcam.resetDriver();
+	}
+
+	/**
+	 * @return Frame which has just been published
+	 */
+	private WebcamFrame awaitFreshFrame() throws InterruptedException {
+
+		WebcamFrame frame = webcam.awaitNextFrame(0, TIMEOUT, TimeUnit.MILLISECONDS);
+		Assertions
+			.assertThat(frame)
+			.isNotNull();
+
+		frame = webcam.awaitNextFrame(frame.getSequence(), TIMEOUT, TimeUnit.MILLISECONDS);
+		Assertions
+			.assertThat(frame)
+			.isNotNull();
+
+		return frame;
+	}
+
+	@Test
+	public void test_awaitNextFrameTimeout() throws InterruptedException {
+
+		webcam.open(true);
+
+		WebcamFrame frame = awaitFreshFrame();
+
+		long t1 = System.currentTimeMillis();
+		WebcamFrame next = webcam.awaitNextFrame(frame.getSequence(), 100, TimeUnit.MILLISECONDS);
+		long t2 = System.currentTimeMillis();
+
+		Assertions
+			.assertThat(next)
+			.isNull();
+		Assertions
+			.assertThat(t2 - t1)
+			.isGreaterThanOrEqualTo(90L);
+	}
+
+	@Test
+	public void test_awaitNextFrameWakeUp() throws Exception {
+
+		webcam.open(true);
+
+		WebcamFrame frame = awaitFreshFrame();
+
+		// frame already available is returned immediately
+
+		Assertions
+			.assertThat(webcam.awaitNextFrame(frame.getSequence() - 1, 0, TimeUnit.MILLISECONDS))
+			.isNotNull();
+		Assertions
+			.assertThat(webcam.awaitNextFrameAsync(frame.getSequence() - 1).isDone())
+			.isTrue();
+
+		// waiting thread and future are woken up by the next frame published
+
+		CompletableFuture<WebcamFrame> future = webcam.awaitNextFrameAsync(frame.getSequence());
+		WebcamFrame next = webcam.awaitNextFrame(frame.getSequence(), TIMEOUT, TimeUnit.MILLISECONDS);
+
+		Assertions
+			.assertThat(next)
+			.isNotNull();
+		Assertions
+			.assertThat(next.getSequence())
+			.isGreaterThan(frame.getSequence());
+		Assertions
+			.assertThat(future.get(TIMEOUT, TimeUnit.MILLISECONDS).getSequence())
+			.isGreaterThan(frame.getSequence());
+	}
+
+	@Test
+	public void test_closeWakesUpWaiting() throws Exception {
+
+		webcam.open(true);
+
+		// frame can still be published when webcam is being closed, so wait for the one which
+		// will not come before webcam is closed
+
+		final WebcamFrame frame = awaitFreshFrame();
+		final long sequence = frame.getSequence() + 100;
+		final AtomicReference<WebcamFrame> result = new AtomicReference<WebcamFrame>(frame);
+
+		CompletableFuture<WebcamFrame> future = webcam.awaitNextFrameAsync(sequence);
+
+		Thread waiter = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					result.set(webcam.awaitNextFrame(sequence, 10, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		waiter.start();
+
+		Thread.sleep(100);
+		webcam.close();
+		waiter.join(TIMEOUT);
+
+		Assertions
+			.assertThat(waiter.isAlive())
+			.isFalse();
+		Assertions
+			.assertThat(result.get())
+			.isNull();
+
+		try {
+			future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			Assertions.fail("Future should complete exceptionally when webcam is closed");
+		} catch (ExecutionException e) {
+			Assertions
+				.assertThat(e.getCause() instanceof WebcamException)
+				.isTrue();
+		}
+	}
+
+	@Test
+	public void test_awaitAfterStop() throws Exception {
+
+		webcam.open();
+
+		WebcamUpdater updater = new WebcamUpdater(webcam);
+		updater.start();
+
+		WebcamFrame frame = updater.awaitFrameAfter(0, TIMEOUT, TimeUnit.MILLISECONDS);
+
+		Assertions
+			.assertThat(frame)
+			.isNotNull();
+
+		updater.stop();
+
+		// request made after updater has been stopped is not left pending forever
+
+		CompletableFuture<WebcamFrame> future = updater.awaitFrameAfterAsync(updater.getFrame().getSequence());
+
+		Assertions
+			.assertThat(future.isCompletedExceptionally())
+			.isTrue();
+		Assertions
+			.assertThat(updater.awaitFrameAfter(updater.getFrame().getSequence(), TIMEOUT, TimeUnit.MILLISECONDS))
+			.isNull();
+	}
+}
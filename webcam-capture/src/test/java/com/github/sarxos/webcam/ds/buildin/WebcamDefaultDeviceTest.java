@@ -0,0 +1,54 @@
+package com.github.sarxos.webcam.ds.buildin;
+
+import java.awt.Dimension;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class WebcamDefaultDeviceTest {
+
+	private static final Dimension SIZE = new Dimension(176, 144);
+
+	/**
+	 * Create image with the same pixel layout as images created by device.
+	 */
+	private static BufferedImage image(int width, int height, int[] offsets) {
+		ComponentSampleModel smodel = new ComponentSampleModel(DataBuffer.TYPE_BYTE, width, height, 3, width * 3, offsets);
+		ComponentColorModel cmodel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8 }, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+		return new BufferedImage(cmodel, Raster.createWritableRaster(smodel, null), false, null);
+	}
+
+	@Test
+	public void test_isReusable() {
+
+		Assertions
+			.assertThat(WebcamDefaultDevice.isReusable(image(176, 144, new int[] { 0, 1, 2 }), SIZE))
+			.isTrue();
+
+		// null, different size or different pixel layout
+
+		Assertions
+			.assertThat(WebcamDefaultDevice.isReusable(null, SIZE))
+			.isFalse();
+		Assertions
+			.assertThat(WebcamDefaultDevice.isReusable(image(320, 240, new int[] { 0, 1, 2 }), SIZE))
+			.isFalse();
+		Assertions
+			.assertThat(WebcamDefaultDevice.isReusable(image(176, 144, new int[] { 2, 1, 0 }), SIZE))
+			.isFalse();
+		Assertions
+			.assertThat(WebcamDefaultDevice.isReusable(new BufferedImage(176, 144, BufferedImage.TYPE_3BYTE_BGR), SIZE))
+			.isFalse();
+		Assertions
+			.assertThat(WebcamDefaultDevice.isReusable(new BufferedImage(176, 144, BufferedImage.TYPE_INT_RGB), SIZE))
+			.isFalse();
+	}
+}
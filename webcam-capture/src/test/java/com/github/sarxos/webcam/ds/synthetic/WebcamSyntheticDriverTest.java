@@ -0,0 +1,152 @@
+package com.github.sarxos.webcam.ds.synthetic;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.github.sarxos.webcam.WebcamDevice;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.Pattern;
+import com.github.sarxos.webcam.ds.synthetic.WebcamSyntheticDriver.PixelFormat;
+
+
+public class WebcamSyntheticDriverTest {
+
+	private static final Dimension SIZE = new Dimension(64, 48);
+
+	private static WebcamSyntheticDevice device(Pattern pattern, PixelFormat format) {
+		WebcamSyntheticDriver driver = new WebcamSyntheticDriver(1, SIZE, 0, pattern, format);
+		WebcamSyntheticDevice device = (WebcamSyntheticDevice) driver.getDevices().get(0);
+		device.open();
+		return device;
+	}
+
+	@Test
+	public void test_getDevices() {
+
+		WebcamSyntheticDriver driver = new WebcamSyntheticDriver(3);
+
+		Assertions
+			.assertThat(driver.getDevices())
+			.hasSize(3);
+		Assertions
+			.assertThat(driver.getDevices())
+			.isEqualTo(driver.getDevices());
+		Assertions
+			.assertThat(driver.isThreadSafe())
+			.isTrue();
+	}
+
+	@Test
+	public void test_getImageClosed() {
+
+		WebcamSyntheticDevice device = device(Pattern.GRADIENT, PixelFormat.RGB);
+		device.close();
+
+		Assertions
+			.assertThat(device.getImage())
+			.isNull();
+		Assertions
+			.assertThat(device.getImageBytes())
+			.isNull();
+	}
+
+	@Test
+	public void test_getImageFormats() {
+		for (PixelFormat format : PixelFormat.values()) {
+
+			WebcamSyntheticDevice device = device(Pattern.BLOBS, format);
+			BufferedImage image = device.getImage();
+
+			Assertions
+				.assertThat(image.getWidth())
+				.isEqualTo(SIZE.width);
+			Assertions
+				.assertThat(image.getHeight())
+				.isEqualTo(SIZE.height);
+		}
+	}
+
+	@Test
+	public void test_getImageRgbMatchesBytes() {
+
+		WebcamSyntheticDevice device = device(Pattern.NOISE, PixelFormat.INT_RGB);
+		BufferedImage image = device.getImage();
+
+		// bytes buffer is a view of device memory, so it reflects the last generated frame
+
+		ByteBuffer bytes = device.getImageBytes();
+		BufferedImage again = device.getImage(image);
+
+		Assertions
+			.assertThat(again)
+			.isSameAs(image);
+
+		int rgb = again.getRGB(1, 0) & 0xFFFFFF;
+		int r = bytes.get(3) & 0xFF;
+		int g = bytes.get(4) & 0xFF;
+		int b = bytes.get(5) & 0xFF;
+
+		Assertions
+			.assertThat(rgb)
+			.isEqualTo(r << 16 | g << 8 | b);
+	}
+
+	@Test
+	public void test_getImageReuse() {
+		for (PixelFormat format : PixelFormat.values()) {
+
+			WebcamSyntheticDevice device = device(Pattern.GRADIENT, format);
+			BufferedImage image = device.getImage();
+
+			Assertions
+				.assertThat(device.getImage(image))
+				.isSameAs(image);
+			Assertions
+				.assertThat(device.getImage(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB)))
+				.isNotNull()
+				.isNotSameAs(image);
+		}
+	}
+
+	@Test
+	public void test_getImageBytes() {
+
+		WebcamSyntheticDevice device = device(Pattern.GRADIENT, PixelFormat.RGB);
+		ByteBuffer target = ByteBuffer.allocate(SIZE.width * SIZE.height * 3);
+
+		device.getImageBytes(target);
+
+		Assertions
+			.assertThat(target.remaining())
+			.isEqualTo(0);
+		Assertions
+			.assertThat(device.getImageBytes().remaining())
+			.isEqualTo(SIZE.width * SIZE.height * 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_getImageBytesTooSmall() {
+		device(Pattern.GRADIENT, PixelFormat.RGB).getImageBytes(ByteBuffer.allocate(10));
+	}
+
+	@Test
+	public void test_throttle() {
+
+		WebcamSyntheticDriver driver = new WebcamSyntheticDriver(1, SIZE, 100, Pattern.GRADIENT, PixelFormat.RGB);
+		WebcamDevice device = driver.getDevices().get(0);
+		device.open();
+
+		long t1 = System.currentTimeMillis();
+		for (int i = 0; i < 11; i++) {
+			device.getImage();
+		}
+		long t2 = System.currentTimeMillis();
+
+		Assertions
+			.assertThat(t2 - t1)
+			.isGreaterThanOrEqualTo(90);
+	}
+}
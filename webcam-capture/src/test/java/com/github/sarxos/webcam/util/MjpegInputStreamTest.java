@@ -0,0 +1,154 @@
+package com.github.sarxos.webcam.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class MjpegInputStreamTest {
+
+	/**
+	 * Stream which returns at most 7 bytes per read, so frames are split across many reads.
+	 */
+	private static final class ChoppyInputStream extends FilterInputStream {
+
+		ChoppyInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return super.read(b, off, Math.min(len, 7));
+		}
+	}
+
+	private static byte[] jpeg(int w, int h, long seed) {
+		Random r = new Random(seed);
+		BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				image.setRGB(x, y, r.nextInt(0x1000000));
+			}
+		}
+		return ImageUtils.toByteArray(image, ImageUtils.FORMAT_JPG);
+	}
+
+	private static void part(ByteArrayOutputStream baos, byte[] jpeg, boolean length) throws IOException {
+		StringBuilder sb = new StringBuilder()
+			.append("--mjpegframe\r\n")
+			.append("Content-Type: image/jpeg\r\n");
+		if (length) {
+			sb.append("Content-Length: ").append(jpeg.length).append("\r\n");
+		}
+		sb.append("\r\n");
+		baos.write(sb.toString().getBytes());
+		baos.write(jpeg);
+		baos.write("\r\n".getBytes());
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	@Test
+	public void test_readFrameBuffer() throws IOException {
+
+		byte[][] jpegs = { jpeg(32, 24, 1), jpeg(640, 480, 2), jpeg(48, 32, 3) };
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		part(baos, jpegs[0], true);
+		part(baos, jpegs[1], false);
+		part(baos, jpegs[2], true);
+
+		// the second frame is far above the old 100 kB limit
+
+		Assertions
+			.assertThat(jpegs[1].length > 100000)
+			.isTrue();
+
+		for (boolean choppy : new boolean[] { false, true }) {
+
+			InputStream in = new ByteArrayInputStream(baos.toByteArray());
+			if (choppy) {
+				in = new ChoppyInputStream(in);
+			}
+
+			try (MjpegInputStream mis = new MjpegInputStream(in)) {
+				for (byte[] jpeg : jpegs) {
+					Assertions
+						.assertThat(bytes(mis.readFrameBuffer()))
+						.isEqualTo(jpeg);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_readFrame() throws IOException {
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		part(baos, jpeg(320, 240, 1), true);
+		part(baos, jpeg(160, 120, 2), false);
+
+		try (MjpegInputStream mis = new MjpegInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+
+			BufferedImage first = mis.readFrame();
+			BufferedImage second = mis.readFrame();
+
+			Assertions
+				.assertThat(first.getWidth())
+				.isEqualTo(320);
+			Assertions
+				.assertThat(second.getWidth())
+				.isEqualTo(160);
+		}
+	}
+
+	@Test
+	public void test_skipFrameAboveMaxLength() throws IOException {
+
+		byte[] small = jpeg(32, 24, 1);
+		byte[] large = jpeg(320, 240, 2);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		part(baos, small, true);
+		part(baos, large, true);
+		part(baos, small, true);
+
+		try (MjpegInputStream mis = new MjpegInputStream(new ByteArrayInputStream(baos.toByteArray()), large.length - 1)) {
+
+			Assertions
+				.assertThat(bytes(mis.readFrameBuffer()))
+				.isEqualTo(small);
+			Assertions
+				.assertThat(mis.readFrameBuffer())
+				.isNull();
+			Assertions
+				.assertThat(bytes(mis.readFrameBuffer()))
+				.isEqualTo(small);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void test_frameWithoutLengthAboveMaxLength() throws IOException {
+
+		byte[] large = jpeg(320, 240, 2);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		part(baos, large, false);
+
+		try (MjpegInputStream mis = new MjpegInputStream(new ByteArrayInputStream(baos.toByteArray()), large.length - 1)) {
+			mis.readFrameBuffer();
+		}
+	}
+}
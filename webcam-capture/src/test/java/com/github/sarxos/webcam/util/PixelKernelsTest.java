@@ -0,0 +1,145 @@
+package com.github.sarxos.webcam.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class PixelKernelsTest {
+
+	private static final int LENGTH = 1000;
+	private static final int OFFSET = 13;
+
+	private final Random r = new Random(1);
+
+	private byte[] bytes(int n) {
+		byte[] bytes = new byte[n];
+		r.nextBytes(bytes);
+		return bytes;
+	}
+
+	private int[] ints(int n) {
+		int[] ints = new int[n];
+		for (int i = 0; i < n; i++) {
+			ints[i] = r.nextInt();
+		}
+		return ints;
+	}
+
+	/**
+	 * @return Kernels to be tested, vectorized ones only when they are available in this JVM
+	 */
+	private static PixelKernels[] kernels() {
+		PixelKernels vector = PixelKernels.getVector();
+		if (vector == null) {
+			return new PixelKernels[] { PixelKernels.getScalar() };
+		} else {
+			return new PixelKernels[] { PixelKernels.getScalar(), vector };
+		}
+	}
+
+	@Test
+	public void test_luma() {
+
+		int[] rgb = ints(LENGTH + OFFSET);
+
+		for (PixelKernels kernels : kernels()) {
+			for (int n = 0; n <= LENGTH; n += 37) {
+
+				byte[] luma = new byte[LENGTH + OFFSET];
+				kernels.luma(rgb, OFFSET, luma, 1, n);
+
+				for (int i = 0; i < luma.length; i++) {
+					int p = i >= 1 && i <= n ? rgb[OFFSET + i - 1] : 0;
+					int expected = (((p >> 16) & 0xff) * 77 + ((p >> 8) & 0xff) * 151 + (p & 0xff) * 28) >> 8;
+					Assertions
+						.assertThat(luma[i] & 0xff)
+						.isEqualTo(expected);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_absDiff() {
+
+		byte[] a = bytes(LENGTH + OFFSET);
+		byte[] b = bytes(LENGTH + OFFSET);
+
+		for (PixelKernels kernels : kernels()) {
+			for (int n = 0; n <= LENGTH; n += 37) {
+
+				byte[] diff = new byte[LENGTH];
+				kernels.absDiff(a, b, OFFSET, diff, 0, n);
+
+				for (int i = 0; i < LENGTH; i++) {
+					int expected = i < n ? Math.abs((a[OFFSET + i] & 0xff) - (b[OFFSET + i] & 0xff)) : 0;
+					Assertions
+						.assertThat(diff[i] & 0xff)
+						.isEqualTo(expected);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_indexAndCountAbove() {
+
+		byte[] values = bytes(LENGTH);
+
+		for (PixelKernels kernels : kernels()) {
+			for (int threshold : new int[] { 0, 1, 127, 128, 200, 254, 255, 256 }) {
+				for (int from = 0; from < LENGTH; from += 111) {
+
+					int index = LENGTH;
+					int count = 0;
+					for (int i = LENGTH - 1; i >= from; i--) {
+						if ((values[i] & 0xff) >= threshold) {
+							index = i;
+							count++;
+						}
+					}
+
+					Assertions
+						.assertThat(kernels.indexAbove(values, from, LENGTH, threshold))
+						.isEqualTo(index);
+					Assertions
+						.assertThat(kernels.countAbove(values, from, LENGTH, threshold))
+						.isEqualTo(count);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_addAndSlideRow() {
+
+		byte[] add = bytes(LENGTH + OFFSET);
+		byte[] sub = bytes(LENGTH + OFFSET);
+		int[] initial = ints(LENGTH);
+
+		for (PixelKernels kernels : kernels()) {
+			for (int n = 0; n <= LENGTH; n += 37) {
+
+				int[] added = Arrays.copyOf(initial, LENGTH);
+				int[] slided = Arrays.copyOf(initial, LENGTH);
+
+				kernels.addRow(added, add, OFFSET, n);
+				kernels.slideRow(slided, add, OFFSET, sub, 1, n);
+
+				for (int i = 0; i < LENGTH; i++) {
+					int a = i < n ? add[OFFSET + i] & 0xff : 0;
+					int s = i < n ? sub[1 + i] & 0xff : 0;
+					Assertions
+						.assertThat(added[i])
+						.isEqualTo(initial[i] + a);
+					Assertions
+						.assertThat(slided[i])
+						.isEqualTo(initial[i] + a - s);
+				}
+			}
+		}
+	}
+}
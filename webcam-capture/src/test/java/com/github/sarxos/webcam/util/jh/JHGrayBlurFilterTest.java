@@ -0,0 +1,114 @@
+package com.github.sarxos.webcam.util.jh;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+
+public class JHGrayBlurFilterTest {
+
+	private static BufferedImage image(int type, int w, int h) {
+		Random r = new Random(w * h);
+		BufferedImage image = new BufferedImage(w, h, type);
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				image.setRGB(x, y, r.nextInt(0x1000000));
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Straightforward luma and box blur with clamped edges.
+	 */
+	private static byte[] reference(BufferedImage image, int hr, int vr) {
+
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int[] luma = new int[w * h];
+		int[] tmp = new int[w * h];
+		byte[] out = new byte[w * h];
+
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int rgb = image.getRGB(x, y);
+				luma[y * w + x] = (((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 151 + (rgb & 0xff) * 28) >> 8;
+			}
+		}
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int sum = 0;
+				for (int i = -hr; i <= hr; i++) {
+					sum += luma[y * w + Math.min(w - 1, Math.max(0, x + i))];
+				}
+				tmp[y * w + x] = sum / (2 * hr + 1);
+			}
+		}
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int sum = 0;
+				for (int i = -vr; i <= vr; i++) {
+					sum += tmp[Math.min(h - 1, Math.max(0, y + i)) * w + x];
+				}
+				out[y * w + x] = (byte) (sum / (2 * vr + 1));
+			}
+		}
+
+		return out;
+	}
+
+	@Test
+	public void test_sameAsReference() {
+
+		int[] types = new int[] {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR,
+		};
+
+		JHGrayBlurFilter filter = new JHGrayBlurFilter(6, 3);
+
+		for (int type : types) {
+			for (int size : new int[] { 5, 37, 80 }) {
+				BufferedImage image = image(type, size, size * 3 / 4 + 1);
+				Assertions
+					.assertThat(Arrays.equals(filter.filterLuma(image, null), reference(image, 6, 3)))
+					.isTrue();
+			}
+		}
+	}
+
+	@Test
+	public void test_filterInBands() {
+
+		BufferedImage image = image(BufferedImage.TYPE_INT_RGB, 64, 50);
+		byte[] expected = new JHGrayBlurFilter(6, 6).filterLuma(image, null);
+		byte[] actual = new byte[64 * 50];
+
+		for (int y = 0; y < 50; y += 7) {
+			new JHGrayBlurFilter(6, 6).filterLuma(image, actual, y, Math.min(50, y + 7));
+		}
+
+		Assertions
+			.assertThat(Arrays.equals(actual, expected))
+			.isTrue();
+	}
+
+	@Test
+	public void test_filterImage() {
+
+		BufferedImage image = image(BufferedImage.TYPE_INT_RGB, 20, 10);
+		JHGrayBlurFilter filter = new JHGrayBlurFilter(2, 2);
+		BufferedImage gray = filter.filter(image, null);
+
+		Assertions
+			.assertThat(gray.getType())
+			.isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+		Assertions
+			.assertThat(gray.getRaster().getSample(3, 4, 0))
+			.isEqualTo(filter.filterLuma(image, null)[4 * 20 + 3] & 0xff);
+	}
+}